@@ -32,6 +32,7 @@ import org.artifactory.api.config.ExportSettingsImpl;
 import org.artifactory.api.context.ContextHelper;
 import org.artifactory.api.mail.MailService;
 import org.artifactory.common.ArtifactoryHome;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.common.StatusEntry;
 import org.artifactory.descriptor.backup.BackupDescriptor;
 import org.artifactory.descriptor.config.CentralConfigDescriptor;
@@ -47,6 +48,7 @@ import org.artifactory.schedule.TaskUtils;
 import org.artifactory.spring.InternalArtifactoryContext;
 import org.artifactory.spring.InternalContextHelper;
 import org.artifactory.spring.Reloadable;
+import org.artifactory.storage.fs.service.ChangeJournalService;
 import org.artifactory.util.CollectionUtils;
 import org.artifactory.util.EmailException;
 import org.artifactory.version.CompoundVersionDetails;
@@ -68,6 +70,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.PropertyResourceBundle;
 import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Yoav Landman
@@ -77,6 +80,11 @@ import java.util.ResourceBundle;
 public class BackupServiceImpl implements InternalBackupService {
     private static final Logger log = LoggerFactory.getLogger(BackupServiceImpl.class);
 
+    /**
+     * Holds the time since which the next incremental backup exports the journaled changes
+     */
+    private static final String JOURNAL_CURSOR_FILE = ".change-journal-cursor";
+
     @Autowired
     private CentralConfigService centralConfig;
 
@@ -89,6 +97,9 @@ public class BackupServiceImpl implements InternalBackupService {
     @Autowired
     private AddonsManager addonsManager;
 
+    @Autowired
+    private ChangeJournalService changeJournal;
+
     @Override
     public void init() {
         reload(null);
@@ -100,6 +111,30 @@ public class BackupServiceImpl implements InternalBackupService {
         BackupDescriptorHandler backupDescriptorHandler = new BackupDescriptorHandler(backupDescriptors,
                 (oldDescriptor != null) ? oldDescriptor.getBackups() : null);
         backupDescriptorHandler.reschedule();
+        updateChangeJournalRecording(backupDescriptors);
+    }
+
+    /**
+     * The change journal is recorded for the backups only while an enabled incremental backup is configured
+     */
+    private void updateChangeJournalRecording(List<BackupDescriptor> backupDescriptors) {
+        boolean incrementalBackup = false;
+        for (BackupDescriptor backupDescriptor : backupDescriptors) {
+            if (backupDescriptor.isEnabled() && backupDescriptor.isIncremental()) {
+                incrementalBackup = true;
+                break;
+            }
+        }
+        try {
+            if (incrementalBackup && ConstantValues.backupChangeJournalEnabled.getBoolean()) {
+                changeJournal.startRecording(ChangeJournalService.CONSUMER_BACKUP);
+            } else {
+                changeJournal.stopRecording(ChangeJournalService.CONSUMER_BACKUP);
+            }
+        } catch (Exception e) {
+            log.error("Failed to update the change journal, incremental backups will export all the items: " +
+                    e.getMessage(), e);
+        }
     }
 
     static class BackupDescriptorHandler extends BaseTaskServiceDescriptorHandler<BackupDescriptor> {
@@ -251,11 +286,61 @@ public class BackupServiceImpl implements InternalBackupService {
         settings.addCallback(new SystemBackupPauseCallback());
         settings.setExcludeBuilds(excludeBuilds);
 
+        long backupStart = System.currentTimeMillis();
+        File journalCursorFile = new File(backupDir, JOURNAL_CURSOR_FILE);
+        boolean journaled = incremental && changeJournal.isRecording(ChangeJournalService.CONSUMER_BACKUP);
+        if (journaled) {
+            long changedSince = readJournalCursor(journalCursorFile);
+            long journalStart = changeJournal.getJournalStart();
+            if (changedSince >= 0 && journalStart >= 0 && changedSince >= journalStart) {
+                settings.setChangedSince(changedSince);
+                status.status("Backup '" + backup.getKey() + "' exports the changes since " + new Date(changedSince),
+                        log);
+            } else {
+                log.debug("Change journal of backup '{}' starts at {}, exporting all the items", backup.getKey(),
+                        journalStart);
+            }
+        }
+
         context.exportTo(settings);
 
+        if (journaled && !status.isError()) {
+            // the overlap covers the changes of transactions that were still running when the backup started
+            long overlap = TimeUnit.SECONDS.toMillis(ConstantValues.backupChangeJournalOverlapSecs.getLong());
+            writeJournalCursor(journalCursorFile, backupStart - overlap);
+            long retention = TimeUnit.HOURS.toMillis(ConstantValues.backupChangeJournalRetentionHours.getLong());
+            changeJournal.prune(ChangeJournalService.CONSUMER_BACKUP, backupStart - Math.max(retention, overlap));
+        }
         return status;
     }
 
+    /**
+     * @return The change time since which to export, -1 if there is no valid cursor (i.e. a full incremental export is
+     * required)
+     */
+    private long readJournalCursor(File journalCursorFile) {
+        if (!journalCursorFile.isFile()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(FileUtils.readFileToString(journalCursorFile, "utf-8").trim());
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Failed to read the change journal cursor '{}', exporting all the items: {}",
+                    journalCursorFile.getAbsolutePath(), e.getMessage());
+            return -1;
+        }
+    }
+
+    private void writeJournalCursor(File journalCursorFile, long changedSince) {
+        try {
+            FileUtils.writeStringToFile(journalCursorFile, String.valueOf(changedSince), "utf-8");
+        } catch (IOException e) {
+            // the next backup will export all the items
+            log.warn("Failed to write the change journal cursor '" + journalCursorFile.getAbsolutePath() + "'.", e);
+            FileUtils.deleteQuietly(journalCursorFile);
+        }
+    }
+
     @Override
     public void cleanupOldBackups(Date now, String backupKey) {
         BackupDescriptor descriptor = getBackup(backupKey);
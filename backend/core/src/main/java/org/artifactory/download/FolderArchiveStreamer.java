@@ -1,8 +1,14 @@
 package org.artifactory.download;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Queues;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
 import org.artifactory.api.archive.ArchiveType;
 import org.artifactory.api.common.BasicStatusHolder;
 import org.artifactory.api.context.ContextHelper;
@@ -10,14 +16,15 @@ import org.artifactory.api.download.FolderDownloadService;
 import org.artifactory.api.storage.StorageUnit;
 import org.artifactory.common.ConstantValues;
 import org.artifactory.fs.FileInfo;
+import org.artifactory.fs.ItemInfo;
 import org.artifactory.repo.RepoPath;
 import org.artifactory.resource.ResourceStreamHandle;
 import org.artifactory.schedule.CachedThreadPoolTaskExecutor;
 import org.artifactory.schedule.DummyExecutorService;
 import org.artifactory.security.AccessLogger;
 import org.artifactory.storage.fs.service.StatsService;
-import org.artifactory.storage.fs.tree.ItemNode;
-import org.artifactory.storage.fs.tree.ItemTree;
+import org.artifactory.storage.fs.tree.ChildrenFilter;
+import org.artifactory.storage.fs.tree.ItemTreeWalker;
 import org.artifactory.storage.fs.tree.TreeBrowsingCriteriaBuilder;
 import org.artifactory.traffic.TrafficService;
 import org.artifactory.traffic.entry.DownloadEntry;
@@ -29,13 +36,32 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
 
 /**
  * Traverses the tree under the requested path recursively and writes each file into the stream serially.
  * The stream itself is an {@link ArchiveOutputStream} based on the selected {@link ArchiveType}
+ * <p/>
+ * The binaries of the next files are prefetched in parallel while the current file is written, so the download is
+ * not bound by the latency of opening each binary. Small binaries are read into memory by the prefetch, as long as the
+ * memory budget shared by all the downloads allows it. Zip entries of already compressed content (by file extension)
+ * are not compressed again.
  *
  * @author Dan Feldman
  * @author Yossi Shaul
@@ -52,9 +78,15 @@ public class FolderArchiveStreamer {
     private ArchiveOutputStream archiveOutputStream = null;
     private long filesCount;
     private long totalSizeInBytes;
+    private final int prefetchCount;
+    private final long prefetchMaxBufferBytes;
+    private final Set<String> storedExtensions;
+    private final Semaphore prefetchMemory;
+    private final Deque<Prefetch> prefetched = Queues.newArrayDeque();
+    private CachedThreadPoolTaskExecutor executor;
 
     public FolderArchiveStreamer(RepoPath pathToDownload, ArchiveType archiveType, int maxDownloadSizeMb,
-            long maxFiles, BasicStatusHolder status) {
+            long maxFiles, Semaphore prefetchMemory, BasicStatusHolder status) {
         this.rootFolder = pathToDownload;
         this.archiveType = archiveType;
         this.status = status;
@@ -62,27 +94,37 @@ public class FolderArchiveStreamer {
         this.maxDownloadSizeInBytes = (long) StorageUnit.MB.toBytes(maxDownloadSizeMb);
         this.maxFiles = maxFiles;
         this.maxDownloadSizeInMB = maxDownloadSizeMb;
+        this.prefetchMemory = prefetchMemory;
+        this.prefetchCount = ConstantValues.folderDownloadPrefetchCount.getInt();
+        this.prefetchMaxBufferBytes = (long) StorageUnit.KB.toBytes(
+                ConstantValues.folderDownloadPrefetchMaxBufferKb.getInt());
+        ImmutableSet.Builder<String> extensions = ImmutableSet.builder();
+        for (String extension : StringUtils.split(ConstantValues.folderDownloadStoredExtensions.getString(), ", ")) {
+            extensions.add("." + extension.toLowerCase(Locale.ENGLISH));
+        }
+        this.storedExtensions = extensions.build();
     }
 
     public InputStream go() {
-        CachedThreadPoolTaskExecutor executor = ContextHelper.get().beanForType(CachedThreadPoolTaskExecutor.class);
+        executor = ContextHelper.get().beanForType(CachedThreadPoolTaskExecutor.class);
         return new OutputToInputStream(new DummyExecutorService(executor)) {
             @Override
             protected void write(OutputStream sink) throws IOException {
                 try {
                     long start = System.currentTimeMillis();
-                    archiveOutputStream = ArchiveUtils.createArchiveOutputStream(sink, archiveType);
-                    ItemTree tree = new ItemTree(rootFolder, new TreeBrowsingCriteriaBuilder()
-                            .applyRepoIncludeExclude().applySecurity().cacheChildren(false).build());
-                    ItemNode rootNode = tree.getRootNode();
-                    writeRecursive(rootNode);
-                    archiveOutputStream.finish();
+                    // walk the files in pages, large folders are never loaded at once
+                    ItemTreeWalker walker = new ItemTreeWalker(rootFolder, new TreeBrowsingCriteriaBuilder()
+                            .applyRepoIncludeExclude().applySecurity().build(), ChildrenFilter.files(),
+                            ConstantValues.treeWalkerPageSize.getInt());
+                    writeArchive(sink, walker.iterator());
                     log.trace("folder download finished successfully, took {} ms", System.currentTimeMillis() - start);
                 } catch (Exception e) {
                     status.error("Error executing folder download: " + e.getMessage(), log);
                     log.debug("Caught exception while executing folder download: ", e);
                 } finally {
-                    archiveOutputStream.flush();
+                    if (archiveOutputStream != null) {
+                        archiveOutputStream.flush();
+                    }
                     IOUtils.closeQuietly(archiveOutputStream);
                     IOUtils.closeQuietly(sink);
                     ContextHelper.get().beanForType(FolderDownloadService.class).releaseDownloadSlot();
@@ -91,22 +133,33 @@ public class FolderArchiveStreamer {
         };
     }
 
-    private void writeRecursive(ItemNode currentNode) throws IOException {
-        if (limitsReached()) {
-            return;
+    /**
+     * Writes the files into an archive of the sink, in the order of the iterator
+     */
+    @VisibleForTesting
+    void writeArchive(OutputStream sink, Iterator<ItemInfo> files) throws IOException {
+        if (executor == null) {
+            executor = ContextHelper.get().beanForType(CachedThreadPoolTaskExecutor.class);
         }
-        if (currentNode.isFolder()) {
-            for (ItemNode child : currentNode.getChildren()) {
-                if (!limitsReached()) {
-                    writeRecursive(child);
-                }
+        try {
+            archiveOutputStream = ArchiveUtils.createArchiveOutputStream(sink, archiveType);
+            writeFiles(files);
+            while (!prefetched.isEmpty()) {
+                writeNextArtifact();
             }
-        } else {
-            FileInfo fileInfo = (FileInfo) currentNode.getItemInfo();
+            archiveOutputStream.finish();
+        } finally {
+            discardPrefetched();
+        }
+    }
+
+    private void writeFiles(Iterator<ItemInfo> files) throws IOException {
+        while (!limitsReached() && files.hasNext()) {
+            FileInfo fileInfo = (FileInfo) files.next();
             totalSizeInBytes += fileInfo.getSize();
             filesCount++;
             if (!limitsReached()) {
-                writeArtifactToStream(fileInfo.getRepoPath(), fileInfo.getSize());
+                prefetch(fileInfo);
             }
         }
     }
@@ -125,24 +178,88 @@ public class FolderArchiveStreamer {
     }
 
     /**
-     * Returns the size of downloaded file for the loop stop calculation
+     * Queues the file for writing and starts fetching its binary. Writes the oldest queued files once more than the
+     * prefetch count are queued.
      */
-    private void writeArtifactToStream(RepoPath fileRepoPath, long size) throws IOException {
+    private void prefetch(FileInfo fileInfo) throws IOException {
+        Prefetch prefetch = new Prefetch(fileInfo);
+        prefetched.add(prefetch);
+        if (prefetchCount > 0) {
+            try {
+                prefetch.future = executor.submit(prefetch);
+            } catch (RejectedExecutionException e) {
+                // The binary will be fetched when the file is written
+                log.debug("Prefetch of '{}' was rejected: {}", fileInfo.getRepoPath(), e.getMessage());
+            }
+        }
+        while (prefetched.size() > prefetchCount) {
+            writeNextArtifact();
+        }
+    }
+
+    private void writeNextArtifact() throws IOException {
+        Prefetch prefetch = prefetched.poll();
         long start = System.currentTimeMillis();
+        prefetch.await();
+        writeArtifactToStream(prefetch);
+        logAccessTrafficAndStatsForSinglePath(prefetch.fileInfo.getRepoPath(), prefetch.fileInfo.getSize(), start);
+    }
+
+    private void writeArtifactToStream(Prefetch prefetch) throws IOException {
+        RepoPath fileRepoPath = prefetch.fileInfo.getRepoPath();
         String relativePath = PathUtils.getRelativePath(rootFolder.getPath(), fileRepoPath.getPath());
-        ArchiveEntry archiveEntry = ArchiveUtils.createArchiveEntry(relativePath, archiveType, size);
-        ResourceStreamHandle handle = ContextHelper.get().getRepositoryService().getResourceStreamHandle(fileRepoPath);
+        ArchiveEntry archiveEntry = ArchiveUtils.createArchiveEntry(relativePath, archiveType,
+                prefetch.fileInfo.getSize());
         try {
-            InputStream artifactStream = handle.getInputStream();
+            InputStream artifactStream = prefetch.getInputStream();
+            if (archiveEntry instanceof ZipArchiveEntry) {
+                setZipCompression((ZipArchiveEntry) archiveEntry, prefetch);
+            }
             archiveOutputStream.putArchiveEntry(archiveEntry);
             log.debug("Writing path {} to output stream", fileRepoPath.toPath());
             IOUtils.copy(artifactStream, archiveOutputStream);
         } finally {
-            IOUtils.closeQuietly(handle);
+            prefetch.close();
             archiveOutputStream.closeArchiveEntry();
             archiveOutputStream.flush();
         }
-        logAccessTrafficAndStatsForSinglePath(fileRepoPath, size, start);
+    }
+
+    /**
+     * Already compressed content is stored as is. A stored zip entry requires the CRC before the content is written,
+     * so it is used only for content that was read into memory. Larger compressed content is deflated with no
+     * compression, which costs about the same.
+     */
+    private void setZipCompression(ZipArchiveEntry zipEntry, Prefetch prefetch) {
+        boolean compressed = isCompressedContent(prefetch.fileInfo.getName());
+        if (compressed && prefetch.content != null) {
+            CRC32 crc = new CRC32();
+            crc.update(prefetch.content);
+            zipEntry.setMethod(ZipEntry.STORED);
+            zipEntry.setSize(prefetch.content.length);
+            zipEntry.setCrc(crc.getValue());
+        } else {
+            // the level applies to the next deflated entries
+            ((ZipArchiveOutputStream) archiveOutputStream).setLevel(
+                    compressed ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+        }
+    }
+
+    private boolean isCompressedContent(String fileName) {
+        String name = fileName.toLowerCase(Locale.ENGLISH);
+        for (String extension : storedExtensions) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void discardPrefetched() {
+        Prefetch prefetch;
+        while ((prefetch = prefetched.poll()) != null) {
+            prefetch.discard();
+        }
     }
 
     private void logAccessTrafficAndStatsForSinglePath(RepoPath path, long size, long start) {
@@ -155,4 +272,109 @@ public class FolderArchiveStreamer {
                     SecurityContextHolder.getContext().getAuthentication().getName(), System.currentTimeMillis(), false);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Fetches the binary of a single file. The fetch is executed by whoever claims it first: a pool thread or the
+     * writer when it gets to the file before a pool thread picked it, so a saturated pool never blocks the download.
+     */
+    private class Prefetch implements Callable<Void> {
+        private final FileInfo fileInfo;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private Future<Void> future;
+        private ResourceStreamHandle handle;
+        private byte[] content;
+        private int contentPermits;
+
+        private Prefetch(FileInfo fileInfo) {
+            this.fileInfo = fileInfo;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            if (claimed.compareAndSet(false, true)) {
+                fetch();
+            }
+            return null;
+        }
+
+        private void fetch() throws IOException {
+            ResourceStreamHandle fetched = ContextHelper.get().getRepositoryService()
+                    .getResourceStreamHandle(fileInfo.getRepoPath());
+            int permits = (int) ((fileInfo.getSize() + 1023) / 1024);
+            if (fileInfo.getSize() <= prefetchMaxBufferBytes && prefetchMemory.tryAcquire(permits)) {
+                try {
+                    content = IOUtils.toByteArray(fetched.getInputStream());
+                    contentPermits = permits;
+                } finally {
+                    if (content == null) {
+                        prefetchMemory.release(permits);
+                    }
+                    IOUtils.closeQuietly(fetched);
+                }
+            } else {
+                // too large or out of memory budget, the binary is streamed when the file is written
+                handle = fetched;
+            }
+        }
+
+        /**
+         * Waits for the prefetch, or fetches the binary if the prefetch didn't start yet
+         */
+        private void await() throws IOException {
+            if (future == null || claimed.compareAndSet(false, true)) {
+                if (future != null) {
+                    future.cancel(false);
+                }
+                fetch();
+                return;
+            }
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while fetching " + fileInfo.getRepoPath(), e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException("Failed to fetch " + fileInfo.getRepoPath(), cause);
+            }
+        }
+
+        private InputStream getInputStream() {
+            return content != null ? new ByteArrayInputStream(content) : handle.getInputStream();
+        }
+
+        /**
+         * Cancels the prefetch, or waits for it and releases the fetched binary if it already started
+         */
+        private void discard() {
+            if (future == null || claimed.compareAndSet(false, true)) {
+                if (future != null) {
+                    future.cancel(false);
+                }
+                return;
+            }
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                log.debug("Discarded prefetch of '{}' failed: {}", fileInfo.getRepoPath(), e.getMessage());
+            }
+            close();
+        }
+
+        private void close() {
+            IOUtils.closeQuietly(handle);
+            handle = null;
+            content = null;
+            prefetchMemory.release(contentPermits);
+            contentPermits = 0;
+        }
+    }
+}
@@ -39,6 +39,7 @@ import org.artifactory.fs.ItemInfo;
 import org.artifactory.maven.snapshot.BuildNumberSnapshotComparator;
 import org.artifactory.maven.snapshot.SnapshotComparator;
 import org.artifactory.maven.versioning.MavenMetadataVersionComparator;
+import org.artifactory.maven.versioning.MavenVersionComparator;
 import org.artifactory.maven.versioning.VersionNameMavenMetadataVersionComparator;
 import org.artifactory.mime.MavenNaming;
 import org.artifactory.model.common.RepoPathImpl;
@@ -162,6 +163,67 @@ public class MavenMetadataCalculator extends AbstractMetadataCalculator {
         return status;
     }
 
+    /**
+     * Merges the versions of the deployed poms into the existing maven metadata of the base (versions) folder, without
+     * listing the folder. Only possible when the folder has a valid versions metadata and the versions are sorted by
+     * the default comparator (a custom comparator might rely on the version folders info).
+     *
+     * @param deployedPoms Poms deployed to version folders under the base folder
+     * @return False if the metadata should be calculated from the folder content instead
+     */
+    public boolean mergeVersions(Collection<RepoPath> deployedPoms) {
+        if (StringUtils.isNotBlank(ConstantValues.mvnMetadataVersionsComparator.getString())) {
+            return false;
+        }
+        RepoPathImpl mavenMetadataPath = new RepoPathImpl(baseFolder, MavenNaming.MAVEN_METADATA_NAME);
+        if (!getRepositoryService().exists(mavenMetadataPath)) {
+            return false;
+        }
+        Metadata metadata;
+        try {
+            metadata = MavenModelUtils.toMavenMetadata(getRepositoryService().getStringContent(mavenMetadataPath));
+        } catch (IOException e) {
+            log.debug("Failed to read maven metadata of '{}': {}", baseFolder, e.getMessage());
+            return false;
+        }
+        Versioning versioning = metadata.getVersioning();
+        if (versioning == null || versioning.getVersions().isEmpty() || isSnapshotMavenMetadata(metadata)) {
+            return false;
+        }
+
+        TreeSet<String> sortedVersions = Sets.newTreeSet(new MavenVersionComparator());
+        sortedVersions.addAll(versioning.getVersions());
+        boolean changed = false;
+        for (RepoPath deployedPom : deployedPoms) {
+            RepoPath versionFolder = deployedPom.getParent();
+            // the pom might have been removed (or its deploy rolled back) since it was recorded
+            if (versionFolder != null && baseFolder.equals(versionFolder.getParent()) &&
+                    !sortedVersions.contains(versionFolder.getName()) &&
+                    getRepositoryService().exists(deployedPom)) {
+                sortedVersions.add(versionFolder.getName());
+                changed = true;
+            }
+        }
+        if (!changed) {
+            log.debug("Maven metadata of '{}' already contains the deployed versions", baseFolder);
+            return true;
+        }
+
+        versioning.setVersions(Lists.newArrayList(sortedVersions));
+        // latest is simply the last (be it snapshot or release version), release is the latest non snapshot version
+        versioning.setLatest(sortedVersions.last());
+        for (String version : sortedVersions.descendingSet()) {
+            if (!MavenNaming.isSnapshot(version)) {
+                versioning.setRelease(version);
+                break;
+            }
+        }
+        versioning.setLastUpdatedTimestamp(new Date());
+        saveMetadata(baseFolder, metadata);
+        log.debug("Merged deployed versions into the maven metadata of '{}'", baseFolder);
+        return true;
+    }
+
     private void calculateAndSet(ItemNode treeNode) {
         ItemInfo itemInfo = treeNode.getItemInfo();
         if (!itemInfo.isFolder()) {
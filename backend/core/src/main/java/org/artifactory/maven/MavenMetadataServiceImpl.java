@@ -11,6 +11,7 @@ import org.artifactory.repo.service.InternalRepositoryService;
 import org.artifactory.spring.InternalContextHelper;
 import org.artifactory.storage.fs.service.TasksService;
 import org.artifactory.util.RepoLayoutUtils;
+import org.artifactory.util.RepoPathUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -33,6 +34,8 @@ public class MavenMetadataServiceImpl implements MavenMetadataService {
     private final Semaphore pluginsMDSemaphore = new Semaphore(1);
     // queue of repository keys that requires maven metadata plugins calculation
     private final Queue<String> pluginsMDQueue = new ConcurrentLinkedQueue<>();
+    // poms deployed to versions folders since their last incremental metadata calculation
+    private final PendingMavenMetadata pendingVersionsMD = new PendingMavenMetadata();
     @Autowired
     private InternalRepositoryService repoService;
     @Autowired
@@ -58,15 +61,61 @@ public class MavenMetadataServiceImpl implements MavenMetadataService {
 
     @Override
     public void calculateMavenMetadata(RepoPath baseFolderPath, boolean recursive) {
-        LocalRepo localRepo;
+        LocalRepo localRepo = getMetadataLocalRepo(baseFolderPath);
+        if (localRepo == null) {
+            return;
+        }
+        if (!localRepo.itemExists(baseFolderPath.getPath())) {
+            log.debug("Couldn't find path '{}'.", baseFolderPath);
+            return;
+        }
+
+        new MavenMetadataCalculator(baseFolderPath, recursive).calculate();
+        // Calculate maven plugins metadata asynchronously
+        getTransactionalMe().calculateMavenPluginsMetadataAsync(localRepo.getKey());
+    }
+
+    @Override
+    public void calculateMavenMetadataIncrementalAsync(RepoPath pomRepoPath) {
+        RepoPath versionsFolder = RepoPathUtils.getAncestor(pomRepoPath, 2);
+        LocalRepo localRepo = getMetadataLocalRepo(versionsFolder);
+        if (localRepo == null) {
+            return;
+        }
+        boolean merged = pendingVersionsMD.addAndMerge(versionsFolder, pomRepoPath, deployedPoms -> {
+            try {
+                log.debug("Merging {} deployed poms into the maven metadata of '{}'", deployedPoms.size(),
+                        versionsFolder);
+                MavenMetadataCalculator calculator = new MavenMetadataCalculator(versionsFolder, false);
+                if (!calculator.mergeVersions(deployedPoms)) {
+                    log.debug("Incremental maven metadata calculation is not possible on '{}' - " +
+                            "calculating the folder", versionsFolder);
+                    calculateMavenMetadata(versionsFolder, false);
+                }
+            } catch (Exception e) {
+                log.error("Failed to calculate maven metadata on '" + versionsFolder + "':", e);
+            }
+        });
+        if (!merged) {
+            log.debug("Maven metadata calculation of '{}' already running in another thread", versionsFolder);
+            return;
+        }
+        // Calculate maven plugins metadata asynchronously
+        getTransactionalMe().calculateMavenPluginsMetadataAsync(localRepo.getKey());
+    }
+
+    /**
+     * @return The local non-cache repository of the path if maven metadata should be calculated in it, null otherwise
+     */
+    private LocalRepo getMetadataLocalRepo(RepoPath baseFolderPath) {
         if (baseFolderPath == null) {
             log.debug("Couldn't find repo for null repo path.");
-            return;
+            return null;
         }
-        localRepo = repoService.localRepositoryByKey(baseFolderPath.getRepoKey());
+        LocalRepo localRepo = repoService.localRepositoryByKey(baseFolderPath.getRepoKey());
         if (localRepo == null) {
             log.debug("Couldn't find local non-cache repository for path '{}'.", baseFolderPath);
-            return;
+            return null;
         }
         log.trace("Calculate maven metadata on {}", baseFolderPath);
         RepoLayout repoLayout = localRepo.getDescriptor().getRepoLayout();
@@ -76,16 +125,9 @@ public class MavenMetadataServiceImpl implements MavenMetadataService {
             log.debug(
                     "Skipping maven metadata calculation since repoType '{}' doesn't belong to neither Maven, Ivy, Gradle" +
                             " repositories types.", baseFolderPath.getRepoKey());
-            return;
+            return null;
         }
-        if (!localRepo.itemExists(baseFolderPath.getPath())) {
-            log.debug("Couldn't find path '{}'.", baseFolderPath);
-            return;
-        }
-
-        new MavenMetadataCalculator(baseFolderPath, recursive).calculate();
-        // Calculate maven plugins metadata asynchronously
-        getTransactionalMe().calculateMavenPluginsMetadataAsync(localRepo.getKey());
+        return localRepo;
     }
 
     // get all folders marked for maven metadata calculation and execute the metadata calculation
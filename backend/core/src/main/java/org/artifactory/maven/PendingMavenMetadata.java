@@ -0,0 +1,75 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.maven;
+
+import org.artifactory.repo.RepoPath;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Collects the poms deployed to versions folders and hands them to a single merging thread per folder.
+ * <p/>
+ * The pending poms of a folder are only mutated inside {@link ConcurrentMap#compute} and drained with a
+ * {@link ConcurrentMap#remove}, so a pom is either in the set taken by the merging thread or in a new set that is
+ * merged after it.
+ */
+class PendingMavenMetadata {
+
+    // versions folders and the poms deployed to them since their last incremental metadata calculation
+    private final ConcurrentMap<RepoPath, Set<RepoPath>> pending = new ConcurrentHashMap<>();
+    // versions folders that are currently calculated incrementally by some thread
+    private final Set<RepoPath> running = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Adds the pom to the pending poms of the folder and merges the pending poms unless another thread is already
+     * merging the folder, in which case that thread merges the added pom as well.
+     *
+     * @param versionsFolder The versions folder the pom was deployed to
+     * @param pomRepoPath    The deployed pom
+     * @param merger         Merges a batch of pending poms into the folder metadata
+     * @return False if another thread merges the folder
+     */
+    boolean addAndMerge(RepoPath versionsFolder, RepoPath pomRepoPath, Consumer<Set<RepoPath>> merger) {
+        pending.compute(versionsFolder, (folder, poms) -> {
+            Set<RepoPath> result = poms != null ? poms : new HashSet<>();
+            result.add(pomRepoPath);
+            return result;
+        });
+
+        // the pending check after the release covers poms added between the last drain and the release
+        while (pending.containsKey(versionsFolder)) {
+            if (!running.add(versionsFolder)) {
+                return false;
+            }
+            try {
+                Set<RepoPath> poms;
+                while ((poms = pending.remove(versionsFolder)) != null) {
+                    merger.accept(poms);
+                }
+            } finally {
+                running.remove(versionsFolder);
+            }
+        }
+        return true;
+    }
+}
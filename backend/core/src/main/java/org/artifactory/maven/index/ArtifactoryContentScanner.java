@@ -22,6 +22,7 @@ package org.artifactory.maven.index;
 
 import org.apache.maven.index.ArtifactContext;
 import org.apache.maven.index.ArtifactContextProducer;
+import org.apache.maven.index.ArtifactScanningListener;
 import org.apache.maven.index.Scanner;
 import org.apache.maven.index.ScanningRequest;
 import org.apache.maven.index.ScanningResult;
@@ -64,40 +65,62 @@ public class ArtifactoryContentScanner extends AbstractLogEnabled implements Sca
         return result;
     }
 
+    /**
+     * Scans only the files of the given folder, sub folders are not scanned.
+     */
+    void scanFiles(File dir, IndexingContext context, ArtifactScanningListener listener) {
+        Set<File> files = listFiles(dir);
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!file.isDirectory()) {
+                processFile(file, context, listener);
+            }
+        }
+    }
+
     private void scanDirectory(File dir, ScanningRequest request) {
         if (dir == null) {
             return;
         }
 
+        Set<File> files = listFiles(dir);
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            if (file.isDirectory()) {
+                scanDirectory(file, request);
+            } else {
+                processFile(file, request.getIndexingContext(), request.getArtifactScanningListener());
+            }
+        }
+    }
+
+    private Set<File> listFiles(File dir) {
         File[] fileArray = dir.listFiles();
 
         if (fileArray == null) {
             log.debug("Unexpected null file list returned from {}: {}", dir.getAbsolutePath(),
                     Files.readFailReason(dir));
-            return;
+            return null;
         }
 
         Set<File> files = new TreeSet<>(new ScannerFileComparator());
 
         files.addAll(Arrays.asList(fileArray));
-
-        for (File file : files) {
-            if (file.isDirectory()) {
-                scanDirectory(file, request);
-            } else {
-                processFile(file, request);
-            }
-        }
+        return files;
     }
 
-    private void processFile(File file, ScanningRequest request) {
+    private void processFile(File file, IndexingContext context, ArtifactScanningListener listener) {
         try {
             if (!file.getName().startsWith(".")) {
-                IndexingContext context = request.getIndexingContext();
                 ArtifactContext ac = artifactContextProducer.getArtifactContext(context, file);
 
                 if (ac != null) {
-                    request.getArtifactScanningListener().artifactDiscovered(ac);
+                    listener.artifactDiscovered(ac);
                 }
             }
         } catch (Throwable t) {
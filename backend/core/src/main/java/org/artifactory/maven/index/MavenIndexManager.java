@@ -49,7 +49,10 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author freds
@@ -62,6 +65,8 @@ public class MavenIndexManager {
     private StoringRepo indexStorageRepo;
     private ResourceStreamHandle indexHandle;
     private ResourceStreamHandle propertiesHandle;
+    private Map<String, ? extends ResourceStreamHandle> chunkHandles = Collections.emptyMap();
+    private Set<String> obsoleteChunks = Collections.emptySet();
     private IndexStatus indexStatus = IndexStatus.NOT_CREATED;
 
     private enum IndexStatus {
@@ -231,8 +236,15 @@ public class MavenIndexManager {
         RepoIndexer repoIndexer = new RepoIndexer(indexStorageRepo);
         try {
             Pair<TempFileStreamHandle, TempFileStreamHandle> tempFileStreamHandlesPair = repoIndexer.index(fireTime);
+            if (tempFileStreamHandlesPair == null) {
+                log.debug("Index files of {} are up to date", indexedRepo);
+                indexStatus = IndexStatus.SKIP;
+                return;
+            }
             indexHandle = tempFileStreamHandlesPair.getFirst();
             propertiesHandle = tempFileStreamHandlesPair.getSecond();
+            chunkHandles = repoIndexer.getChunkHandles();
+            obsoleteChunks = repoIndexer.getObsoleteChunks();
             indexStatus = IndexStatus.NEEDS_SAVING;
             log.debug("Created index files for {}", indexedRepo);
         } catch (Exception e) {
@@ -266,6 +278,12 @@ public class MavenIndexManager {
                     InternalRepositoryService.class);
             RepoPath indexFolderRepoPath = indexStorageRepo.getRepoPath(MavenNaming.NEXUS_INDEX_DIR);
 
+            // save the new incremental chunks before the properties that reference them
+            for (Map.Entry<String, ? extends ResourceStreamHandle> chunk : chunkHandles.entrySet()) {
+                RepoPath chunkRepoPath = new RepoPathImpl(indexFolderRepoPath, chunk.getKey());
+                repoService.saveFileInternal(chunkRepoPath, chunk.getValue().getInputStream());
+            }
+
             // save the index gz file
             RepoPath indexGzRepoPath = new RepoPathImpl(indexFolderRepoPath, MavenNaming.NEXUS_INDEX_GZ);
             InputStream indexInputStream = indexHandle.getInputStream();
@@ -276,6 +294,10 @@ public class MavenIndexManager {
             InputStream propertiesInputStream = propertiesHandle.getInputStream();
             repoService.saveFileInternal(indexPropsRepoPath, propertiesInputStream);
 
+            for (String obsoleteChunk : obsoleteChunks) {
+                repoService.undeploy(new RepoPathImpl(indexFolderRepoPath, obsoleteChunk), false, false);
+            }
+
             log.info("Successfully saved index file '{}' and index info '{}'.",
                     indexGzRepoPath, indexPropsRepoPath);
             log.debug("Saved index file for {}", indexStorageRepo);
@@ -283,6 +305,8 @@ public class MavenIndexManager {
         } catch (Exception e) {
             closeHandles();
             abort();
+            //The incremental index is ahead of the published index files
+            RepoIndexer.deleteIncrementalState(indexStorageRepo.getKey());
             throw new RuntimeException("Failed to save index file for repo '" + indexStorageRepo + "'.", e);
         } finally {
             closeHandles();
@@ -292,6 +316,9 @@ public class MavenIndexManager {
     private void closeHandles() {
         IOUtils.closeQuietly(indexHandle);
         IOUtils.closeQuietly(propertiesHandle);
+        for (ResourceStreamHandle chunkHandle : chunkHandles.values()) {
+            IOUtils.closeQuietly(chunkHandle);
+        }
     }
 
     private boolean shouldFetchRemoteIndex(RemoteRepo remoteRepo) {
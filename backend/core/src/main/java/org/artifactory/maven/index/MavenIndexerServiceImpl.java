@@ -47,6 +47,7 @@ import org.artifactory.schedule.TaskService;
 import org.artifactory.schedule.TaskUtils;
 import org.artifactory.spring.InternalContextHelper;
 import org.artifactory.spring.Reloadable;
+import org.artifactory.storage.fs.service.ChangeJournalService;
 import org.artifactory.util.ExceptionUtils;
 import org.artifactory.util.Files;
 import org.artifactory.util.Pair;
@@ -87,14 +88,36 @@ public class MavenIndexerServiceImpl implements InternalMavenIndexerService {
     @Autowired
     private InternalRepositoryService repositoryService;
 
+    @Autowired
+    private ChangeJournalService changeJournal;
+
     @Override
     public void init() {
         new IndexerSchedulerHandler(getDescriptor(), null).reschedule();
+        updateChangeJournalRecording();
     }
 
     @Override
     public void reload(CentralConfigDescriptor oldDescriptor) {
         new IndexerSchedulerHandler(getDescriptor(), oldDescriptor.getIndexer()).reschedule();
+        updateChangeJournalRecording();
+    }
+
+    /**
+     * The change journal is recorded for the indexer only while the incremental indexing is enabled
+     */
+    private void updateChangeJournalRecording() {
+        IndexerDescriptor indexer = getDescriptor();
+        try {
+            if (indexer != null && indexer.isEnabled() && ConstantValues.mvnIndexerIncrementalEnabled.getBoolean()) {
+                changeJournal.startRecording(ChangeJournalService.CONSUMER_MAVEN_INDEXER);
+            } else {
+                changeJournal.stopRecording(ChangeJournalService.CONSUMER_MAVEN_INDEXER);
+            }
+        } catch (Exception e) {
+            log.error("Failed to update the change journal, the maven indexer will index all the items: " +
+                    e.getMessage(), e);
+        }
     }
 
     private IndexerDescriptor getDescriptor() {
@@ -11,8 +11,24 @@
 
 package org.artifactory.maven.index;
 
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.commons.io.FileUtils;
+import org.apache.lucene.document.FieldSelector;
+import org.apache.lucene.document.MapFieldSelector;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Scorer;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.maven.index.ArtifactContext;
+import org.apache.maven.index.ArtifactInfo;
 import org.apache.maven.index.ArtifactScanningListener;
 import org.apache.maven.index.DefaultIndexer;
 import org.apache.maven.index.DefaultIndexerEngine;
@@ -21,6 +37,7 @@ import org.apache.maven.index.DefaultScannerListener;
 import org.apache.maven.index.DefaultSearchEngine;
 import org.apache.maven.index.ScanningRequest;
 import org.apache.maven.index.ScanningResult;
+import org.apache.maven.index.artifact.GavCalculator;
 import org.apache.maven.index.context.IndexCreator;
 import org.apache.maven.index.context.IndexingContext;
 import org.apache.maven.index.incremental.DefaultIncrementalHandler;
@@ -31,6 +48,7 @@ import org.apache.maven.index.packer.IndexPackingRequest;
 import org.apache.maven.index.updater.DefaultIndexUpdater;
 import org.artifactory.api.context.ContextHelper;
 import org.artifactory.common.ArtifactoryHome;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.fs.RepoResource;
 import org.artifactory.io.TempFileStreamHandle;
 import org.artifactory.maven.index.creator.VfsJarFileContentsIndexCreator;
@@ -43,23 +61,32 @@ import org.artifactory.request.NullRequestContext;
 import org.artifactory.resource.ResourceStreamHandle;
 import org.artifactory.schedule.TaskInterruptedException;
 import org.artifactory.schedule.TaskUtils;
+import org.artifactory.storage.fs.service.ChangeJournalService;
+import org.artifactory.storage.fs.tree.ItemNode;
 import org.artifactory.storage.fs.tree.ItemTree;
 import org.artifactory.storage.fs.tree.file.JavaIOFileAdapter;
 import org.artifactory.util.Files;
 import org.artifactory.util.Pair;
+import org.artifactory.util.PathUtils;
 import org.codehaus.plexus.logging.console.ConsoleLogger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.util.FieldUtils;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 /**
  * @author yoavl
@@ -68,11 +95,19 @@ import java.util.Map;
 public class RepoIndexer extends DefaultIndexer implements ArtifactScanningListener {
     private static final Logger log = LoggerFactory.getLogger(RepoIndexer.class);
 
+    private static final String INCREMENTAL_STATE_DIR = "maven-index";
+    private static final String CHANGES_CURSOR_FILE = "changes-cursor";
+    private static final int CHANGED_PATHS_PAGE_SIZE = 1000;
+    private static final Pattern CHUNK_NAME_PATTERN =
+            Pattern.compile(Pattern.quote(MavenNaming.NEXUS_INDEX_PREFIX) + "\\.\\d+\\.gz");
+
     private final StoringRepo repo;
     private IndexingContext context;
     private IndexPacker packer;
     private final DefaultIndexerEngine defaultIndexerEngine;
     private final ArtifactoryContentScanner scanner;
+    private Map<String, TempFileStreamHandle> chunkHandles = Collections.emptyMap();
+    private Set<String> obsoleteChunks = Collections.emptySet();
 
     public RepoIndexer(StoringRepo repo) {
         if (repo == null) {
@@ -124,14 +159,26 @@ public class RepoIndexer extends DefaultIndexer implements ArtifactScanningListe
         Thread.yield();
     }
 
+    /**
+     * @return The index file and the index properties file handles, or null if the repository didn't change since the
+     * previous (incremental) run and the published index is up to date
+     */
     @SuppressWarnings({"UnusedDeclaration"})
+    @Nullable
     Pair<TempFileStreamHandle, TempFileStreamHandle> index(Date fireTime) throws Exception {
+        if (ConstantValues.mvnIndexerIncrementalEnabled.getBoolean()
+                && getChangeJournal().isRecording(ChangeJournalService.CONSUMER_MAVEN_INDEXER)) {
+            return indexIncrementally();
+        }
+        //The incremental index is stale once the repo is indexed without it
+        deleteIncrementalState(repo.getKey());
         //Use a file based dir with a temp file to conserve memory
         ArtifactoryHome artifactoryHome = ContextHelper.get().getArtifactoryHome();
         // TODO: Should use the temp file of the repo
         File dir = Files.createRandomDir(artifactoryHome.getTempWorkDir(), "artifactory.index." + repo.getKey());
         try {
             createContext(dir);
+            obsoleteChunks = findPublishedChunks();
             return createIndex(dir, true);
         } catch (Exception e) {
             throw new RuntimeException("Indexing failed.", e);
@@ -141,6 +188,347 @@ public class RepoIndexer extends DefaultIndexer implements ArtifactScanningListe
         }
     }
 
+    /**
+     * Updates the persistent index of the previous run with the artifacts that changed since then according to the
+     * change journal, and packs the changed documents as a new incremental chunk. The repo is fully scanned into a new
+     * index, which starts a new chunks chain, if the previous index or its published files are missing or if the
+     * journal doesn't cover all the changes since the previous run.
+     */
+    @Nullable
+    private Pair<TempFileStreamHandle, TempFileStreamHandle> indexIncrementally() throws Exception {
+        long indexingStart = System.currentTimeMillis();
+        ChangeJournalService changeJournal = getChangeJournal();
+        File stateDir = getIncrementalStateDir(repo.getKey());
+        File indexDir = new File(stateDir, "index");
+        File packedDir = new File(stateDir, "packed");
+        File cursorFile = new File(stateDir, CHANGES_CURSOR_FILE);
+        long changedSince = readChangesCursor(cursorFile);
+        long journalStart = changeJournal.getJournalStart();
+        boolean update = changedSince >= 0 && journalStart >= 0 && changedSince >= journalStart
+                && indexDir.isDirectory() && new File(packedDir, MavenNaming.NEXUS_INDEX_PROPERTIES).isFile()
+                && repo.itemExists(MavenNaming.NEXUS_INDEX_PROPERTIES_PATH);
+        if (!update) {
+            FileUtils.deleteQuietly(stateDir);
+        }
+        boolean indexed = false;
+        try {
+            FileUtils.forceMkdir(indexDir);
+            FileUtils.forceMkdir(packedDir);
+            createContext(indexDir);
+            Pair<TempFileStreamHandle, TempFileStreamHandle> indexFiles = null;
+            if (update) {
+                log.debug("Updating the index of {} with the changes since {}.", repo, new Date(changedSince));
+                if (updateChangedFolders(changedSince)) {
+                    indexFiles = packIncrementally(packedDir);
+                } else {
+                    log.debug("No changes to index in {}.", repo);
+                }
+            } else {
+                log.debug("Creating a new incremental index of {}.", repo);
+                scanner.scan(new ScanningRequest(context,
+                        new DefaultScannerListener(context, defaultIndexerEngine, false, this), null));
+                indexFiles = packIncrementally(packedDir);
+            }
+            long overlap = TimeUnit.SECONDS.toMillis(ConstantValues.mvnIndexerChangesOverlapSecs.getLong());
+            FileUtils.writeStringToFile(cursorFile, String.valueOf(indexingStart - overlap), "utf-8");
+            indexed = true;
+            pruneChangeJournal(indexingStart, overlap);
+            return indexFiles;
+        } catch (Exception e) {
+            throw new RuntimeException("Indexing failed.", e);
+        } finally {
+            if (context != null) {
+                try {
+                    closeIndexingContext(context, false);
+                } catch (Exception e) {
+                    log.warn("Could not close index context '{}'.", context);
+                }
+            }
+            if (!indexed) {
+                //The next run will create a new index
+                FileUtils.deleteQuietly(stateDir);
+            }
+        }
+    }
+
+    /**
+     * Re-scans the version folders of the changed paths: new and modified artifacts are updated in the index and the
+     * indexed artifacts that are no longer found are removed from it.
+     *
+     * @return True if any folder was re-scanned
+     */
+    private boolean updateChangedFolders(long changedSince) throws IOException {
+        Set<String> changedFolders = findChangedFolders(changedSince);
+        log.debug("Updating {} changed folders in the index of {}.", changedFolders.size(), repo);
+        for (String folderPath : changedFolders) {
+            if (TaskUtils.pauseOrBreak()) {
+                throw new TaskInterruptedException();
+            }
+            Set<String> indexedUinfos = loadIndexedFolders(folderPath).get(folderPath);
+            updateFolder(folderPath, indexedUinfos != null ? indexedUinfos : Collections.<String>emptySet());
+        }
+        return !changedFolders.isEmpty();
+    }
+
+    /**
+     * Looks up only the artifacts under the given path instead of reading the whole index.
+     *
+     * @return The uinfos of the indexed artifacts by their version folder path, of the version folders that are the
+     * given path or are under it
+     */
+    private NavigableMap<String, Set<String>> loadIndexedFolders(final String path) throws IOException {
+        final NavigableMap<String, Set<String>> indexedFolders = Maps.newTreeMap();
+        BooleanQuery query = new BooleanQuery();
+        for (String prefix : uinfoPrefixes(path)) {
+            query.add(new PrefixQuery(new Term(ArtifactInfo.UINFO, prefix)), BooleanClause.Occur.SHOULD);
+        }
+        final FieldSelector uinfoSelector = new MapFieldSelector(ArtifactInfo.UINFO);
+        IndexSearcher searcher = context.acquireIndexSearcher();
+        try {
+            searcher.search(query, new Collector() {
+                private IndexReader reader;
+
+                @Override
+                public void setScorer(Scorer scorer) {
+                }
+
+                @Override
+                public void collect(int doc) throws IOException {
+                    //Only artifact documents have a uinfo (and not the deletion markers or the groups documents)
+                    String uinfo = reader.document(doc, uinfoSelector).get(ArtifactInfo.UINFO);
+                    String folderPath = uinfo != null ? getVersionFolderPath(uinfo) : null;
+                    if (folderPath == null || !(folderPath.equals(path) || folderPath.startsWith(path + "/"))) {
+                        return;
+                    }
+                    Set<String> folderUinfos = indexedFolders.get(folderPath);
+                    if (folderUinfos == null) {
+                        folderUinfos = Sets.newHashSet();
+                        indexedFolders.put(folderPath, folderUinfos);
+                    }
+                    folderUinfos.add(uinfo);
+                }
+
+                @Override
+                public void setNextReader(IndexReader reader, int docBase) {
+                    this.reader = reader;
+                }
+
+                @Override
+                public boolean acceptsDocsOutOfOrder() {
+                    return true;
+                }
+            });
+        } finally {
+            context.releaseIndexSearcher(searcher);
+        }
+        return indexedFolders;
+    }
+
+    /**
+     * The version folder path of an artifact is its groupId (with slashes), artifactId and version, so a path is
+     * matched by splitting it into a groupId followed by at most an artifactId and a version.
+     *
+     * @return The uinfo prefixes of the artifacts whose version folder may be the given path or under it
+     */
+    static List<String> uinfoPrefixes(String path) {
+        String[] names = PathUtils.getPathElements(path);
+        List<String> prefixes = Lists.newArrayList();
+        for (int groupLength = Math.max(1, names.length - 2); groupLength <= names.length; groupLength++) {
+            String groupId = Joiner.on('.').join(Arrays.copyOf(names, groupLength));
+            if (groupLength == names.length) {
+                //The path is the groupId or a part of it
+                prefixes.add(groupId + ArtifactInfo.FS);
+                prefixes.add(groupId + ".");
+            } else {
+                String[] artifactAndVersion = Arrays.copyOfRange(names, groupLength, names.length);
+                prefixes.add(groupId + ArtifactInfo.FS + Joiner.on(ArtifactInfo.FS).join(artifactAndVersion)
+                        + ArtifactInfo.FS);
+            }
+        }
+        return prefixes;
+    }
+
+    @Nullable
+    private static String getVersionFolderPath(String uinfo) {
+        String[] gav = uinfo.split("\\|");
+        if (gav.length < 3) {
+            return null;
+        }
+        return gav[0].replace('.', '/') + "/" + gav[1] + "/" + gav[2];
+    }
+
+    private Set<String> findChangedFolders(long changedSince) throws IOException {
+        ChangeJournalService changeJournal = getChangeJournal();
+        GavCalculator gavCalculator = context.getGavCalculator();
+        Set<String> changedFolders = Sets.newTreeSet();
+        String afterPath = null;
+        List<String> changedPaths;
+        do {
+            changedPaths = changeJournal.getChangedPaths(repo.getKey(), changedSince, afterPath,
+                    CHANGED_PATHS_PAGE_SIZE);
+            for (String path : changedPaths) {
+                if (path.equals(MavenNaming.NEXUS_INDEX_DIR) || path.startsWith(MavenNaming.NEXUS_INDEX_DIR + "/")) {
+                    continue;
+                }
+                if (gavCalculator.pathToGav(path) != null) {
+                    changedFolders.add(PathUtils.getParent(path));
+                } else {
+                    //A folder (or a non artifact file): the indexed folders under it and its current folders
+                    changedFolders.addAll(loadIndexedFolders(path).keySet());
+                    ItemNode node = new ItemTree(repo.getRepoPath(path)).getRootNode();
+                    if (node != null && node.isFolder()) {
+                        collectFilesFolders(node, changedFolders);
+                    }
+                }
+            }
+            if (!changedPaths.isEmpty()) {
+                afterPath = changedPaths.get(changedPaths.size() - 1);
+            }
+        } while (changedPaths.size() == CHANGED_PATHS_PAGE_SIZE);
+        return changedFolders;
+    }
+
+    private void collectFilesFolders(ItemNode folder, Set<String> folderPaths) {
+        for (ItemNode child : folder.getChildren()) {
+            if (child.isFolder()) {
+                collectFilesFolders(child, folderPaths);
+            } else {
+                folderPaths.add(folder.getRepoPath().getPath());
+            }
+        }
+    }
+
+    private void updateFolder(String folderPath, Set<String> indexedUinfos) throws IOException {
+        Set<String> discoveredUinfos = Sets.newHashSet();
+        ItemNode folderNode = new ItemTree(repo.getRepoPath(folderPath)).getRootNode();
+        if (folderNode != null && folderNode.isFolder()) {
+            scanner.scanFiles(new JavaIOFileAdapter(folderNode), context, new FolderUpdateListener(discoveredUinfos));
+        }
+        for (String uinfo : indexedUinfos) {
+            if (!discoveredUinfos.contains(uinfo)) {
+                log.trace("Artifact removed: '{}'", uinfo);
+                defaultIndexerEngine.remove(context,
+                        new ArtifactContext(null, null, null, new RemovedArtifactInfo(uinfo), null));
+            }
+        }
+    }
+
+    /**
+     * Packs the index with a new incremental chunk into the persistent packed dir and copies the files to publish.
+     * The packed dir keeps only the properties and the chunks, which are required to pack the next chunk.
+     */
+    private Pair<TempFileStreamHandle, TempFileStreamHandle> packIncrementally(File packedDir) throws IOException {
+        context.commit();
+        context.updateTimestamp();
+        Set<String> previousChunks = listChunks(packedDir);
+        packer.packIndex(newIndexPackingRequest(packedDir, true));
+        Set<String> chunks = listChunks(packedDir);
+
+        ArtifactoryHome artifactoryHome = ContextHelper.get().getArtifactoryHome();
+        File outputFolder = Files.createRandomDir(artifactoryHome.getTempWorkDir(),
+                "artifactory.index." + repo.getKey());
+        outputFolder.deleteOnExit();
+        File tmpGz = new File(outputFolder, MavenNaming.NEXUS_INDEX_GZ);
+        FileUtils.moveFile(new File(packedDir, MavenNaming.NEXUS_INDEX_GZ), tmpGz);
+        File propertiesFile = new File(outputFolder, MavenNaming.NEXUS_INDEX_PROPERTIES);
+        FileUtils.copyFile(new File(packedDir, MavenNaming.NEXUS_INDEX_PROPERTIES), propertiesFile);
+        Map<String, TempFileStreamHandle> newChunkHandles = Maps.newTreeMap();
+        for (String chunk : Sets.difference(chunks, previousChunks)) {
+            File chunkFile = new File(outputFolder, chunk);
+            FileUtils.copyFile(new File(packedDir, chunk), chunkFile);
+            newChunkHandles.put(chunk, new TempFileStreamHandle(chunkFile));
+        }
+        chunkHandles = newChunkHandles;
+        //Chunks of a previous chain or that were dropped from the chain
+        obsoleteChunks = Sets.newHashSet(Sets.difference(findPublishedChunks(), chunks));
+        return new Pair<>(new TempFileStreamHandle(tmpGz), new TempFileStreamHandle(propertiesFile));
+    }
+
+    private Set<String> listChunks(File dir) {
+        Set<String> chunks = Sets.newHashSet();
+        String[] names = dir.list();
+        if (names != null) {
+            for (String name : names) {
+                if (CHUNK_NAME_PATTERN.matcher(name).matches()) {
+                    chunks.add(name);
+                }
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * @return The names of the incremental chunks in the index folder of the repo
+     */
+    private Set<String> findPublishedChunks() {
+        Set<String> chunks = Sets.newHashSet();
+        ItemNode indexFolder = new ItemTree(repo.getRepoPath(MavenNaming.NEXUS_INDEX_DIR)).getRootNode();
+        if (indexFolder != null && indexFolder.isFolder()) {
+            for (ItemNode child : indexFolder.getChildren()) {
+                if (!child.isFolder() && CHUNK_NAME_PATTERN.matcher(child.getName()).matches()) {
+                    chunks.add(child.getName());
+                }
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * @return Handles to the new incremental chunks to publish by their file name
+     */
+    Map<String, TempFileStreamHandle> getChunkHandles() {
+        return chunkHandles;
+    }
+
+    /**
+     * @return Names of the published incremental chunks that are not part of the current index
+     */
+    Set<String> getObsoleteChunks() {
+        return obsoleteChunks;
+    }
+
+    /**
+     * Deletes the persistent index of the incremental indexing, the next run of the repo will create a new index
+     */
+    static void deleteIncrementalState(String repoKey) {
+        FileUtils.deleteQuietly(getIncrementalStateDir(repoKey));
+    }
+
+    private static File getIncrementalStateDir(String repoKey) {
+        ArtifactoryHome artifactoryHome = ContextHelper.get().getArtifactoryHome();
+        return new File(new File(artifactoryHome.getDataDir(), INCREMENTAL_STATE_DIR), repoKey);
+    }
+
+    private long readChangesCursor(File cursorFile) {
+        if (!cursorFile.isFile()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(FileUtils.readFileToString(cursorFile, "utf-8").trim());
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Failed to read the index changes cursor '{}', the repo will be fully indexed: {}",
+                    cursorFile.getAbsolutePath(), e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * The retention keeps the changes for the repos which failed to index in this run (and resume from older cursors)
+     */
+    private void pruneChangeJournal(long indexingStart, long overlap) {
+        long retention = TimeUnit.HOURS.toMillis(ConstantValues.mvnIndexerChangesRetentionHours.getLong());
+        try {
+            getChangeJournal().prune(ChangeJournalService.CONSUMER_MAVEN_INDEXER,
+                    indexingStart - Math.max(retention, overlap));
+        } catch (Exception e) {
+            log.warn("Failed to prune the change journal: {}", e.getMessage());
+        }
+    }
+
+    private ChangeJournalService getChangeJournal() {
+        return ContextHelper.get().beanForType(ChangeJournalService.class);
+    }
+
     Pair<TempFileStreamHandle, TempFileStreamHandle> createIndex(File indexDir, boolean scan) throws IOException {
         try {
             context.updateTimestamp();
@@ -154,7 +542,7 @@ public class RepoIndexer extends DefaultIndexer implements ArtifactScanningListe
             File outputFolder = Files.createRandomDir(artifactoryHome.getTempWorkDir(),
                     "artifactory.index." + repo.getKey());
             outputFolder.deleteOnExit();
-            IndexPackingRequest request = newIndexPackingRequest(outputFolder);
+            IndexPackingRequest request = newIndexPackingRequest(outputFolder, false);
             //Pack - will create the index files inside the folder
             packer.packIndex(request);
             //Return the handle to the zip file (will be remove when the handle is closed)
@@ -227,10 +615,14 @@ public class RepoIndexer extends DefaultIndexer implements ArtifactScanningListe
         context = createIndexingContext(repoKey, repoKey, rootFile, indexDir, null, null, true, true, indexCreators);
     }
 
-    private IndexPackingRequest newIndexPackingRequest(File outputFolder) {
+    private IndexPackingRequest newIndexPackingRequest(File outputFolder, boolean incrementalChunks) {
         IndexPackingRequest request = new IndexPackingRequest(context, outputFolder);
         request.setCreateChecksumFiles(false);
-        request.setCreateIncrementalChunks(false);
+        //The chunks are computed from the index properties of the previous run found in the output folder
+        request.setCreateIncrementalChunks(incrementalChunks);
+        if (incrementalChunks) {
+            request.setMaxIndexChunks(ConstantValues.mvnIndexerMaxIncrementalChunks.getInt());
+        }
         //create new index format
         request.setFormats(Arrays.asList(/*IndexPackingRequest.IndexFormat.FORMAT_LEGACY,*/
                 IndexPackingRequest.IndexFormat.FORMAT_V1));
@@ -265,4 +657,59 @@ public class RepoIndexer extends DefaultIndexer implements ArtifactScanningListe
         }
         return indexDir;
     }
-}
\ No newline at end of file
+
+    /**
+     * Updates the artifacts discovered in a changed folder, timestamped snapshots of the same version share the uinfo
+     * and only the first (latest) one is indexed.
+     */
+    private class FolderUpdateListener implements ArtifactScanningListener {
+        private final Set<String> discoveredUinfos;
+
+        private FolderUpdateListener(Set<String> discoveredUinfos) {
+            this.discoveredUinfos = discoveredUinfos;
+        }
+
+        @Override
+        public void scanningStarted(IndexingContext ctx) {
+        }
+
+        @Override
+        public void scanningFinished(IndexingContext ctx, ScanningResult result) {
+        }
+
+        @Override
+        public void artifactError(ArtifactContext ac, Exception e) {
+        }
+
+        @Override
+        public void artifactDiscovered(ArtifactContext ac) {
+            String uinfo = ac.getArtifactInfo().getUinfo();
+            if (!discoveredUinfos.add(uinfo)) {
+                return;
+            }
+            log.trace("Artifact discovered: '{}'", uinfo);
+            try {
+                //Rewrites the document only if it changed, so unchanged artifacts are left out of the chunk
+                defaultIndexerEngine.update(context, ac);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to update '" + uinfo + "' in the index: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * The info of an indexed artifact that no longer exists, only its uinfo is required to remove it from the index
+     */
+    private static class RemovedArtifactInfo extends ArtifactInfo {
+        private final String uinfo;
+
+        private RemovedArtifactInfo(String uinfo) {
+            this.uinfo = uinfo;
+        }
+
+        @Override
+        public String getUinfo() {
+            return uinfo;
+        }
+    }
+}
@@ -20,6 +20,7 @@ package org.artifactory.repo;
 
 import org.artifactory.descriptor.repo.LocalCacheRepoDescriptor;
 import org.artifactory.descriptor.repo.RemoteRepoDescriptor;
+import org.artifactory.request.RequestContext;
 
 /**
  * Interface for the local cache repositories.
@@ -38,4 +39,10 @@ public interface LocalCacheRepo extends LocalRepo<LocalCacheRepoDescriptor> {
      * @see org.artifactory.api.repo.RepositoryService#zap(org.artifactory.api.repo.RepoPath)
      */
     int zap(RepoPath repoPath);
+
+    /**
+     * Records a download of a cached file that was not streamed by {@link #getResourceStreamHandle}, e.g. a download
+     * that joined a concurrent remote download while it was saved.
+     */
+    void fileDownloaded(RequestContext requestContext, RepoPath repoPath);
 }
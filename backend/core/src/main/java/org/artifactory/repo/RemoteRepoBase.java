@@ -46,6 +46,7 @@ import org.artifactory.api.request.InternalArtifactoryRequest;
 import org.artifactory.checksum.ChecksumInfo;
 import org.artifactory.checksum.ChecksumType;
 import org.artifactory.checksum.ChecksumsInfo;
+import org.artifactory.common.ArtifactoryHome;
 import org.artifactory.common.ConstantValues;
 import org.artifactory.common.StatusHolder;
 import org.artifactory.descriptor.delegation.ContentSynchronisation;
@@ -64,6 +65,7 @@ import org.artifactory.mime.NamingUtils;
 import org.artifactory.model.common.RepoPathImpl;
 import org.artifactory.repo.db.DbCacheRepo;
 import org.artifactory.repo.local.ValidDeployPathContext;
+import org.artifactory.repo.remote.InFlightDownload;
 import org.artifactory.repo.remote.browse.RemoteItem;
 import org.artifactory.repo.remote.interceptor.RemoteRepoInterceptor;
 import org.artifactory.repo.service.InternalRepositoryService;
@@ -99,6 +101,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
@@ -108,6 +111,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
@@ -117,9 +122,20 @@ import java.util.stream.Collectors;
  */
 public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends RealRepoBase<T> implements RemoteRepo<T> {
     private static final Logger log = LoggerFactory.getLogger(RemoteRepoBase.class);
+
+    /**
+     * Time slice of the download lock wait in tee mode, after each slice the request tries to join the download
+     */
+    private static final long IN_FLIGHT_JOIN_POLL_MILLIS = 200;
     private final ChecksumPolicy checksumPolicy;
     private final LockingMap lockingMap;
 
+    /**
+     * Remote downloads currently saved to the cache by this node, keyed by the cache path. Concurrent requests stream
+     * them while they are downloaded (see {@link ConstantValues#repoConcurrentDownloadTeeEnabled}).
+     */
+    private final ConcurrentMap<String, InFlightDownload> inFlightDownloads;
+
     /**
      * Flags this repository as assumed offline. The repository enters this state when a download request fails with
      * exception.
@@ -159,10 +175,12 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
             this.oldRemoteRepo = (RemoteRepoBase) oldRemoteRepo;
             // Always keep the in transit download map
             this.lockingMap = this.oldRemoteRepo.lockingMap;
+            this.inFlightDownloads = this.oldRemoteRepo.inFlightDownloads;
         } else {
             this.oldRemoteRepo = null;
             HaAddon haAddon = ContextHelper.get().beanForType(AddonsManager.class).addonByType(HaAddon.class);
             this.lockingMap = haAddon.getLockingMap();
+            this.inFlightDownloads = new ConcurrentHashMap<>();
         }
         if (isNonMavenRepo()) {
             excludes.addAll(Lists.newArrayList("**/*.pom", "**/*.jar", "**/maven-metadata.xml"));
@@ -580,11 +598,33 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
             // Only 1 remote downloader is allowed
             String pathToLock = cachedResource.getRepoPath().toPath();
 
+            RepoPath cachePath = cachedResource.getRepoPath();
+            ResourceStreamHandle inFlightHandle = joinInFlightDownload(requestContext, cachePath);
+            if (inFlightHandle != null) {
+                return inFlightHandle;
+            }
+
             boolean lockAcquired = false;
             try {
                 try {
-                    lockAcquired = lockingMap.tryAddAndLock(pathToLock,
-                            ConstantValues.repoConcurrentDownloadSyncTimeoutSecs.getLong(), TimeUnit.SECONDS);
+                    long timeoutMillis = TimeUnit.SECONDS.toMillis(
+                            ConstantValues.repoConcurrentDownloadSyncTimeoutSecs.getLong());
+                    // in tee mode the wait is sliced to join a download that was registered after the check above
+                    long slice = ConstantValues.repoConcurrentDownloadTeeEnabled.getBoolean() ?
+                            IN_FLIGHT_JOIN_POLL_MILLIS : timeoutMillis;
+                    long deadline = System.currentTimeMillis() + timeoutMillis;
+                    long remaining = timeoutMillis;
+                    while (!lockAcquired && remaining > 0) {
+                        lockAcquired = lockingMap.tryAddAndLock(pathToLock, Math.min(slice, remaining),
+                                TimeUnit.MILLISECONDS);
+                        if (!lockAcquired) {
+                            inFlightHandle = joinInFlightDownload(requestContext, cachePath);
+                            if (inFlightHandle != null) {
+                                return inFlightHandle;
+                            }
+                            remaining = deadline - System.currentTimeMillis();
+                        }
+                    }
                 } catch (InterruptedException e) {
                     log.info("Interrupted on concurrent download lock of '{}'", pathToLock);
                     RepoRequests.logToContext("Interrupted on concurrent download lock of '" + pathToLock + "'");
@@ -607,7 +647,7 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
                     return null;
                 }
                 RepoRequests.logToContext("Found no cached resource - starting download");
-                cachedResource = doDownloadAndSave(requestContext, remoteResource);
+                cachedResource = doDownloadAndSave(requestContext, remoteResource, pathToLock);
             } finally {
                 if (lockAcquired) {
                     lockingMap.removeAndUnlock(pathToLock);
@@ -629,6 +669,57 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
         return localCacheRepo.getResourceStreamHandle(requestContext, cachedResource);
     }
 
+    /**
+     * Streams a concurrent download of the path that is still being saved to the cache by this node (tee mode).
+     *
+     * @return The in-flight download handle or null if there is no such download or it failed before sending any
+     * content, in which case the caller should continue with the regular download
+     */
+    @Nullable
+    private ResourceStreamHandle joinInFlightDownload(InternalRequestContext requestContext, RepoPath cachePath) {
+        if (!ConstantValues.repoConcurrentDownloadTeeEnabled.getBoolean()) {
+            return null;
+        }
+        InFlightDownload inFlightDownload = inFlightDownloads.get(cachePath.toPath());
+        if (inFlightDownload == null) {
+            return null;
+        }
+        ResourceStreamHandle handle = inFlightDownload.join(
+                TimeUnit.SECONDS.toMillis(ConstantValues.repoConcurrentDownloadSyncTimeoutSecs.getLong()));
+        if (handle == null) {
+            RepoRequests.logToContext("In-flight concurrent download failed - falling back to regular download");
+            return null;
+        }
+        RepoRequests.logToContext("Found in-flight concurrent download - streaming it while it is saved");
+        return new SimpleResourceStreamHandle(
+                new DownloadStatsInputStream(handle.getInputStream(), requestContext, cachePath), handle.getSize());
+    }
+
+    /**
+     * Registers the remote download so concurrent requests can stream it while it is saved.
+     *
+     * @return The registered download or null if the tee mode is disabled or another download is registered
+     */
+    @Nullable
+    private InFlightDownload startInFlightDownload(String path, RepoResource remoteResource) {
+        if (!ConstantValues.repoConcurrentDownloadTeeEnabled.getBoolean()) {
+            return null;
+        }
+        try {
+            InFlightDownload inFlightDownload = new InFlightDownload(path,
+                    ArtifactoryHome.get().getTempWorkDir(), remoteResource.getSize());
+            if (inFlightDownloads.putIfAbsent(path, inFlightDownload) != null) {
+                inFlightDownload.release();
+                return null;
+            }
+            return inFlightDownload;
+        } catch (IOException e) {
+            log.warn("Could not create the spool file of '{}', concurrent requests will wait for the download: {}",
+                    path, e.getMessage());
+            return null;
+        }
+    }
+
     private ResourceStreamHandle getHandleFromCache(InternalRequestContext requestContext, RepoResource remoteResource,
             RepoResource cachedResource, String message) throws IOException, RepoRejectException {
         ResourceStreamHandle cacheHandle = localCacheRepo.getResourceStreamHandle(requestContext, cachedResource);
@@ -678,12 +769,15 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
     }
 
     // this is the actual download of the resource
-    private RepoResource doDownloadAndSave(InternalRequestContext requestContext, RepoResource remoteResource)
-            throws RepoRejectException, IOException {
+    private RepoResource doDownloadAndSave(InternalRequestContext requestContext, RepoResource remoteResource,
+            String cachePath) throws RepoRejectException, IOException {
         RepoRequests.logToContext("Downloading and saving");
         RepoPath remoteRepoPath = remoteResource.getRepoPath();
         ResourceStreamHandle handle = null;
+        InFlightDownload inFlightDownload = null;
         try {
+            // registered before the remote request, so concurrent requests wait for its content and not for the lock
+            inFlightDownload = startInFlightDownload(cachePath, remoteResource);
             beforeResourceDownload(remoteResource, requestContext.getProperties(), requestContext.getRequest());
 
             RepoResourceInfo remoteInfo = remoteResource.getInfo();
@@ -713,6 +807,12 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
                 remoteRequestStartTime = System.currentTimeMillis();
                 handle = downloadResource(remoteRepoPath.getPath(), requestContext);
             }
+            ResourceStreamHandle saveHandle = handle;
+            if (inFlightDownload != null) {
+                RepoRequests.logToContext("Streaming the download to concurrent requests while saving");
+                saveHandle = new SimpleResourceStreamHandle(inFlightDownload.tee(handle.getInputStream()),
+                        handle.getSize());
+            }
 
             if (!receivedRemoteChecksums) {
                 RepoRequests.logToContext("Trying to find remote checksums");
@@ -739,9 +839,12 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
 
             //Create/override the resource in the storage cache
             RepoRequests.logToContext("Saving resource to " + localCacheRepo);
-            SaveResourceContext saveResourceContext = new SaveResourceContext.Builder(remoteResource, handle)
+            SaveResourceContext saveResourceContext = new SaveResourceContext.Builder(remoteResource, saveHandle)
                     .properties(properties).build();
             RepoResource cachedResource = getRepositoryService().saveResource(localCacheRepo, saveResourceContext);
+            if (inFlightDownload != null) {
+                inFlightDownload.complete();
+            }
             if (remoteRequestStartTime > 0) {
                 String remoteAddress;
                 if (handle instanceof HttpRepo.MyRemoteResourceStreamHandle) {
@@ -772,6 +875,12 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
             setExceptionOnHandle(handle, e);
             throw e;
         } finally {
+            if (inFlightDownload != null) {
+                // Readers that didn't see the completion will fail (or fall back if they didn't get any byte)
+                inFlightDownloads.remove(cachePath, inFlightDownload);
+                inFlightDownload.fail(new IOException("Download of '" + cachePath + "' did not complete"));
+                inFlightDownload.release();
+            }
             Closeables.close(handle, false);
         }
     }
@@ -1330,4 +1439,45 @@ public abstract class RemoteRepoBase<T extends RemoteRepoDescriptor> extends Rea
     protected final boolean isResourceUnavailable(StatusLine status) {
         return offlineStatusCodes.contains(Integer.valueOf(status.getStatusCode()));
     }
+
+    /**
+     * Records the download of a joined in-flight download when its content ends, i.e. after the downloader saved it in
+     * the cache. The other downloads are recorded by the handle of the cache repository.
+     */
+    private class DownloadStatsInputStream extends FilterInputStream {
+        private final InternalRequestContext requestContext;
+        private final RepoPath cachePath;
+        private boolean recorded;
+
+        private DownloadStatsInputStream(InputStream in, InternalRequestContext requestContext, RepoPath cachePath) {
+            super(in);
+            this.requestContext = requestContext;
+            this.cachePath = cachePath;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b < 0) {
+                recordDownload();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read < 0) {
+                recordDownload();
+            }
+            return read;
+        }
+
+        private void recordDownload() {
+            if (!recorded) {
+                recorded = true;
+                localCacheRepo.fileDownloaded(requestContext, cachePath);
+            }
+        }
+    }
 }
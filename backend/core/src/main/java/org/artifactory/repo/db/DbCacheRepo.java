@@ -37,6 +37,7 @@ import org.artifactory.repo.cache.expirable.ZapItemVisitor;
 import org.artifactory.repo.snapshot.MavenSnapshotVersionAdapter;
 import org.artifactory.request.ArtifactoryRequest;
 import org.artifactory.request.InternalRequestContext;
+import org.artifactory.request.RequestContext;
 import org.artifactory.request.RepoRequests;
 import org.artifactory.request.Request;
 import org.artifactory.resource.ExpiredRepoResource;
@@ -135,6 +136,11 @@ public class DbCacheRepo extends DbLocalRepo<LocalCacheRepoDescriptor> implement
         }
     }
 
+    @Override
+    public void fileDownloaded(RequestContext requestContext, RepoPath repoPath) {
+        mixin.fileDownloaded(requestContext, repoPath);
+    }
+
     @Override
     public int zap(RepoPath repoPath) {
         int itemsZapped = 0;
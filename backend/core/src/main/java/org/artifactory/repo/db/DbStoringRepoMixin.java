@@ -740,11 +740,21 @@ public class DbStoringRepoMixin<T extends RepoBaseDescriptor> /*implements Stori
         }
 
         if(!request.isHeadOnly())
-            updateDownloadStats(file, isFromAnotherArtifactory(request));
+            updateDownloadStats(file.getRepoPath(), isFromAnotherArtifactory(request));
 
         return handle;
     }
 
+    /**
+     * Records a download of the file that was streamed without {@link #getResourceStreamHandle}
+     */
+    public void fileDownloaded(RequestContext requestContext, RepoPath repoPath) {
+        Request request = requestContext.getRequest();
+        if (!request.isHeadOnly()) {
+            updateDownloadStats(repoPath, isFromAnotherArtifactory(request));
+        }
+    }
+
     /**
      * Checks if original request came from another origin
      *
@@ -764,9 +774,9 @@ public class DbStoringRepoMixin<T extends RepoBaseDescriptor> /*implements Stori
         return false;
     }
 
-    private void updateDownloadStats(VfsFile file, boolean fromAnotherArtifactory) {
+    private void updateDownloadStats(RepoPath repoPath, boolean fromAnotherArtifactory) {
         if (descriptor.isReal() && ConstantValues.downloadStatsEnabled.getBoolean()) {  // stats only for real repos, if enabled
-            statsService.fileDownloaded(file.getRepoPath(), authorizationService.currentUsername(),
+            statsService.fileDownloaded(repoPath, authorizationService.currentUsername(),
                     System.currentTimeMillis(), fromAnotherArtifactory);
         }
     }
@@ -25,6 +25,7 @@ import org.apache.commons.io.filefilter.DirectoryFileFilter;
 import org.apache.commons.io.filefilter.IOFileFilter;
 import org.apache.commons.io.filefilter.NotFileFilter;
 import org.artifactory.api.repo.RepositoryService;
+import org.artifactory.checksum.ChecksumType;
 import org.artifactory.fs.FileInfo;
 import org.artifactory.fs.FolderInfo;
 import org.artifactory.fs.ItemInfo;
@@ -32,12 +33,15 @@ import org.artifactory.fs.StatsInfo;
 import org.artifactory.fs.WatcherInfo;
 import org.artifactory.md.Properties;
 import org.artifactory.model.common.RepoPathImpl;
+import org.artifactory.repo.InternalRepoPathFactory;
 import org.artifactory.repo.RepoPath;
 import org.artifactory.repo.StoringRepo;
 import org.artifactory.sapi.common.ExportSettings;
 import org.artifactory.sapi.common.RepositoryRuntimeException;
 import org.artifactory.schedule.TaskService;
 import org.artifactory.spring.InternalContextHelper;
+import org.artifactory.storage.fs.VfsItemNotFoundException;
+import org.artifactory.storage.fs.service.ChangeJournalService;
 import org.artifactory.storage.spring.StorageContextHelper;
 import org.artifactory.util.PathUtils;
 import org.artifactory.util.RepoPathUtils;
@@ -49,6 +53,7 @@ import java.io.FileFilter;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 import static org.artifactory.repo.db.importexport.ImportExportAccumulator.ProgressAccumulatorType.EXPORT;
@@ -62,6 +67,8 @@ import static org.artifactory.repo.db.importexport.ImportExportAccumulator.Progr
 public class DbRepoExportHandler extends DbExportBase {
     private static final Logger log = LoggerFactory.getLogger(DbRepoExportHandler.class);
 
+    private static final int CHANGED_PATHS_PAGE_SIZE = 1000;
+
     private final StoringRepo repo;
 
     public DbRepoExportHandler(StoringRepo repo, ExportSettings settings) {
@@ -74,6 +81,9 @@ public class DbRepoExportHandler extends DbExportBase {
         File fileSystemBaseDir = settings.getBaseDir();
         long nodeCount = repo.getRepositoryService().getNodesCount(RepoPathUtils.repoRootPath(repo.getKey()));
         String targetExportFolder = fileSystemBaseDir.getAbsolutePath();
+        // a repository that is not in the target yet (e.g. newly added to the backup) is exported entirely
+        boolean exportChanges = settings.isIncremental() && settings.getChangedSince() >= 0
+                && fileSystemBaseDir.isDirectory();
         status.status(String.format("%s export started with %d nodes to: '%s'",
                 repo.getKey(), nodeCount, targetExportFolder), log);
         try {
@@ -82,7 +92,11 @@ public class DbRepoExportHandler extends DbExportBase {
             throw new RuntimeException("Failed to create export directory '" + targetExportFolder + "'.", e);
         }
         ItemInfo rootFolder = getFileService().loadItem(new RepoPathImpl(repo.getKey(), ""));
-        exportRecursive(rootFolder);
+        if (exportChanges) {
+            exportChanges((FolderInfo) rootFolder);
+        } else {
+            exportRecursive(rootFolder);
+        }
         accumulator.finished();
         status.status(String.format("%s export finished with: %s Items exported (%s files and %s folders), " +
                 "%s Item skipped: (%s files and %s folders).Duration: %s IPS: %s Target: '%s'",
@@ -125,14 +139,159 @@ public class DbRepoExportHandler extends DbExportBase {
         }
     }
 
+    /**
+     * Exports only the paths that changed since {@link ExportSettings#getChangedSince()} according to the change
+     * journal, instead of visiting the whole tree. Each changed path is exported as it is now: existing files and
+     * folders (without their children) are exported and missing items are deleted from the target.
+     */
+    private void exportChanges(FolderInfo rootFolder) {
+        long changedSince = settings.getChangedSince();
+        status.status(String.format("Exporting the changes of %s since %s", repo.getKey(), new Date(changedSince)),
+                log);
+        try {
+            exportFolderItem(rootFolder, settings.getBaseDir());
+        } catch (IOException e) {
+            status.error("Failed to export the root folder of " + repo.getKey() + ": " + e.getMessage(), e, log);
+            return;
+        }
+        ChangeJournalService changeJournal = StorageContextHelper.get().beanForType(ChangeJournalService.class);
+        TaskService taskService = InternalContextHelper.get().getTaskService();
+        String afterPath = null;
+        List<String> changedPaths;
+        do {
+            //Check if we need to break/pause
+            boolean stop = taskService.pauseOrBreak();
+            if (stop) {
+                status.error("Export of " + repo.getKey() + " was stopped.", log);
+                return;
+            }
+            // the paths are ordered so a folder is always exported before its children
+            changedPaths = changeJournal.getChangedPaths(repo.getKey(), changedSince, afterPath,
+                    CHANGED_PATHS_PAGE_SIZE);
+            for (String changedPath : changedPaths) {
+                exportChangedPath(changedPath);
+            }
+            afterPath = changedPaths.isEmpty() ? null : changedPaths.get(changedPaths.size() - 1);
+        } while (changedPaths.size() == CHANGED_PATHS_PAGE_SIZE);
+    }
+
+    private void exportChangedPath(String path) {
+        if (!isStorableParent(path)) {
+            return;
+        }
+        RepoPath repoPath = InternalRepoPathFactory.create(repo.getKey(), path);
+        File target = new File(settings.getBaseDir(), path);
+        ItemInfo sourceItem;
+        try {
+            sourceItem = getFileService().loadItem(repoPath);
+        } catch (VfsItemNotFoundException e) {
+            log.debug("Deleting {} from the incremental backup dir since it was deleted from the repository",
+                    target.getAbsolutePath());
+            deleteTarget(target);
+            return;
+        }
+        try {
+            if (sourceItem.isFolder()) {
+                if (isStorableFolder(sourceItem.getName())) {
+                    if (target.isFile()) {
+                        // the path was a file in the previous backup
+                        deleteTarget(target);
+                    }
+                    exportChangedFolder((FolderInfo) sourceItem, target);
+                }
+            } else if (isStorableFile(sourceItem.getName())) {
+                if (target.isDirectory()) {
+                    // the path was a folder in the previous backup
+                    deleteTarget(target);
+                }
+                exportFile((FileInfo) sourceItem);
+                if (settings.isIncludeMetadata()) {
+                    cleanTargetMetadata(sourceItem, listMetadataFiles(getMetadataContainerFolder(target)));
+                }
+            }
+        } catch (Exception e) {
+            //If a change export fails, we collect the error but not fail the whole export
+            String msg = String.format("Export error: from: %s to: %s reason: %s", repoPath, target.getPath(),
+                    e.getMessage());
+            if (sourceItem.isFolder()) {
+                accumulator.accumulateSkippedFolder();
+            } else {
+                accumulator.accumulateSkippedFile();
+            }
+            status.error(msg, e, log);
+        }
+    }
+
+    private void exportChangedFolder(FolderInfo sourceFolder, File targetDir) throws IOException {
+        if (!exportFolderItem(sourceFolder, targetDir)) {
+            return;
+        }
+        // the children are in the journal if they changed, only the ones that no longer exist are handled here
+        // (e.g. a folder that was deleted and created again)
+        List<ItemInfo> children = getRepositoryService().getChildren(sourceFolder.getRepoPath());
+        cleanupIncrementalBackupDirectory(sourceFolder, children, targetDir);
+    }
+
+    /**
+     * @return True if none of the ancestors of the path is excluded from the export
+     */
+    private boolean isStorableParent(String path) {
+        String[] names = PathUtils.getPathElements(path);
+        for (int i = 0; i < names.length - 1; i++) {
+            if (!isStorableFolder(names[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Deletes a file or folder that no longer exists from the target with its metadata and checksum files
+     */
+    private void deleteTarget(File target) {
+        if (target.exists() && !FileUtils.deleteQuietly(target)) {
+            log.warn("Failed to delete {}", target.getAbsolutePath());
+        }
+        File metadataFolder = getMetadataContainerFolder(target);
+        if (metadataFolder.exists() && !FileUtils.deleteQuietly(metadataFolder)) {
+            log.warn("Failed to delete metadata folder {}", metadataFolder.getAbsolutePath());
+        }
+        for (ChecksumType checksumType : ChecksumType.values()) {
+            File checksumFile = new File(target.getPath() + checksumType.ext());
+            if (checksumFile.isFile() && !FileUtils.deleteQuietly(checksumFile)) {
+                log.warn("Failed to delete {}", checksumFile.getAbsolutePath());
+            }
+        }
+    }
+
     private void exportFolder(FolderInfo sourceFolder) throws IOException {
         File targetDir = new File(settings.getBaseDir(), sourceFolder.getRelPath());
+        if (!exportFolderItem(sourceFolder, targetDir)) {
+            return;
+        }
+
+        List<ItemInfo> children = getRepositoryService().getChildren(sourceFolder.getRepoPath());
+        for (ItemInfo child : children) {
+            exportRecursive(child);
+        }
+
+        if (settings.isIncremental()) {
+            cleanupIncrementalBackupDirectory(sourceFolder, children, targetDir);
+        }
+    }
+
+    /**
+     * Exports the folder itself without its children
+     *
+     * @return False if the folder no longer exists
+     */
+    private boolean exportFolderItem(FolderInfo sourceFolder, File targetDir) throws IOException {
         status.debug("Exporting directory '" + sourceFolder.getRepoPath() + "'...", log);
         // Insure that the source folder still exists.
         boolean sourceFolderExists = getFileService().exists(sourceFolder.getRepoPath());
         if (!sourceFolderExists) {
             log.info("Skipping folder export : '{}', the source folder doesn't exists.", sourceFolder.getRepoPath());
-            return;
+            return false;
         }
         FileUtils.forceMkdir(targetDir);
 
@@ -143,15 +302,7 @@ public class DbRepoExportHandler extends DbExportBase {
         }
 
         accumulator.accumulateSuccessfulFolder();
-
-        List<ItemInfo> children = getRepositoryService().getChildren(sourceFolder.getRepoPath());
-        for (ItemInfo child : children) {
-            exportRecursive(child);
-        }
-
-        if (settings.isIncremental()) {
-            cleanupIncrementalBackupDirectory(sourceFolder, children, targetDir);
-        }
+        return true;
     }
 
     //TORE: [by YS] this requires a nice refactoring
@@ -173,9 +324,14 @@ public class DbRepoExportHandler extends DbExportBase {
 
         //List all target metadata
         File targetDirMetadataContainerFolder = getMetadataContainerFolder(targetDir);
-        Collection<File> targetMetadataFiles = FileUtils.listFiles(targetDirMetadataContainerFolder, metadataFilter,
-                DirectoryFileFilter.INSTANCE);
-        cleanTargetMetadata(sourceFolder, targetMetadataFiles);
+        cleanTargetMetadata(sourceFolder, listMetadataFiles(targetDirMetadataContainerFolder));
+    }
+
+    private Collection<File> listMetadataFiles(File metadataContainerFolder) {
+        if (!metadataContainerFolder.isDirectory()) {
+            return Collections.emptyList();
+        }
+        return FileUtils.listFiles(metadataContainerFolder, new MetadataFileFilter(), DirectoryFileFilter.INSTANCE);
     }
 
     /**
@@ -274,10 +430,10 @@ public class DbRepoExportHandler extends DbExportBase {
      * Locates metadata that was removed from the current target since last backup, but still remain in the backup
      * folder and clean them out.
      *
-     * @param currentFolderInfo   The folder info the cleanup is working with
+     * @param currentFolderInfo   The item info the cleanup is working with
      * @param targetMetadataFiles List of metadata files in the current target's metadata folder
      */
-    private void cleanTargetMetadata(FolderInfo currentFolderInfo, Collection<File> targetMetadataFiles) {
+    private void cleanTargetMetadata(ItemInfo currentFolderInfo, Collection<File> targetMetadataFiles) {
         for (File metadataFile : targetMetadataFiles) {
             if ((metadataFile != null) && metadataFile.isFile()) {
                 //Extract the metadata name from the metadata file name
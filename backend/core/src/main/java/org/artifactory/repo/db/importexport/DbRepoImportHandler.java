@@ -18,6 +18,8 @@
 
 package org.artifactory.repo.db.importexport;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
@@ -27,7 +29,9 @@ import org.artifactory.api.config.ImportSettingsImpl;
 import org.artifactory.api.context.ContextHelper;
 import org.artifactory.api.maven.MavenMetadataService;
 import org.artifactory.api.repo.exception.RepoRejectException;
+import org.artifactory.binstore.BinaryInfo;
 import org.artifactory.checksum.ChecksumType;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.common.MutableStatusHolder;
 import org.artifactory.descriptor.repo.LocalRepoDescriptor;
 import org.artifactory.descriptor.repo.RepoType;
@@ -55,13 +59,14 @@ import org.artifactory.sapi.fs.MetadataReader;
 import org.artifactory.sapi.fs.MutableVfsFile;
 import org.artifactory.sapi.fs.MutableVfsFolder;
 import org.artifactory.sapi.fs.MutableVfsItem;
+import org.artifactory.sapi.fs.VfsItem;
+import org.artifactory.schedule.CachedThreadPoolTaskExecutor;
 import org.artifactory.schedule.TaskBase;
 import org.artifactory.schedule.TaskService;
 import org.artifactory.security.AccessLogger;
 import org.artifactory.spring.InternalContextHelper;
 import org.artifactory.storage.BinaryInsertRetryException;
 import org.artifactory.storage.StorageProperties;
-import org.artifactory.storage.spring.ArtifactoryStorageContext;
 import org.artifactory.storage.spring.StorageContextHelper;
 import org.artifactory.update.md.MetadataVersion;
 import org.artifactory.util.CollectionUtils;
@@ -71,11 +76,13 @@ import org.joda.time.DateTime;
 import org.joda.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.AbstractPlatformTransactionManager;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
 
+import javax.annotation.Nullable;
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -86,8 +93,16 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.artifactory.repo.db.importexport.ImportExportAccumulator.ProgressAccumulatorType.IMPORT;
 
@@ -95,6 +110,11 @@ import static org.artifactory.repo.db.importexport.ImportExportAccumulator.Progr
  * Imports a single repository from the file system while managing transactions.
  * This handler is used in two phases: import and finalize. Import does the actual import, after which there might be
  * recoverable failures that can be retried. This breakdown allows the import to be externally synchronized.
+ * <p/>
+ * The tree is walked by the importing thread which creates the folders. The files of each folder are imported in
+ * chunks by a pool of workers once the folder is committed, each chunk in its own transactions. When the import is
+ * sequential the files are imported by the walking thread in the transactions of the walk. The import interceptors
+ * of the files of a transaction are called in bulk after it is committed.
  *
  * @author Yossi Shaul
  */
@@ -107,9 +127,9 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
     private final String parentTaskToken;
     private ImportExportAccumulator progressAccumulator;
     private MutableStatusHolder status;
-    private TransactionStatus transactionStatus;
-    private Set<ImportItem> itemsToRetry = Sets.newHashSet();
-    private DateTime transactionStartTime;
+    private ImportTransaction walkTransaction;
+    private Set<ImportItem> itemsToRetry = ConcurrentHashMap.newKeySet();
+    private ParallelFilesImport parallelFilesImport;
     private File fileSystemBaseDir;
 
     public DbRepoImportHandler(LocalRepo<? extends LocalRepoDescriptor> repo, ImportSettings settings,
@@ -164,11 +184,21 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
 
     private void executeRecursiveImport(File fileSystemBaseDir) {
         RepoPath rootRepoPath = InternalRepoPathFactory.repoRootPath(repo.getKey());
-        startTransaction();
+        int parallelism = ConstantValues.importMaxParallelFolders.getInt();
+        if (parallelism > 1) {
+            parallelFilesImport = new ParallelFilesImport(parallelism,
+                    StorageContextHelper.get().beanForType(CachedThreadPoolTaskExecutor.class));
+        }
+        walkTransaction = startTransaction();
         try {
-            importRecursive(fileSystemBaseDir, rootRepoPath);
+            importFolderRecursive(fileSystemBaseDir, rootRepoPath);
         } finally {
-            commitTransaction(transactionStatus);
+            if (walkTransaction.isActive()) {
+                commitWalkTransaction();
+            }
+            if (parallelFilesImport != null) {
+                parallelFilesImport.finish();
+            }
         }
     }
 
@@ -201,55 +231,74 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
 
     private void importFromRetryList() {
         log.info("{}: Retrying import of {} items", repo.getKey(), itemsToRetry.size());
-        for (ImportItem toRetry : itemsToRetry) {
-            itemsToRetry.remove(toRetry);
-            startTransaction();
-            try {
-                importFile(toRetry.getSource(), toRetry.getDestination());
-            } finally {
-                commitTransaction(transactionStatus);
-            }
-        }
+        List<ImportItem> toRetry = Lists.newArrayList(itemsToRetry);
+        itemsToRetry.removeAll(toRetry);
+        importFiles(toRetry);
     }
 
-    private void importRecursive(final File fileToImport, final RepoPath target) {
+    /**
+     * Imports the folder and walks its sub folders. The files of the folder are imported once the folder is committed.
+     */
+    private void importFolderRecursive(File folderToImport, RepoPath target) {
         if (shouldPauseOrBreak()) {
             status.error("Import of " + repo.getKey() + " was stopped", log);
             return;
         }
 
-        if (shouldStartNewTransaction()) {
-            commitTransaction(transactionStatus);
-            startTransaction();
+        if (walkTransaction.shouldRenew()) {
+            commitWalkTransaction();
+            walkTransaction = startTransaction();
         }
 
-        if (!fileToImport.exists()) {
-            // skeleton import? looks for file metadata
-            File fileInfoMetadata = new File(
-                    fileToImport.getAbsolutePath() + METADATA_FOLDER + "/" + FileInfo.ROOT + ".xml");
-            if (fileInfoMetadata.exists() && isStorableFile(fileToImport.getName())) {
-                importFile(fileToImport, target);
-            } else {
-                status.warn("File/metadata not found: " + fileToImport.getAbsolutePath(), log);
-            }
-        } else if (fileToImport.isFile() && isStorableFile(fileToImport.getName())) {
-            importFile(fileToImport, target);
-        } else if (isStorableFolder(fileToImport.getName())) {
-            boolean folderExistAfterImport = importFolder(fileToImport, target);
-            if (!folderExistAfterImport) {
-                log.debug("Folder '{}' doesn't exist after import. Skipping import children of '{}'",
-                        target, fileToImport);
-                return;
+        if (!isStorableFolder(folderToImport.getName())) {
+            return;
+        }
+        boolean folderExistAfterImport = importFolder(folderToImport, target);
+        if (!folderExistAfterImport) {
+            log.debug("Folder '{}' doesn't exist after import. Skipping import children of '{}'",
+                    target, folderToImport);
+            return;
+        }
+        walkTransaction.itemsCount++;
+        File[] filesToImport = folderToImport.listFiles();
+        if (filesToImport == null || filesToImport.length == 0) {
+            return;
+        }
+        Set<String> fileNames = collectFileNamesForImport(filesToImport);
+        List<ImportItem> folderFiles = Lists.newArrayList();
+        List<ImportItem> subFolders = Lists.newArrayList();
+        for (String fileName : fileNames) {
+            // a name without a file is a skeleton import of a file, the import looks for its metadata
+            File child = new File(folderToImport, fileName);
+            ImportItem item = new ImportItem(child, new RepoPathImpl(target, fileName));
+            if (child.isDirectory()) {
+                subFolders.add(item);
+            } else if (isStorableFile(fileName)) {
+                folderFiles.add(item);
             }
-            File[] filesToImport = fileToImport.listFiles();
-            if (filesToImport != null && filesToImport.length > 0) {
-                Set<String> fileNames = collectFileNamesForImport(filesToImport);
-                for (String fileName : fileNames) {
-                    RepoPathImpl targetChild = new RepoPathImpl(target, fileName);
-                    importRecursive(new File(fileToImport, fileName), targetChild);
-                }
+        }
+        if (parallelFilesImport == null) {
+            importFiles(folderFiles, walkTransaction);
+        } else {
+            // the files are imported in chunks, so the files of a large folder are imported in parallel too
+            for (List<ImportItem> chunk : Lists.partition(folderFiles, MAX_ITEMS_PER_TRANSACTION)) {
+                walkTransaction.folderFiles.add(chunk);
             }
         }
+        for (ImportItem subFolder : subFolders) {
+            importFolderRecursive(subFolder.getSource(), subFolder.getDestination());
+        }
+    }
+
+    /**
+     * Commits the walked folders and passes their files on to the parallel import
+     */
+    private void commitWalkTransaction() {
+        commitTransaction(walkTransaction);
+        for (List<ImportItem> folderFiles : walkTransaction.folderFiles) {
+            parallelFilesImport.offer(folderFiles);
+        }
+        walkTransaction.folderFiles.clear();
     }
 
     private boolean shouldPauseOrBreak() {
@@ -265,13 +314,6 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
         }
     }
 
-    private boolean shouldStartNewTransaction() {
-        boolean reachedMaxFiles = progressAccumulator.getSuccessfulItemsCount() > 0 &&
-                progressAccumulator.getSuccessfulItemsCount() % MAX_ITEMS_PER_TRANSACTION == 0;
-        boolean transactionTimeMaxed = transactionStartTime.plus(MAX_TIME_PER_TRANSACTION).isBeforeNow();
-        return reachedMaxFiles || transactionTimeMaxed;
-    }
-
     private Set<String> collectFileNamesForImport(File[] filesToImport) {
         Set<String> fileNames = Sets.newHashSetWithExpectedSize(filesToImport.length / 2);
         for (File childFile : filesToImport) {
@@ -286,16 +328,127 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
         return fileNames;
     }
 
-    private void importFile(final File fileToImport, final RepoPath target) {
-        log.debug("Importing '{}'.", target);
-        if (!settings.isIncludeMetadata() && !fileToImport.exists()) {
-            addErrorMessage(fileToImport, target, "Cannot import non existent file (metadata is excluded): " +
-                    fileToImport.getAbsolutePath());
+    /**
+     * Imports the files in their own transactions
+     */
+    private void importFiles(List<ImportItem> files) {
+        ImportTransaction transaction = startTransaction();
+        try {
+            importFiles(files, transaction);
+        } finally {
+            if (transaction.isActive()) {
+                commitTransaction(transaction);
+            }
+        }
+    }
+
+    /**
+     * Imports the files in the given transaction, which is renewed every {@link #MAX_ITEMS_PER_TRANSACTION} items
+     */
+    private void importFiles(List<ImportItem> files, ImportTransaction transaction) {
+        Map<ImportItem, FileMetadata> filesMetadata = readFilesMetadata(files);
+        Set<String> existingBinaries = findExistingBinaries(filesMetadata.values());
+        for (ImportItem file : files) {
+            if (shouldPauseOrBreak()) {
+                status.error("Import of " + repo.getKey() + " was stopped", log);
+                break;
+            }
+            if (transaction.shouldRenew()) {
+                commitTransaction(transaction);
+                beginTransaction(transaction);
+            }
+            if (importFile(file.getSource(), file.getDestination(), filesMetadata.get(file), existingBinaries)) {
+                transaction.importedFiles.add(file.getDestination());
+            }
+            transaction.itemsCount++;
+        }
+    }
+
+    /**
+     * Reads the exported metadata of the files ahead of their import
+     */
+    private Map<ImportItem, FileMetadata> readFilesMetadata(List<ImportItem> files) {
+        if (!settings.isIncludeMetadata()) {
+            return Collections.emptyMap();
+        }
+        Map<ImportItem, FileMetadata> filesMetadata = Maps.newIdentityHashMap();
+        for (ImportItem file : files) {
+            List<MetadataEntryInfo> metadataEntries = getMetadataEntryInfos(file.getSource());
+            FileInfo fileInfo = (FileInfo) readItemInfoMetadata(FileInfo.ROOT, file.getSource(),
+                    file.getDestination(), metadataEntries);
+            filesMetadata.put(file, new FileMetadata(metadataEntries, fileInfo));
+        }
+        return filesMetadata;
+    }
+
+    /**
+     * @return The checksums of the files binaries that already exist in the binary store, found with a single lookup
+     * so the files with new binaries don't look for them one by one
+     */
+    private Set<String> findExistingBinaries(Iterable<FileMetadata> filesMetadata) {
+        Set<String> checksums = Sets.newHashSet();
+        for (FileMetadata fileMetadata : filesMetadata) {
+            if (fileMetadata.fileInfo != null && ChecksumType.sha1.isValid(fileMetadata.fileInfo.getSha1())) {
+                checksums.add(fileMetadata.fileInfo.getSha1());
+            }
+        }
+        Set<String> existingBinaries = Sets.newHashSet();
+        if (!checksums.isEmpty()) {
+            for (BinaryInfo binary : getBinaryStore().findBinaries(checksums)) {
+                existingBinaries.add(binary.getSha1());
+            }
+        }
+        return existingBinaries;
+    }
+
+    /**
+     * Calls the import interceptors of the committed files in a transaction of their own
+     */
+    private void afterImport(List<RepoPath> importedFiles) {
+        if (importedFiles.isEmpty()) {
             return;
         }
-        if (isDeployPathValid(fileToImport, target)) {
-            deployImportedFile(fileToImport, target);
+        ImportInterceptors importInterceptors = StorageContextHelper.get().beanForType(ImportInterceptors.class);
+        ImportTransaction transaction = startTransaction();
+        try {
+            for (RepoPath importedFile : importedFiles) {
+                try {
+                    VfsItem item = repo.getImmutableFsItem(importedFile);
+                    if (item != null) {
+                        importInterceptors.afterImport(item, status);
+                    }
+                } catch (Exception e) {
+                    status.error("Post import processing of '" + importedFile + "' failed: " + e.getMessage(), e,
+                            log);
+                }
+            }
+        } finally {
+            commitTransaction(transaction);
+        }
+        importedFiles.clear();
+    }
+
+    /**
+     * @return True if the file was imported
+     */
+    private boolean importFile(File fileToImport, RepoPath target, @Nullable FileMetadata fileMetadata,
+            @Nullable Set<String> existingBinaries) {
+        log.debug("Importing '{}'.", target);
+        if (!fileToImport.exists()) {
+            // skeleton import? looks for file metadata
+            File fileInfoMetadata = new File(
+                    fileToImport.getAbsolutePath() + METADATA_FOLDER + "/" + FileInfo.ROOT + ".xml");
+            if (!fileInfoMetadata.exists()) {
+                status.warn("File/metadata not found: " + fileToImport.getAbsolutePath(), log);
+                return false;
+            } else if (!settings.isIncludeMetadata()) {
+                addErrorMessage(fileToImport, target, "Cannot import non existent file (metadata is excluded): " +
+                        fileToImport.getAbsolutePath());
+                return false;
+            }
         }
+        return isDeployPathValid(fileToImport, target)
+                && deployImportedFile(fileToImport, target, fileMetadata, existingBinaries);
     }
 
     private boolean isDeployPathValid(File fileToImport, RepoPath target) {
@@ -317,17 +470,17 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
         return true;
     }
 
-    private void deployImportedFile(File fileToImport, RepoPath target) {
-        ArtifactoryStorageContext context = StorageContextHelper.get();
+    private boolean deployImportedFile(File fileToImport, RepoPath target, @Nullable FileMetadata fileMetadata,
+            @Nullable Set<String> existingBinaries) {
         MutableVfsFile mutableFile = null;
         try {
             mutableFile = repo.createOrGetFile(target);
-            importFileFrom(fileToImport, mutableFile);
+            importFileFrom(fileToImport, mutableFile, fileMetadata, existingBinaries);
 
-            context.beanForType(ImportInterceptors.class).afterImport(mutableFile, status);
             log.debug("Imported '{}'.", target);
             AccessLogger.deployed(target);
             progressAccumulator.accumulateSuccessfulFile();
+            return true;
         } catch (BinaryInsertRetryException e) {
             log.info("Import of {} will be retried", target);
             log.debug("Import of " + target + " will be retried", e);
@@ -341,6 +494,7 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
             }
             progressAccumulator.accumulateSkippedFile();
         }
+        return false;
     }
 
     private void addErrorMessage(File from, RepoPath to, String message) {
@@ -356,12 +510,22 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
         }
     }
 
-    private void importFileFrom(File sourceFile, MutableVfsFile mutableFile) throws IOException, RepoRejectException {
+    /**
+     * @param fileMetadata     The metadata read ahead, null to read it here
+     * @param existingBinaries Checksums of the binaries known to exist in the binary store, null if unknown
+     */
+    private void importFileFrom(File sourceFile, MutableVfsFile mutableFile, @Nullable FileMetadata fileMetadata,
+            @Nullable Set<String> existingBinaries) throws IOException, RepoRejectException {
         updateMutableFileBasicData(sourceFile, mutableFile);
         FileInfo importedFileInfo = null;
         RepoPath targetRepoPath = mutableFile.getRepoPath();
         if (settings.isIncludeMetadata()) {
-            importedFileInfo = importMetadataFromExportedMetadataFolder(sourceFile, mutableFile, targetRepoPath);
+            if (fileMetadata == null) {
+                List<MetadataEntryInfo> metadataEntries = getMetadataEntryInfos(sourceFile);
+                fileMetadata = new FileMetadata(metadataEntries, (FileInfo) readItemInfoMetadata(
+                        FileInfo.ROOT, sourceFile, targetRepoPath, metadataEntries));
+            }
+            importedFileInfo = importMetadataFromExportedMetadataFolder(sourceFile, mutableFile, fileMetadata);
         }
         if (importedFileInfo == null && !sourceFile.exists()) {
             throw new FileNotFoundException("Cannot import non existent file " + sourceFile.getAbsolutePath()
@@ -377,7 +541,13 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
             if (sourceFile.exists() && settings.isExcludeContent()) {
                 moveFileToExternalFileStore(sourceFile, expectedSha1);
             }
-            binaryInfoExists = tryUsingExistingBinary(sourceFile, mutableFile, importedFileInfo);
+            // don't look for a binary known to be new, unless the content is not imported and can only be found in
+            // the (external) filestore
+            boolean knownNewBinary = existingBinaries != null && importedFileInfo != null && sourceFile.exists()
+                    && !settings.isExcludeContent() && !existingBinaries.contains(expectedSha1);
+            if (!knownNewBinary) {
+                binaryInfoExists = tryUsingExistingBinary(sourceFile, mutableFile, importedFileInfo);
+            }
         }
         if (!binaryInfoExists) {
             fillBinaryDataFromFile(sourceFile, mutableFile);
@@ -394,11 +564,9 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
     }
 
     private FileInfo importMetadataFromExportedMetadataFolder(File sourceFile, MutableVfsFile mutableFile,
-            RepoPath targetRepoPath) {
-        FileInfo importedFileInfo;
-        List<MetadataEntryInfo> metadataEntries = getMetadataEntryInfos(sourceFile);
-        importedFileInfo = (FileInfo) readItemInfoMetadata(
-                FileInfo.ROOT, sourceFile, targetRepoPath, metadataEntries);
+            FileMetadata fileMetadata) {
+        List<MetadataEntryInfo> metadataEntries = fileMetadata.metadataEntries;
+        FileInfo importedFileInfo = fileMetadata.fileInfo;
         if (importedFileInfo != null) {
             mutableFile.fillInfo(importedFileInfo);
         }
@@ -623,25 +791,168 @@ public class DbRepoImportHandler extends DbRepoImportExportBase {
         return InternalContextHelper.get().getAuthorizationService().currentUsername();
     }
 
-    private void startTransaction() {
+    private ImportTransaction startTransaction() {
+        ImportTransaction transaction = new ImportTransaction();
+        beginTransaction(transaction);
+        return transaction;
+    }
+
+    private void beginTransaction(ImportTransaction transaction) {
         DefaultTransactionDefinition def = new DefaultTransactionDefinition();
         def.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
         AbstractPlatformTransactionManager txManager = getTransactionManager();
-        transactionStartTime = DateTime.now();
-        this.transactionStatus = txManager.getTransaction(def);
+        transaction.startTime = DateTime.now();
+        transaction.itemsCount = 0;
+        transaction.status = txManager.getTransaction(def);
     }
 
-    private void commitTransaction(TransactionStatus status) {
-        log.debug("{}: Committing transaction artifacts count: {} after {} seconds", repo.getKey(),
-                progressAccumulator.getSuccessfulItemsCount(),
-                new Duration(transactionStartTime, DateTime.now()).getStandardSeconds());
-        getTransactionManager().commit(status);
+    /**
+     * Commits the transaction and calls the import interceptors of the files imported in it
+     */
+    private void commitTransaction(ImportTransaction transaction) {
+        log.debug("{}: Committing transaction items count: {} after {} seconds", repo.getKey(),
+                transaction.itemsCount, new Duration(transaction.startTime, DateTime.now()).getStandardSeconds());
+        TransactionStatus transactionStatus = transaction.status;
+        // a failed commit is rolled back by the transaction manager, it is not committed again
+        transaction.status = null;
+        getTransactionManager().commit(transactionStatus);
+        afterImport(transaction.importedFiles);
     }
 
     private AbstractPlatformTransactionManager getTransactionManager() {
         return (AbstractPlatformTransactionManager) ContextHelper.get().getBean("artifactoryTransactionManager");
     }
 
+    /**
+     * A transaction of the import and the items imported in it
+     */
+    private static class ImportTransaction {
+        private TransactionStatus status;
+        private DateTime startTime;
+        private int itemsCount;
+        /**
+         * The files of the folders created in this transaction (parallel walk transactions only)
+         */
+        private final List<List<ImportItem>> folderFiles = Lists.newArrayList();
+        /**
+         * The files imported in this transaction, passed to the import interceptors once it is committed
+         */
+        private final List<RepoPath> importedFiles = Lists.newArrayList();
+
+        private boolean isActive() {
+            return status != null;
+        }
+
+        private boolean shouldRenew() {
+            return itemsCount >= MAX_ITEMS_PER_TRANSACTION || startTime.plus(MAX_TIME_PER_TRANSACTION).isBeforeNow();
+        }
+    }
+
+    /**
+     * The exported metadata of a file
+     */
+    private static class FileMetadata {
+        @Nullable
+        private final List<MetadataEntryInfo> metadataEntries;
+        @Nullable
+        private final FileInfo fileInfo;
+
+        private FileMetadata(@Nullable List<MetadataEntryInfo> metadataEntries, @Nullable FileInfo fileInfo) {
+            this.metadataEntries = metadataEntries;
+            this.fileInfo = fileInfo;
+        }
+    }
+
+    /**
+     * Imports the files of the walked folders by a pool of workers. When the queue is full the walking thread imports
+     * the queued files itself, so a saturated pool never blocks the import, it only degrades it to the sequential
+     * import.
+     */
+    private class ParallelFilesImport {
+        private final BlockingQueue<List<ImportItem>> queue;
+        private final List<Future<?>> workers = Lists.newArrayList();
+        private int unfinished;
+        private volatile boolean walkDone;
+
+        private ParallelFilesImport(int parallelism, AsyncTaskExecutor executor) {
+            queue = new ArrayBlockingQueue<>(parallelism * 2);
+            for (int i = 0; i < parallelism; i++) {
+                try {
+                    workers.add(executor.submit(this::work));
+                } catch (RejectedExecutionException e) {
+                    log.debug("{}: Parallel import worker was rejected: {}", repo.getKey(), e.getMessage());
+                    break;
+                }
+            }
+        }
+
+        private void offer(List<ImportItem> files) {
+            synchronized (this) {
+                unfinished++;
+            }
+            while (!queue.offer(files)) {
+                List<ImportItem> queued = queue.poll();
+                if (queued != null) {
+                    importQueued(queued);
+                }
+            }
+        }
+
+        private void work() {
+            try {
+                while (!walkDone || !queue.isEmpty()) {
+                    List<ImportItem> files = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (files != null) {
+                        importQueued(files);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void importQueued(List<ImportItem> files) {
+            try {
+                importFiles(files);
+            } catch (Exception e) {
+                status.error("Failed to import the files of '" + files.get(0).getDestination().getParent() + "': "
+                        + e.getMessage(), e, log);
+            } finally {
+                synchronized (this) {
+                    unfinished--;
+                    if (unfinished == 0) {
+                        notifyAll();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Imports what is left in the queue and waits for the workers to finish their files
+         */
+        private void finish() {
+            walkDone = true;
+            List<ImportItem> files;
+            while ((files = queue.poll()) != null) {
+                importQueued(files);
+            }
+            synchronized (this) {
+                while (unfinished > 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        status.error("Import of " + repo.getKey() + " was interrupted", log);
+                        break;
+                    }
+                }
+            }
+            for (Future<?> worker : workers) {
+                worker.cancel(false);
+            }
+        }
+    }
+
     /**
      * Represents an importable item of source (file) and destination (repo path)
      */
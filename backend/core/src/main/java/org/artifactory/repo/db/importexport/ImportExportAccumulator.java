@@ -57,23 +57,23 @@ public class ImportExportAccumulator {
         this.startTime = System.nanoTime();
     }
 
-    public void accumulateSuccessfulFile() {
+    public synchronized void accumulateSuccessfulFile() {
         successfulFilesCount++;
         printProgress();
     }
 
-    public void accumulateSkippedFile() {
+    public synchronized void accumulateSkippedFile() {
         skippedFilesCount++;
         printProgress();
     }
 
 
-    public void accumulateSuccessfulFolder() {
+    public synchronized void accumulateSuccessfulFolder() {
         successfulFoldersCount++;
         printProgress();
     }
 
-    public void accumulateSkippedFolder() {
+    public synchronized void accumulateSkippedFolder() {
         skippedFoldersCount++;
         printProgress();
     }
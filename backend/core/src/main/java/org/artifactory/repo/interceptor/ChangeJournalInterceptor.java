@@ -0,0 +1,85 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.repo.interceptor;
+
+import org.artifactory.api.context.ContextHelper;
+import org.artifactory.common.MutableStatusHolder;
+import org.artifactory.md.Properties;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.repo.interceptor.storage.StorageInterceptorAdapter;
+import org.artifactory.sapi.fs.VfsItem;
+import org.artifactory.sapi.interceptor.ImportInterceptor;
+import org.artifactory.storage.fs.service.ChangeJournalService;
+
+/**
+ * Interceptor which records the changed repository paths in the change journal used by the incremental backup and
+ * the incremental maven indexer.
+ * Property changes are recorded as a change of the item since the properties are exported with the item.
+ */
+public class ChangeJournalInterceptor extends StorageInterceptorAdapter implements ImportInterceptor {
+
+    @Override
+    public void afterCreate(VfsItem fsItem, MutableStatusHolder statusHolder) {
+        itemChanged(fsItem.getRepoPath());
+    }
+
+    @Override
+    public void afterImport(VfsItem fsItem, MutableStatusHolder statusHolder) {
+        itemChanged(fsItem.getRepoPath());
+    }
+
+    @Override
+    public void afterDelete(VfsItem fsItem, MutableStatusHolder statusHolder) {
+        getChangeJournalService().itemDeleted(fsItem.getRepoPath());
+    }
+
+    @Override
+    public void afterMove(VfsItem sourceItem, VfsItem targetItem, MutableStatusHolder statusHolder,
+            Properties properties) {
+        ChangeJournalService journal = getChangeJournalService();
+        journal.itemDeleted(sourceItem.getRepoPath());
+        journal.itemChanged(targetItem.getRepoPath());
+    }
+
+    @Override
+    public void afterCopy(VfsItem sourceItem, VfsItem targetItem, MutableStatusHolder statusHolder,
+            Properties properties) {
+        itemChanged(targetItem.getRepoPath());
+    }
+
+    @Override
+    public void afterPropertyCreate(VfsItem fsItem, MutableStatusHolder statusHolder, String name,
+            String... values) {
+        itemChanged(fsItem.getRepoPath());
+    }
+
+    @Override
+    public void afterPropertyDelete(VfsItem fsItem, MutableStatusHolder statusHolder, String name) {
+        itemChanged(fsItem.getRepoPath());
+    }
+
+    private void itemChanged(RepoPath repoPath) {
+        // the journal ignores the changes while no consumer records
+        getChangeJournalService().itemChanged(repoPath);
+    }
+
+    private ChangeJournalService getChangeJournalService() {
+        return ContextHelper.get().beanForType(ChangeJournalService.class);
+    }
+}
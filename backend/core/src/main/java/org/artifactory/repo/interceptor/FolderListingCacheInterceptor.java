@@ -0,0 +1,66 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.repo.interceptor;
+
+import org.artifactory.api.context.ContextHelper;
+import org.artifactory.common.MutableStatusHolder;
+import org.artifactory.md.Properties;
+import org.artifactory.repo.interceptor.storage.StorageInterceptorAdapter;
+import org.artifactory.repo.service.FolderListingCache;
+import org.artifactory.sapi.fs.VfsItem;
+import org.artifactory.sapi.interceptor.ImportInterceptor;
+
+/**
+ * Interceptor which invalidates the cached folder listings of the repository browsing when items are created,
+ * deleted, moved or copied.
+ */
+public class FolderListingCacheInterceptor extends StorageInterceptorAdapter implements ImportInterceptor {
+
+    @Override
+    public void afterCreate(VfsItem fsItem, MutableStatusHolder statusHolder) {
+        invalidate(fsItem);
+    }
+
+    @Override
+    public void afterImport(VfsItem fsItem, MutableStatusHolder statusHolder) {
+        invalidate(fsItem);
+    }
+
+    @Override
+    public void afterDelete(VfsItem fsItem, MutableStatusHolder statusHolder) {
+        invalidate(fsItem);
+    }
+
+    @Override
+    public void afterMove(VfsItem sourceItem, VfsItem targetItem, MutableStatusHolder statusHolder,
+            Properties properties) {
+        invalidate(sourceItem);
+        invalidate(targetItem);
+    }
+
+    @Override
+    public void afterCopy(VfsItem sourceItem, VfsItem targetItem, MutableStatusHolder statusHolder,
+            Properties properties) {
+        invalidate(targetItem);
+    }
+
+    private void invalidate(VfsItem fsItem) {
+        ContextHelper.get().beanForType(FolderListingCache.class).invalidate(fsItem.getRepoPath(), fsItem.isFolder());
+    }
+}
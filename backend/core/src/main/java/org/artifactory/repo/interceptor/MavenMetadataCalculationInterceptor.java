@@ -20,6 +20,7 @@ package org.artifactory.repo.interceptor;
 
 import org.artifactory.api.maven.MavenArtifactInfo;
 import org.artifactory.api.maven.MavenMetadataService;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.common.MutableStatusHolder;
 import org.artifactory.descriptor.repo.SnapshotVersionBehavior;
 import org.artifactory.mime.MavenNaming;
@@ -67,8 +68,13 @@ public class MavenMetadataCalculationInterceptor extends StorageInterceptorAdapt
                 // for pom files we need to trigger metadata calculation on the grandparent non-recursively -
                 // potential new version and snapshot.
                 // this can be done asynchronously since it doesn't require instant update
-                RepoPath grandparentFolder = RepoPathUtils.getAncestor(fsItem.getRepoPath(), 2);
-                mmService.calculateMavenMetadataAsync(grandparentFolder, false);
+                if (ConstantValues.mvnMetadataIncrementalEnabled.getBoolean()) {
+                    // merge only the new version instead of listing the grandparent, deploy bursts are coalesced
+                    mmService.calculateMavenMetadataIncrementalAsync(fsItem.getRepoPath());
+                } else {
+                    RepoPath grandparentFolder = RepoPathUtils.getAncestor(fsItem.getRepoPath(), 2);
+                    mmService.calculateMavenMetadataAsync(grandparentFolder, false);
+                }
             }
         }
     }
@@ -0,0 +1,312 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.repo.remote;
+
+import org.apache.commons.io.IOUtils;
+import org.artifactory.io.SimpleResourceStreamHandle;
+import org.artifactory.resource.ResourceStreamHandle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * A remote download that is being saved to the cache while concurrent requests for the same resource stream it.
+ * <p/>
+ * The downloader reads the remote stream through {@link #tee(InputStream)}, which spools every byte it reads into a
+ * temp file. Readers tail the spool file and reach the end of the stream only after the downloader calls
+ * {@link #complete()}, i.e. after the resource was saved (and its checksums verified) in the cache. If the download
+ * fails, the readers get an IOException. Readers that haven't received any byte yet can fall back to the regular
+ * download ({@link #join(long)} returns null).
+ * <p/>
+ * Only a small copy buffer is held in memory, the spool file is deleted when the downloader and all the readers
+ * released it.
+ */
+public class InFlightDownload {
+    private static final Logger log = LoggerFactory.getLogger(InFlightDownload.class);
+
+    private final String path;
+    private final File spoolFile;
+    private final long size;
+
+    private long written;
+    private boolean completed;
+    private Throwable failure;
+    private int references = 1;
+
+    /**
+     * @param path     The path of the downloaded resource (used for logging)
+     * @param spoolDir The directory of the temp spool file
+     * @param size     The size of the resource or -1 if unknown
+     */
+    public InFlightDownload(String path, File spoolDir, long size) throws IOException {
+        this.path = path;
+        this.spoolFile = File.createTempFile("download-", ".spool", spoolDir);
+        this.size = size;
+    }
+
+    /**
+     * @return A stream of the downloaded content that should be consumed by the downloader instead of the source
+     */
+    public InputStream tee(InputStream source) throws IOException {
+        return new TeeInputStream(source, new FileOutputStream(spoolFile));
+    }
+
+    /**
+     * Marks the download as successfully saved, the readers may reach the end of the stream.
+     */
+    public synchronized void complete() {
+        if (failure == null) {
+            completed = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Marks the download as failed, the readers will get an IOException on their next read.
+     */
+    public synchronized void fail(Throwable cause) {
+        if (!completed && failure == null) {
+            failure = cause;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Joins the download as a reader. Waits until the first bytes are spooled (or the download ended).
+     *
+     * @param timeoutMillis Max time to wait for the download progress, both for joining and for each read
+     * @return A handle streaming the download content or null if the download failed (or didn't start in time) and the
+     * caller should fall back to the regular download
+     */
+    @Nullable
+    public ResourceStreamHandle join(long timeoutMillis) {
+        synchronized (this) {
+            try {
+                long deadline = System.currentTimeMillis() + timeoutMillis;
+                long remaining = timeoutMillis;
+                while (written == 0 && !completed && failure == null && references > 0 && remaining > 0) {
+                    wait(remaining);
+                    remaining = deadline - System.currentTimeMillis();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            if (failure != null || references == 0 || (written == 0 && !completed)) {
+                return null;
+            }
+            references++;
+        }
+        try {
+            return new SimpleResourceStreamHandle(new SpoolInputStream(timeoutMillis), size);
+        } catch (IOException e) {
+            log.debug("Could not open the spool file of the concurrent download of '{}'", path, e);
+            release();
+            return null;
+        }
+    }
+
+    /**
+     * Releases the downloader reference. The spool file is deleted once all the readers are closed.
+     */
+    public void release() {
+        boolean delete;
+        synchronized (this) {
+            references--;
+            delete = references == 0;
+            if (delete) {
+                // Wake up joining readers so they can fall back
+                notifyAll();
+            }
+        }
+        if (delete && !spoolFile.delete() && spoolFile.exists()) {
+            log.warn("Could not delete the download spool file '{}'", spoolFile.getAbsolutePath());
+        }
+    }
+
+    File getSpoolFile() {
+        return spoolFile;
+    }
+
+    private synchronized void spooled(int count) {
+        written += count;
+        notifyAll();
+    }
+
+    /**
+     * @return Number of bytes that can be read from the position or -1 if the download completed and all the bytes
+     * were read
+     */
+    private synchronized long awaitAvailable(long position, long timeoutMillis) throws IOException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (position >= written && !completed && failure == null) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new IOException("Timed-out waiting on concurrent download of '" + path + "'");
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting on concurrent download of '" + path + "'");
+            }
+        }
+        if (failure != null) {
+            throw new IOException("Concurrent download of '" + path + "' failed: " + failure.getMessage(), failure);
+        }
+        return position < written ? written - position : -1;
+    }
+
+    /**
+     * Copies the bytes read by the downloader to the spool file. A spool failure fails only the readers.
+     */
+    private class TeeInputStream extends FilterInputStream {
+        private OutputStream spool;
+
+        private TeeInputStream(InputStream source, OutputStream spool) {
+            super(source);
+            this.spool = spool;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                spool(new byte[]{(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                spool(b, off, read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes must still reach the spool file
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            long skipped = 0;
+            while (skipped < n) {
+                int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (read < 0) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                IOUtils.closeQuietly(spool);
+            }
+        }
+
+        private void spool(byte[] b, int off, int len) {
+            if (spool == null) {
+                return;
+            }
+            try {
+                spool.write(b, off, len);
+                spooled(len);
+            } catch (IOException e) {
+                log.warn("Could not spool the concurrent download of '{}': {}", path, e.getMessage());
+                IOUtils.closeQuietly(spool);
+                spool = null;
+                fail(e);
+            }
+        }
+    }
+
+    /**
+     * Tails the spool file until the download completes.
+     */
+    private class SpoolInputStream extends InputStream {
+        private final RandomAccessFile file;
+        private final long timeoutMillis;
+        private long position;
+        private boolean closed;
+
+        private SpoolInputStream(long timeoutMillis) throws IOException {
+            this.file = new RandomAccessFile(spoolFile, "r");
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int read = read(b, 0, 1);
+            return read < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            long available = awaitAvailable(position, timeoutMillis);
+            if (available < 0) {
+                return -1;
+            }
+            file.seek(position);
+            int read = file.read(b, off, (int) Math.min(len, available));
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                try {
+                    file.close();
+                } finally {
+                    release();
+                }
+            }
+        }
+    }
+}
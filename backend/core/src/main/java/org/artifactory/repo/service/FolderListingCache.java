@@ -0,0 +1,302 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.repo.service;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import org.artifactory.common.ArtifactoryHome;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.fs.ItemInfo;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.storage.fs.VfsItemNotFoundException;
+import org.artifactory.storage.fs.service.FileService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A short-lived cache of the raw (unfiltered) folder listings used by the repository browsing.
+ * <p/>
+ * The cache is bounded by the total number of cached items and invalidated by the storage interceptor events of the
+ * folder, its children and its ancestors. The cached paths are indexed by their path, so the listings of the
+ * descendants of a folder are found by a range lookup. Since a listing may be loaded while a change is in progress,
+ * every folder maps to a version stripe which is incremented on invalidation, and a listing loaded while its stripe
+ * changed is not kept. The stripe is chosen by the repository and the top level folder, so a folder and its
+ * descendants share a stripe. Changes made in a transaction are invalidated again when the transaction completes.
+ * <p/>
+ * The changes made by other cluster nodes are not invalidated, so in HA the cache is disabled unless
+ * {@link ConstantValues#folderListingCacheHaEnabled} accepts listings that are stale for up to the cache TTL.
+ * <p/>
+ * The listings hold no security information, the browsing filters should be applied by the callers.
+ */
+@Component
+public class FolderListingCache {
+    private static final Logger log = LoggerFactory.getLogger(FolderListingCache.class);
+
+    private static final int VERSION_STRIPES = 64;
+    private static final int MAX_PENDING_INVALIDATIONS = 1000;
+
+    @Autowired
+    private FileService fileService;
+
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    /**
+     * The cached repo paths by their {@link #pathKey(RepoPath)}
+     */
+    private final ConcurrentSkipListMap<String, RepoPath> cachedPaths = new ConcurrentSkipListMap<>();
+
+    @Nullable
+    private Cache<RepoPath, FolderListing> listings;
+
+    public FolderListingCache() {
+    }
+
+    @VisibleForTesting
+    FolderListingCache(FileService fileService, long maxItems, long ttlSecs) {
+        this.fileService = fileService;
+        this.listings = createCache(maxItems, ttlSecs);
+    }
+
+    @PostConstruct
+    void init() {
+        if (ArtifactoryHome.get().isHaConfigured() && !ConstantValues.folderListingCacheHaEnabled.getBoolean()) {
+            log.debug("Folder listing cache is disabled in HA");
+            return;
+        }
+        listings = createCache(ConstantValues.folderListingCacheMaxItems.getLong(),
+                ConstantValues.folderListingCacheTtlSecs.getLong());
+    }
+
+    @Nullable
+    private Cache<RepoPath, FolderListing> createCache(long maxItems, long ttlSecs) {
+        if (maxItems <= 0 || ttlSecs <= 0) {
+            log.debug("Folder listing cache is disabled");
+            return null;
+        }
+        return CacheBuilder.newBuilder()
+                .maximumWeight(maxItems)
+                .weigher(new Weigher<RepoPath, FolderListing>() {
+                    @Override
+                    public int weigh(RepoPath key, FolderListing listing) {
+                        return listing.getChildren().size() + 1;
+                    }
+                })
+                .expireAfterWrite(ttlSecs, TimeUnit.SECONDS)
+                .removalListener(notification -> {
+                    if (notification.getCause() != RemovalCause.REPLACED) {
+                        unindex(notification.getKey());
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * @param repoPath The repo path to list
+     * @return The item of the repo path and its unfiltered children, or null if the item doesn't exist. The children
+     * of a file are empty.
+     */
+    @Nullable
+    public FolderListing getListing(RepoPath repoPath) {
+        if (listings == null) {
+            return load(repoPath);
+        }
+        FolderListing listing = listings.getIfPresent(repoPath);
+        if (listing != null) {
+            return listing;
+        }
+        int stripe = stripe(repoPath);
+        long version = versions.get(stripe);
+        listing = load(repoPath);
+        if (listing != null) {
+            listings.put(repoPath, listing);
+            cachedPaths.put(pathKey(repoPath), repoPath);
+            // check after the put, an invalidation that raced with the load might have missed the new entry
+            if (versions.get(stripe) != version) {
+                listings.asMap().remove(repoPath, listing);
+            }
+        }
+        return listing;
+    }
+
+    /**
+     * Invalidates the listings that include the item: its own listing and the listing of its parent. The listings of
+     * the descendants of a folder are invalidated as well.
+     *
+     * @param repoPath The repo path of the created, modified or deleted item
+     * @param folder   True if the item is a folder
+     */
+    public void invalidate(RepoPath repoPath, boolean folder) {
+        if (listings == null) {
+            return;
+        }
+        invalidateNow(repoPath, folder);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // a listing loaded before the commit might still hold the old state
+            PendingInvalidations pending = (PendingInvalidations) TransactionSynchronizationManager.getResource(this);
+            if (pending == null) {
+                pending = new PendingInvalidations();
+                TransactionSynchronizationManager.bindResource(this, pending);
+                TransactionSynchronizationManager.registerSynchronization(pending);
+            }
+            pending.add(repoPath, folder);
+        }
+    }
+
+    private void invalidateNow(RepoPath repoPath, boolean folder) {
+        if (listings == null) {
+            return;
+        }
+        RepoPath parent = repoPath.getParent();
+        if (folder && repoPath.isRoot()) {
+            // the top level folders of the repository may map to any stripe
+            for (int i = 0; i < VERSION_STRIPES; i++) {
+                versions.incrementAndGet(i);
+            }
+        } else {
+            // the descendants of a folder share its stripe
+            versions.incrementAndGet(stripe(repoPath));
+        }
+        if (parent != null) {
+            versions.incrementAndGet(stripe(parent));
+        }
+        if (folder) {
+            // the keys of the descendants are the keys that start with the folder key and a slash
+            String prefix = repoPath.isRoot() ? pathKey(repoPath) : pathKey(repoPath) + '/';
+            String end = prefix.substring(0, prefix.length() - 1) + (char) (prefix.charAt(prefix.length() - 1) + 1);
+            for (RepoPath cached : cachedPaths.subMap(prefix, end).values()) {
+                listings.invalidate(cached);
+            }
+        }
+        listings.invalidate(repoPath);
+        if (parent != null) {
+            listings.invalidate(parent);
+        }
+    }
+
+    private void unindex(RepoPath repoPath) {
+        String key = pathKey(repoPath);
+        cachedPaths.remove(key);
+        // the listing might have been loaded again before it was unindexed, loaders index after the put
+        if (listings != null && listings.asMap().containsKey(repoPath)) {
+            cachedPaths.put(key, repoPath);
+        }
+    }
+
+    @VisibleForTesting
+    int indexedPathsCount() {
+        return cachedPaths.size();
+    }
+
+    /**
+     * @return The repo key and the path, separated and ended by a slash for the repository root
+     */
+    private static String pathKey(RepoPath repoPath) {
+        return repoPath.getRepoKey() + '/' + repoPath.getPath();
+    }
+
+    @Nullable
+    private FolderListing load(RepoPath repoPath) {
+        ItemInfo item;
+        try {
+            item = fileService.loadItem(repoPath);
+        } catch (VfsItemNotFoundException e) {
+            return null;
+        }
+        List<ItemInfo> children = item.isFolder() ? fileService.loadChildren(repoPath) : null;
+        return new FolderListing(item, children);
+    }
+
+    private static int stripe(RepoPath repoPath) {
+        String path = repoPath.getPath();
+        int slash = path.indexOf('/');
+        String topLevelFolder = slash < 0 ? path : path.substring(0, slash);
+        int hash = 31 * repoPath.getRepoKey().hashCode() + topLevelFolder.hashCode();
+        return (hash & Integer.MAX_VALUE) % VERSION_STRIPES;
+    }
+
+    /**
+     * An item and its unfiltered children as read from the storage
+     */
+    public static class FolderListing {
+        private final ItemInfo item;
+        private final List<ItemInfo> children;
+
+        private FolderListing(ItemInfo item, @Nullable List<ItemInfo> children) {
+            this.item = item;
+            this.children = children == null ? ImmutableList.<ItemInfo>of() : ImmutableList.copyOf(children);
+        }
+
+        public ItemInfo getItem() {
+            return item;
+        }
+
+        public List<ItemInfo> getChildren() {
+            return children;
+        }
+    }
+
+    private class PendingInvalidations extends TransactionSynchronizationAdapter {
+        private final Set<RepoPath> items = Sets.newHashSet();
+        private final Set<RepoPath> folders = Sets.newHashSet();
+
+        private void add(RepoPath repoPath, boolean folder) {
+            if (folder) {
+                folders.add(repoPath);
+            } else {
+                items.add(repoPath);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(FolderListingCache.this);
+            if (listings != null && folders.size() + items.size() > MAX_PENDING_INVALIDATIONS) {
+                // bulk changes (e.g. import), cheaper to drop everything
+                for (int i = 0; i < VERSION_STRIPES; i++) {
+                    versions.incrementAndGet(i);
+                }
+                listings.invalidateAll();
+                return;
+            }
+            for (RepoPath folder : folders) {
+                invalidateNow(folder, true);
+            }
+            for (RepoPath item : items) {
+                invalidateNow(item, false);
+            }
+        }
+    }
+}
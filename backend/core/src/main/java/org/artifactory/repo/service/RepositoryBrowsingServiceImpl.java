@@ -31,6 +31,7 @@ import org.artifactory.checksum.ChecksumInfo;
 import org.artifactory.checksum.ChecksumType;
 import org.artifactory.checksum.ChecksumsInfo;
 import org.artifactory.fs.FileInfo;
+import org.artifactory.fs.FolderInfo;
 import org.artifactory.fs.ItemInfo;
 import org.artifactory.md.Properties;
 import org.artifactory.mime.MavenNaming;
@@ -38,9 +39,12 @@ import org.artifactory.repo.*;
 import org.artifactory.repo.remote.browse.RemoteItem;
 import org.artifactory.repo.virtual.VirtualRepo;
 import org.artifactory.sapi.common.RepositoryRuntimeException;
+import org.artifactory.storage.fs.service.FileService;
 import org.artifactory.storage.fs.service.PropertiesService;
+import org.artifactory.storage.fs.tree.FolderNode;
 import org.artifactory.storage.fs.tree.ItemNode;
 import org.artifactory.storage.fs.tree.ItemTree;
+import org.artifactory.storage.fs.tree.TreeBrowsingCriteria;
 import org.artifactory.storage.fs.tree.TreeBrowsingCriteriaBuilder;
 import org.artifactory.util.PathUtils;
 import org.slf4j.Logger;
@@ -68,6 +72,12 @@ public class RepositoryBrowsingServiceImpl implements RepositoryBrowsingService
     @Autowired
     private PropertiesService propertiesService;
 
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private FolderListingCache folderListingCache;
+
     @Override
     public BrowsableItem getLocalRepoBrowsableItem(RepoPath repoPath) {
         ItemInfo itemInfo = getItemInfo(repoPath);
@@ -124,71 +134,114 @@ public class RepositoryBrowsingServiceImpl implements RepositoryBrowsingService
     private List<BaseBrowsableItem> getLocalRepoBrowsableChildrenData(BrowsableItemCriteria criteria,
             boolean updateRootNodesFilterFlag,RootNodesFilterResult browsableItemAccept) {
         RepoPath repoPath = criteria.getRepoPath();
-        LocalRepo repo = repoService.localOrCachedRepositoryByKey(repoPath.getRepoKey());
-        if (repo == null) {
-            log.trace("No local or cache repo found:'{}'", repoPath.getRepoKey());
-            throw new IllegalArgumentException("No local or cache repo found: " + repoPath.getRepoKey());
-        }
-
+        LocalRepo repo = getLocalOrCachedRepo(repoPath);
         if (repo.isBlackedOut() || !repo.accepts(repoPath)) {
             return Lists.newArrayListWithCapacity(0);
         }
 
-        ItemTree tree = new ItemTree(criteria.getRepoPath(), new TreeBrowsingCriteriaBuilder()
-                .applyRepoIncludeExclude().applySecurity().cacheChildren(false).build());
-        ItemNode rootNode = tree.getRootNode();
-        if (rootNode == null) {
-            log.trace("No local or cache repo found:'{}'", repoPath.getRepoKey());
-            throw new ItemNotFoundRuntimeException(repoPath);
-        }
-        if (!rootNode.isFolder()) {
-            log.trace("repo '{}' root node is not folder", repoPath.getRepoKey());
-            throw new FolderExpectedException(repoPath);
-        }
-        List<ItemNode> children = getRootNodeChildren(updateRootNodesFilterFlag,browsableItemAccept,rootNode);
+        // the browsing filters are applied on the cached listing
+        FolderListingCache.FolderListing listing = folderListingCache.getListing(repoPath);
+        FolderNode folderNode = toBrowsableFolderNode(repoPath, listing != null ? listing.getItem() : null);
+        List<ItemNode> children = folderNode.filterChildren(listing.getChildren(), updateRootNodesFilterFlag,
+                browsableItemAccept);
         if (children.isEmpty()) {
             return Lists.newArrayListWithCapacity(0);
         }
 
         List<BaseBrowsableItem> repoPathChildren = Lists.newArrayList();
         for (ItemNode child : children) {
-            //Check if we should return the child
-            ItemInfo childItemInfo = child.getItemInfo();
-            BrowsableItem browsableItem = BrowsableItem.getItem(childItemInfo);
-            if (child.isFolder()) {
-                repoPathChildren.add(browsableItem);
-            } else if (isPropertiesMatch(childItemInfo, criteria.getRequestProperties())) {   // match props for files
-                repoPathChildren.add(browsableItem);
-                if (criteria.isIncludeChecksums()) {
-                    repoPathChildren.addAll(getBrowsableItemChecksumItems(repo,
-                            ((FileInfo) childItemInfo).getChecksumsInfo(), browsableItem));
-                }
-            }
+            addBrowsableItems(repo, criteria, child.getItemInfo(), repoPathChildren);
         }
 
         Collections.sort(repoPathChildren);
         return repoPathChildren;
     }
 
+    @Override
+    public boolean visitLocalRepoBrowsableChildren(@Nonnull BrowsableItemCriteria criteria, int pageSize,
+            BrowsableItemVisitor visitor) {
+        RepoPath repoPath = criteria.getRepoPath();
+        LocalRepo repo = getLocalOrCachedRepo(repoPath);
+        if (repo.isBlackedOut() || !repo.accepts(repoPath)) {
+            return true;
+        }
+
+        FolderNode folderNode = getBrowsableFolderNode(repoPath);
+        List<BaseBrowsableItem> childItems = Lists.newArrayList();
+        String afterName = null;
+        List<ItemInfo> children;
+        do {
+            children = fileService.loadChildren(repoPath, afterName, pageSize);
+            for (ItemInfo child : children) {
+                if (!folderNode.accepts(child).isAccepted()) {
+                    continue;
+                }
+                childItems.clear();
+                addBrowsableItems(repo, criteria, child, childItems);
+                for (BaseBrowsableItem childItem : childItems) {
+                    if (!visitor.visit(childItem)) {
+                        return false;
+                    }
+                }
+            }
+            if (!children.isEmpty()) {
+                afterName = children.get(children.size() - 1).getName();
+            }
+        } while (children.size() == pageSize);
+        return true;
+    }
+
+    private LocalRepo getLocalOrCachedRepo(RepoPath repoPath) {
+        LocalRepo repo = repoService.localOrCachedRepositoryByKey(repoPath.getRepoKey());
+        if (repo == null) {
+            log.trace("No local or cache repo found:'{}'", repoPath.getRepoKey());
+            throw new IllegalArgumentException("No local or cache repo found: " + repoPath.getRepoKey());
+        }
+        return repo;
+    }
+
     /**
-     * call get children with monitor Filter Acceptance if flag is active or base get children
-     * @param updateRootNodesFilterFlag - if true keep flag from empty list due to
-     *                                      no access (canRead = false) return
-     * @param rootNodesFilterResult -
-     * @param rootNode
-     * @return children nodes List or empty list with updated browsableItemAccept canRead flag when
-     * updateRootNodesFilterFlag is active
+     * @return The folder node of the repo path with the browsing filters (repo include/exclude and security)
      */
-    private List<ItemNode> getRootNodeChildren(boolean updateRootNodesFilterFlag,
-            RootNodesFilterResult rootNodesFilterResult, ItemNode rootNode) {
-        List<ItemNode> children;
-        if (updateRootNodesFilterFlag) {
-           children = rootNode.getChildren(updateRootNodesFilterFlag,rootNodesFilterResult);
+    private FolderNode getBrowsableFolderNode(RepoPath repoPath) {
+        ItemTree tree = new ItemTree(repoPath, getBrowsingCriteria());
+        ItemNode rootNode = tree.getRootNode();
+        return toBrowsableFolderNode(repoPath, rootNode != null ? rootNode.getItemInfo() : null);
+    }
+
+    private FolderNode toBrowsableFolderNode(RepoPath repoPath, @Nullable ItemInfo itemInfo) {
+        if (itemInfo == null) {
+            log.trace("No local or cache repo found:'{}'", repoPath.getRepoKey());
+            throw new ItemNotFoundRuntimeException(repoPath);
         }
-        else{
-            children = rootNode.getChildren();
+        if (!itemInfo.isFolder()) {
+            log.trace("repo '{}' root node is not folder", repoPath.getRepoKey());
+            throw new FolderExpectedException(repoPath);
+        }
+        return new FolderNode((FolderInfo) itemInfo, getBrowsingCriteria());
+    }
+
+    private TreeBrowsingCriteria getBrowsingCriteria() {
+        return new TreeBrowsingCriteriaBuilder().applyRepoIncludeExclude().applySecurity().cacheChildren(false)
+                .build();
+    }
+
+    /**
+     * Adds the browsable item of an accepted child, and its checksums items if required by the criteria
+     */
+    private void addBrowsableItems(LocalRepo repo, BrowsableItemCriteria criteria, ItemInfo childItemInfo,
+            List<BaseBrowsableItem> repoPathChildren) {
+        //Check if we should return the child
+        BrowsableItem browsableItem = BrowsableItem.getItem(childItemInfo);
+        if (childItemInfo.isFolder()) {
+            repoPathChildren.add(browsableItem);
+        } else if (isPropertiesMatch(childItemInfo, criteria.getRequestProperties())) {   // match props for files
+            repoPathChildren.add(browsableItem);
+            if (criteria.isIncludeChecksums()) {
+                repoPathChildren.addAll(getBrowsableItemChecksumItems(repo,
+                        ((FileInfo) childItemInfo).getChecksumsInfo(), browsableItem));
+            }
         }
-        return children;
     }
 
     private boolean canRead(RealRepo repo, RepoPath childRepoPath) {
@@ -0,0 +1,166 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.repo.virtual;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.artifactory.fs.RepoResource;
+import org.artifactory.repo.RealRepo;
+import org.artifactory.request.RepoRequests;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Fetches the resource info from a list of remote repositories in parallel while the caller consumes the results in
+ * the repositories priority order.
+ * <p/>
+ * Each lookup is executed by whoever claims it first: a pool thread or the caller when it reaches the repository
+ * before a pool thread picked the lookup. Therefore a saturated pool never blocks the resolution, it only degrades it
+ * to the sequential lookup. Once the caller decides on the result, {@link #close()} cancels the remaining lookups.
+ * <p/>
+ * The request log is bound to the caller thread, so the messages logged by a lookup on a pool thread are captured and
+ * replayed to the request log when the caller consumes the lookup.
+ */
+class ParallelRemoteInfoResolver implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ParallelRemoteInfoResolver.class);
+
+    private final Function<RealRepo, RepoResource> infoLookup;
+    private final Map<RealRepo, Lookup> lookups = Maps.newIdentityHashMap();
+
+    /**
+     * Starts the lookups of all the given repositories
+     *
+     * @param repositories Remote repositories to query
+     * @param infoLookup   The info lookup of a single repository
+     * @param executor     Executor of the lookups
+     */
+    ParallelRemoteInfoResolver(List<RealRepo> repositories, Function<RealRepo, RepoResource> infoLookup,
+            AsyncTaskExecutor executor) {
+        this.infoLookup = infoLookup;
+        for (RealRepo repo : repositories) {
+            Lookup lookup = new Lookup(repo);
+            lookups.put(repo, lookup);
+            try {
+                lookup.future = executor.submit(lookup);
+            } catch (RejectedExecutionException e) {
+                // The caller will execute the lookup when it gets to the repository
+                log.debug("Parallel info lookup of '{}' was rejected: {}", repo.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return The info of the repository, waiting for the parallel lookup if it is in progress. Repositories that were
+     * not submitted are looked up by the calling thread.
+     */
+    RepoResource getInfo(RealRepo repo) {
+        Lookup lookup = lookups.remove(repo);
+        if (lookup == null) {
+            return infoLookup.apply(repo);
+        }
+        return lookup.get();
+    }
+
+    /**
+     * Cancels the lookup of a repository that is no longer needed
+     */
+    void cancel(RealRepo repo) {
+        Lookup lookup = lookups.remove(repo);
+        if (lookup != null) {
+            lookup.cancel();
+        }
+    }
+
+    /**
+     * Cancels all the lookups that were not consumed
+     */
+    @Override
+    public void close() {
+        for (Lookup lookup : lookups.values()) {
+            lookup.cancel();
+        }
+        lookups.clear();
+    }
+
+    private class Lookup implements Callable<RepoResource> {
+        private final RealRepo repo;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final List<String> messages = Lists.newArrayList();
+        private volatile Future<RepoResource> future;
+
+        private Lookup(RealRepo repo) {
+            this.repo = repo;
+        }
+
+        @Override
+        public RepoResource call() {
+            if (!claimed.compareAndSet(false, true)) {
+                return null;
+            }
+            return RepoRequests.captureLog(messages, () -> infoLookup.apply(repo));
+        }
+
+        private RepoResource get() {
+            if (future == null || claimed.compareAndSet(false, true)) {
+                // Not started yet, no point in waiting for a pool thread
+                if (future != null) {
+                    future.cancel(false);
+                }
+                return infoLookup.apply(repo);
+            }
+            try {
+                RepoResource info = future.get();
+                RepoRequests.replayToContext(messages);
+                return info;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                throw new CancellationException("Interrupted while waiting for the info of " + repo.getKey());
+            } catch (ExecutionException e) {
+                RepoRequests.replayToContext(messages);
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException("Failed to get the info of " + repo.getKey(), cause);
+            }
+        }
+
+        private void cancel() {
+            claimed.set(true);
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+}
@@ -30,6 +30,7 @@ import org.artifactory.api.module.ModuleInfo;
 import org.artifactory.api.repo.exception.FileExpectedException;
 import org.artifactory.api.repo.exception.RepoRejectException;
 import org.artifactory.api.request.TranslatedArtifactoryRequest;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.descriptor.repo.LocalRepoDescriptor;
 import org.artifactory.descriptor.repo.RemoteRepoDescriptor;
 import org.artifactory.descriptor.repo.RepoLayout;
@@ -53,12 +54,16 @@ import org.artifactory.request.RepoRequests;
 import org.artifactory.request.RequestContext;
 import org.artifactory.resource.ResourceStreamHandle;
 import org.artifactory.resource.UnfoundRepoResource;
+import org.artifactory.schedule.CachedThreadPoolTaskExecutor;
 import org.artifactory.util.PathUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * Default download strategy of a virtual repository.
@@ -275,53 +280,57 @@ public class VirtualRepoDownloadStrategy {
         UnfoundRepoResource forbidden = null;
         //Locate the resource matching the request
         RepoResource closestMatch = null;
+        // Since we are in process standard, repositories that does not process releases should be skipped.
+        // Now, checksums are always considered standard, even if executed against a snapshot repository.
+        // So, we should not skip snapshots repositories for checksums.
+        boolean skipNonReleaseRepos = validModuleInfo && !NamingUtils.isChecksum(repoPath.getPath());
+        Function<RealRepo, RepoResource> infoLookup = repo -> getInfoFromRepo(repo, context, true);
+        ParallelRemoteInfoResolver remoteResolver = null;
 
-        for (RealRepo repo : repositories) {
-            RepoRequests.logToContext("Searching for the resource within %s", repo.getKey());
-            // Since we are in process standard, repositories that does not process releases should be skipped.
-            // Now, checksums are always considered standard, even if executed against a snapshot repository.
-            // So, we should not skip snapshots repositories for checksums.
-            String path = repoPath.getPath();
-            if (validModuleInfo && !repo.isHandleReleases() && !NamingUtils.isChecksum(path)) {
-                RepoRequests.logToContext("Skipping %s - doesn't handle releases", repo.getKey());
-                continue;
-            }
-
-            if (closestMatch != null && isNotSynchronizeProperties(repo)) {
-                continue;
-            }
-
-            InternalRequestContext translatedContext = translateRepoRequestContext(virtualRepo, repo, context);
-            if (translatedContext instanceof TranslatedArtifactoryRequest) {
-                RepoRequests.logToContext("Request path was translated to %s due to repository layout differences",
-                        translatedContext.getResourcePath());
-            }
-            RepoResource res = repo.getInfo(translatedContext);
+        try {
+            for (RealRepo repo : repositories) {
+                RepoRequests.logToContext("Searching for the resource within %s", repo.getKey());
+                if (skipNonReleaseRepos && !repo.isHandleReleases()) {
+                    RepoRequests.logToContext("Skipping %s - doesn't handle releases", repo.getKey());
+                    continue;
+                }
 
-            //Retry the original path if the path was translated and failed (RTFACT-4329)
-            if (!res.isFound() && !translatedContext.getResourcePath().equals(context.getResourcePath())) {
-                RepoRequests.logToContext("Unable to find the resource in the translated path - " +
-                        "retrying with the original");
-                res = repo.getInfo(context);
-            }
+                if (closestMatch != null && isNotSynchronizeProperties(repo)) {
+                    if (remoteResolver != null) {
+                        remoteResolver.cancel(repo);
+                    }
+                    continue;
+                }
 
-            if (res.isFound()) {
-                RepoRequests.logToContext("Resource was found in %s", repo.getKey());
-                updateResponseRepoPath(repo, res);
-                if (res.isExactQueryMatch()) {
-                    //return the exact match
-                    RepoRequests.logToContext("Resource is an exact match - returning");
-                    return res;
-                } else {
-                    RepoRequests.logToContext("Resource is not an exact match - keeping as closest match");
-                    closestMatch = res;
+                if (remoteResolver == null && repo instanceof RemoteRepo) {
+                    // Local and cache repositories are searched first, query all the remaining remotes at once
+                    boolean matchFound = closestMatch != null;
+                    remoteResolver = startParallelRemoteResolution(repositories, repo, infoLookup,
+                            candidate -> (!skipNonReleaseRepos || candidate.isHandleReleases()) &&
+                                    !(matchFound && isNotSynchronizeProperties(candidate)));
                 }
-            } else if (forbidden == null) {
-                forbidden = checkIfForbidden(res);
-                if (forbidden != null) {
-                    RepoRequests.logToContext("Request is forbidden by %s", repo.getKey());
+                RepoResource res = remoteResolver != null ? remoteResolver.getInfo(repo) : infoLookup.apply(repo);
+
+                if (res.isFound()) {
+                    RepoRequests.logToContext("Resource was found in %s", repo.getKey());
+                    updateResponseRepoPath(repo, res);
+                    if (res.isExactQueryMatch()) {
+                        //return the exact match
+                        RepoRequests.logToContext("Resource is an exact match - returning");
+                        return res;
+                    } else {
+                        RepoRequests.logToContext("Resource is not an exact match - keeping as closest match");
+                        closestMatch = res;
+                    }
+                } else if (forbidden == null) {
+                    forbidden = checkIfForbidden(res);
+                    if (forbidden != null) {
+                        RepoRequests.logToContext("Request is forbidden by %s", repo.getKey());
+                    }
                 }
             }
+        } finally {
+            cancelRemainingLookups(remoteResolver);
         }
 
         //If we didn't find an exact match return the first found resource (closest match)
@@ -352,54 +361,60 @@ public class VirtualRepoDownloadStrategy {
         UnfoundRepoResource forbidden = null;
         //Traverse the local, caches and remote repositories and search for the newest snapshot
         //Make sure local repos are always searched first
+        Function<RealRepo, RepoResource> infoLookup = repo -> getInfoFromRepo(repo, context, false);
+        ParallelRemoteInfoResolver remoteResolver = null;
 
-        for (RealRepo repo : repositories) {
-            RepoRequests.logToContext("Searching for the resource within %s", repo.getKey());
-            if (shouldSkipSnapshotRepo(repo)) {
-                RepoRequests.logToContext("Skipping %s", repo.getKey());
-                continue;
-            }
-            InternalRequestContext translatedContext = translateRepoRequestContext(virtualRepo, repo, context);
-            String translatedPath = translatedContext.getResourcePath();
-            if (translatedContext instanceof TranslatedArtifactoryRequest) {
-                RepoRequests.logToContext("Request path was translated to %s due to repository layout differences",
-                        translatedPath);
-            }
-
-            final RepoResource res = repo.getInfo(translatedContext);
-            if (res.isFound()) {
-                RepoRequests.logToContext("Resource last modified time - %s",
-                        centralConfig.format(res.getLastModified()));
-
-                boolean firstFoundResource = latestRes == null;
-                boolean currentResourceIsAnExactMatchAndLatterFoundIsNot = !firstFoundResource &&
-                        !latestRes.isExactQueryMatch() && res.isExactQueryMatch();
-                boolean currentResourceWasModifiedLater = !firstFoundResource &&
-                        (res.getLastModified() > latestRes.getLastModified());
-
-                RepoRequests.logToContext("Current found resource is the first candidate = %s, is an exact match " +
-                                "query while the former candidate isn't = %s, has later modified time than former = %s",
-                        firstFoundResource, currentResourceIsAnExactMatchAndLatterFoundIsNot,
-                        currentResourceWasModifiedLater
-                );
-
-                //If we haven't found one yet
-                if (firstFoundResource ||
-                        //or this one is a better match
-                        currentResourceIsAnExactMatchAndLatterFoundIsNot
-                        //or newer than the one found
-                        || currentResourceWasModifiedLater) {
-                    RepoRequests.logToContext("Selecting current found resource as best candidate");
-                    //take it
-                    updateResponseRepoPath(repo, res);
-                    latestRes = res;
+        try {
+            for (RealRepo repo : repositories) {
+                RepoRequests.logToContext("Searching for the resource within %s", repo.getKey());
+                if (shouldSkipSnapshotRepo(repo)) {
+                    RepoRequests.logToContext("Skipping %s", repo.getKey());
+                    continue;
                 }
-            } else if (forbidden == null) {
-                forbidden = checkIfForbidden(res);
-                if (forbidden != null) {
-                    RepoRequests.logToContext("Request is forbidden by %s", repo.getKey());
+                if (remoteResolver == null && repo instanceof RemoteRepo) {
+                    // The latest snapshot is chosen from all the repositories, query all the remotes at once
+                    remoteResolver = startParallelRemoteResolution(repositories, repo, infoLookup,
+                            RealRepo::isHandleSnapshots);
+                }
+
+                final RepoResource res = remoteResolver != null ? remoteResolver.getInfo(repo) : infoLookup.apply(repo);
+                if (res.isFound()) {
+                    RepoRequests.logToContext("Resource last modified time - %s",
+                            centralConfig.format(res.getLastModified()));
+
+                    boolean firstFoundResource = latestRes == null;
+                    boolean currentResourceIsAnExactMatchAndLatterFoundIsNot = !firstFoundResource &&
+                            !latestRes.isExactQueryMatch() && res.isExactQueryMatch();
+                    boolean currentResourceWasModifiedLater = !firstFoundResource &&
+                            (res.getLastModified() > latestRes.getLastModified());
+
+                    RepoRequests.logToContext("Current found resource is the first candidate = %s, is an exact " +
+                                    "match query while the former candidate isn't = %s, has later modified time " +
+                                    "than former = %s",
+                            firstFoundResource, currentResourceIsAnExactMatchAndLatterFoundIsNot,
+                            currentResourceWasModifiedLater
+                    );
+
+                    //If we haven't found one yet
+                    if (firstFoundResource ||
+                            //or this one is a better match
+                            currentResourceIsAnExactMatchAndLatterFoundIsNot
+                            //or newer than the one found
+                            || currentResourceWasModifiedLater) {
+                        RepoRequests.logToContext("Selecting current found resource as best candidate");
+                        //take it
+                        updateResponseRepoPath(repo, res);
+                        latestRes = res;
+                    }
+                } else if (forbidden == null) {
+                    forbidden = checkIfForbidden(res);
+                    if (forbidden != null) {
+                        RepoRequests.logToContext("Request is forbidden by %s", repo.getKey());
+                    }
                 }
             }
+        } finally {
+            cancelRemainingLookups(remoteResolver);
         }
 
         String resourcePath = repoPath.getPath();
@@ -421,6 +436,64 @@ public class VirtualRepoDownloadStrategy {
         return latestRes;
     }
 
+    /**
+     * Looks up the resource info in a single repository, translating the request path to the repository layout
+     *
+     * @param retryOriginalPath Whether to retry the original path if the translated path is not found (RTFACT-4329)
+     */
+    private RepoResource getInfoFromRepo(RealRepo repo, InternalRequestContext context, boolean retryOriginalPath) {
+        InternalRequestContext translatedContext = translateRepoRequestContext(virtualRepo, repo, context);
+        if (translatedContext instanceof TranslatedArtifactoryRequest) {
+            RepoRequests.logToContext("Request path was translated to %s due to repository layout differences",
+                    translatedContext.getResourcePath());
+        }
+        RepoResource res = repo.getInfo(translatedContext);
+
+        //Retry the original path if the path was translated and failed
+        if (retryOriginalPath && !res.isFound() &&
+                !translatedContext.getResourcePath().equals(context.getResourcePath())) {
+            RepoRequests.logToContext("Unable to find the resource in the translated path - " +
+                    "retrying with the original");
+            res = repo.getInfo(context);
+        }
+        return res;
+    }
+
+    /**
+     * Starts the parallel info lookups of the remote repositories, from the given repository to the end of the list,
+     * if the parallel remote resolution is enabled and there are at least two remote repositories to query.
+     *
+     * @param repositories All the searched repositories, remote repositories are always last
+     * @param first        The first remote repository
+     * @param eligible     Filter of the remote repositories that should be queried
+     * @return The parallel resolver or null if the remote repositories should be queried one by one
+     */
+    private ParallelRemoteInfoResolver startParallelRemoteResolution(List<RealRepo> repositories, RealRepo first,
+            Function<RealRepo, RepoResource> infoLookup, Predicate<RealRepo> eligible) {
+        if (!ConstantValues.virtualParallelRemoteResolutionEnabled.getBoolean()) {
+            return null;
+        }
+        List<RealRepo> remotes = repositories.subList(repositories.indexOf(first), repositories.size()).stream()
+                .filter(repo -> repo instanceof RemoteRepo)
+                .filter(eligible)
+                .collect(Collectors.toList());
+        if (remotes.size() < 2) {
+            return null;
+        }
+        RepoRequests.logToContext("Querying %s remote repositories in parallel", remotes.size());
+        CachedThreadPoolTaskExecutor executor = ContextHelper.get().beanForType(CachedThreadPoolTaskExecutor.class);
+        return new ParallelRemoteInfoResolver(remotes, infoLookup, executor);
+    }
+
+    /**
+     * Cancels the remaining parallel lookups once the result is decided
+     */
+    private void cancelRemainingLookups(ParallelRemoteInfoResolver remoteResolver) {
+        if (remoteResolver != null) {
+            remoteResolver.close();
+        }
+    }
+
     //Skip repos that don't handle snapshots and cache repos to allow their remotes' logic to discover newer versions
     //see RTFACT-7095
     private boolean shouldSkipSnapshotRepo(RealRepo repo) {
@@ -25,6 +25,7 @@ import org.artifactory.api.repo.BrowsableItem;
 import org.artifactory.api.repo.BrowsableItemCriteria;
 import org.artifactory.api.repo.RepositoryBrowsingService;
 import org.artifactory.api.request.ArtifactoryResponse;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.mime.MimeType;
 import org.artifactory.mime.NamingUtils;
 import org.artifactory.repo.RepoPath;
@@ -49,7 +50,7 @@ import org.xml.sax.InputSource;
 import javax.annotation.Nullable;
 import javax.xml.parsers.DocumentBuilder;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
@@ -156,11 +157,8 @@ public class PropfindMethod extends AbstractWebdavMethod {
         response.setStatus(HttpStatus.SC_MULTI_STATUS);
         response.setContentType("text/xml; charset=UTF-8");
 
-        // Create multistatus object
+        // Create multistatus object, the responses are streamed while the items are read
         Writer writer = response.getWriter();
-        if (log.isDebugEnabled()) {
-            writer = new StringWriter(); // write to memory so we'll be able to log the result as string
-        }
         XmlWriter generatedXml = new XmlWriter(writer);
         generatedXml.writeXMLHeader();
         generatedXml.writeElement(DEFAULT_NS_ABBRV, "multistatus", XmlWriter.OPENING,
@@ -173,18 +171,26 @@ public class PropfindMethod extends AbstractWebdavMethod {
             rootItem = repoBrowsing.getLocalRepoBrowsableItem(repoPath);
         }
         if (rootItem != null) {
-            recursiveParseProperties(request, generatedXml, rootItem, propertyFindType, properties,
-                    depth);
+            // Depth infinity is bounded by the number of responses
+            int maxResponses = depth == INFINITY ? ConstantValues.webdavPropfindMaxResponses.getInt() :
+                    Integer.MAX_VALUE;
+            MultiStatusStreamer streamer = new MultiStatusStreamer(request, generatedXml, writer, propertyFindType,
+                    properties, maxResponses);
+            boolean complete;
+            try {
+                complete = recursiveParseProperties(streamer, rootItem, depth);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (!complete) {
+                log.debug("Propfind of '{}' reached the max number of responses ({}).", repoPath, maxResponses);
+                writeTruncatedResponse(request, generatedXml);
+            }
         } else {
             log.warn("Item '" + request.getRepoPath() + "' not found.");
         }
         generatedXml.writeElement(DEFAULT_NS_ABBRV, "multistatus", XmlWriter.CLOSING);
-        generatedXml.sendData();
-        if (log.isDebugEnabled()) {
-            log.debug("Webdav response:\n" + writer.toString());
-            //response.setContentLength(writer.toString().getBytes().length);
-            response.getWriter().append(writer.toString());
-        }
+        sendData(generatedXml);
         response.flush();
     }
 
@@ -381,28 +387,52 @@ public class PropfindMethod extends AbstractWebdavMethod {
     }
 
     /**
-     * goes recursive through all folders. used by propfind
+     * Goes recursive through all folders up to the given depth. The children of each folder are read from the storage
+     * in pages, so only the current page of each folder in the branch is held in memory.
+     *
+     * @return False if the max number of responses was reached and the result is truncated
      */
-    private void recursiveParseProperties(ArtifactoryRequest request,
-            XmlWriter generatedXml, BaseBrowsableItem currentItem, PropfindType propertyFindType,
-            List<String> properties,
-            int depth)
+    private boolean recursiveParseProperties(MultiStatusStreamer streamer, BaseBrowsableItem currentItem, int depth)
             throws IOException {
+        if (!streamer.writeResponse(currentItem)) {
+            return false;
+        }
 
-        parseProperties(request, generatedXml, currentItem, propertyFindType, properties);
-
-        if (depth <= 0) {
-            return;
+        if (depth <= 0 || !currentItem.isFolder()) {
+            return true;
         }
 
-        if (currentItem.isFolder()) {
-            BrowsableItemCriteria criteria = new BrowsableItemCriteria.Builder(currentItem.getRepoPath()).build();
-            List<BaseBrowsableItem> browsableChildren = repoBrowsing.getLocalRepoBrowsableChildren(criteria);
-            for (BaseBrowsableItem child : browsableChildren) {
-                recursiveParseProperties(request, generatedXml, child,
-                        propertyFindType, properties, depth - 1);
-            }
+        BrowsableItemCriteria criteria = new BrowsableItemCriteria.Builder(currentItem.getRepoPath()).build();
+        return repoBrowsing.visitLocalRepoBrowsableChildren(criteria,
+                ConstantValues.webdavPropfindPageSize.getInt(), child -> {
+                    try {
+                        return recursiveParseProperties(streamer, child, depth - 1);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * Reports a truncated result with an insufficient storage response for the request URI (RFC 4918 section 9.1)
+     */
+    private void writeTruncatedResponse(ArtifactoryRequest request, XmlWriter xmlResponse) {
+        xmlResponse.writeElement(DEFAULT_NS_ABBRV, "response", XmlWriter.OPENING);
+        xmlResponse.writeElement(DEFAULT_NS_ABBRV, "href", XmlWriter.OPENING);
+        xmlResponse.writeText(request.getUri());
+        xmlResponse.writeElement(DEFAULT_NS_ABBRV, "href", XmlWriter.CLOSING);
+        xmlResponse.writeElement(DEFAULT_NS_ABBRV, "status", XmlWriter.OPENING);
+        xmlResponse.writeText("HTTP/1.1 " + WebdavStatus.SC_INSUFFICIENT_SPACE_ON_RESOURCE + " " +
+                WebdavStatus.getStatusText(WebdavStatus.SC_INSUFFICIENT_SPACE_ON_RESOURCE));
+        xmlResponse.writeElement(DEFAULT_NS_ABBRV, "status", XmlWriter.CLOSING);
+        xmlResponse.writeElement(DEFAULT_NS_ABBRV, "response", XmlWriter.CLOSING);
+    }
+
+    private static void sendData(XmlWriter xmlResponse) throws IOException {
+        if (log.isDebugEnabled()) {
+            log.debug("Webdav response:\n" + xmlResponse.toString());
         }
+        xmlResponse.sendData();
     }
 
     private List<String> getPropertiesFromXml(Node propNode) {
@@ -430,4 +460,43 @@ public class PropfindMethod extends AbstractWebdavMethod {
         return properties;
     }
 
-}
\ No newline at end of file
+    /**
+     * Writes the response elements of the multistatus one at a time and flushes them to the client every page
+     */
+    private class MultiStatusStreamer {
+        private final ArtifactoryRequest request;
+        private final XmlWriter xmlResponse;
+        private final Writer writer;
+        private final PropfindType type;
+        private final List<String> properties;
+        private final int maxResponses;
+        private final int flushInterval = ConstantValues.webdavPropfindPageSize.getInt();
+        private int responses;
+
+        private MultiStatusStreamer(ArtifactoryRequest request, XmlWriter xmlResponse, Writer writer,
+                PropfindType type, List<String> properties, int maxResponses) {
+            this.request = request;
+            this.xmlResponse = xmlResponse;
+            this.writer = writer;
+            this.type = type;
+            this.properties = properties;
+            this.maxResponses = maxResponses;
+        }
+
+        /**
+         * @return False if the max number of responses was already written and the item was skipped
+         */
+        private boolean writeResponse(BaseBrowsableItem item) throws IOException {
+            if (responses >= maxResponses) {
+                return false;
+            }
+            parseProperties(request, xmlResponse, item, type, properties);
+            sendData(xmlResponse);
+            responses++;
+            if (responses % flushInterval == 0) {
+                writer.flush();
+            }
+            return true;
+        }
+    }
+}
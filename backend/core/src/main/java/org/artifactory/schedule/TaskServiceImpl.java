@@ -24,6 +24,7 @@ import com.google.common.collect.Lists;
 import org.artifactory.addon.AddonsManager;
 import org.artifactory.addon.HaAddon;
 import org.artifactory.api.context.ContextHelper;
+import org.artifactory.api.repo.AsyncPool;
 import org.artifactory.common.MutableStatusHolder;
 import org.artifactory.config.InternalCentralConfigService;
 import org.artifactory.descriptor.config.CentralConfigDescriptor;
@@ -46,6 +47,7 @@ import java.lang.reflect.Modifier;
 import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -62,6 +64,9 @@ public class TaskServiceImpl implements TaskService, ContextReadinessListener {
     @Autowired
     private CachedThreadPoolTaskExecutor executor;
 
+    @Autowired
+    private AsyncExecutorPools asyncPools;
+
     @Autowired
     private AddonsManager addonsManager;
 
@@ -72,18 +77,26 @@ public class TaskServiceImpl implements TaskService, ContextReadinessListener {
 
     @Override
     public void init() {
+        MBeanRegistrationService mbeansService = ContextHelper.get().beanForType(MBeanRegistrationService.class);
         java.util.concurrent.Executor concurrentExecutor = executor.getConcurrentExecutor();
         if (concurrentExecutor instanceof ArtifactoryConcurrentExecutor) {
-            ContextHelper.get().beanForType(MBeanRegistrationService.class).
-                    register(new ManagedExecutor((ArtifactoryConcurrentExecutor) concurrentExecutor),
-                            "Executor Pools", "Task Service");
+            mbeansService.register(new ManagedExecutor((ArtifactoryConcurrentExecutor) concurrentExecutor),
+                    "Executor Pools", "Task Service");
+        }
+        for (Map.Entry<AsyncPool, CachedThreadPoolTaskExecutor> entry : asyncPools.getExecutors().entrySet()) {
+            concurrentExecutor = entry.getValue().getConcurrentExecutor();
+            if (entry.getKey() != AsyncPool.DEFAULT && concurrentExecutor instanceof ArtifactoryConcurrentExecutor) {
+                mbeansService.register(new ManagedExecutor((ArtifactoryConcurrentExecutor) concurrentExecutor),
+                        "Executor Pools", "Async " + entry.getKey().getPoolName());
+            }
         }
     }
 
     @Override
     public void destroy() {
         cancelAllTasks(true);
-        //Shut down the executor service to terminate any async operations not managed by the task service
+        //Shut down the executor services to terminate any async operations not managed by the task service
+        asyncPools.destroy();
         executor.destroy();
     }
 
@@ -24,8 +24,10 @@ import com.google.common.collect.Lists;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import org.artifactory.api.repo.Async;
+import org.artifactory.api.repo.AsyncPool;
 import org.artifactory.common.ConstantValues;
 import org.artifactory.sapi.common.Lock;
+import org.artifactory.schedule.AsyncExecutorPools;
 import org.artifactory.schedule.CachedThreadPoolTaskExecutor;
 import org.artifactory.spring.InternalArtifactoryContext;
 import org.artifactory.spring.InternalContextHelper;
@@ -84,8 +86,8 @@ public class AsyncAdvice implements MethodInterceptor {
             }
         }
 
-        TraceableMethodInvocation traceableInvocation =
-                new TraceableMethodInvocation(invocation, Thread.currentThread().getName());
+        TraceableMethodInvocation traceableInvocation = new TraceableMethodInvocation(invocation,
+                Thread.currentThread().getName(), asyncMethodAnnotation.annotation.pool());
         log.trace("Adding: {}", traceableInvocation);
         if (ConstantValues.test.getBoolean()) {
             pendingInvocations.put(traceableInvocation, traceableInvocation);
@@ -102,7 +104,7 @@ public class AsyncAdvice implements MethodInterceptor {
                 return null;
             } else {
                 //Submit immediately
-                Future<?> future = submit(traceableInvocation);
+                Future<?> future = submit(traceableInvocation, traceableInvocation.pool);
                 return future;
             }
         } catch (Exception e) {
@@ -128,9 +130,9 @@ public class AsyncAdvice implements MethodInterceptor {
         return new MethodAnnotation(specificMethod, annotation);
     }
 
-    private Future<?> submit(final MethodInvocation invocation) {
+    private Future<?> submit(final MethodInvocation invocation, AsyncPool pool) {
         InternalArtifactoryContext context = InternalContextHelper.get();
-        CachedThreadPoolTaskExecutor executor = context.beanForType(CachedThreadPoolTaskExecutor.class);
+        CachedThreadPoolTaskExecutor executor = context.beanForType(AsyncExecutorPools.class).getExecutor(pool);
         Future<?> future = null;
         try {
             future = executor.submit(new Callable<Object>() {
@@ -270,8 +272,10 @@ public class AsyncAdvice implements MethodInterceptor {
 
     public static class MethodCallbackSessionResource implements SessionResource {
         AsyncAdvice advice;
-        final List<MethodInvocation> invocations = new ArrayList<>();
+        final List<TraceableMethodInvocation> invocations = new ArrayList<>();
         final CompoundInvocation sharedInvocations = new CompoundInvocation();
+        // the shared invocations run sequentially as one task, on the pool they all select or on the default pool
+        AsyncPool sharedPool;
 
         public void setAdvice(AsyncAdvice advice) {
             this.advice = advice;
@@ -280,6 +284,11 @@ public class AsyncAdvice implements MethodInterceptor {
 
         public void addInvocation(TraceableMethodInvocation invocation, boolean shared) {
             if (shared) {
+                if (sharedInvocations.isEmpty()) {
+                    sharedPool = invocation.pool;
+                } else if (sharedPool != invocation.pool) {
+                    sharedPool = AsyncPool.DEFAULT;
+                }
                 sharedInvocations.add(invocation);
             } else {
                 invocations.add(invocation);
@@ -291,15 +300,15 @@ public class AsyncAdvice implements MethodInterceptor {
             if (commit) {
                 //Submit the shared ones first
                 if (!sharedInvocations.isEmpty()) {
-                    advice.submit(sharedInvocations);
+                    advice.submit(sharedInvocations, sharedPool);
                 }
                 if (!invocations.isEmpty()) {
                     //Clear the invocations for this session and submit them for async execution
-                    ArrayList<MethodInvocation> tmpInvocations = Lists.newArrayList(invocations);
+                    ArrayList<TraceableMethodInvocation> tmpInvocations = Lists.newArrayList(invocations);
                     //Reset internal state
                     invocations.clear();
-                    for (MethodInvocation invocation : tmpInvocations) {
-                        advice.submit(invocation);
+                    for (TraceableMethodInvocation invocation : tmpInvocations) {
+                        advice.submit(invocation, invocation.pool);
                     }
                 }
             } else {
@@ -322,9 +331,11 @@ public class AsyncAdvice implements MethodInterceptor {
 
         private final MethodInvocation wrapped;
         private final Throwable throwable;
+        private final AsyncPool pool;
 
-        public TraceableMethodInvocation(MethodInvocation wrapped, String threadName) {
+        public TraceableMethodInvocation(MethodInvocation wrapped, String threadName, AsyncPool pool) {
             this.wrapped = wrapped;
+            this.pool = pool;
             String msg = "[" + threadName + "] async call to '" + wrapped.getMethod() + "' completed with error.";
             this.throwable = new Throwable(msg);
         }
@@ -21,6 +21,7 @@ package org.artifactory.search.archive;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.artifactory.addon.AddonsManager;
 import org.artifactory.addon.HaAddon;
 import org.artifactory.addon.ha.HaCommonAddon;
@@ -41,6 +42,7 @@ import org.artifactory.repo.service.ImportJob;
 import org.artifactory.repo.service.InternalRepositoryService;
 import org.artifactory.sapi.fs.VfsFile;
 import org.artifactory.sapi.fs.VfsItem;
+import org.artifactory.schedule.CachedThreadPoolTaskExecutor;
 import org.artifactory.schedule.JobCommand;
 import org.artifactory.schedule.StopCommand;
 import org.artifactory.schedule.TaskBase;
@@ -50,13 +52,14 @@ import org.artifactory.schedule.TaskUtils;
 import org.artifactory.schedule.quartz.QuartzCommand;
 import org.artifactory.spring.InternalContextHelper;
 import org.artifactory.storage.db.DbService;
-import org.artifactory.storage.fs.VfsArchiveFile;
+import org.artifactory.storage.fs.service.ArchiveEntriesConflictException;
 import org.artifactory.storage.fs.service.ArchiveEntriesService;
 import org.artifactory.storage.fs.service.FileService;
 import org.artifactory.storage.fs.service.TasksService;
 import org.artifactory.storage.fs.tree.ItemNode;
 import org.artifactory.storage.fs.tree.ItemNodeFilter;
 import org.artifactory.storage.fs.tree.ItemTree;
+import org.artifactory.util.ZipUtils;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 import org.slf4j.Logger;
@@ -69,6 +72,8 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import static org.artifactory.schedule.StopStrategy.IMPOSSIBLE;
@@ -81,6 +86,8 @@ import static org.artifactory.schedule.StopStrategy.IMPOSSIBLE;
 @Service
 public class ArchiveIndexerImpl implements InternalArchiveIndexer {
     private static final Logger log = LoggerFactory.getLogger(ArchiveIndexerImpl.class);
+    // attempts to index an archive whose entries values are concurrently created by another indexing
+    private static final int MAX_INDEX_ATTEMPTS = 3;
 
     @Autowired
     private TasksService tasksService;
@@ -116,6 +123,7 @@ public class ArchiveIndexerImpl implements InternalArchiveIndexer {
 
     @Override
     public boolean index(RepoPath archiveRepoPath) {
+        boolean removeTask = true;
         try {
             // check the repo path is eligible for archive indexing
             if (!isIndexSupported(archiveRepoPath)) {
@@ -145,10 +153,11 @@ public class ArchiveIndexerImpl implements InternalArchiveIndexer {
 
             // start indexing ...
             log.info("Indexing archive: {}", vfsFile);
-            try (VfsArchiveFile archive = new VfsArchiveFile(vfsFile)) {
-                List<? extends ArchiveEntry> entries = archive.entries();
+            // stream the entries, only the entries info is kept in memory
+            try (ArchiveInputStream archive = ZipUtils.getArchiveInputStream(vfsFile)) {
                 Set<ZipEntryInfo> zipEntryInfos = Sets.newHashSet();
-                for (ArchiveEntry zipEntry : entries) {
+                ArchiveEntry zipEntry;
+                while ((zipEntry = archive.getNextEntry()) != null) {
                     if (!zipEntry.isDirectory()) {
                         zipEntryInfos.add(new ArchiveEntryImpl(zipEntry));
                     }
@@ -164,9 +173,16 @@ public class ArchiveIndexerImpl implements InternalArchiveIndexer {
                 log.debug("Failed to index:", e);
                 return false;
             }
+        } catch (ArchiveEntriesConflictException e) {
+            // the transaction is rolled back and the archive indexed again, the failed statement might have aborted
+            // the database transaction so nothing else is executed in it
+            removeTask = false;
+            throw e;
         } finally {
             // remove the task in any case if it exists
-            tasksService.removeIndexTask(archiveRepoPath);
+            if (removeTask) {
+                tasksService.removeIndexTask(archiveRepoPath);
+            }
         }
     }
 
@@ -181,27 +197,98 @@ public class ArchiveIndexerImpl implements InternalArchiveIndexer {
             return;
         }
         try {
-            Set<RepoPath> indexingQueue = tasksService.getIndexTasks();
-            if (indexingQueue.isEmpty()) {
-                return;
+            int maxParallelism = Math.max(ConstantValues.archiveIndexerMaxParallelism.getInt(), 1);
+            int pageSize = Math.max(ConstantValues.archiveIndexerQueuePageSize.getInt(), 1);
+            // each indexing releases its permit when done, the permits bound the parallel indexing
+            Semaphore parallelIndexingGate = new Semaphore(maxParallelism);
+            Set<String> indexingChecksums = ConcurrentHashMap.newKeySet();
+            CachedThreadPoolTaskExecutor executor = ContextHelper.get().beanForType(
+                    CachedThreadPoolTaskExecutor.class);
+            int queued = 0;
+            RepoPath lastRepoPath = null;
+            try {
+                // drain the queue in pages, indexed tasks are removed so the next page starts after the last path
+                Set<RepoPath> indexingQueue;
+                do {
+                    indexingQueue = tasksService.getIndexTasks(lastRepoPath, pageSize);
+                    log.debug("Indexing {} queued items", indexingQueue.size());
+                    for (RepoPath repoPath : indexingQueue) {
+                        if (shouldStop()) {
+                            return;  // stop execution if the context is not ready (shutting down, refreshing conf etc.)
+                        }
+                        parallelIndexingGate.acquire();
+                        submitIndexing(executor, repoPath, parallelIndexingGate, indexingChecksums);
+                        lastRepoPath = repoPath;
+                        queued++;
+                    }
+                } while (indexingQueue.size() == pageSize);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.info("Archive indexing was interrupted");
+            } finally {
+                // wait for the running indexing
+                parallelIndexingGate.acquireUninterruptibly(maxParallelism);
+                log.debug("Finished indexing {} queued items", queued);
             }
-            log.debug("Indexing {} queued items", indexingQueue.size());
+        } finally {
+            getIndexingSemaphore().release();
+        }
+    }
 
-            final InternalArchiveIndexer advisedMe = getAdvisedMe();
-            for (RepoPath repoPath : indexingQueue) {
+    private void submitIndexing(CachedThreadPoolTaskExecutor executor, RepoPath repoPath,
+            Semaphore parallelIndexingGate, Set<String> indexingChecksums) {
+        try {
+            executor.submit(() -> {
                 try {
-                    if (shouldStop()) {
-                        break;  // stop execution if the context is not ready (shutting down, refreshing conf etc.)
-                    }
-                    advisedMe.index(repoPath);
-                } catch (Exception e) {
-                    log.error("Exception indexing " + repoPath, e);
-                    forceArchiveIndexerTaskDeletion(repoPath);
+                    indexQueued(repoPath, indexingChecksums);
+                } finally {
+                    parallelIndexingGate.release();
                 }
+            });
+        } catch (RuntimeException e) {
+            parallelIndexingGate.release();
+            throw e;
+        }
+    }
+
+    private void indexQueued(RepoPath repoPath, Set<String> indexingChecksums) {
+        String sha1 = null;
+        try {
+            sha1 = fileService.getNodeSha1(repoPath);
+            if (sha1 != null && !indexingChecksums.add(sha1)) {
+                // the same archive is indexed by another thread, leave the task for the next run
+                log.debug("Archive with checksum '{}' is already being indexed, deferring '{}'", sha1, repoPath);
+                sha1 = null;
+                return;
             }
-            log.debug("Finished indexing {} queued items", indexingQueue.size());
+            indexWithRetries(repoPath);
+        } catch (Exception e) {
+            log.error("Exception indexing " + repoPath, e);
+            forceArchiveIndexerTaskDeletion(repoPath);
         } finally {
-            getIndexingSemaphore().release();
+            if (sha1 != null) {
+                indexingChecksums.remove(sha1);
+            }
+        }
+    }
+
+    /**
+     * Indexes the archive, indexing it again in a new transaction if a parallel indexing created the same entries
+     * values. The task is left in the queue if the conflicts persist.
+     */
+    private void indexWithRetries(RepoPath repoPath) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                getAdvisedMe().index(repoPath);
+                return;
+            } catch (ArchiveEntriesConflictException e) {
+                if (attempt >= MAX_INDEX_ATTEMPTS) {
+                    log.warn("Archive '{}' was not indexed due to concurrent indexing, it will be indexed on the " +
+                            "next run: {}", repoPath, e.getMessage());
+                    return;
+                }
+                log.debug("Indexing '{}' again after a concurrent indexing conflict: {}", repoPath, e.getMessage());
+            }
         }
     }
 
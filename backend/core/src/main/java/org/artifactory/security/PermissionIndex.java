@@ -0,0 +1,263 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.artifactory.model.xstream.security.ImmutableAclInfo;
+import org.artifactory.util.CollectionUtils;
+import org.artifactory.util.PathMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An index of the ACLs used to grant repository path permissions without scanning all the ACLs.
+ * <p/>
+ * The ACLs are indexed by the repository keys of their permission target and hold the ACEs masks by security identity.
+ * The include/exclude patterns are precompiled so the common "match anything" targets skip the Ant matching. Recent
+ * decisions are kept in a bounded cache.
+ * <p/>
+ * The index is immutable and valid only for the ACLs it was built from, a new index should be built when the ACLs are
+ * reloaded.
+ */
+class PermissionIndex {
+    private static final Logger log = LoggerFactory.getLogger(PermissionIndex.class);
+
+    private final Collection<AclInfo> acls;
+    private final Map<String, List<IndexedAcl>> aclsByRepoKey;
+    private final List<IndexedAcl> anyRepoAcls;
+    private final List<IndexedAcl> anyLocalRepoAcls;
+    private final List<IndexedAcl> anyRemoteRepoAcls;
+    @Nullable
+    private final Cache<Decision, Boolean> decisions;
+
+    /**
+     * @param acls              The ACLs to index
+     * @param decisionsCacheSize Max number of cached decisions, 0 to disable the cache
+     */
+    PermissionIndex(Collection<AclInfo> acls, int decisionsCacheSize) {
+        this.acls = acls;
+        Map<String, List<IndexedAcl>> byRepoKey = Maps.newHashMap();
+        List<IndexedAcl> anyRepo = Lists.newArrayList();
+        List<IndexedAcl> anyLocalRepo = Lists.newArrayList();
+        List<IndexedAcl> anyRemoteRepo = Lists.newArrayList();
+        for (AclInfo acl : acls) {
+            if (!(acl instanceof ImmutableAclInfo)) {
+                RuntimeException runtimeException = new RuntimeException(
+                        "Checking for permission on " + acl
+                                + " should use only immutable security objects not " + acl.getClass());
+                log.error(runtimeException.getMessage(), runtimeException);
+            }
+            IndexedAcl indexedAcl = new IndexedAcl(acl);
+            if (indexedAcl.masks.isEmpty()) {
+                // no one has permissions on this target
+                continue;
+            }
+            for (String repoKey : acl.getPermissionTarget().getRepoKeys()) {
+                switch (repoKey) {
+                    case PermissionTargetInfo.ANY_REPO:
+                        anyRepo.add(indexedAcl);
+                        break;
+                    case PermissionTargetInfo.ANY_LOCAL_REPO:
+                        anyLocalRepo.add(indexedAcl);
+                        break;
+                    case PermissionTargetInfo.ANY_REMOTE_REPO:
+                        anyRemoteRepo.add(indexedAcl);
+                        break;
+                    default:
+                        List<IndexedAcl> repoAcls = byRepoKey.get(repoKey);
+                        if (repoAcls == null) {
+                            repoAcls = Lists.newArrayListWithCapacity(1);
+                            byRepoKey.put(repoKey, repoAcls);
+                        }
+                        repoAcls.add(indexedAcl);
+                }
+            }
+        }
+        this.aclsByRepoKey = byRepoKey;
+        this.anyRepoAcls = ImmutableList.copyOf(anyRepo);
+        this.anyLocalRepoAcls = ImmutableList.copyOf(anyLocalRepo);
+        this.anyRemoteRepoAcls = ImmutableList.copyOf(anyRemoteRepo);
+        this.decisions = decisionsCacheSize > 0 ?
+                CacheBuilder.newBuilder().maximumSize(decisionsCacheSize).<Decision, Boolean>build() : null;
+    }
+
+    /**
+     * @return True if this index was built from the given ACLs
+     */
+    boolean isIndexOf(Collection<AclInfo> acls) {
+        return this.acls == acls;
+    }
+
+    /**
+     * @return True if the ACLs of the given repository keys (or of the logical "any" keys) grant the permission on the
+     * path to any of the security identities
+     */
+    boolean isGranted(RepoKeys repoKeys, String path, boolean behaveAsFolder, ArtifactoryPermission permission,
+            Set<ArtifactorySid> sids) {
+        Decision decision = null;
+        if (decisions != null) {
+            decision = new Decision(sids, repoKeys.repoKey, path, behaveAsFolder, permission.getMask());
+            Boolean granted = decisions.getIfPresent(decision);
+            if (granted != null) {
+                return granted;
+            }
+        }
+        boolean granted = isGranted(aclsByRepoKey.get(repoKeys.repoKey), path, behaveAsFolder, permission, sids)
+                || isGranted(aclsByRepoKey.get(repoKeys.aclCompatibleRepoKey), path, behaveAsFolder, permission, sids)
+                || isGranted(anyRepoAcls, path, behaveAsFolder, permission, sids)
+                || (repoKeys.local && isGranted(anyLocalRepoAcls, path, behaveAsFolder, permission, sids))
+                || (repoKeys.cache && isGranted(anyRemoteRepoAcls, path, behaveAsFolder, permission, sids));
+        if (decision != null) {
+            decisions.put(decision, granted);
+        }
+        return granted;
+    }
+
+    /**
+     * @return True if any ACL that applies to "All Local" or "All Remote" exist, i.e. the repository type is required
+     */
+    boolean hasAnyLocalOrRemoteAcls() {
+        return !anyLocalRepoAcls.isEmpty() || !anyRemoteRepoAcls.isEmpty();
+    }
+
+    private boolean isGranted(@Nullable List<IndexedAcl> acls, String path, boolean behaveAsFolder,
+            ArtifactoryPermission permission, Set<ArtifactorySid> sids) {
+        if (acls == null) {
+            return false;
+        }
+        for (IndexedAcl acl : acls) {
+            // check the cheap masks before the path
+            if (acl.isGranted(permission, sids) && acl.matches(path, behaveAsFolder)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The repository keys of a checked path
+     */
+    static class RepoKeys {
+        private final String repoKey;
+        private final String aclCompatibleRepoKey;
+        private final boolean local;
+        private final boolean cache;
+
+        /**
+         * @param repoKey              The repository key
+         * @param aclCompatibleRepoKey The repository key as it appears in the ACLs (remote repository keys are
+         *                             replaced with their cache key)
+         * @param local                True if one of the keys is of a local (non cache) repository
+         * @param cache                True if one of the keys is of a cache repository
+         */
+        RepoKeys(String repoKey, String aclCompatibleRepoKey, boolean local, boolean cache) {
+            this.repoKey = repoKey;
+            this.aclCompatibleRepoKey = aclCompatibleRepoKey;
+            this.local = local;
+            this.cache = cache;
+        }
+    }
+
+    private static class IndexedAcl {
+        private final Map<ArtifactorySid, Integer> masks;
+        private final List<String> includes;
+        private final List<String> excludes;
+        private final boolean includesAnything;
+
+        private IndexedAcl(AclInfo acl) {
+            masks = Maps.newHashMap();
+            for (AceInfo ace : acl.getAces()) {
+                ArtifactorySid sid = new ArtifactorySid(ace.getPrincipal(), ace.isGroup());
+                Integer mask = masks.get(sid);
+                masks.put(sid, mask == null ? ace.getMask() : mask | ace.getMask());
+            }
+            PermissionTargetInfo target = acl.getPermissionTarget();
+            includes = target.getIncludes();
+            excludes = target.getExcludes();
+            includesAnything = !CollectionUtils.notNullOrEmpty(includes) || includes.contains("**")
+                    || includes.contains("**/*");
+        }
+
+        private boolean isGranted(ArtifactoryPermission permission, Set<ArtifactorySid> sids) {
+            for (ArtifactorySid sid : sids) {
+                Integer mask = masks.get(sid);
+                //Any of the permissions is enough for granting
+                if (mask != null && (mask & permission.getMask()) > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean matches(String path, boolean behaveAsFolder) {
+            if (includesAnything) {
+                return !CollectionUtils.notNullOrEmpty(excludes)
+                        || PathMatcher.matches(path, null, excludes, behaveAsFolder);
+            }
+            return PathMatcher.matches(path, includes, excludes, behaveAsFolder);
+        }
+    }
+
+    private static class Decision {
+        private final Set<ArtifactorySid> sids;
+        private final String repoKey;
+        private final String path;
+        private final boolean folder;
+        private final int mask;
+        private final int hashCode;
+
+        private Decision(Set<ArtifactorySid> sids, String repoKey, String path, boolean folder, int mask) {
+            this.sids = sids;
+            this.repoKey = repoKey;
+            this.path = path;
+            this.folder = folder;
+            this.mask = mask;
+            this.hashCode = Objects.hash(sids, repoKey, path, folder, mask);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Decision decision = (Decision) o;
+            return folder == decision.folder && mask == decision.mask && repoKey.equals(decision.repoKey)
+                    && path.equals(decision.path) && sids.equals(decision.sids);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -54,7 +54,6 @@ import org.artifactory.descriptor.security.sso.HttpSsoSettings;
 import org.artifactory.exception.InvalidNameException;
 import org.artifactory.exception.ValidationException;
 import org.artifactory.factory.InfoFactoryHolder;
-import org.artifactory.model.xstream.security.ImmutableAclInfo;
 import org.artifactory.repo.*;
 import org.artifactory.repo.service.InternalRepositoryService;
 import org.artifactory.repo.virtual.VirtualRepo;
@@ -139,6 +138,8 @@ public class SecurityServiceImpl implements InternalSecurityService {
 
     private InternalArtifactoryContext context;
 
+    private volatile PermissionIndex permissionIndex;
+
     private TreeSet<SecurityListener> securityListeners = new TreeSet<>();
 
     /**
@@ -169,10 +170,6 @@ public class SecurityServiceImpl implements InternalSecurityService {
         return (SimpleUser) authentication.getPrincipal();
     }
 
-    private static boolean matches(PermissionTargetInfo aclPermissionTarget, String path, boolean folder) {
-        return PathMatcher.matches(path, aclPermissionTarget.getIncludes(), aclPermissionTarget.getExcludes(), folder);
-    }
-
     private static XStream getXstream() {
         return InfoFactoryHolder.get().getSecurityXStream();
     }
@@ -198,6 +195,8 @@ public class SecurityServiceImpl implements InternalSecurityService {
 
     @Override
     public void reload(CentralConfigDescriptor oldDescriptor) {
+        // cached decisions depend on the repositories configuration
+        permissionIndex = null;
         // Need to check if security conf changed then clear security caches
         if (!centralConfig.getDescriptor().getSecurity().equals(oldDescriptor.getSecurity())) {
             clearSecurityListeners();
@@ -1270,29 +1269,6 @@ public class SecurityServiceImpl implements InternalSecurityService {
         return isGranted(repoPath, permission, sid);
     }
 
-    private boolean isPermissionTargetIncludesRepoKey(String repoKey, PermissionTargetInfo permissionTarget) {
-        // checks if repo key is part of the permission target repository keys taking into account
-        // the special logical repo keys of a permission target like "Any", "All Local" etc.
-        List<String> repoKeys = permissionTarget.getRepoKeys();
-        if (repoKeys.contains(PermissionTargetInfo.ANY_REPO)) {
-            return true;
-        }
-
-        if (repoKeys.contains(repoKey)) {
-            return true;
-        }
-
-        LocalRepo localRepo = repositoryService.localOrCachedRepositoryByKey(repoKey);
-        if (localRepo != null) {
-            if (!localRepo.isCache() && repoKeys.contains(PermissionTargetInfo.ANY_LOCAL_REPO)) {
-                return true;
-            } else if (localRepo.isCache() && repoKeys.contains(PermissionTargetInfo.ANY_REMOTE_REPO)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     private boolean hasPermissionOnPermissionTarget(PermissionTargetInfo permTarget, ArtifactoryPermission permission) {
         AclInfo acl = aclStoreService.getAcl(permTarget.getName());
         return hasPermissionOnAcl(acl, permission);
@@ -1341,36 +1317,38 @@ public class SecurityServiceImpl implements InternalSecurityService {
 
     private boolean isGranted(
             RepoPath repoPath, ArtifactoryPermission permission, Set<ArtifactorySid> sids) {
-        Collection<AclInfo> acls = aclStoreService.getAllAcls();
-        for (AclInfo acl : acls) {
-            if (!(acl instanceof ImmutableAclInfo)) {
-                RuntimeException runtimeException = new RuntimeException(
-                        "Checking for permission on " + acl
-                                + " should use only immutable security objects not " + acl.getClass());
-                log.error(runtimeException.getMessage(), runtimeException);
-            }
-            if (!hasAceInAcl(acl, sids)) {
-                // If no ACE skip path analysis
-                continue;
-            }
-            String repoKey = repoPath.getRepoKey();
-            String aclCompatibleRepoKey = makeRemoteRepoKeyAclCompatible(repoKey);  //acl compatible key for remotes
-            String path = repoPath.getPath();
-            boolean folder = repoPath.isFolder();
-            PermissionTargetInfo aclPermissionTarget = acl.getPermissionTarget();
-            if (isPermissionTargetIncludesRepoKey(repoKey, aclPermissionTarget)
-                    || isPermissionTargetIncludesRepoKey(aclCompatibleRepoKey, aclPermissionTarget)) {
-                boolean checkPartialPath = (permission.getMask() & (ArtifactoryPermission.READ.getMask() | ArtifactoryPermission.DEPLOY.getMask())) != 0;
-                boolean behaveAsFolder = folder && checkPartialPath;
-                boolean match = matches(aclPermissionTarget, path, behaveAsFolder);
-                if (match) {
-                    if (isGranted(acl, permission, sids)) {
-                        return true;
-                    }
+        PermissionIndex index = getPermissionIndex();
+        String repoKey = repoPath.getRepoKey();
+        String aclCompatibleRepoKey = makeRemoteRepoKeyAclCompatible(repoKey);  //acl compatible key for remotes
+        boolean local = false;
+        boolean cache = false;
+        if (index.hasAnyLocalOrRemoteAcls()) {
+            // the repository type is required only for the "All Local" and "All Remote" targets
+            for (String key : new String[]{repoKey, aclCompatibleRepoKey}) {
+                LocalRepo localRepo = repositoryService.localOrCachedRepositoryByKey(key);
+                if (localRepo != null) {
+                    local |= !localRepo.isCache();
+                    cache |= localRepo.isCache();
                 }
             }
         }
-        return false;
+        boolean checkPartialPath = (permission.getMask() & (ArtifactoryPermission.READ.getMask() | ArtifactoryPermission.DEPLOY.getMask())) != 0;
+        boolean behaveAsFolder = repoPath.isFolder() && checkPartialPath;
+        return index.isGranted(new PermissionIndex.RepoKeys(repoKey, aclCompatibleRepoKey, local, cache),
+                repoPath.getPath(), behaveAsFolder, permission, sids);
+    }
+
+    /**
+     * @return The permission index of the current ACLs, rebuilt when the ACLs are reloaded
+     */
+    private PermissionIndex getPermissionIndex() {
+        Collection<AclInfo> acls = aclStoreService.getAllAcls();
+        PermissionIndex index = permissionIndex;
+        if (index == null || !index.isIndexOf(acls)) {
+            index = new PermissionIndex(acls, ConstantValues.aclPermissionDecisionsCacheSize.getInt());
+            permissionIndex = index;
+        }
+        return index;
     }
 
     private boolean hasAceInAcl(AclInfo acl, Set<ArtifactorySid> sids) {
@@ -81,14 +81,10 @@ public class StatsDelegatingServiceImpl extends AbstractStatsService implements
      * @param downloadedBy   User who downloaded the file
      * @param downloadedTime Time the file was downloaded
      */
-    public synchronized void fileDownloaded(RepoPath repoPath, String downloadedBy, long downloadedTime) {
+    public void fileDownloaded(RepoPath repoPath, String downloadedBy, long downloadedTime) {
         log.debug("Queuing downloaded delegation for resource '{}' by '{}' at '{}'", repoPath, downloadedBy, downloadedTime);
 
-        StatsEvent statsEvent = getStatsEvents().get(repoPath);
-        if (statsEvent == null) {
-            getStatsEvents().put(repoPath, statsEvent = new StatsEvent(repoPath, null));
-        }
-        statsEvent.update(downloadedBy, null, null, downloadedTime, 1);
+        queueEvent(repoPath, null, statsEvent -> statsEvent.update(downloadedBy, null, null, downloadedTime, 1));
     }
 
     /**
@@ -103,17 +99,14 @@ public class StatsDelegatingServiceImpl extends AbstractStatsService implements
      * @param count              Amount of performed downloads
      */
     @Override
-    public synchronized void fileDownloaded(String origin, String path, RepoPath repoPath,
+    public void fileDownloaded(String origin, String path, RepoPath repoPath,
             String downloadedBy, long downloadedTime, long count) {
 
         log.debug("Queuing download delegation for resource '{}' downloaded remotely by '{}', at '{}', from {}, count: '{}'",
                 repoPath, downloadedBy, downloadedTime, origin, count);
 
-        StatsEvent statsEvent = getStatsEvents().get(repoPath);
-        if (statsEvent == null) {
-            getStatsEvents().put(repoPath, statsEvent = new StatsEvent(repoPath, origin));
-        }
-        statsEvent.update(downloadedBy, origin, path, downloadedTime, count);
+        queueEvent(repoPath, origin,
+                statsEvent -> statsEvent.update(downloadedBy, origin, path, downloadedTime, count));
     }
 
     /**
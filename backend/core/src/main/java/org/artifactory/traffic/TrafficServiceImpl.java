@@ -33,17 +33,23 @@ import org.artifactory.spring.Reloadable;
 import org.artifactory.spring.ReloadableBean;
 import org.artifactory.storage.db.servers.model.ArtifactoryServer;
 import org.artifactory.storage.db.servers.service.ArtifactoryServersCommonService;
+import org.artifactory.traffic.binary.BinaryTrafficLogReader;
+import org.artifactory.traffic.binary.BinaryTrafficLogWriter;
 import org.artifactory.traffic.entry.TrafficEntry;
 import org.artifactory.traffic.entry.TransferEntry;
 import org.artifactory.traffic.mbean.Traffic;
 import org.artifactory.traffic.read.TrafficReader;
 import org.artifactory.version.CompoundVersionDetails;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.util.Calendar;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Traffic service persists the traffic (download/upload) in Artifactory and can retrieve it by date range.
@@ -53,9 +59,21 @@ import java.util.List;
 @Service
 @Reloadable(beanClass = InternalTrafficService.class, initAfter = {InternalRepositoryService.class, TaskService.class})
 public class TrafficServiceImpl implements InternalTrafficService, ReloadableBean {
+    private static final Logger log = LoggerFactory.getLogger(TrafficServiceImpl.class);
+    private static final String BINARY_LOG_DIR = "traffic-binary";
 
     private boolean active;
 
+    /**
+     * The indexed binary traffic log, null if it is disabled
+     */
+    private BinaryTrafficLogWriter binaryLog;
+
+    /**
+     * Time the expired days of the binary traffic log were last deleted
+     */
+    private final AtomicLong binaryLogCleanupTime = new AtomicLong();
+
     @Autowired
     private ArtifactoryServersCommonService serversService;
 
@@ -67,7 +85,12 @@ public class TrafficServiceImpl implements InternalTrafficService, ReloadableBea
         ContextHelper.get().beanForType(MBeanRegistrationService.class).register(traffic);
 
         active = ConstantValues.trafficCollectionActive.getBoolean();
-
+        if (active && ConstantValues.trafficBinaryLogEnabled.getBoolean()) {
+            binaryLog = new BinaryTrafficLogWriter(getBinaryLogDir(),
+                    ConstantValues.trafficBinaryLogBlockEntries.getInt(),
+                    TimeUnit.SECONDS.toMillis(ConstantValues.trafficBinaryLogFlushIntervalSecs.getLong()));
+            deleteExpiredBinaryLogDays();
+        }
     }
 
     @Override
@@ -77,7 +100,9 @@ public class TrafficServiceImpl implements InternalTrafficService, ReloadableBea
 
     @Override
     public void destroy() {
-        //nop
+        if (binaryLog != null) {
+            binaryLog.close();
+        }
     }
 
     @Override
@@ -89,7 +114,10 @@ public class TrafficServiceImpl implements InternalTrafficService, ReloadableBea
     public void handleTrafficEntry(TrafficEntry entry) {
         if (active) {
             if (entry instanceof TransferEntry) {
-                TrafficLogger.logTransferEntry((TransferEntry) entry);
+                TrafficLogger.logTransferEntry((TransferEntry) entry, binaryLog);
+                if (binaryLog != null) {
+                    deleteExpiredBinaryLogDays();
+                }
             }
         }
     }
@@ -143,6 +171,15 @@ public class TrafficServiceImpl implements InternalTrafficService, ReloadableBea
         Calendar to = Calendar.getInstance();
         to.setTimeInMillis(endTime);
         validateDateRange(from, to);
+        if (binaryLog != null) {
+            // the binary log serves the window only if it was recording during the whole window, up to now
+            long now = System.currentTimeMillis();
+            binaryLog.flush();
+            BinaryTrafficLogReader binaryLogReader = new BinaryTrafficLogReader(getBinaryLogDir());
+            if (binaryLogReader.isCovered(startTime, Math.min(endTime, now))) {
+                return binaryLogReader.getTransferUsage(startTime, endTime, ipToFilter);
+            }
+        }
         List<TrafficEntry> allTrafficEntry = getEntryList(from, to);
         TransferUsage transferUsage = orderEntriesByFilter(allTrafficEntry, ipToFilter);
         return transferUsage;
@@ -172,6 +209,32 @@ public class TrafficServiceImpl implements InternalTrafficService, ReloadableBea
         return aggregateUsage(transferUsageList);
     }
 
+    /**
+     * Deletes the days of the binary traffic log that are older than the text traffic logs, once a day, so the binary
+     * log keeps the same history as the rolled text logs
+     */
+    private void deleteExpiredBinaryLogDays() {
+        long now = System.currentTimeMillis();
+        long lastCleanup = binaryLogCleanupTime.get();
+        if (now - lastCleanup < TimeUnit.DAYS.toMillis(1) || !binaryLogCleanupTime.compareAndSet(lastCleanup, now)) {
+            return;
+        }
+        try {
+            File logDir = ContextHelper.get().getArtifactoryHome().getLogDir();
+            long textLogsStart = new TrafficReader(logDir).getStartTime();
+            if (textLogsStart >= 0) {
+                binaryLog.deleteBefore(textLogsStart);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to delete the expired days of the binary traffic log: {}", e.getMessage());
+            log.debug("Failed to delete the expired days of the binary traffic log", e);
+        }
+    }
+
+    private File getBinaryLogDir() {
+        return new File(ContextHelper.get().getArtifactoryHome().getLogDir(), BINARY_LOG_DIR);
+    }
+
     private TransferUsage aggregateUsage(List<TransferUsage> transferUsageList) {
         TransferUsage finalTransferUsage = new TransferUsage();
         for (TransferUsage transferUsage : transferUsageList) {
@@ -0,0 +1,250 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.backup
+
+import com.google.common.io.Files
+import org.apache.commons.io.FileUtils
+import org.artifactory.api.config.ExportSettingsImpl
+import org.artifactory.api.context.ArtifactoryContextThreadBinder
+import org.artifactory.checksum.ChecksumInfo
+import org.artifactory.checksum.ChecksumType
+import org.artifactory.common.ArtifactoryHome
+import org.artifactory.common.ConstantValues
+import org.artifactory.descriptor.backup.BackupDescriptor
+import org.artifactory.descriptor.repo.LocalRepoDescriptor
+import org.artifactory.fs.ItemInfo
+import org.artifactory.model.xstream.fs.FileInfoImpl
+import org.artifactory.model.xstream.fs.FolderInfoImpl
+import org.artifactory.repo.InternalRepoPathFactory
+import org.artifactory.repo.RepoPath
+import org.artifactory.repo.StoringRepo
+import org.artifactory.repo.db.importexport.DbRepoExportHandler
+import org.artifactory.repo.service.InternalRepositoryService
+import org.artifactory.sapi.common.ExportSettings
+import org.artifactory.schedule.TaskService
+import org.artifactory.spring.InternalArtifactoryContext
+import org.artifactory.storage.binstore.service.BinaryStore
+import org.artifactory.storage.fs.VfsItemNotFoundException
+import org.artifactory.storage.fs.service.ChangeJournalService
+import org.artifactory.storage.fs.service.FileService
+import org.artifactory.test.ArtifactoryHomeStub
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+/**
+ * Tests the incremental backup that exports only the changes recorded in the change journal since the previous backup.
+ */
+class BackupServiceImplSpec extends Specification {
+
+    public static final String REPO_KEY = "libs"
+
+    File backupDir
+    InternalArtifactoryContext context
+    BackupServiceImpl backupService
+    BackupDescriptor backup
+    InternalRepositoryService repositoryService
+    ChangeJournalService changeJournal
+    Map<String, ItemInfo> items = new TreeMap<>()
+    Map<String, String> binaries = [:]
+    Map<String, Long> journal = [:]
+    Set<String> walkedFolders = new TreeSet<>()
+    long journalStart = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1)
+    // the items created before the first backup are journaled when the journal starts
+    Long changeTime = journalStart
+
+    def setup() {
+        backupDir = Files.createTempDir()
+        def artifactoryHomeStub = new ArtifactoryHomeStub()
+        // the cursor is the start of the previous backup
+        artifactoryHomeStub.setProperty(ConstantValues.backupChangeJournalOverlapSecs, "0")
+        ArtifactoryHome.bind(artifactoryHomeStub)
+        context = Mock(InternalArtifactoryContext)
+        ArtifactoryContextThreadBinder.bind(context)
+        context.getArtifactoryHome() >> artifactoryHomeStub
+
+        repositoryService = Mock(InternalRepositoryService)
+        def repoDescriptor = new LocalRepoDescriptor()
+        repoDescriptor.key = REPO_KEY
+        repositoryService.getLocalAndCachedRepoDescriptors() >> [repoDescriptor]
+        repositoryService.getChildren(_) >> { RepoPath repoPath ->
+            walkedFolders << repoPath.path
+            items.values().findAll { it.relPath && parentOf(it.relPath) == repoPath.path }
+        }
+        context.getRepositoryService() >> repositoryService
+
+        def fileService = Mock(FileService)
+        fileService.exists(_) >> { RepoPath repoPath -> items.containsKey(repoPath.path) }
+        fileService.loadItem(_ as RepoPath) >> { RepoPath repoPath ->
+            if (!items.containsKey(repoPath.path)) {
+                throw new VfsItemNotFoundException("Item not found: " + repoPath)
+            }
+            items[repoPath.path]
+        }
+        context.beanForType(FileService) >> fileService
+
+        def binaryStore = Mock(BinaryStore)
+        binaryStore.getBinary(_) >> { String sha1 -> new ByteArrayInputStream(binaries[sha1].bytes) }
+        context.beanForType(BinaryStore) >> binaryStore
+
+        changeJournal = Mock(ChangeJournalService)
+        changeJournal.isRecording(ChangeJournalService.CONSUMER_BACKUP) >> true
+        changeJournal.getJournalStart() >> { journalStart }
+        changeJournal.getChangedPaths(REPO_KEY, _, _, _) >> { String repoKey, long since, String afterPath, int max ->
+            journal.findAll { it.value >= since }.keySet().sort().findAll { afterPath == null || it > afterPath }
+                    .take(max)
+        }
+        context.beanForType(ChangeJournalService) >> changeJournal
+        context.getTaskService() >> Mock(TaskService)
+
+        def repo = Mock(StoringRepo)
+        repo.getKey() >> REPO_KEY
+        repo.getRepositoryService() >> repositoryService
+        // exports the repository like the repository service does
+        context.exportTo(_) >> { ExportSettings settings ->
+            def repoSettings = new ExportSettingsImpl(new File(settings.baseDir, "repositories/" + REPO_KEY), settings)
+            repoSettings.includeMetadata = false
+            new DbRepoExportHandler(repo, repoSettings).export()
+        }
+
+        backupService = new BackupServiceImpl()
+        backupService.@repositoryService = repositoryService
+        backupService.@changeJournal = changeJournal
+        backup = new BackupDescriptor()
+        backup.key = "backup-incremental"
+        backup.enabled = true
+        backup.dir = backupDir
+        // no retention and no archive make the backup incremental
+        backup.retentionPeriodHours = 0
+        items[""] = new FolderInfoImpl(InternalRepoPathFactory.repoRootPath(REPO_KEY))
+    }
+
+    void cleanup() {
+        ArtifactoryContextThreadBinder.unbind()
+        ArtifactoryHome.unbind()
+        FileUtils.deleteDirectory(backupDir)
+    }
+
+    def "Export only the journaled changes in the second incremental backup"() {
+        setup:
+
+        ["a", "b", "b/c", "e"].each { addFolder(it) }
+        ["a/1.jar", "a/2.jar", "a/3.jar", "b/1.jar", "b/c/1.jar", "e/1.jar", "x"].each { addFile(it, it) }
+
+        when:
+
+        def firstBackupStart = System.currentTimeMillis()
+        def firstStatus = backupService.backupSystem(context, backup)
+
+        then:
+
+        !firstStatus.isError()
+        exportedTree() == ["a/1.jar", "a/2.jar", "a/3.jar", "b/1.jar", "b/c/1.jar", "e/1.jar", "x"] as Set
+        journalCursor() >= firstBackupStart
+
+        when:
+
+        walkedFolders.clear()
+        changeTime = null
+        addFile("a/2.jar", "modified")
+        deleteItem("a/3.jar")
+        deleteItem("b")
+        addFolder("d")
+        addFile("d/1.jar", "added")
+        // a file replaced by a folder
+        deleteItem("x")
+        addFolder("x")
+        addFile("x/1.jar", "x-folder")
+        def secondStatus = backupService.backupSystem(context, backup)
+
+        then:
+
+        !secondStatus.isError()
+        exportedTree() == ["a/1.jar", "a/2.jar", "d/1.jar", "e/1.jar", "x/1.jar"] as Set
+        exportedContent("a/2.jar") == "modified"
+        exportedContent("d/1.jar") == "added"
+        exportedContent("x/1.jar") == "x-folder"
+        // only the changed folders are visited
+        walkedFolders == ["d", "x"] as Set
+    }
+
+    def "Export all the items when the journal started after the previous backup"() {
+        setup:
+
+        addFolder("a")
+        addFile("a/1.jar", "a/1.jar")
+        backupService.backupSystem(context, backup)
+
+        when:
+
+        walkedFolders.clear()
+        // e.g. the journal was cleared when the backup was disabled
+        journalStart = System.currentTimeMillis() + 1
+        def status = backupService.backupSystem(context, backup)
+
+        then:
+
+        !status.isError()
+        walkedFolders == ["", "a"] as Set
+        exportedTree() == ["a/1.jar"] as Set
+    }
+
+    def addFolder(String path) {
+        def folder = new FolderInfoImpl(InternalRepoPathFactory.create(REPO_KEY, path))
+        folder.lastModified = System.currentTimeMillis()
+        items[path] = folder
+        journal[path] = changeTime ?: System.currentTimeMillis()
+    }
+
+    def addFile(String path, String content) {
+        def file = new FileInfoImpl(InternalRepoPathFactory.create(REPO_KEY, path))
+        def sha1 = content.bytes.encodeHex().toString()
+        file.addChecksumInfo(new ChecksumInfo(ChecksumType.sha1, sha1, sha1))
+        file.size = content.length()
+        // the content of an incremental backup is exported only if the file is newer than the target
+        file.lastModified = System.currentTimeMillis() + (items.containsKey(path) ? TimeUnit.MINUTES.toMillis(1) : 0)
+        binaries[sha1] = content
+        items[path] = file
+        journal[path] = changeTime ?: System.currentTimeMillis()
+    }
+
+    def deleteItem(String path) {
+        items.keySet().removeAll { it == path || it.startsWith(path + "/") }
+        journal[path] = changeTime ?: System.currentTimeMillis()
+    }
+
+    Set<String> exportedTree() {
+        def repoDir = new File(backupDir, "repositories/" + REPO_KEY)
+        FileUtils.listFiles(repoDir, null, true).collect {
+            repoDir.toPath().relativize(it.toPath()).toString().replace(File.separator, "/")
+        } as Set
+    }
+
+    String exportedContent(String path) {
+        FileUtils.readFileToString(new File(backupDir, "repositories/" + REPO_KEY + "/" + path), "utf-8")
+    }
+
+    long journalCursor() {
+        Long.parseLong(FileUtils.readFileToString(new File(backupDir, ".change-journal-cursor"), "utf-8").trim())
+    }
+
+    static String parentOf(String path) {
+        path.contains("/") ? path.substring(0, path.lastIndexOf("/")) : ""
+    }
+}
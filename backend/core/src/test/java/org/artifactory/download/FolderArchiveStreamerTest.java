@@ -0,0 +1,215 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.download;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.commons.io.IOUtils;
+import org.artifactory.api.archive.ArchiveType;
+import org.artifactory.api.common.BasicStatusHolder;
+import org.artifactory.api.context.ArtifactoryContextThreadBinder;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.factory.InfoFactoryHolder;
+import org.artifactory.fs.ItemInfo;
+import org.artifactory.fs.MutableFileInfo;
+import org.artifactory.io.SimpleResourceStreamHandle;
+import org.artifactory.repo.InternalRepoPathFactory;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.repo.service.InternalRepositoryService;
+import org.artifactory.resource.ResourceStreamHandle;
+import org.artifactory.schedule.CachedThreadPoolTaskExecutor;
+import org.artifactory.spring.InternalArtifactoryContext;
+import org.artifactory.test.ArtifactoryHomeBoundTest;
+import org.artifactory.traffic.TrafficService;
+import org.easymock.IAnswer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.easymock.EasyMock.*;
+import static org.testng.Assert.*;
+
+/**
+ * Tests the {@link FolderArchiveStreamer}.
+ */
+@Test
+public class FolderArchiveStreamerTest extends ArtifactoryHomeBoundTest {
+    private static final int MEMORY_PERMITS = 100;
+
+    private final RepoPath root = InternalRepoPathFactory.create("libs", "org");
+    private final Map<RepoPath, String> contents = Maps.newConcurrentMap();
+    private final Set<RepoPath> broken = Sets.newConcurrentHashSet();
+    private final List<ItemInfo> files = Lists.newArrayList();
+    private Semaphore prefetchMemory;
+    private CachedThreadPoolTaskExecutor executor;
+
+    @BeforeMethod
+    public void setUp() {
+        getBound().setProperty(ConstantValues.downloadStatsEnabled, "false");
+        getBound().setProperty(ConstantValues.folderDownloadPrefetchCount, "4");
+        getBound().setProperty(ConstantValues.folderDownloadPrefetchMaxBufferKb, "1");
+        contents.clear();
+        broken.clear();
+        files.clear();
+        prefetchMemory = new Semaphore(MEMORY_PERMITS);
+
+        InternalRepositoryService repositoryService = createMock(InternalRepositoryService.class);
+        expect(repositoryService.getResourceStreamHandle(anyObject(RepoPath.class))).andAnswer(
+                new IAnswer<ResourceStreamHandle>() {
+                    @Override
+                    public ResourceStreamHandle answer() {
+                        return openHandle((RepoPath) getCurrentArguments()[0]);
+                    }
+                }).anyTimes();
+        InternalArtifactoryContext context = createNiceMock(InternalArtifactoryContext.class);
+        expect(context.getArtifactoryHome()).andReturn(getBound()).anyTimes();
+        expect(context.isReady()).andReturn(true).anyTimes();
+        expect(context.getRepositoryService()).andReturn(repositoryService).anyTimes();
+        TrafficService trafficService = createNiceMock(TrafficService.class);
+        expect(context.beanForType(TrafficService.class)).andReturn(trafficService).anyTimes();
+        // the executor binds the context on its threads
+        ArtifactoryContextThreadBinder.bind(context);
+        executor = new CachedThreadPoolTaskExecutor();
+        expect(context.beanForType(CachedThreadPoolTaskExecutor.class)).andReturn(executor).anyTimes();
+        replay(repositoryService, trafficService, context);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        executor.destroy();
+        ArtifactoryContextThreadBinder.unbind();
+    }
+
+    public void filesAreWrittenInOrder() throws IOException {
+        List<String> expected = Lists.newArrayList();
+        for (int i = 0; i < 20; i++) {
+            // every third file is too large to be buffered by the prefetch
+            String name = "file-" + i + ".txt";
+            addFile(name, Strings.repeat(name, i % 3 == 0 ? 200 : 10));
+            expected.add(name);
+        }
+
+        Map<String, ZipEntry> entries = Maps.newLinkedHashMap();
+        Map<String, String> written = readZip(write(), entries);
+
+        assertEquals(Lists.newArrayList(written.keySet()), expected);
+        for (ItemInfo file : files) {
+            assertEquals(written.get(file.getName()), contents.get(file.getRepoPath()), file.getName());
+        }
+        assertEquals(prefetchMemory.availablePermits(), MEMORY_PERMITS, "Prefetch memory was not released");
+    }
+
+    public void compressedContentIsStored() throws IOException {
+        addFile("small.jar", Strings.repeat("jar", 10));
+        addFile("small.txt", Strings.repeat("txt", 10));
+        addFile("large.jar", Strings.repeat("jar", 1000));
+
+        Map<String, ZipEntry> entries = Maps.newLinkedHashMap();
+        Map<String, String> written = readZip(write(), entries);
+
+        assertEquals(written.get("small.jar"), Strings.repeat("jar", 10));
+        assertEquals(written.get("large.jar"), Strings.repeat("jar", 1000));
+        assertEquals(entries.get("small.jar").getMethod(), ZipEntry.STORED);
+        // text is compressed, and the CRC of content larger than the prefetch buffer is not known in advance
+        assertEquals(entries.get("small.txt").getMethod(), ZipEntry.DEFLATED);
+        assertEquals(entries.get("large.jar").getMethod(), ZipEntry.DEFLATED);
+    }
+
+    public void contentIsStreamedWhenTheMemoryBudgetIsExhausted() throws IOException {
+        prefetchMemory = new Semaphore(0);
+        addFile("small.jar", Strings.repeat("jar", 10));
+        addFile("small.txt", Strings.repeat("txt", 10));
+
+        Map<String, ZipEntry> entries = Maps.newLinkedHashMap();
+        Map<String, String> written = readZip(write(), entries);
+
+        assertEquals(written.get("small.jar"), Strings.repeat("jar", 10));
+        assertEquals(written.get("small.txt"), Strings.repeat("txt", 10));
+        assertEquals(entries.get("small.jar").getMethod(), ZipEntry.DEFLATED, "Streamed content can't be stored");
+    }
+
+    public void prefetchFailureFailsTheDownload() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            addFile("file-" + i + ".txt", "content-" + i);
+        }
+        broken.add(files.get(5).getRepoPath());
+
+        try {
+            write();
+            fail("Expected the download to fail on the broken binary");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("file-5.txt"), e.getMessage());
+        }
+        assertEquals(prefetchMemory.availablePermits(), MEMORY_PERMITS, "Prefetch memory was not released");
+    }
+
+    private void addFile(String name, String content) {
+        MutableFileInfo fileInfo = InfoFactoryHolder.get().createFileInfo(InternalRepoPathFactory.create(root, name));
+        fileInfo.setSize(content.length());
+        contents.put(fileInfo.getRepoPath(), content);
+        files.add(fileInfo);
+    }
+
+    private ResourceStreamHandle openHandle(final RepoPath repoPath) {
+        if (broken.contains(repoPath)) {
+            return new SimpleResourceStreamHandle(new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    throw new IOException("Failed to read " + repoPath);
+                }
+            });
+        }
+        return new SimpleResourceStreamHandle(
+                new ByteArrayInputStream(contents.get(repoPath).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private byte[] write() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FolderArchiveStreamer streamer = new FolderArchiveStreamer(root, ArchiveType.ZIP, 100, 1000,
+                prefetchMemory, new BasicStatusHolder());
+        streamer.writeArchive(out, files.iterator());
+        return out.toByteArray();
+    }
+
+    private Map<String, String> readZip(byte[] zip, Map<String, ZipEntry> entries) throws IOException {
+        Map<String, String> written = Maps.newLinkedHashMap();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                written.put(entry.getName(), IOUtils.toString(in, "utf-8"));
+                entries.put(entry.getName(), entry);
+            }
+        }
+        return written;
+    }
+}
@@ -18,13 +18,27 @@
 
 package org.artifactory.io.checksum;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
 import org.artifactory.checksum.ChecksumType;
 import org.artifactory.util.StringInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
 
 /**
  * Tests {@link ChecksumInputStream}.
@@ -33,6 +47,7 @@ import static org.testng.Assert.assertEquals;
  */
 @Test
 public class ChecksumInputStreamTest {
+    private static final Logger log = LoggerFactory.getLogger(ChecksumInputStreamTest.class);
 
     public void simpleInputStream() throws IOException {
         ChecksumInputStream in = new ChecksumInputStream(new StringInputStream("test"),
@@ -77,4 +92,116 @@ public class ChecksumInputStreamTest {
         in.getChecksums()[0].getChecksum();
     }
 
+    public void parallelDigestMatchesSequentialDigest() throws IOException {
+        byte[] data = randomBytes(5 * 1024 * 1024 + 17);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            assertSameChecksums(calculate(data, pool, 64 * 1024, null), calculate(data, null, 0, null));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    public void callerRunsRejectedDigests() throws IOException {
+        byte[] data = randomBytes(1024 * 1024);
+        Executor rejecting = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException("Saturated");
+            }
+        };
+        assertSameChecksums(calculate(data, rejecting, 16 * 1024, null), calculate(data, null, 0, null));
+    }
+
+    public void smallStreamIsDigestedByTheCaller() throws IOException {
+        byte[] data = randomBytes(1000);
+        Executor unused = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                fail("Stream smaller than a chunk should not be dispatched");
+            }
+        };
+        assertSameChecksums(calculate(data, unused, 64 * 1024, null), calculate(data, null, 0, null));
+    }
+
+    public void exhaustedMemoryBudgetDigestsByTheCaller() throws IOException {
+        byte[] data = randomBytes(1024 * 1024);
+        Executor unused = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                fail("Stream should not be dispatched without memory for the chunks");
+            }
+        };
+        // two chunks of 64KB need 128 permits
+        Semaphore memory = new Semaphore(127);
+        assertSameChecksums(calculate(data, unused, 64 * 1024, memory), calculate(data, null, 0, null));
+        assertEquals(memory.availablePermits(), 127);
+    }
+
+    public void memoryBudgetIsReleasedWhenTheStreamIsClosed() throws IOException {
+        byte[] data = randomBytes(1024 * 1024);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Semaphore memory = new Semaphore(128);
+            assertSameChecksums(calculate(data, pool, 64 * 1024, memory), calculate(data, null, 0, null));
+            assertEquals(memory.availablePermits(), 128);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Compares the sequential and parallel checksums calculation of 1GB. Disabled by default, it takes a while.
+     */
+    @Test(enabled = false)
+    public void benchmarkParallelDigest() throws IOException {
+        byte[] data = randomBytes(64 * 1024 * 1024);
+        int iterations = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            long sequentialNanos = 0, sequentialCpu = 0, parallelNanos = 0, parallelCpu = 0;
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                long cpuStart = threads.getCurrentThreadCpuTime();
+                calculate(data, null, 0, null);
+                sequentialCpu += threads.getCurrentThreadCpuTime() - cpuStart;
+                sequentialNanos += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                cpuStart = threads.getCurrentThreadCpuTime();
+                calculate(data, pool, 1024 * 1024, null);
+                parallelCpu += threads.getCurrentThreadCpuTime() - cpuStart;
+                parallelNanos += System.nanoTime() - start;
+            }
+            long totalMb = (long) data.length * iterations / (1024 * 1024);
+            log.info("Digested {} MB: sequential {} MB/sec ({} ms reader CPU), parallel {} MB/sec ({} ms reader CPU)",
+                    totalMb, totalMb * 1000000000L / sequentialNanos, sequentialCpu / 1000000,
+                    totalMb * 1000000000L / parallelNanos, parallelCpu / 1000000);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Checksum[] calculate(byte[] data, Executor executor, int chunkSize, Semaphore memory) throws IOException {
+        ChecksumInputStream in = new ChecksumInputStream(new ByteArrayInputStream(data), executor, chunkSize, memory,
+                new Checksum(ChecksumType.sha1), new Checksum(ChecksumType.md5), new Checksum(ChecksumType.sha256));
+        IOUtils.copy(in, new NullOutputStream());
+        in.close();
+        assertEquals(in.getTotalBytesRead(), data.length);
+        return in.getChecksums();
+    }
+
+    private void assertSameChecksums(Checksum[] actual, Checksum[] expected) {
+        assertEquals(actual.length, expected.length);
+        for (int i = 0; i < actual.length; i++) {
+            assertEquals(actual[i].getChecksum(), expected[i].getChecksum(), actual[i].getType().name());
+        }
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
 }
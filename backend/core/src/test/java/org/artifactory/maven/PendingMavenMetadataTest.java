@@ -0,0 +1,98 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.maven;
+
+import org.artifactory.model.common.RepoPathImpl;
+import org.artifactory.repo.RepoPath;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests the {@link PendingMavenMetadata}.
+ */
+@Test
+public class PendingMavenMetadataTest {
+
+    public void singleDeploy() {
+        PendingMavenMetadata pending = new PendingMavenMetadata();
+        RepoPath folder = new RepoPathImpl("libs", "org/test/test");
+        RepoPath pom = new RepoPathImpl("libs", "org/test/test/1.0/test-1.0.pom");
+        List<Set<RepoPath>> merged = new ArrayList<>();
+        assertTrue(pending.addAndMerge(folder, pom, merged::add));
+        assertEquals(merged.size(), 1);
+        assertEquals(merged.get(0).size(), 1);
+        assertTrue(merged.get(0).contains(pom));
+    }
+
+    public void parallelDeploysToTheSameFolder() throws Exception {
+        int threads = 8;
+        int pomsPerThread = 2000;
+        PendingMavenMetadata pending = new PendingMavenMetadata();
+        RepoPath folder = new RepoPathImpl("libs", "org/test/test");
+        Set<RepoPath> merged = ConcurrentHashMap.newKeySet();
+        AtomicInteger mergedCount = new AtomicInteger();
+        AtomicInteger concurrentMerges = new AtomicInteger();
+        AtomicInteger maxConcurrentMerges = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < pomsPerThread; i++) {
+                        String version = thread + "." + i;
+                        RepoPath pom = new RepoPathImpl("libs",
+                                "org/test/test/" + version + "/test-" + version + ".pom");
+                        pending.addAndMerge(folder, pom, poms -> {
+                            maxConcurrentMerges.accumulateAndGet(concurrentMerges.incrementAndGet(), Math::max);
+                            merged.addAll(poms);
+                            mergedCount.addAndGet(poms.size());
+                            concurrentMerges.decrementAndGet();
+                        });
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(merged.size(), threads * pomsPerThread, "Deployed poms were lost");
+        assertEquals(mergedCount.get(), threads * pomsPerThread, "Deployed poms were merged more than once");
+        assertEquals(maxConcurrentMerges.get(), 1, "The same folder was merged by several threads");
+    }
+}
@@ -0,0 +1,428 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.maven.index;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.updater.IndexDataReader;
+import org.artifactory.api.common.BasicStatusHolder;
+import org.artifactory.api.context.ArtifactoryContextThreadBinder;
+import org.artifactory.checksum.ChecksumInfo;
+import org.artifactory.checksum.ChecksumType;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.factory.InfoFactoryHolder;
+import org.artifactory.fs.FileInfo;
+import org.artifactory.fs.ItemInfo;
+import org.artifactory.fs.MutableFileInfo;
+import org.artifactory.fs.ZipEntryInfo;
+import org.artifactory.mime.MavenNaming;
+import org.artifactory.repo.InternalRepoPathFactory;
+import org.artifactory.repo.LocalRepo;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.repo.service.InternalRepositoryService;
+import org.artifactory.schedule.TaskService;
+import org.artifactory.spring.InternalArtifactoryContext;
+import org.artifactory.storage.binstore.service.BinaryStore;
+import org.artifactory.storage.fs.VfsItemNotFoundException;
+import org.artifactory.storage.fs.service.ArchiveEntriesService;
+import org.artifactory.storage.fs.service.ChangeJournalService;
+import org.artifactory.storage.fs.service.FileService;
+import org.artifactory.test.ArtifactoryHomeBoundTest;
+import org.artifactory.util.PathUtils;
+import org.easymock.IAnswer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.easymock.EasyMock.*;
+import static org.testng.Assert.*;
+
+/**
+ * Tests the incremental indexing of the {@link RepoIndexer} and the publishing of its files by the
+ * {@link MavenIndexManager}, over an in-memory repository and change journal.
+ */
+@Test
+public class RepoIndexerTest extends ArtifactoryHomeBoundTest {
+    private static final String REPO_KEY = "libs";
+    private static final String FIRST_CHUNK = MavenNaming.NEXUS_INDEX_PREFIX + ".1.gz";
+
+    private final Map<String, ItemInfo> items = Maps.newTreeMap();
+    private final Map<String, byte[]> binaries = Maps.newHashMap();
+    private final List<String> changedPaths = Lists.newArrayList();
+    private long journalStart;
+    private boolean journalRecording;
+    private LocalRepo repo;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        getBound().setProperty(ConstantValues.mvnIndexerIncrementalEnabled, "true");
+        FileUtils.deleteDirectory(getIncrementalStateDir());
+        items.clear();
+        binaries.clear();
+        changedPaths.clear();
+        journalStart = 0;
+        journalRecording = true;
+        addFolder("");
+
+        repo = createNiceMock(LocalRepo.class);
+        expect(repo.getKey()).andReturn(REPO_KEY).anyTimes();
+        expect(repo.isLocal()).andReturn(true).anyTimes();
+        expect(repo.getRepoPath(anyString())).andAnswer(new IAnswer<RepoPath>() {
+            @Override
+            public RepoPath answer() {
+                return repoPath((String) getCurrentArguments()[0]);
+            }
+        }).anyTimes();
+        expect(repo.itemExists(anyString())).andAnswer(new IAnswer<Boolean>() {
+            @Override
+            public Boolean answer() {
+                return items.containsKey((String) getCurrentArguments()[0]);
+            }
+        }).anyTimes();
+
+        ArchiveEntriesService archiveEntries = createMock(ArchiveEntriesService.class);
+        expect(archiveEntries.getArchiveEntries(anyString())).andReturn(Collections.<ZipEntryInfo>emptySet())
+                .anyTimes();
+        TaskService taskService = createMock(TaskService.class);
+        expect(taskService.pauseOrBreak()).andReturn(false).anyTimes();
+        InternalArtifactoryContext context = createMock(InternalArtifactoryContext.class);
+        expect(context.getArtifactoryHome()).andReturn(getBound()).anyTimes();
+        expect(context.getTaskService()).andReturn(taskService).anyTimes();
+        expect(context.beanForType(ArchiveEntriesService.class)).andReturn(archiveEntries).anyTimes();
+        expect(context.beanForType(FileService.class)).andReturn(createFileService()).anyTimes();
+        expect(context.beanForType(BinaryStore.class)).andReturn(createBinaryStore()).anyTimes();
+        expect(context.beanForType(ChangeJournalService.class)).andReturn(createChangeJournal()).anyTimes();
+        expect(context.beanForType(InternalRepositoryService.class)).andReturn(createRepositoryService())
+                .anyTimes();
+        replay(repo, archiveEntries, taskService, context);
+        ArtifactoryContextThreadBinder.bind(context);
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        ArtifactoryContextThreadBinder.unbind();
+        FileUtils.deleteDirectory(getIncrementalStateDir());
+    }
+
+    public void firstRunPublishesAFullIndex() throws Exception {
+        deployVersion("org/a/lib/1.0");
+        deployVersion("org/b/other/1.0");
+
+        assertTrue(indexAndPublish());
+
+        assertTrue(items.containsKey(MavenNaming.NEXUS_INDEX_GZ_PATH));
+        assertTrue(items.containsKey(MavenNaming.NEXUS_INDEX_PROPERTIES_PATH));
+        assertTrue(getPublishedChunks().isEmpty(), "The first run starts a new chunks chain");
+        assertEquals(getIndexedVersions(), ImmutableSet.of("org.a|lib|1.0", "org.b|other|1.0"));
+        assertTrue(new File(getIncrementalStateDir(), "changes-cursor").isFile());
+    }
+
+    public void changesArePublishedAsAnIncrementalChunk() throws Exception {
+        deployVersion("org/a/lib/1.0");
+        deployVersion("org/b/other/1.0");
+        assertTrue(indexAndPublish());
+
+        Thread.sleep(10);
+        deployVersion("org/a/lib/2.0");
+        delete("org/b/other/1.0");
+        changedPaths.addAll(Lists.newArrayList("org/a/lib/2.0/lib-2.0.jar", "org/a/lib/2.0/lib-2.0.pom",
+                "org/b/other/1.0"));
+        assertTrue(indexAndPublish());
+
+        assertEquals(getPublishedChunks(), ImmutableSet.of(FIRST_CHUNK));
+        Set<String> chunkArtifacts = Sets.newHashSet();
+        Set<String> chunkDeletions = Sets.newHashSet();
+        readChunk(FIRST_CHUNK, chunkArtifacts, chunkDeletions);
+        assertEquals(chunkArtifacts, ImmutableSet.of("org.a|lib|2.0"), "Only the changed artifacts are packed");
+        assertEquals(chunkDeletions, ImmutableSet.of("org.b|other|1.0"));
+        assertEquals(getIndexedVersions(), ImmutableSet.of("org.a|lib|1.0", "org.a|lib|2.0"));
+    }
+
+    public void deletedGroupFolderRemovesOnlyTheArtifactsUnderIt() throws Exception {
+        deployVersion("org/b/other/1.0");
+        deployVersion("org/b/x/tool/1.0");
+        deployVersion("org/bb/lib/1.0");
+        assertTrue(indexAndPublish());
+
+        Thread.sleep(10);
+        delete("org/b");
+        changedPaths.add("org/b");
+        assertTrue(indexAndPublish());
+
+        assertEquals(getIndexedVersions(), ImmutableSet.of("org.bb|lib|1.0"));
+    }
+
+    public void uinfoPrefixesOfAPath() {
+        assertEquals(RepoIndexer.uinfoPrefixes("org"), Lists.newArrayList("org|", "org."));
+        assertEquals(RepoIndexer.uinfoPrefixes("org/a/lib"),
+                Lists.newArrayList("org|a|lib|", "org.a|lib|", "org.a.lib|", "org.a.lib."));
+    }
+
+    public void unchangedRepoIsNotPublished() throws Exception {
+        deployVersion("org/a/lib/1.0");
+        assertTrue(indexAndPublish());
+
+        assertFalse(indexAndPublish());
+        assertTrue(getPublishedChunks().isEmpty());
+        assertEquals(getIndexedVersions(), ImmutableSet.of("org.a|lib|1.0"));
+    }
+
+    public void journalNotCoveringTheChangesFallsBackToAFullIndex() throws Exception {
+        deployVersion("org/a/lib/1.0");
+        assertTrue(indexAndPublish());
+        Thread.sleep(10);
+        deployVersion("org/a/lib/2.0");
+        changedPaths.add("org/a/lib/2.0");
+        assertTrue(indexAndPublish());
+        assertEquals(getPublishedChunks(), ImmutableSet.of(FIRST_CHUNK));
+
+        // the journal restarted after the previous run, so the changes since then are unknown
+        changedPaths.clear();
+        journalStart = System.currentTimeMillis() + 1000;
+        deployVersion("org/b/other/1.0");
+        assertTrue(indexAndPublish());
+
+        assertTrue(getPublishedChunks().isEmpty(), "The chunks of the previous chain should be removed");
+        assertEquals(getIndexedVersions(), ImmutableSet.of("org.a|lib|1.0", "org.a|lib|2.0", "org.b|other|1.0"));
+    }
+
+    public void notRecordingJournalRemovesTheIncrementalState() throws Exception {
+        deployVersion("org/a/lib/1.0");
+        assertTrue(indexAndPublish());
+        assertTrue(getIncrementalStateDir().isDirectory());
+
+        journalRecording = false;
+        assertTrue(indexAndPublish());
+        assertFalse(getIncrementalStateDir().exists());
+        assertTrue(items.containsKey(MavenNaming.NEXUS_INDEX_GZ_PATH));
+    }
+
+    private boolean indexAndPublish() {
+        MavenIndexManager indexManager = new MavenIndexManager(repo);
+        indexManager.createLocalIndex(new Date(), false);
+        return indexManager.saveIndexFiles();
+    }
+
+    private Set<String> getPublishedChunks() {
+        Set<String> chunks = Sets.newHashSet();
+        for (String path : items.keySet()) {
+            String name = PathUtils.getFileName(path);
+            if (path.startsWith(MavenNaming.NEXUS_INDEX_DIR + "/") && name.matches(".*\\.\\d+\\.gz")) {
+                chunks.add(name);
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * @return The group|artifact|version of the artifacts in the persistent index of the incremental indexing
+     */
+    private Set<String> getIndexedVersions() throws IOException {
+        Set<String> versions = Sets.newHashSet();
+        IndexReader reader = IndexReader.open(FSDirectory.open(new File(getIncrementalStateDir(), "index")));
+        try {
+            for (int i = 0; i < reader.maxDoc(); i++) {
+                if (!reader.isDeleted(i)) {
+                    addVersion(reader.document(i).get(ArtifactInfo.UINFO), versions);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return versions;
+    }
+
+    private void readChunk(String chunk, Set<String> artifacts, Set<String> deletions) throws IOException {
+        FileInfo chunkInfo = (FileInfo) items.get(MavenNaming.NEXUS_INDEX_DIR + "/" + chunk);
+        InputStream in = new ByteArrayInputStream(binaries.get(chunkInfo.getSha1()));
+        try {
+            IndexDataReader reader = new IndexDataReader(in);
+            reader.readHeader();
+            Document document;
+            while ((document = reader.readDocument()) != null) {
+                addVersion(document.get(ArtifactInfo.UINFO), artifacts);
+                addVersion(document.get(ArtifactInfo.DELETED), deletions);
+            }
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private void addVersion(String uinfo, Set<String> versions) {
+        if (uinfo != null) {
+            String[] gav = uinfo.split("\\|");
+            versions.add(gav[0] + "|" + gav[1] + "|" + gav[2]);
+        }
+    }
+
+    private File getIncrementalStateDir() {
+        return new File(new File(getBound().getDataDir(), "maven-index"), REPO_KEY);
+    }
+
+    private void deployVersion(String versionPath) {
+        String version = PathUtils.getFileName(versionPath);
+        String artifactPath = PathUtils.getParent(versionPath);
+        String artifactId = PathUtils.getFileName(artifactPath);
+        String groupId = PathUtils.getParent(artifactPath).replace('/', '.');
+        String pom = "<project><modelVersion>4.0.0</modelVersion><groupId>" + groupId + "</groupId><artifactId>" +
+                artifactId + "</artifactId><version>" + version + "</version></project>";
+        addFile(versionPath + "/" + artifactId + "-" + version + ".pom", pom.getBytes());
+        addFile(versionPath + "/" + artifactId + "-" + version + ".jar", ("jar of " + versionPath).getBytes());
+    }
+
+    private void addFile(String path, byte[] content) {
+        addFolder(PathUtils.getParent(path));
+        String sha1 = Strings.padStart(Integer.toHexString(binaries.size() + 1), 40, '0');
+        binaries.put(sha1, content);
+        MutableFileInfo fileInfo = InfoFactoryHolder.get().createFileInfo(repoPath(path));
+        fileInfo.setSize(content.length);
+        fileInfo.addChecksumInfo(new ChecksumInfo(ChecksumType.sha1, sha1, sha1));
+        items.put(path, fileInfo);
+    }
+
+    private void addFolder(String path) {
+        if (!items.containsKey(path)) {
+            if (!path.isEmpty()) {
+                addFolder(PathUtils.getParent(path));
+            }
+            items.put(path, InfoFactoryHolder.get().createFolderInfo(repoPath(path)));
+        }
+    }
+
+    private void delete(String path) {
+        items.remove(path);
+        items.keySet().removeIf(itemPath -> itemPath.startsWith(path + "/"));
+    }
+
+    private RepoPath repoPath(String path) {
+        return InternalRepoPathFactory.create(REPO_KEY, path);
+    }
+
+    private FileService createFileService() {
+        FileService fileService = createMock(FileService.class);
+        expect(fileService.loadItem(anyObject(RepoPath.class))).andAnswer(new IAnswer<ItemInfo>() {
+            @Override
+            public ItemInfo answer() {
+                RepoPath repoPath = (RepoPath) getCurrentArguments()[0];
+                ItemInfo item = items.get(repoPath.getPath());
+                if (item == null) {
+                    throw new VfsItemNotFoundException("Item " + repoPath + " does not exist");
+                }
+                return item;
+            }
+        }).anyTimes();
+        expect(fileService.loadChildren(anyObject(RepoPath.class))).andAnswer(new IAnswer<List<ItemInfo>>() {
+            @Override
+            public List<ItemInfo> answer() {
+                String folderPath = ((RepoPath) getCurrentArguments()[0]).getPath();
+                List<ItemInfo> children = Lists.newArrayList();
+                for (Map.Entry<String, ItemInfo> item : items.entrySet()) {
+                    if (!item.getKey().isEmpty() && PathUtils.getParent(item.getKey()).equals(folderPath)) {
+                        children.add(item.getValue());
+                    }
+                }
+                return children;
+            }
+        }).anyTimes();
+        replay(fileService);
+        return fileService;
+    }
+
+    private BinaryStore createBinaryStore() {
+        BinaryStore binaryStore = createMock(BinaryStore.class);
+        expect(binaryStore.getBinary(anyString())).andAnswer(new IAnswer<InputStream>() {
+            @Override
+            public InputStream answer() {
+                return new ByteArrayInputStream(binaries.get((String) getCurrentArguments()[0]));
+            }
+        }).anyTimes();
+        replay(binaryStore);
+        return binaryStore;
+    }
+
+    private ChangeJournalService createChangeJournal() {
+        ChangeJournalService changeJournal = createNiceMock(ChangeJournalService.class);
+        expect(changeJournal.isRecording(ChangeJournalService.CONSUMER_MAVEN_INDEXER)).andAnswer(
+                new IAnswer<Boolean>() {
+                    @Override
+                    public Boolean answer() {
+                        return journalRecording;
+                    }
+                }).anyTimes();
+        expect(changeJournal.getJournalStart()).andAnswer(new IAnswer<Long>() {
+            @Override
+            public Long answer() {
+                return journalStart;
+            }
+        }).anyTimes();
+        expect(changeJournal.getChangedPaths(eq(REPO_KEY), anyLong(), anyString(), anyInt())).andAnswer(
+                new IAnswer<List<String>>() {
+                    @Override
+                    public List<String> answer() {
+                        // all the changes fit in the first page
+                        return getCurrentArguments()[2] == null ? Lists.newArrayList(changedPaths) :
+                                Lists.<String>newArrayList();
+                    }
+                }).anyTimes();
+        replay(changeJournal);
+        return changeJournal;
+    }
+
+    private InternalRepositoryService createRepositoryService() throws Exception {
+        InternalRepositoryService repositoryService = createNiceMock(InternalRepositoryService.class);
+        repositoryService.saveFileInternal(anyObject(RepoPath.class), anyObject(InputStream.class));
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                RepoPath repoPath = (RepoPath) getCurrentArguments()[0];
+                addFile(repoPath.getPath(), IOUtils.toByteArray((InputStream) getCurrentArguments()[1]));
+                return null;
+            }
+        }).anyTimes();
+        expect(repositoryService.undeploy(anyObject(RepoPath.class), eq(false), eq(false))).andAnswer(
+                new IAnswer<BasicStatusHolder>() {
+                    @Override
+                    public BasicStatusHolder answer() {
+                        delete(((RepoPath) getCurrentArguments()[0]).getPath());
+                        return new BasicStatusHolder();
+                    }
+                }).anyTimes();
+        replay(repositoryService);
+        return repositoryService;
+    }
+}
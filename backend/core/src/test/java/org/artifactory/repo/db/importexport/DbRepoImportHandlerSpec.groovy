@@ -26,16 +26,20 @@ import org.artifactory.api.context.ArtifactoryContextThreadBinder
 import org.artifactory.api.maven.MavenMetadataService
 import org.artifactory.api.security.AuthorizationService
 import org.artifactory.common.ArtifactoryHome
+import org.artifactory.common.ConstantValues
 import org.artifactory.descriptor.repo.LocalRepoDescriptor
 import org.artifactory.mime.MimeTypes
 import org.artifactory.mime.MimeTypesReader
 import org.artifactory.repo.InternalRepoPathFactory
 import org.artifactory.repo.LocalRepo
+import org.artifactory.repo.RepoPath
 import org.artifactory.repo.interceptor.ImportInterceptors
 import org.artifactory.repo.interceptor.StorageAggregationInterceptors
 import org.artifactory.repo.service.InternalRepositoryService
 import org.artifactory.sapi.fs.MutableVfsFile
 import org.artifactory.sapi.fs.MutableVfsFolder
+import org.artifactory.sapi.fs.VfsItem
+import org.artifactory.schedule.CachedThreadPoolTaskExecutor
 import org.artifactory.schedule.TaskService
 import org.artifactory.spring.InternalArtifactoryContext
 import org.artifactory.storage.BinaryInsertRetryException
@@ -44,12 +48,16 @@ import org.artifactory.test.ArtifactoryHomeStub
 import org.artifactory.util.ResourceUtils
 import org.joda.time.DateTimeUtils
 import org.joda.time.Duration
+import org.springframework.transaction.TransactionDefinition
+import org.springframework.transaction.TransactionSystemException
 import org.springframework.transaction.support.AbstractPlatformTransactionManager
 import org.springframework.transaction.support.DefaultTransactionStatus
 import spock.lang.Ignore
 import spock.lang.Specification
 
 import java.nio.file.Paths
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
 /**
  *
  * @author Yoav Luft
@@ -70,6 +78,8 @@ class DbRepoImportHandlerSpec extends Specification {
     private importInterceptors
     private aggregationInterceptors
     private artifactoryContext
+    private artifactoryHomeStub
+    private executor
 
     def setup() {
         repoRoot = Files.createTempDir()
@@ -80,6 +90,8 @@ class DbRepoImportHandlerSpec extends Specification {
     }
 
     void cleanup() {
+        DateTimeUtils.setCurrentMillisSystem()
+        executor?.destroy()
         if (repoRoot != null) {
             FileUtils.deleteDirectory repoRoot
         }
@@ -234,15 +246,236 @@ class DbRepoImportHandlerSpec extends Specification {
         }
 
         then:
-        // Commit then start new transaction
-        2 * artifactoryContext.getBean("artifactoryTransactionManager") >> this.transactionManager
+        // Commit, start and commit the interceptors transaction of the committed file, then start new transaction
+        4 * artifactoryContext.getBean("artifactoryTransactionManager") >> this.transactionManager
 
         then:
         localRepo.createOrGetFile(fileRepoPathB) >> vfsFileB
-        1 * artifactoryContext.getBean("artifactoryTransactionManager") >> this.transactionManager
+        // Commit, then start and commit the interceptors transaction of the committed file
+        3 * artifactoryContext.getBean("artifactoryTransactionManager") >> this.transactionManager
         !importSettings.getStatusHolder().isError()
     }
 
+    def "Import the files of the walked folders in parallel"() {
+        setup:
+
+        def filenames = ["a/1.jar", "a/2.jar", "b/1.jar", "b/2.jar", "b/c/1.jar", "b/c/2.jar"]
+        makeFiles(filenames as String[])
+        artifactoryHomeStub.setProperty(ConstantValues.importMaxParallelFolders, "4")
+        def importSettings = new RepositoryImportSettingsImpl(repoRoot)
+
+        def localRepo = Mock(LocalRepo)
+
+        def repoName = "test-repo"
+        def rootPath = InternalRepoPathFactory.repoRootPath(repoName)
+
+        localRepo.getKey() >> repoName
+        localRepo.isCache() >> true
+
+        repositoryService.localOrCachedRepositoryByKey(repoName) >> localRepo
+
+        def transactionManager = new RecordingTransactionManager()
+        this.transactionManager = transactionManager
+        def folderTransactions = new ConcurrentHashMap<RepoPath, Integer>()
+        def fileTransactions = new ConcurrentHashMap<RepoPath, Integer>()
+        def interceptedAfterCommit = ConcurrentHashMap.newKeySet()
+        def filesOfUncommittedFolders = ConcurrentHashMap.newKeySet()
+        def filledFiles = ConcurrentHashMap.newKeySet()
+
+        localRepo.createOrGetFolder(_) >> { RepoPath repoPath ->
+            folderTransactions[repoPath] = transactionManager.currentTransaction()
+            importedFolder(repoPath)
+        }
+        localRepo.createOrGetFile(_) >> { RepoPath repoPath ->
+            if (!transactionManager.committed.contains(folderTransactions[repoPath.parent])) {
+                filesOfUncommittedFolders << repoPath
+            }
+            fileTransactions[repoPath] = transactionManager.currentTransaction()
+            importedFile(repoPath, [fillBinaryData: { filledFiles << repoPath }])
+        }
+        localRepo.getImmutableFsItem(_) >> { RepoPath repoPath -> importedFile(repoPath) }
+        importInterceptors.afterImport(_, _) >> { VfsItem item, status ->
+            def fileTransaction = fileTransactions[item.repoPath]
+            if (transactionManager.committed.contains(fileTransaction)
+                    && transactionManager.currentTransaction() != fileTransaction) {
+                interceptedAfterCommit << item.repoPath
+            }
+        }
+
+        def handler = new DbRepoImportHandler(localRepo, importSettings, "")
+
+        when:
+
+        handler.executeImport()
+
+        then:
+
+        fileTransactions.keySet() == filenames.collect { InternalRepoPathFactory.create(rootPath, it) } as Set
+        filledFiles == fileTransactions.keySet()
+        // the files of a folder are imported once the folder is committed
+        filesOfUncommittedFolders.isEmpty()
+        // the interceptors are called in bulk once the files are committed
+        interceptedAfterCommit == fileTransactions.keySet()
+        transactionManager.committed.containsAll(fileTransactions.values())
+        transactionManager.rolledBack.isEmpty()
+        !importSettings.getStatusHolder().isError()
+    }
+
+    def "Use the existing binaries of the imported files"() {
+        setup:
+
+        def existing = "existing.jar"
+        def added = "added.jar"
+        makeFiles(existing, added)
+        def importSettings = new RepositoryImportSettingsImpl(repoRoot)
+
+        def localRepo = Mock(LocalRepo)
+
+        def repoName = "test-repo"
+        def rootPath = InternalRepoPathFactory.repoRootPath(repoName)
+        def existingRepoPath = InternalRepoPathFactory.create(rootPath, existing)
+        def addedRepoPath = InternalRepoPathFactory.create(rootPath, added)
+
+        localRepo.getKey() >> repoName
+        localRepo.isCache() >> true
+
+        repositoryService.localOrCachedRepositoryByKey(repoName) >> localRepo
+
+        def lookedUpFiles = ConcurrentHashMap.newKeySet()
+        def filledFiles = ConcurrentHashMap.newKeySet()
+
+        localRepo.createOrGetFolder(rootPath) >> importedFolder(rootPath)
+        localRepo.getImmutableFsItem(_) >> { RepoPath repoPath -> importedFile(repoPath) }
+        localRepo.createOrGetFile(_) >> { RepoPath repoPath ->
+            importedFile(repoPath, [
+                    tryUsingExistingBinary: { sha1, md5, length ->
+                        lookedUpFiles << repoPath
+                        repoPath == existingRepoPath
+                    },
+                    fillBinaryData        : { filledFiles << repoPath }])
+        }
+
+        def handler = new DbRepoImportHandler(localRepo, importSettings, "")
+
+        when:
+
+        handler.executeImport()
+
+        then:
+
+        lookedUpFiles == [existingRepoPath, addedRepoPath] as Set
+        // only the file without an existing binary reads its content
+        filledFiles == [addedRepoPath] as Set
+        2 * importInterceptors.afterImport(_, _)
+        !importSettings.getStatusHolder().isError()
+    }
+
+    def "Mark a failed file in error and import the other files"() {
+        setup:
+
+        def filenames = ["a/1.jar", "a/failed.jar", "b/1.jar"]
+        makeFiles(filenames as String[])
+        artifactoryHomeStub.setProperty(ConstantValues.importMaxParallelFolders, "4")
+        def importSettings = new RepositoryImportSettingsImpl(repoRoot)
+
+        def localRepo = Mock(LocalRepo)
+
+        def repoName = "test-repo"
+        def rootPath = InternalRepoPathFactory.repoRootPath(repoName)
+        def failedRepoPath = InternalRepoPathFactory.create(rootPath, "a/failed.jar")
+
+        localRepo.getKey() >> repoName
+        localRepo.isCache() >> true
+
+        repositoryService.localOrCachedRepositoryByKey(repoName) >> localRepo
+
+        this.transactionManager = new RecordingTransactionManager()
+        def filledFiles = ConcurrentHashMap.newKeySet()
+        def errorFiles = ConcurrentHashMap.newKeySet()
+        def interceptedFiles = ConcurrentHashMap.newKeySet()
+
+        localRepo.createOrGetFolder(_) >> { RepoPath repoPath -> importedFolder(repoPath) }
+        localRepo.createOrGetFile(_) >> { RepoPath repoPath ->
+            importedFile(repoPath, [
+                    fillBinaryData: {
+                        if (repoPath == failedRepoPath) {
+                            throw new RuntimeException("Disk failure")
+                        }
+                        filledFiles << repoPath
+                    },
+                    markError     : { errorFiles << repoPath }])
+        }
+        localRepo.getImmutableFsItem(_) >> { RepoPath repoPath -> importedFile(repoPath) }
+        importInterceptors.afterImport(_, _) >> { VfsItem item, status -> interceptedFiles << item.repoPath }
+
+        def handler = new DbRepoImportHandler(localRepo, importSettings, "")
+
+        when:
+
+        handler.executeImport()
+
+        then:
+
+        def importedRepoPaths = ["a/1.jar", "b/1.jar"].collect { InternalRepoPathFactory.create(rootPath, it) } as Set
+        errorFiles == [failedRepoPath] as Set
+        filledFiles == importedRepoPaths
+        interceptedFiles == importedRepoPaths
+        importSettings.getStatusHolder().getErrors()*.message.any { it.contains("Could not import file") }
+    }
+
+    def "Roll back the files of a failed commit and import the other files"() {
+        setup:
+
+        def filenames = ["a/1.jar", "b/1.jar", "c/1.jar"]
+        makeFiles(filenames as String[])
+        artifactoryHomeStub.setProperty(ConstantValues.importMaxParallelFolders, "4")
+        def importSettings = new RepositoryImportSettingsImpl(repoRoot)
+
+        def localRepo = Mock(LocalRepo)
+
+        def repoName = "test-repo"
+        def rootPath = InternalRepoPathFactory.repoRootPath(repoName)
+        def failedRepoPath = InternalRepoPathFactory.create(rootPath, "b/1.jar")
+
+        localRepo.getKey() >> repoName
+        localRepo.isCache() >> true
+
+        repositoryService.localOrCachedRepositoryByKey(repoName) >> localRepo
+
+        def transactionManager = new RecordingTransactionManager()
+        this.transactionManager = transactionManager
+        def fileTransactions = new ConcurrentHashMap<RepoPath, Integer>()
+        def interceptedFiles = ConcurrentHashMap.newKeySet()
+
+        localRepo.createOrGetFolder(_) >> { RepoPath repoPath -> importedFolder(repoPath) }
+        localRepo.getImmutableFsItem(_) >> { RepoPath repoPath -> importedFile(repoPath) }
+        importInterceptors.afterImport(_, _) >> { VfsItem item, status -> interceptedFiles << item.repoPath }
+        localRepo.createOrGetFile(_) >> { RepoPath repoPath ->
+            fileTransactions[repoPath] = transactionManager.currentTransaction()
+            if (repoPath == failedRepoPath) {
+                transactionManager.failCommit()
+            }
+            importedFile(repoPath)
+        }
+
+        def handler = new DbRepoImportHandler(localRepo, importSettings, "")
+
+        when:
+
+        handler.executeImport()
+
+        then:
+
+        fileTransactions.size() == 3
+        transactionManager.rolledBack == [fileTransactions[failedRepoPath]] as Set
+        fileTransactions.findAll { it.key != failedRepoPath }.values().every { transactionManager.committed.contains(it) }
+        // the interceptors are not called for the rolled back file
+        interceptedFiles == fileTransactions.keySet().findAll { it != failedRepoPath } as Set
+        importSettings.getStatusHolder().getErrors()*.message.any {
+            it.startsWith("Failed to import the files of '" + failedRepoPath.parent + "'")
+        }
+    }
+
     @Ignore
     def "Test termination if parent task terminates"() {}
 
@@ -250,8 +483,10 @@ class DbRepoImportHandlerSpec extends Specification {
         artifactoryContext = Mock(InternalArtifactoryContext)
         ArtifactoryContextThreadBinder.bind(artifactoryContext)
 
-        def artifactoryHomeStub = new ArtifactoryHomeStub()
+        artifactoryHomeStub = new ArtifactoryHomeStub()
         artifactoryHomeStub.mimeTypes = mimeTypes
+        // the files are imported by the walking thread unless a feature imports them in parallel
+        artifactoryHomeStub.setProperty(ConstantValues.importMaxParallelFolders, "1")
         ArtifactoryHome.bind(artifactoryHomeStub)
 
         setupContext(artifactoryContext)
@@ -264,8 +499,10 @@ class DbRepoImportHandlerSpec extends Specification {
         mavenMetadataService = Mock(MavenMetadataService)
         context.beanForType(MavenMetadataService.class) >> this.mavenMetadataService
 
+        context.getArtifactoryHome() >> this.artifactoryHomeStub
+
         transactionManager = Mock(AbstractPlatformTransactionManager)
-        context.getBean("artifactoryTransactionManager") >> this.transactionManager
+        context.getBean("artifactoryTransactionManager") >> { this.transactionManager }
 
         transactionManagerLog = Mock(Log)
         this.transactionManager.logger = this.transactionManagerLog
@@ -285,12 +522,90 @@ class DbRepoImportHandlerSpec extends Specification {
 
         aggregationInterceptors = Mock(StorageAggregationInterceptors)
         context.beanForType(StorageAggregationInterceptors.class) >> this.aggregationInterceptors
+
+        executor = new CachedThreadPoolTaskExecutor()
+        context.beanForType(CachedThreadPoolTaskExecutor.class) >> this.executor
     }
 
     def makeFiles(String... filenames) {
         filenames.each {
             def path = Paths.get(repoRoot.absolutePath, it)
+            Files.createParentDirs(path.toFile())
             Files.touch(path.toFile())
         }
     }
+
+    def importedFolder(RepoPath repoPath) {
+        [getRepoPath: { repoPath }, markError: {}] as MutableVfsFolder
+    }
+
+    def importedFile(RepoPath repoPath, Map<String, Closure> overrides = [:]) {
+        ([getRepoPath           : { repoPath },
+          getSha1               : { EMPTY_FILE_SHA1 },
+          getMd5                : { EMPTY_FILE_MD5 },
+          length                : { 0L },
+          setCreatedBy          : {},
+          setModifiedBy         : {},
+          setModified           : {},
+          setUpdated            : {},
+          tryUsingExistingBinary: { sha1, md5, length -> false },
+          fillBinaryData        : {},
+          markError             : {}] + overrides) as MutableVfsFile
+    }
+
+    /**
+     * Transaction manager of transactions bound to the thread that started them, which records the committed and the
+     * rolled back transactions
+     */
+    static class RecordingTransactionManager extends AbstractPlatformTransactionManager {
+        private final ThreadLocal<Transaction> current = new ThreadLocal<>()
+        private final AtomicInteger ids = new AtomicInteger()
+        final Set<Integer> committed = ConcurrentHashMap.newKeySet()
+        final Set<Integer> rolledBack = ConcurrentHashMap.newKeySet()
+
+        RecordingTransactionManager() {
+            // the synchronizations are thread bound and not needed by the import
+            transactionSynchronization = SYNCHRONIZATION_NEVER
+            rollbackOnCommitFailure = true
+        }
+
+        Integer currentTransaction() {
+            current.get()?.id
+        }
+
+        void failCommit() {
+            current.get().failCommit = true
+        }
+
+        @Override
+        protected Object doGetTransaction() {
+            new Transaction(id: ids.incrementAndGet())
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            current.set((Transaction) transaction)
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            Transaction transaction = (Transaction) status.transaction
+            if (transaction.failCommit) {
+                throw new TransactionSystemException("Commit of transaction " + transaction.id + " failed")
+            }
+            current.remove()
+            committed << transaction.id
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+            current.remove()
+            rolledBack << ((Transaction) status.transaction).id
+        }
+
+        static class Transaction {
+            int id
+            boolean failCommit
+        }
+    }
 }
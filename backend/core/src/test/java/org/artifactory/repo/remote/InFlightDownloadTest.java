@@ -0,0 +1,178 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.repo.remote;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.artifactory.resource.ResourceStreamHandle;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the {@link InFlightDownload} tee of a download to concurrent readers.
+ */
+@Test
+public class InFlightDownloadTest {
+
+    private File spoolDir;
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void setUp() {
+        spoolDir = Files.createTempDir();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        FileUtils.deleteDirectory(spoolDir);
+    }
+
+    public void readersGetTheContentWhileItIsDownloaded() throws Exception {
+        byte[] content = randomContent(200 * 1024);
+        InFlightDownload download = new InFlightDownload("repo/a.jar", spoolDir, content.length);
+        InputStream tee = download.tee(new ByteArrayInputStream(content));
+        // The reader joins after the first bytes were read by the downloader
+        byte[] head = new byte[1000];
+        assertEquals(tee.read(head), head.length);
+
+        ResourceStreamHandle handle = download.join(5000);
+        assertNotNull(handle);
+        assertEquals(handle.getSize(), content.length);
+        Future<byte[]> reader = executor.submit(() -> IOUtils.toByteArray(handle.getInputStream()));
+
+        IOUtils.toByteArray(tee);
+        tee.close();
+        // The reader doesn't reach the end of the stream before the download is saved
+        assertFalse(waitFor(reader, 200));
+        download.complete();
+        download.release();
+
+        assertEquals(reader.get(5, TimeUnit.SECONDS), content);
+        handle.close();
+        assertFalse(download.getSpoolFile().exists(), "Spool file should be deleted after the last reader closed");
+    }
+
+    public void readerJoinsBeforeTheRemoteRequestStarted() throws Exception {
+        byte[] content = randomContent(50 * 1024);
+        // The download is registered before the remote request, the reader waits for the first bytes
+        InFlightDownload download = new InFlightDownload("repo/f.jar", spoolDir, content.length);
+        Future<byte[]> reader = executor.submit(() -> {
+            ResourceStreamHandle handle = download.join(5000);
+            assertNotNull(handle);
+            try {
+                return IOUtils.toByteArray(handle.getInputStream());
+            } finally {
+                handle.close();
+            }
+        });
+        assertFalse(waitFor(reader, 100));
+
+        InputStream tee = download.tee(new ByteArrayInputStream(content));
+        IOUtils.toByteArray(tee);
+        tee.close();
+        download.complete();
+        download.release();
+
+        assertEquals(reader.get(5, TimeUnit.SECONDS), content);
+        assertFalse(download.getSpoolFile().exists());
+    }
+
+    public void readerFailsWhenTheDownloadFails() throws Exception {
+        byte[] content = randomContent(10 * 1024);
+        InFlightDownload download = new InFlightDownload("repo/b.jar", spoolDir, -1);
+        InputStream tee = download.tee(new ByteArrayInputStream(content));
+        assertEquals(tee.read(new byte[100]), 100);
+        tee.close();
+        ResourceStreamHandle handle = download.join(5000);
+        assertNotNull(handle);
+
+        download.fail(new IOException("Connection reset"));
+        download.release();
+        try {
+            IOUtils.toByteArray(handle.getInputStream());
+            fail("Reader should fail when the download fails");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Connection reset"), e.getMessage());
+        }
+        handle.close();
+        assertFalse(download.getSpoolFile().exists());
+    }
+
+    public void joinFallsBackWhenTheDownloadFailsBeforeAnyContent() throws Exception {
+        InFlightDownload download = new InFlightDownload("repo/c.jar", spoolDir, -1);
+        Future<ResourceStreamHandle> joining = executor.submit(() -> download.join(5000));
+        download.fail(new IOException("Not found"));
+        assertNull(joining.get(5, TimeUnit.SECONDS));
+        download.release();
+        assertFalse(download.getSpoolFile().exists());
+    }
+
+    public void joinFallsBackOnTimeout() throws Exception {
+        InFlightDownload download = new InFlightDownload("repo/d.jar", spoolDir, -1);
+        assertNull(download.join(50));
+        download.release();
+        assertNull(download.join(5000), "Released download cannot be joined");
+    }
+
+    public void emptyDownload() throws Exception {
+        InFlightDownload download = new InFlightDownload("repo/e.txt", spoolDir, 0);
+        InputStream tee = download.tee(new ByteArrayInputStream(new byte[0]));
+        assertEquals(tee.read(), -1);
+        tee.close();
+        download.complete();
+        ResourceStreamHandle handle = download.join(5000);
+        assertNotNull(handle);
+        assertEquals(handle.getInputStream().read(), -1);
+        handle.close();
+        download.release();
+        assertFalse(download.getSpoolFile().exists());
+    }
+
+    private boolean waitFor(Future<?> future, long millis) throws Exception {
+        try {
+            future.get(millis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    private byte[] randomContent(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+}
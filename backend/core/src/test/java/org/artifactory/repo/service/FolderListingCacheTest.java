@@ -0,0 +1,162 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.repo.service;
+
+import com.google.common.collect.Lists;
+import org.artifactory.fs.ItemInfo;
+import org.artifactory.repo.InternalRepoPathFactory;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.storage.fs.VfsItemNotFoundException;
+import org.artifactory.storage.fs.service.FileService;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.easymock.EasyMock.*;
+import static org.testng.Assert.*;
+
+/**
+ * Tests the {@link FolderListingCache}.
+ */
+@Test
+public class FolderListingCacheTest {
+
+    private final RepoPath folder = InternalRepoPathFactory.create("libs", "org/jfrog");
+    private final RepoPath subFolder = InternalRepoPathFactory.create("libs", "org/jfrog/lib");
+    private final RepoPath file = InternalRepoPathFactory.create("libs", "org/jfrog/a.jar");
+    private FileService fileService;
+    private ItemInfo folderInfo;
+    private ItemInfo subFolderInfo;
+    private List<ItemInfo> children;
+
+    @BeforeMethod
+    public void setUp() {
+        fileService = createMock(FileService.class);
+        folderInfo = createItem(true);
+        subFolderInfo = createItem(true);
+        children = Lists.newArrayList(createItem(false), subFolderInfo);
+    }
+
+    public void listingIsLoadedOnce() {
+        expectListing(folder, folderInfo, children, 1);
+        replay(fileService);
+        FolderListingCache cache = new FolderListingCache(fileService, 100, 60);
+
+        FolderListingCache.FolderListing listing = cache.getListing(folder);
+        assertNotNull(listing);
+        assertSame(listing.getItem(), folderInfo);
+        assertEquals(listing.getChildren(), children);
+        assertSame(cache.getListing(folder), listing);
+        verify(fileService);
+    }
+
+    public void childChangeInvalidatesTheParentListing() {
+        expectListing(folder, folderInfo, children, 2);
+        replay(fileService);
+        FolderListingCache cache = new FolderListingCache(fileService, 100, 60);
+
+        FolderListingCache.FolderListing listing = cache.getListing(folder);
+        cache.invalidate(file, false);
+        assertNotSame(cache.getListing(folder), listing);
+        verify(fileService);
+    }
+
+    public void folderChangeInvalidatesTheDescendantsListings() {
+        RepoPath parent = InternalRepoPathFactory.create("libs", "org");
+        ItemInfo parentInfo = createItem(true);
+        expectListing(parent, parentInfo, Lists.newArrayList(folderInfo), 2);
+        expectListing(subFolder, subFolderInfo, Lists.<ItemInfo>newArrayList(), 2);
+        replay(fileService);
+        FolderListingCache cache = new FolderListingCache(fileService, 100, 60);
+
+        FolderListingCache.FolderListing parentListing = cache.getListing(parent);
+        FolderListingCache.FolderListing subFolderListing = cache.getListing(subFolder);
+        cache.invalidate(folder, true);
+        assertNotSame(cache.getListing(subFolder), subFolderListing);
+        // the parent of the folder is reloaded as well
+        assertNotSame(cache.getListing(parent), parentListing);
+        verify(fileService);
+    }
+
+    public void folderChangeKeepsTheListingsOutsideTheFolder() {
+        // shares the path prefix of the folder without being its descendant
+        RepoPath sibling = InternalRepoPathFactory.create("libs", "org/jfrog2");
+        RepoPath otherRepoFolder = InternalRepoPathFactory.create("libs-other", "org/jfrog/lib");
+        expectListing(subFolder, subFolderInfo, Lists.<ItemInfo>newArrayList(), 2);
+        expectListing(sibling, createItem(true), Lists.<ItemInfo>newArrayList(), 1);
+        expectListing(otherRepoFolder, createItem(true), Lists.<ItemInfo>newArrayList(), 1);
+        replay(fileService);
+        FolderListingCache cache = new FolderListingCache(fileService, 100, 60);
+
+        FolderListingCache.FolderListing subFolderListing = cache.getListing(subFolder);
+        FolderListingCache.FolderListing siblingListing = cache.getListing(sibling);
+        FolderListingCache.FolderListing otherRepoListing = cache.getListing(otherRepoFolder);
+        cache.invalidate(folder, true);
+        assertNotSame(cache.getListing(subFolder), subFolderListing);
+        assertSame(cache.getListing(sibling), siblingListing);
+        assertSame(cache.getListing(otherRepoFolder), otherRepoListing);
+        verify(fileService);
+    }
+
+    public void invalidatedListingsAreUnindexed() {
+        expectListing(folder, folderInfo, children, 1);
+        expectListing(subFolder, subFolderInfo, Lists.<ItemInfo>newArrayList(), 1);
+        replay(fileService);
+        FolderListingCache cache = new FolderListingCache(fileService, 100, 60);
+
+        cache.getListing(folder);
+        cache.getListing(subFolder);
+        assertEquals(cache.indexedPathsCount(), 2);
+        cache.invalidate(folder, true);
+        assertEquals(cache.indexedPathsCount(), 0);
+        verify(fileService);
+    }
+
+    public void missingItemIsNotCached() {
+        expect(fileService.loadItem(folder)).andThrow(new VfsItemNotFoundException("Not found")).times(2);
+        replay(fileService);
+        FolderListingCache cache = new FolderListingCache(fileService, 100, 60);
+
+        assertNull(cache.getListing(folder));
+        assertNull(cache.getListing(folder));
+        verify(fileService);
+    }
+
+    public void disabledCacheAlwaysLoads() {
+        expectListing(folder, folderInfo, children, 2);
+        replay(fileService);
+        FolderListingCache cache = new FolderListingCache(fileService, 0, 60);
+
+        assertNotSame(cache.getListing(folder), cache.getListing(folder));
+        verify(fileService);
+    }
+
+    private void expectListing(RepoPath repoPath, ItemInfo item, List<ItemInfo> itemChildren, int times) {
+        expect(fileService.loadItem(repoPath)).andReturn(item).times(times);
+        expect(fileService.loadChildren(repoPath)).andReturn(itemChildren).times(times);
+    }
+
+    private ItemInfo createItem(boolean folder) {
+        ItemInfo item = createMock(ItemInfo.class);
+        expect(item.isFolder()).andReturn(folder).anyTimes();
+        replay(item);
+        return item;
+    }
+}
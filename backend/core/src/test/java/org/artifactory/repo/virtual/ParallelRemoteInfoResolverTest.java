@@ -0,0 +1,183 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.repo.virtual;
+
+import com.google.common.collect.Lists;
+import org.artifactory.fs.RepoResource;
+import org.artifactory.repo.RealRepo;
+import org.artifactory.request.RepoRequests;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.easymock.EasyMock.*;
+import static org.testng.Assert.*;
+
+/**
+ * Tests the {@link ParallelRemoteInfoResolver}.
+ */
+@Test
+public class ParallelRemoteInfoResolverTest {
+
+    private ExecutorService pool;
+    private List<RealRepo> repos;
+    private Map<RealRepo, RepoResource> resources;
+    private Map<RealRepo, Thread> lookupThreads;
+
+    @BeforeMethod
+    public void setUp() {
+        pool = Executors.newFixedThreadPool(3);
+        repos = Lists.newArrayList();
+        resources = new ConcurrentHashMap<>();
+        lookupThreads = new ConcurrentHashMap<>();
+        for (int i = 0; i < 3; i++) {
+            RealRepo repo = createMock(RealRepo.class);
+            expect(repo.getKey()).andReturn("remote" + i).anyTimes();
+            RepoResource resource = createMock(RepoResource.class);
+            replay(repo, resource);
+            repos.add(repo);
+            resources.put(repo, resource);
+        }
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    public void lookupsRunInParallel() {
+        // Each lookup waits for all the others to start, sequential lookups would time out
+        CountDownLatch started = new CountDownLatch(repos.size());
+        ParallelRemoteInfoResolver resolver = new ParallelRemoteInfoResolver(repos, repo -> {
+            started.countDown();
+            return awaitQuietly(started) ? lookup(repo) : null;
+        }, new ConcurrentTaskExecutor(pool));
+
+        for (RealRepo repo : repos) {
+            assertSame(resolver.getInfo(repo), resources.get(repo));
+        }
+        resolver.close();
+    }
+
+    public void callerRunsLookupsThatWereNotStarted() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        try {
+            // Occupy the only pool thread
+            singleThread.submit(() -> awaitQuietly(release));
+            ParallelRemoteInfoResolver resolver = new ParallelRemoteInfoResolver(repos, this::lookup,
+                    new ConcurrentTaskExecutor(singleThread));
+            for (RealRepo repo : repos) {
+                assertSame(resolver.getInfo(repo), resources.get(repo));
+                assertSame(lookupThreads.get(repo), Thread.currentThread());
+            }
+            resolver.close();
+        } finally {
+            release.countDown();
+            singleThread.shutdown();
+        }
+        assertTrue(singleThread.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(lookupThreads.size(), repos.size(), "Queued lookups must not run again");
+    }
+
+    public void closeCancelsTheRemainingLookups() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        singleThread.submit(() -> awaitQuietly(release));
+        ParallelRemoteInfoResolver resolver = new ParallelRemoteInfoResolver(repos, this::lookup,
+                new ConcurrentTaskExecutor(singleThread));
+
+        RealRepo winner = repos.get(0);
+        assertSame(resolver.getInfo(winner), resources.get(winner));
+        resolver.cancel(repos.get(1));
+        resolver.close();
+        release.countDown();
+        singleThread.shutdown();
+        assertTrue(singleThread.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(lookupThreads.keySet().size(), 1, "Only the consumed lookup should run");
+        assertTrue(lookupThreads.containsKey(winner));
+    }
+
+    public void lookupFailureIsPropagatedToTheCaller() {
+        Function<RealRepo, RepoResource> failing = repo -> {
+            throw new IllegalStateException("Failed " + repo.getKey());
+        };
+        ParallelRemoteInfoResolver resolver = new ParallelRemoteInfoResolver(repos, failing,
+                new ConcurrentTaskExecutor(pool));
+        try {
+            resolver.getInfo(repos.get(1));
+            fail("Expected the lookup failure");
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "Failed remote1");
+        } finally {
+            resolver.close();
+        }
+    }
+
+    public void lookupLogIsReplayedOnTheCallerThread() {
+        CountDownLatch started = new CountDownLatch(repos.size());
+        ParallelRemoteInfoResolver resolver = new ParallelRemoteInfoResolver(repos, repo -> {
+            started.countDown();
+            awaitQuietly(started);
+            RepoRequests.logToContext("Looked up %s on %s", repo.getKey(), Thread.currentThread().getName());
+            return lookup(repo);
+        }, new ConcurrentTaskExecutor(pool));
+
+        // the caller log is captured in place of the request log
+        List<String> requestLog = Lists.newArrayList();
+        RepoRequests.captureLog(requestLog, () -> {
+            for (RealRepo repo : repos) {
+                resolver.getInfo(repo);
+            }
+            resolver.close();
+            return null;
+        });
+
+        // at least two of the lookups ran on pool threads, their messages are in the request log in the repos order
+        assertEquals(requestLog.size(), repos.size());
+        for (int i = 0; i < repos.size(); i++) {
+            RealRepo repo = repos.get(i);
+            assertEquals(requestLog.get(i), "Looked up " + repo.getKey() + " on " + lookupThreads.get(repo).getName());
+        }
+    }
+
+    private RepoResource lookup(RealRepo repo) {
+        lookupThreads.put(repo, Thread.currentThread());
+        return resources.get(repo);
+    }
+
+    private boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
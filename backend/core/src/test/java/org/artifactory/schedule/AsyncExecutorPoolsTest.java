@@ -0,0 +1,166 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.artifactory.schedule;
+
+import org.artifactory.api.context.ArtifactoryContextThreadBinder;
+import org.artifactory.api.repo.AsyncPool;
+import org.artifactory.spring.InternalArtifactoryContext;
+import org.artifactory.test.ArtifactoryHomeBoundTest;
+import org.artifactory.test.mock.MockUtils;
+import org.easymock.EasyMock;
+import org.springframework.core.task.TaskRejectedException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the bounds, rejection policies and metrics of the named {@link AsyncPool} executors.
+ */
+@Test
+public class AsyncExecutorPoolsTest extends ArtifactoryHomeBoundTest {
+
+    private CachedThreadPoolTaskExecutor executor;
+    private CountDownLatch started;
+    private CountDownLatch release;
+
+    @BeforeMethod
+    public void setUp() {
+        InternalArtifactoryContext context = MockUtils.getThreadBoundedMockContext();
+        EasyMock.expect(context.getArtifactoryHome()).andReturn(getOrCreateArtifactoryHomeStub()).anyTimes();
+        EasyMock.replay(context);
+        started = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.destroy();
+            executor = null;
+        }
+        ArtifactoryContextThreadBinder.unbind();
+    }
+
+    public void poolSettingsFromProperties() {
+        getBound().setProperty("artifactory.async.pool.metadata.threads", "3")
+                .setProperty("artifactory.async.pool.metadata.queueSize", "7");
+        executor = new CachedThreadPoolTaskExecutor(AsyncPool.METADATA);
+        ArtifactoryConcurrentExecutor pool = getPool();
+        assertEquals(pool.getPoolName(), "metadata");
+        assertEquals(pool.getMaximumPoolSize(), 3);
+        assertEquals(pool.getQueueRemainingCapacity(), 7);
+    }
+
+    public void metadataPoolDefaults() {
+        executor = new CachedThreadPoolTaskExecutor(AsyncPool.METADATA);
+        assertEquals(getPool().getMaximumPoolSize(), Runtime.getRuntime().availableProcessors() * 4);
+        assertEquals(AsyncPool.METADATA.getRejection(), AsyncPool.Rejection.WAIT);
+    }
+
+    public void abortRejectsWhenTheQueueIsFull() throws Exception {
+        executor = createSingleThreadPool("abort");
+        Future<String> running = executor.submit(this::blockingTask);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> queued = executor.submit(() -> "queued");
+        try {
+            executor.submit(() -> "rejected");
+            fail("Expected the task to be rejected");
+        } catch (TaskRejectedException e) {
+            // expected
+        }
+        assertEquals(getPool().getRejectedTaskCount(), 1);
+        release.countDown();
+        assertEquals(running.get(5, TimeUnit.SECONDS), "running");
+        assertEquals(queued.get(5, TimeUnit.SECONDS), "queued");
+    }
+
+    public void discardCancelsTheNewTask() throws Exception {
+        executor = createSingleThreadPool("discard");
+        executor.submit(this::blockingTask);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> queued = executor.submit(() -> "queued");
+        Future<String> discarded = executor.submit(() -> "discarded");
+        assertTrue(discarded.isCancelled());
+        assertEquals(getPool().getQueueSize(), 1);
+
+        Thread.sleep(50);
+        release.countDown();
+        assertEquals(queued.get(5, TimeUnit.SECONDS), "queued");
+        assertEquals(getPool().getRejectedTaskCount(), 1);
+        assertTrue(getPool().getMaxWaitMillis() >= 40, "The queued task waited for the running one");
+    }
+
+    public void discardOldestCancelsTheOldestQueuedTask() throws Exception {
+        executor = createSingleThreadPool("discard_oldest");
+        executor.submit(this::blockingTask);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> oldest = executor.submit(() -> "oldest");
+        Future<String> newest = executor.submit(() -> "newest");
+        assertTrue(oldest.isCancelled());
+        release.countDown();
+        assertEquals(newest.get(5, TimeUnit.SECONDS), "newest");
+        assertEquals(getPool().getRejectedTaskCount(), 1);
+    }
+
+    public void waitBlocksTheSubmitterUntilTheQueueHasRoom() throws Exception {
+        executor = createSingleThreadPool("wait");
+        Future<String> running = executor.submit(this::blockingTask);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> queued = executor.submit(() -> "queued");
+        CountDownLatch submitted = new CountDownLatch(1);
+        AtomicReference<Future<String>> waited = new AtomicReference<>();
+        Thread submitter = new Thread(() -> {
+            waited.set(executor.submit(() -> "waited"));
+            submitted.countDown();
+        });
+        submitter.start();
+        assertFalse(submitted.await(100, TimeUnit.MILLISECONDS), "The submitter should wait for room in the queue");
+
+        release.countDown();
+        assertTrue(submitted.await(5, TimeUnit.SECONDS));
+        assertEquals(running.get(5, TimeUnit.SECONDS), "running");
+        assertEquals(queued.get(5, TimeUnit.SECONDS), "queued");
+        assertEquals(waited.get().get(5, TimeUnit.SECONDS), "waited");
+        assertEquals(getPool().getRejectedTaskCount(), 1);
+    }
+
+    private CachedThreadPoolTaskExecutor createSingleThreadPool(String rejection) {
+        getBound().setProperty("artifactory.async.pool.indexing.threads", "1")
+                .setProperty("artifactory.async.pool.indexing.queueSize", "1")
+                .setProperty("artifactory.async.pool.indexing.rejection", rejection);
+        return new CachedThreadPoolTaskExecutor(AsyncPool.INDEXING);
+    }
+
+    private ArtifactoryConcurrentExecutor getPool() {
+        return (ArtifactoryConcurrentExecutor) executor.getConcurrentExecutor();
+    }
+
+    private String blockingTask() throws InterruptedException {
+        started.countDown();
+        assertTrue(release.await(5, TimeUnit.SECONDS));
+        return "running";
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.schedule.aop;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.artifactory.api.context.ArtifactoryContextThreadBinder;
+import org.artifactory.api.repo.Async;
+import org.artifactory.api.repo.AsyncPool;
+import org.artifactory.schedule.AsyncExecutorPools;
+import org.artifactory.schedule.CachedThreadPoolTaskExecutor;
+import org.artifactory.spring.InternalArtifactoryContext;
+import org.artifactory.storage.fs.session.StorageSession;
+import org.artifactory.storage.fs.session.StorageSessionHolder;
+import org.artifactory.test.ArtifactoryHomeBoundTest;
+import org.artifactory.test.mock.MockUtils;
+import org.easymock.EasyMock;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the routing of {@link Async} invocations to their {@link AsyncPool}.
+ */
+@Test
+public class AsyncAdviceTest extends ArtifactoryHomeBoundTest {
+
+    private AsyncExecutorPools pools;
+    private AsyncService service;
+    private List<String> calls;
+    private CountDownLatch completed;
+
+    @BeforeMethod
+    public void setUp() {
+        InternalArtifactoryContext context = MockUtils.getThreadBoundedMockContext();
+        EasyMock.expect(context.getArtifactoryHome()).andReturn(getOrCreateArtifactoryHomeStub()).anyTimes();
+        pools = new AsyncExecutorPools(new CachedThreadPoolTaskExecutor());
+        EasyMock.expect(context.beanForType(AsyncExecutorPools.class)).andReturn(pools).anyTimes();
+        EasyMock.replay(context);
+        calls = Collections.synchronizedList(Lists.<String>newArrayList());
+        ProxyFactory proxyFactory = new ProxyFactory(new AsyncServiceImpl());
+        proxyFactory.addAdvice(new AsyncAdvice());
+        service = (AsyncService) proxyFactory.getProxy();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        StorageSessionHolder.removeSession();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        pools.destroy();
+        pools.getExecutor(AsyncPool.DEFAULT).destroy();
+        ArtifactoryContextThreadBinder.unbind();
+    }
+
+    public void invocationsRunOnTheSelectedPool() throws Exception {
+        assertTrue(service.index().get(5, TimeUnit.SECONDS).startsWith("art-indexing-"));
+        assertTrue(service.calculate().get(5, TimeUnit.SECONDS).startsWith("art-metadata-"));
+        assertTrue(service.run().get(5, TimeUnit.SECONDS).startsWith("art-exec-"));
+    }
+
+    public void sharedAfterCommitInvocationsRunInOrderOnTheirPool() throws Exception {
+        AsyncAdvice.MethodCallbackSessionResource resource = beginTransaction(3);
+        service.indexAfterCommit("first");
+        service.indexAfterCommit("second");
+        service.calculateAlone("alone");
+        assertTrue(calls.isEmpty(), "Nothing runs before the commit");
+
+        commit(resource);
+
+        List<String> indexed = callsOf("index");
+        assertEquals(names(indexed), ImmutableList.of("first", "second"));
+        assertTrue(thread(indexed.get(0)).startsWith("art-indexing-"));
+        assertEquals(thread(indexed.get(1)), thread(indexed.get(0)), "Shared invocations run as one task");
+        assertTrue(thread(callsOf("alone").get(0)).startsWith("art-metadata-"));
+    }
+
+    public void sharedAfterCommitInvocationsOfDifferentPoolsRunInOrderOnTheDefaultPool() throws Exception {
+        AsyncAdvice.MethodCallbackSessionResource resource = beginTransaction(3);
+        service.indexAfterCommit("first");
+        service.calculateAfterCommit("second");
+        service.indexAfterCommit("third");
+
+        commit(resource);
+
+        assertEquals(names(calls), ImmutableList.of("first", "second", "third"));
+        String thread = thread(calls.get(0));
+        assertTrue(thread.startsWith("art-exec-"), thread);
+        for (String call : calls) {
+            assertEquals(thread(call), thread, "Shared invocations run as one task");
+        }
+    }
+
+    public void rolledBackInvocationsAreNotSubmitted() throws Exception {
+        AsyncAdvice.MethodCallbackSessionResource resource = beginTransaction(1);
+        service.indexAfterCommit("first");
+        service.calculateAlone("alone");
+
+        TransactionSynchronizationManager.clearSynchronization();
+        resource.afterCompletion(false);
+
+        assertFalse(completed.await(200, TimeUnit.MILLISECONDS));
+        assertTrue(calls.isEmpty());
+    }
+
+    private AsyncAdvice.MethodCallbackSessionResource beginTransaction(int expectedCalls) {
+        completed = new CountDownLatch(expectedCalls);
+        TransactionSynchronizationManager.initSynchronization();
+        AsyncAdvice.MethodCallbackSessionResource resource = new AsyncAdvice.MethodCallbackSessionResource();
+        StorageSession session = EasyMock.createMock(StorageSession.class);
+        EasyMock.expect(session.getOrCreateResource(AsyncAdvice.MethodCallbackSessionResource.class))
+                .andReturn(resource).anyTimes();
+        EasyMock.replay(session);
+        StorageSessionHolder.setSession(session);
+        return resource;
+    }
+
+    private void commit(AsyncAdvice.MethodCallbackSessionResource resource) throws InterruptedException {
+        TransactionSynchronizationManager.clearSynchronization();
+        resource.afterCompletion(true);
+        assertTrue(completed.await(5, TimeUnit.SECONDS), "Not all the invocations completed: " + calls);
+    }
+
+    private List<String> callsOf(String prefix) {
+        List<String> result = Lists.newArrayList();
+        for (String call : calls) {
+            if (call.startsWith(prefix)) {
+                result.add(call);
+            }
+        }
+        return result;
+    }
+
+    private static List<String> names(List<String> calls) {
+        List<String> names = Lists.newArrayList();
+        for (String call : calls) {
+            names.add(call.substring(call.indexOf(':') + 1, call.indexOf('@')));
+        }
+        return names;
+    }
+
+    private static String thread(String call) {
+        return call.substring(call.indexOf('@') + 1);
+    }
+
+    public interface AsyncService {
+        @Async(pool = AsyncPool.INDEXING)
+        Future<String> index();
+
+        @Async(pool = AsyncPool.METADATA)
+        Future<String> calculate();
+
+        @Async
+        Future<String> run();
+
+        @Async(delayUntilAfterCommit = true, pool = AsyncPool.INDEXING)
+        void indexAfterCommit(String name);
+
+        @Async(delayUntilAfterCommit = true, pool = AsyncPool.METADATA)
+        void calculateAfterCommit(String name);
+
+        @Async(delayUntilAfterCommit = true, shared = false, pool = AsyncPool.METADATA)
+        void calculateAlone(String name);
+    }
+
+    private class AsyncServiceImpl implements AsyncService {
+        @Override
+        public Future<String> index() {
+            return CompletableFuture.completedFuture(Thread.currentThread().getName());
+        }
+
+        @Override
+        public Future<String> calculate() {
+            return CompletableFuture.completedFuture(Thread.currentThread().getName());
+        }
+
+        @Override
+        public Future<String> run() {
+            return CompletableFuture.completedFuture(Thread.currentThread().getName());
+        }
+
+        @Override
+        public void indexAfterCommit(String name) {
+            record("index:" + name);
+        }
+
+        @Override
+        public void calculateAfterCommit(String name) {
+            record("calculate:" + name);
+        }
+
+        @Override
+        public void calculateAlone(String name) {
+            record("alone:" + name);
+        }
+
+        private void record(String call) {
+            calls.add(call + "@" + Thread.currentThread().getName());
+            completed.countDown();
+        }
+    }
+}
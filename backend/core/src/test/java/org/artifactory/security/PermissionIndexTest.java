@@ -0,0 +1,126 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.security;
+
+import com.google.common.collect.Sets;
+import org.artifactory.factory.InfoFactory;
+import org.artifactory.factory.InfoFactoryHolder;
+import org.artifactory.test.ArtifactoryHomeBoundTest;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests the {@link PermissionIndex}.
+ */
+@Test
+public class PermissionIndexTest extends ArtifactoryHomeBoundTest {
+    private InfoFactory factory = InfoFactoryHolder.get();
+
+    private final Set<ArtifactorySid> reader = Sets.newHashSet(new ArtifactorySid("reader", false));
+    private final Set<ArtifactorySid> deployers = Sets.newHashSet(new ArtifactorySid("someone", false),
+            new ArtifactorySid("deployers", true));
+
+    public void repoKeyAndPatterns() {
+        List<AclInfo> acls = Arrays.asList(
+                createAcl("libs", Arrays.asList("libs-release", "libs-snapshot"), "org/**", "org/secret/**",
+                        factory.createAce("reader", false, ArtifactoryPermission.READ.getMask())),
+                createAcl("deploy", Arrays.asList("libs-release"), "**", "",
+                        factory.createAce("deployers", true, ArtifactoryPermission.DEPLOY.getMask())));
+        PermissionIndex index = new PermissionIndex(acls, 100);
+
+        assertTrue(isGranted(index, "libs-release", "org/a/b.jar", ArtifactoryPermission.READ, reader));
+        assertTrue(isGranted(index, "libs-snapshot", "org/a/b.jar", ArtifactoryPermission.READ, reader));
+        assertFalse(isGranted(index, "libs-release", "com/a/b.jar", ArtifactoryPermission.READ, reader));
+        assertFalse(isGranted(index, "libs-release", "org/secret/b.jar", ArtifactoryPermission.READ, reader));
+        assertFalse(isGranted(index, "other", "org/a/b.jar", ArtifactoryPermission.READ, reader));
+        assertFalse(isGranted(index, "libs-release", "org/a/b.jar", ArtifactoryPermission.DEPLOY, reader));
+
+        assertTrue(isGranted(index, "libs-release", "com/a/b.jar", ArtifactoryPermission.DEPLOY, deployers));
+        assertFalse(isGranted(index, "libs-snapshot", "com/a/b.jar", ArtifactoryPermission.DEPLOY, deployers));
+        assertFalse(isGranted(index, "libs-release", "org/a/b.jar", ArtifactoryPermission.READ, deployers));
+    }
+
+    public void folderUsesStartMatch() {
+        List<AclInfo> acls = Arrays.asList(createAcl("libs", Arrays.asList("libs-release"), "org/jfrog/**", "",
+                factory.createAce("reader", false, ArtifactoryPermission.READ.getMask())));
+        PermissionIndex index = new PermissionIndex(acls, 0);
+        PermissionIndex.RepoKeys repoKeys = new PermissionIndex.RepoKeys("libs-release", "libs-release", true, false);
+
+        assertTrue(index.isGranted(repoKeys, "org", true, ArtifactoryPermission.READ, reader));
+        assertFalse(index.isGranted(repoKeys, "org", false, ArtifactoryPermission.READ, reader));
+    }
+
+    public void anyLocalAndAnyRemote() {
+        List<AclInfo> acls = Arrays.asList(
+                createAcl("local", Arrays.asList(PermissionTargetInfo.ANY_LOCAL_REPO), "**", "",
+                        factory.createAce("reader", false, ArtifactoryPermission.READ.getMask())),
+                createAcl("remote", Arrays.asList(PermissionTargetInfo.ANY_REMOTE_REPO), "**", "",
+                        factory.createAce("deployers", true, ArtifactoryPermission.DEPLOY.getMask())));
+        PermissionIndex index = new PermissionIndex(acls, 100);
+        assertTrue(index.hasAnyLocalOrRemoteAcls());
+
+        PermissionIndex.RepoKeys local = new PermissionIndex.RepoKeys("local", "local", true, false);
+        PermissionIndex.RepoKeys remote = new PermissionIndex.RepoKeys("remote", "remote-cache", false, true);
+        assertTrue(index.isGranted(local, "a/b", false, ArtifactoryPermission.READ, reader));
+        assertFalse(index.isGranted(remote, "a/b", false, ArtifactoryPermission.READ, reader));
+        assertTrue(index.isGranted(remote, "a/b", false, ArtifactoryPermission.DEPLOY, deployers));
+        assertFalse(index.isGranted(local, "a/b", false, ArtifactoryPermission.DEPLOY, deployers));
+    }
+
+    public void anyRepoWithExcludes() {
+        List<AclInfo> acls = Arrays.asList(createAcl("any", Arrays.asList(PermissionTargetInfo.ANY_REPO), "**",
+                "**/*.secret", factory.createAce("reader", false, ArtifactoryPermission.READ.getMask())));
+        PermissionIndex index = new PermissionIndex(acls, 100);
+        assertFalse(index.hasAnyLocalOrRemoteAcls());
+
+        assertTrue(isGranted(index, "whatever", "a/b.jar", ArtifactoryPermission.READ, reader));
+        assertFalse(isGranted(index, "whatever", "a/b.secret", ArtifactoryPermission.READ, reader));
+        // the cached decisions are per security identities
+        assertFalse(isGranted(index, "whatever", "a/b.jar", ArtifactoryPermission.READ, deployers));
+    }
+
+    public void indexOfTheSameAcls() {
+        List<AclInfo> acls = Arrays.asList(createAcl("any", Arrays.asList(PermissionTargetInfo.ANY_REPO), "**", "",
+                factory.createAce("reader", false, ArtifactoryPermission.READ.getMask())));
+        PermissionIndex index = new PermissionIndex(acls, 100);
+        assertTrue(index.isIndexOf(acls));
+        Collection<AclInfo> reloaded = Arrays.asList(acls.get(0));
+        assertFalse(index.isIndexOf(reloaded));
+    }
+
+    private boolean isGranted(PermissionIndex index, String repoKey, String path, ArtifactoryPermission permission,
+            Set<ArtifactorySid> sids) {
+        return index.isGranted(new PermissionIndex.RepoKeys(repoKey, repoKey, true, false), path, false, permission,
+                sids);
+    }
+
+    private AclInfo createAcl(String name, List<String> repoKeys, String includes, String excludes, AceInfo ace) {
+        MutablePermissionTargetInfo target = factory.createPermissionTarget(name, repoKeys);
+        target.setIncludesPattern(includes);
+        target.setExcludesPattern(excludes);
+        return factory.createAcl(target, Sets.newHashSet(ace), "me");
+    }
+}
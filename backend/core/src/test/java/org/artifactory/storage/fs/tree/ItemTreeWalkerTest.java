@@ -0,0 +1,170 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.storage.fs.tree;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.artifactory.api.context.ArtifactoryContextThreadBinder;
+import org.artifactory.factory.InfoFactoryHolder;
+import org.artifactory.fs.ItemInfo;
+import org.artifactory.repo.InternalRepoPathFactory;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.spring.InternalArtifactoryContext;
+import org.artifactory.storage.fs.service.FileService;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Map;
+
+import static org.easymock.EasyMock.*;
+import static org.testng.Assert.*;
+
+/**
+ * Tests the {@link ItemTreeWalker}.
+ */
+@Test
+public class ItemTreeWalkerTest {
+    private static final int PAGE_SIZE = 2;
+
+    private final RepoPath root = InternalRepoPathFactory.create("libs", "");
+    private final Map<RepoPath, List<ItemInfo>> children = Maps.newHashMap();
+    private int loadedPages;
+
+    @BeforeMethod
+    public void setUp() {
+        addFolder(root, "a", "b");
+        addFiles(root, "c.jar");
+        RepoPath a = InternalRepoPathFactory.create("libs", "a");
+        addFiles(a, "1.jar", "2.jar", "3.jar", "4.jar", "5.jar");
+        addFiles(InternalRepoPathFactory.create("libs", "b"), "x.pom");
+        loadedPages = 0;
+
+        FileService fileService = createMock(FileService.class);
+        expect(fileService.loadChildren(anyObject(RepoPath.class), EasyMock.<String>anyObject(), eq(PAGE_SIZE),
+                anyObject(ChildrenFilter.class))).andAnswer(new IAnswer<List<ItemInfo>>() {
+            @Override
+            public List<ItemInfo> answer() {
+                Object[] args = getCurrentArguments();
+                return loadPage((RepoPath) args[0], (String) args[1], (ChildrenFilter) args[3]);
+            }
+        }).anyTimes();
+        InternalArtifactoryContext context = createMock(InternalArtifactoryContext.class);
+        expect(context.beanForType(FileService.class)).andReturn(fileService).anyTimes();
+        replay(fileService, context);
+        ArtifactoryContextThreadBinder.bind(context);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        ArtifactoryContextThreadBinder.unbind();
+    }
+
+    public void walkDepthFirstInNameOrder() {
+        assertEquals(walk(ChildrenFilter.ALL, null), ImmutableList.of("a", "a/1.jar", "a/2.jar", "a/3.jar",
+                "a/4.jar", "a/5.jar", "b", "b/x.pom", "c.jar"));
+        // root, a and b are read in pages of two
+        assertEquals(loadedPages, 2 + 3 + 1);
+    }
+
+    public void filesFilterWalksIntoFolders() {
+        assertEquals(walk(ChildrenFilter.files(".pom"), null), ImmutableList.of("b/x.pom"));
+    }
+
+    public void foldersFilter() {
+        assertEquals(walk(ChildrenFilter.folders(), null), ImmutableList.of("a", "b"));
+    }
+
+    public void rejectedFolderIsNotWalked() {
+        ItemNodeFilter skipA = new ItemNodeFilter() {
+            @Override
+            public boolean accepts(@Nonnull ItemInfo itemInfo) {
+                return !itemInfo.getRepoPath().getPath().startsWith("a");
+            }
+        };
+        assertEquals(walk(ChildrenFilter.ALL, skipA), ImmutableList.of("b", "b/x.pom", "c.jar"));
+    }
+
+    public void visitorStopsTheWalk() {
+        final List<String> visited = Lists.newArrayList();
+        ItemTreeWalker walker = new ItemTreeWalker(root, new TreeBrowsingCriteriaBuilder().build(),
+                ChildrenFilter.ALL, PAGE_SIZE);
+        boolean completed = walker.walk(new ItemTreeVisitor() {
+            @Override
+            public boolean visit(ItemInfo item) {
+                visited.add(item.getRepoPath().getPath());
+                return visited.size() < 3;
+            }
+        });
+        assertFalse(completed);
+        assertEquals(visited, ImmutableList.of("a", "a/1.jar", "a/2.jar"));
+        // the rest of 'a' was never loaded
+        assertEquals(loadedPages, 2);
+    }
+
+    private List<String> walk(ChildrenFilter childrenFilter, ItemNodeFilter filter) {
+        List<String> paths = Lists.newArrayList();
+        ItemTreeWalker walker = new ItemTreeWalker(root, new TreeBrowsingCriteriaBuilder().addFilter(filter).build(),
+                childrenFilter, PAGE_SIZE);
+        for (ItemInfo item : walker) {
+            paths.add(item.getRepoPath().getPath());
+        }
+        return paths;
+    }
+
+    private List<ItemInfo> loadPage(RepoPath folder, String afterName, ChildrenFilter filter) {
+        loadedPages++;
+        List<ItemInfo> page = Lists.newArrayList();
+        List<ItemInfo> folderChildren = children.containsKey(folder) ? children.get(folder) :
+                Lists.<ItemInfo>newArrayList();
+        for (ItemInfo child : folderChildren) {
+            if ((afterName == null || child.getName().compareTo(afterName) > 0) && filter.accepts(child)
+                    && page.size() < PAGE_SIZE) {
+                page.add(child);
+            }
+        }
+        return page;
+    }
+
+    private void addFolder(RepoPath parent, String... names) {
+        for (String name : names) {
+            addChild(parent, InfoFactoryHolder.get().createFolderInfo(InternalRepoPathFactory.create(parent, name)));
+        }
+    }
+
+    private void addFiles(RepoPath parent, String... names) {
+        for (String name : names) {
+            addChild(parent, InfoFactoryHolder.get().createFileInfo(InternalRepoPathFactory.create(parent, name)));
+        }
+    }
+
+    private void addChild(RepoPath parent, ItemInfo child) {
+        List<ItemInfo> folderChildren = children.get(parent);
+        if (folderChildren == null) {
+            folderChildren = Lists.newArrayList();
+            children.put(parent, folderChildren);
+        }
+        folderChildren.add(child);
+    }
+}
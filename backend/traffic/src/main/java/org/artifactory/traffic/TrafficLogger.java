@@ -18,10 +18,13 @@
 
 package org.artifactory.traffic;
 
+import org.artifactory.traffic.binary.BinaryTrafficLogWriter;
 import org.artifactory.traffic.entry.TransferEntry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 /**
  * Logger class for traffic events
  *
@@ -42,4 +45,17 @@ abstract class TrafficLogger {
     public static void logTransferEntry(TransferEntry entry) {
         log.info(entry.toString());
     }
-}
\ No newline at end of file
+
+    /**
+     * Log a completed xfer (upload/download) event to the textual log and to the binary log if given
+     *
+     * @param entry     Traffic entry to log
+     * @param binaryLog Binary traffic log, null if the binary log is disabled
+     */
+    public static void logTransferEntry(TransferEntry entry, @Nullable BinaryTrafficLogWriter binaryLog) {
+        logTransferEntry(entry);
+        if (binaryLog != null) {
+            binaryLog.append(entry);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.artifactory.traffic.binary;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+
+import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The layout of the binary traffic log.
+ * <p/>
+ * The log keeps one pair of files per UTC day: {@code traffic.<day start millis>.bin} holds blocks of transfer
+ * records and {@code traffic.<day start millis>.idx} holds a fixed size index record per block. A block is appended to
+ * the data file before its index record, so an index record is never visible before its block. Index record:
+ * <pre>
+ * min time (long) | max time (long) | block offset (long) | block length (int) | records count (int)
+ * </pre>
+ * Block record, variable length longs relative to the block min time. Addresses are written once per block and then
+ * referenced by their order of appearance:
+ * <pre>
+ * action (byte) | time delta | duration | content length | address ref [address] | repo path
+ * </pre>
+ * The log covers a time window only if it was recording during the whole window. {@code traffic.sessions} holds a
+ * fixed size record per recording session, the time the writer started and the time up to which it wrote all the
+ * entries it was given:
+ * <pre>
+ * start time (long) | written until (long)
+ * </pre>
+ */
+abstract class BinaryTrafficLogFormat {
+    static final String FILE_PREFIX = "traffic.";
+    static final String DATA_SUFFIX = ".bin";
+    static final String INDEX_SUFFIX = ".idx";
+    static final String SESSIONS_FILE = FILE_PREFIX + "sessions";
+    static final int INDEX_RECORD_SIZE = 32;
+    static final int SESSION_RECORD_SIZE = 16;
+    static final byte DOWNLOAD = 0;
+    static final byte UPLOAD = 1;
+
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private BinaryTrafficLogFormat() {
+        // utility class
+    }
+
+    static long dayStart(long time) {
+        return time - Math.floorMod(time, DAY_MILLIS);
+    }
+
+    static long dayEnd(long dayStart) {
+        return dayStart + DAY_MILLIS;
+    }
+
+    static File dataFile(File dir, long dayStart) {
+        return new File(dir, FILE_PREFIX + dayStart + DATA_SUFFIX);
+    }
+
+    static File indexFile(File dir, long dayStart) {
+        return new File(dir, FILE_PREFIX + dayStart + INDEX_SUFFIX);
+    }
+
+    static File sessionsFile(File dir) {
+        return new File(dir, SESSIONS_FILE);
+    }
+
+    /**
+     * @return The day start of an index file, null if the file is not an index file of the log
+     */
+    @Nullable
+    static Long indexFileDay(File file) {
+        String name = file.getName();
+        if (!name.startsWith(FILE_PREFIX) || !name.endsWith(INDEX_SUFFIX)) {
+            return null;
+        }
+        String day = name.substring(FILE_PREFIX.length(), name.length() - INDEX_SUFFIX.length());
+        return !day.isEmpty() && StringUtils.isNumeric(day) ? Long.parseLong(day) : null;
+    }
+
+    /**
+     * @return The recording sessions of the log, pairs of start time and written until time
+     */
+    static List<long[]> readSessions(File dir) throws IOException {
+        File sessionsFile = sessionsFile(dir);
+        ByteBuffer sessionsBuffer = ByteBuffer.wrap(
+                sessionsFile.exists() ? FileUtils.readFileToByteArray(sessionsFile) : new byte[0]);
+        List<long[]> sessions = Lists.newArrayList();
+        while (sessionsBuffer.remaining() >= SESSION_RECORD_SIZE) {
+            sessions.add(new long[]{sessionsBuffer.getLong(), sessionsBuffer.getLong()});
+        }
+        return sessions;
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length long");
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(Charsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+
+    static void skipString(DataInput in) throws IOException {
+        int length = (int) readVarLong(in);
+        if (in.skipBytes(length) != length) {
+            throw new IOException("Truncated traffic record");
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.artifactory.traffic.binary;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.artifactory.traffic.TransferUsage;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.artifactory.traffic.binary.BinaryTrafficLogFormat.*;
+
+/**
+ * Aggregates the transfer usage of a time window from the binary traffic log (see {@link BinaryTrafficLogFormat}).
+ * <p/>
+ * Only the day files that overlap the window are opened, and the blocks are selected by their index records, so
+ * blocks outside the window are never read. Records are aggregated as they are decoded and no entry objects are
+ * created.
+ */
+public class BinaryTrafficLogReader {
+
+    private final File dir;
+
+    /**
+     * @param dir Directory of the binary log files
+     */
+    public BinaryTrafficLogReader(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * @return The time of the first entry in the log, -1 if the log is empty
+     */
+    public long getStartTime() {
+        try {
+            for (long day : getDays()) {
+                long startTime = Long.MAX_VALUE;
+                File dataFile = dataFile(dir, day);
+                for (IndexRecord record : readIndex(day, dataFile.length())) {
+                    startTime = Math.min(startTime, record.minTime);
+                }
+                if (startTime != Long.MAX_VALUE) {
+                    return startTime;
+                }
+            }
+            return -1;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @param startTime Time window start (inclusive)
+     * @param endTime   Time window end (inclusive)
+     * @return True if the log was recording during the whole time window, false if it was disabled or failed to
+     * write during part of it
+     */
+    public boolean isCovered(long startTime, long endTime) {
+        try {
+            List<long[]> sessions = readSessions(dir);
+            Collections.sort(sessions, (first, second) -> Long.compare(first[0], second[0]));
+            long coveredUntil = startTime;
+            for (long[] session : sessions) {
+                if (coveredUntil >= endTime || session[0] > coveredUntil) {
+                    break;
+                }
+                coveredUntil = Math.max(coveredUntil, session[1]);
+            }
+            return coveredUntil >= endTime;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Sums the transfers of the given time window
+     *
+     * @param startTime         Time window start (inclusive)
+     * @param endTime           Time window end (exclusive)
+     * @param excludedAddresses Addresses whose transfers are summed as the excluded usage
+     * @return TransferUsage - The usage of the given time window
+     */
+    public TransferUsage getTransferUsage(long startTime, long endTime, @Nullable Collection<String> excludedAddresses) {
+        if (startTime > endTime) {
+            throw new IllegalArgumentException("Traffic start date cannot be after end date.");
+        }
+        Set<String> excluded = excludedAddresses == null ? Collections.<String>emptySet() :
+                Sets.newHashSet(excludedAddresses);
+        long[] usage = new long[4];
+        try {
+            for (long day : getDays()) {
+                if (day >= endTime || dayEnd(day) <= startTime) {
+                    continue;
+                }
+                File dataFile = dataFile(dir, day);
+                List<IndexRecord> blocks = Lists.newArrayList();
+                for (IndexRecord record : readIndex(day, dataFile.length())) {
+                    if (record.minTime < endTime && record.maxTime >= startTime) {
+                        blocks.add(record);
+                    }
+                }
+                if (!blocks.isEmpty()) {
+                    sumBlocks(dataFile, blocks, startTime, endTime, excluded, usage);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        TransferUsage transferUsage = new TransferUsage();
+        transferUsage.setDownload(usage[0]);
+        transferUsage.setUpload(usage[1]);
+        transferUsage.setExcludedDownload(usage[2]);
+        transferUsage.setExcludedUpload(usage[3]);
+        return transferUsage;
+    }
+
+    private void sumBlocks(File dataFile, List<IndexRecord> blocks, long startTime, long endTime,
+            Set<String> excluded, long[] usage) throws IOException {
+        RandomAccessFile data = new RandomAccessFile(dataFile, "r");
+        try {
+            for (IndexRecord block : blocks) {
+                byte[] bytes = new byte[block.length];
+                data.seek(block.offset);
+                data.readFully(bytes);
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+                List<Boolean> excludedRefs = Lists.newArrayList();
+                for (int i = 0; i < block.count; i++) {
+                    byte action = in.readByte();
+                    long time = block.minTime + readVarLong(in);
+                    readVarLong(in); // duration
+                    long contentLength = readVarLong(in);
+                    int addressRef = (int) readVarLong(in);
+                    if (addressRef == excludedRefs.size()) {
+                        excludedRefs.add(excluded.contains(readString(in)));
+                    }
+                    skipString(in); // repo path
+                    if (startTime <= time && time < endTime) {
+                        int column = (action == UPLOAD ? 1 : 0) + (excludedRefs.get(addressRef) ? 2 : 0);
+                        usage[column] += contentLength;
+                    }
+                }
+            }
+        } finally {
+            IOUtils.closeQuietly(data);
+        }
+    }
+
+    /**
+     * @return The index records of the day whose blocks are fully written to the data file
+     */
+    private List<IndexRecord> readIndex(long day, long dataLength) throws IOException {
+        File indexFile = indexFile(dir, day);
+        byte[] index = indexFile.exists() ? FileUtils.readFileToByteArray(indexFile) : new byte[0];
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(index));
+        int recordsCount = index.length / INDEX_RECORD_SIZE;
+        List<IndexRecord> records = Lists.newArrayListWithCapacity(recordsCount);
+        for (int i = 0; i < recordsCount; i++) {
+            IndexRecord record = new IndexRecord(in.readLong(), in.readLong(), in.readLong(), in.readInt(),
+                    in.readInt());
+            if (record.offset >= 0 && record.length >= 0 && record.count >= 0
+                    && record.offset + record.length <= dataLength) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private List<Long> getDays() {
+        List<Long> days = Lists.newArrayList();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Long day = indexFileDay(file);
+                if (day != null) {
+                    days.add(day);
+                }
+            }
+        }
+        Collections.sort(days);
+        return days;
+    }
+
+    private static class IndexRecord {
+        private final long minTime;
+        private final long maxTime;
+        private final long offset;
+        private final int length;
+        private final int count;
+
+        private IndexRecord(long minTime, long maxTime, long offset, int length, int count) {
+            this.minTime = minTime;
+            this.maxTime = maxTime;
+            this.offset = offset;
+            this.length = length;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.artifactory.traffic.binary;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.artifactory.traffic.TrafficAction;
+import org.artifactory.traffic.entry.TransferEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import static org.artifactory.traffic.binary.BinaryTrafficLogFormat.*;
+
+/**
+ * Appends transfer entries to the binary traffic log (see {@link BinaryTrafficLogFormat}).
+ * <p/>
+ * Entries are buffered and written as one indexed block when the block is full, when the buffered entries are older
+ * than the flush interval or when the day changes. Failures to write are logged and never propagated to the
+ * transfer that is logged. Every write extends the recording session of the writer, a failure ends it and the
+ * following writes start a new session.
+ */
+public class BinaryTrafficLogWriter implements Flushable, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(BinaryTrafficLogWriter.class);
+
+    private final File dir;
+    private final int blockEntries;
+    private final long flushIntervalMillis;
+    private final List<Record> buffer;
+    private long bufferDay;
+    private long bufferStarted;
+    private long sessionStart;
+    /**
+     * Offset of the session record in the sessions file, -1 if the session is not recorded yet
+     */
+    private long sessionOffset = -1;
+
+    /**
+     * @param dir                 Directory of the binary log files
+     * @param blockEntries        Max number of entries per block
+     * @param flushIntervalMillis Max time to buffer entries before they are written
+     */
+    public BinaryTrafficLogWriter(File dir, int blockEntries, long flushIntervalMillis) {
+        if (blockEntries <= 0) {
+            throw new IllegalArgumentException("Block entries must be positive.");
+        }
+        this.dir = dir;
+        this.blockEntries = blockEntries;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.buffer = Lists.newArrayListWithCapacity(blockEntries);
+        this.sessionStart = System.currentTimeMillis();
+    }
+
+    public void append(TransferEntry entry) {
+        append(entry.getAction(), entry.getTime(), entry.getDuration(), entry.getRepoPath(), entry.getUserAddress(),
+                entry.getContentLength());
+    }
+
+    public synchronized void append(TrafficAction action, long time, long duration, String repoPath,
+            String userAddress, long contentLength) {
+        long day = dayStart(time);
+        if (!buffer.isEmpty() && day != bufferDay) {
+            writeBlock();
+        }
+        if (buffer.isEmpty()) {
+            bufferDay = day;
+            bufferStarted = System.currentTimeMillis();
+        }
+        buffer.add(new Record(action == TrafficAction.UPLOAD ? UPLOAD : DOWNLOAD, time, duration, repoPath,
+                userAddress == null ? "" : userAddress, contentLength));
+        if (buffer.size() >= blockEntries || System.currentTimeMillis() - bufferStarted >= flushIntervalMillis) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Writes the buffered entries, so they are visible to the readers of the log, and records that the log is written
+     * until now
+     */
+    @Override
+    public synchronized void flush() {
+        if (!buffer.isEmpty()) {
+            writeBlock();
+        }
+        recordSession(System.currentTimeMillis());
+    }
+
+    /**
+     * Deletes the days that ended before the day of the given time, and the recording sessions of these days
+     *
+     * @param time Time of the oldest entry to keep
+     */
+    public synchronized void deleteBefore(long time) {
+        long cutoff = dayStart(time);
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            Long day = indexFileDay(file);
+            if (day != null && day < cutoff) {
+                log.debug("Deleting binary traffic log of day {}", day);
+                FileUtils.deleteQuietly(dataFile(dir, day));
+                FileUtils.deleteQuietly(file);
+            }
+        }
+        try {
+            ByteArrayOutputStream sessions = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(sessions);
+            for (long[] session : readSessions(dir)) {
+                if (session[1] >= cutoff) {
+                    out.writeLong(Math.max(session[0], cutoff));
+                    out.writeLong(session[1]);
+                }
+            }
+            FileUtils.writeByteArrayToFile(sessionsFile(dir), sessions.toByteArray());
+        } catch (IOException e) {
+            log.warn("Failed to delete the expired sessions of the binary traffic log: {}", e.getMessage());
+            log.debug("Failed to delete the expired sessions of the binary traffic log", e);
+        }
+        // the records moved, the session is recorded again by the next write
+        sessionStart = Math.max(sessionStart, cutoff);
+        sessionOffset = -1;
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private void writeBlock() {
+        try {
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Could not create traffic log directory " + dir.getAbsolutePath());
+            }
+            long minTime = Long.MAX_VALUE;
+            long maxTime = Long.MIN_VALUE;
+            for (Record record : buffer) {
+                minTime = Math.min(minTime, record.time);
+                maxTime = Math.max(maxTime, record.time);
+            }
+            byte[] block = encode(minTime);
+            File dataFile = dataFile(dir, bufferDay);
+            long offset = dataFile.length();
+            FileOutputStream data = new FileOutputStream(dataFile, true);
+            try {
+                data.write(block);
+            } finally {
+                IOUtils.closeQuietly(data);
+            }
+            ByteBuffer record = ByteBuffer.allocate(INDEX_RECORD_SIZE);
+            record.putLong(minTime).putLong(maxTime).putLong(offset).putInt(block.length).putInt(buffer.size());
+            appendRecord(indexFile(dir, bufferDay), record.array());
+            recordSession(System.currentTimeMillis());
+        } catch (IOException e) {
+            log.warn("Failed to write {} entries to the binary traffic log: {}", buffer.size(), e.getMessage());
+            log.debug("Failed to write to the binary traffic log", e);
+            // the log misses the entries, a new session starts after them
+            sessionStart = System.currentTimeMillis();
+            sessionOffset = -1;
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Records that the entries of the session are written until the given time
+     */
+    private void recordSession(long writtenUntil) {
+        try {
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Could not create traffic log directory " + dir.getAbsolutePath());
+            }
+            byte[] record = ByteBuffer.allocate(SESSION_RECORD_SIZE).putLong(sessionStart).putLong(writtenUntil)
+                    .array();
+            if (sessionOffset < 0) {
+                sessionOffset = appendRecord(sessionsFile(dir), record);
+            } else {
+                RandomAccessFile sessions = new RandomAccessFile(sessionsFile(dir), "rw");
+                try {
+                    sessions.seek(sessionOffset);
+                    sessions.write(record);
+                } finally {
+                    IOUtils.closeQuietly(sessions);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to record the binary traffic log session: {}", e.getMessage());
+            log.debug("Failed to record the binary traffic log session", e);
+            sessionOffset = -1;
+        }
+    }
+
+    /**
+     * Appends a fixed size record in a single write. A partial record left by an interrupted write is dropped first,
+     * so the records stay aligned to their size.
+     *
+     * @return The offset of the appended record
+     */
+    private long appendRecord(File file, byte[] record) throws IOException {
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            long length = out.length();
+            long offset = length - length % record.length;
+            if (offset != length) {
+                log.info("Dropping a partial record of {} bytes from {}", length - offset, file.getAbsolutePath());
+                out.setLength(offset);
+            }
+            out.seek(offset);
+            out.write(record);
+            return offset;
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    private byte[] encode(long minTime) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(buffer.size() * 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        Map<String, Integer> addresses = Maps.newHashMap();
+        for (Record record : buffer) {
+            out.writeByte(record.action);
+            writeVarLong(out, record.time - minTime);
+            writeVarLong(out, record.duration);
+            writeVarLong(out, record.contentLength);
+            Integer addressRef = addresses.get(record.userAddress);
+            if (addressRef == null) {
+                writeVarLong(out, addresses.size());
+                writeString(out, record.userAddress);
+                addresses.put(record.userAddress, addresses.size());
+            } else {
+                writeVarLong(out, addressRef);
+            }
+            writeString(out, record.repoPath);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static class Record {
+        private final byte action;
+        private final long time;
+        private final long duration;
+        private final String repoPath;
+        private final String userAddress;
+        private final long contentLength;
+
+        private Record(byte action, long time, long duration, String repoPath, String userAddress,
+                long contentLength) {
+            this.action = action;
+            this.time = time;
+            this.duration = duration;
+            this.repoPath = repoPath;
+            this.userAddress = userAddress;
+            this.contentLength = contentLength;
+        }
+    }
+}
@@ -188,6 +188,22 @@ public class TrafficReader {
         return selectedFiles;
     }
 
+    /**
+     * Returns the start time of the oldest traffic entry log file
+     *
+     * @return long - Start time of the oldest log file, -1 if there are no log files
+     */
+    public long getStartTime() {
+        long startTime = -1;
+        for (File logFile : readFiles(new Date(0), new Date())) {
+            long logStartTime = getLogFileDates(logFile)[0].getTime();
+            if (startTime < 0 || logStartTime < startTime) {
+                startTime = logStartTime;
+            }
+        }
+        return startTime;
+    }
+
     /**
      * Returns a date array containing the start and end dates of the given log file
      *
@@ -0,0 +1,213 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.artifactory.traffic.binary;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.artifactory.traffic.TrafficAction;
+import org.artifactory.traffic.TransferUsage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests the {@link BinaryTrafficLogWriter} and {@link BinaryTrafficLogReader}.
+ */
+@Test
+public class BinaryTrafficLogTest {
+    private static final Logger log = LoggerFactory.getLogger(BinaryTrafficLogTest.class);
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long START = 1420070400000L; // 2015-01-01 UTC
+
+    private File dir;
+
+    @BeforeMethod
+    public void setUp() {
+        dir = Files.createTempDir();
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    public void usageOfTimeWindow() {
+        BinaryTrafficLogWriter writer = new BinaryTrafficLogWriter(dir, 10, Long.MAX_VALUE);
+        // one entry per hour over three days, the downloads and uploads of two addresses
+        for (int hour = 0; hour < 72; hour++) {
+            TrafficAction action = hour % 2 == 0 ? TrafficAction.DOWNLOAD : TrafficAction.UPLOAD;
+            writer.append(action, START + TimeUnit.HOURS.toMillis(hour), 5, "repo:a/b/" + hour + ".jar",
+                    hour % 3 == 0 ? "10.0.0.1" : "10.0.0.2", hour);
+        }
+        writer.close();
+        assertEquals(dir.list().length, 7, "Expected data and index files of 3 days and the sessions file");
+
+        BinaryTrafficLogReader reader = new BinaryTrafficLogReader(dir);
+        assertEquals(reader.getStartTime(), START);
+        assertUsage(reader.getTransferUsage(START, START + 3 * DAY, null), sum(0, 72, 0), sum(0, 72, 1), 0, 0);
+        // a window that starts and ends in the middle of blocks and days
+        long from = START + TimeUnit.HOURS.toMillis(15);
+        long to = START + TimeUnit.HOURS.toMillis(40);
+        assertUsage(reader.getTransferUsage(from, to, null), sum(15, 40, 0), sum(15, 40, 1), 0, 0);
+        assertUsage(reader.getTransferUsage(from, to, Arrays.asList("10.0.0.1")),
+                sum(15, 40, 0) - sumExcluded(15, 40, 0), sum(15, 40, 1) - sumExcluded(15, 40, 1),
+                sumExcluded(15, 40, 0), sumExcluded(15, 40, 1));
+        assertUsage(reader.getTransferUsage(START - DAY, START, null), 0, 0, 0, 0);
+    }
+
+    public void bufferedEntriesAreWrittenOnFlush() {
+        BinaryTrafficLogWriter writer = new BinaryTrafficLogWriter(dir, 100, Long.MAX_VALUE);
+        writer.append(TrafficAction.DOWNLOAD, START, 1, "repo:a.jar", "10.0.0.1", 100);
+        BinaryTrafficLogReader reader = new BinaryTrafficLogReader(dir);
+        assertEquals(reader.getStartTime(), -1);
+        assertUsage(reader.getTransferUsage(START, START + DAY, null), 0, 0, 0, 0);
+
+        writer.flush();
+        assertUsage(reader.getTransferUsage(START, START + DAY, null), 100, 0, 0, 0);
+    }
+
+    public void partiallyWrittenBlockIsIgnored() throws IOException {
+        BinaryTrafficLogWriter writer = new BinaryTrafficLogWriter(dir, 1, Long.MAX_VALUE);
+        writer.append(TrafficAction.UPLOAD, START, 1, "repo:a.jar", "10.0.0.1", 100);
+        writer.append(TrafficAction.UPLOAD, START + 1, 1, "repo:b.jar", "10.0.0.1", 200);
+        File dataFile = BinaryTrafficLogFormat.dataFile(dir, START);
+        RandomAccessFile data = new RandomAccessFile(dataFile, "rw");
+        try {
+            data.setLength(dataFile.length() - 1);
+        } finally {
+            data.close();
+        }
+        assertUsage(new BinaryTrafficLogReader(dir).getTransferUsage(START, START + DAY,
+                Collections.<String>emptyList()), 0, 100, 0, 0);
+    }
+
+    public void partialIndexRecordIsDropped() throws IOException {
+        BinaryTrafficLogWriter writer = new BinaryTrafficLogWriter(dir, 1, Long.MAX_VALUE);
+        writer.append(TrafficAction.DOWNLOAD, START, 1, "repo:a.jar", "10.0.0.1", 100);
+        // an index record write that was interrupted
+        File indexFile = BinaryTrafficLogFormat.indexFile(dir, START);
+        FileUtils.writeByteArrayToFile(indexFile, new byte[5], true);
+        writer.append(TrafficAction.DOWNLOAD, START + 1, 1, "repo:b.jar", "10.0.0.1", 200);
+        writer.append(TrafficAction.DOWNLOAD, START + 2, 1, "repo:c.jar", "10.0.0.1", 400);
+        assertEquals(indexFile.length(), 3 * BinaryTrafficLogFormat.INDEX_RECORD_SIZE);
+        assertUsage(new BinaryTrafficLogReader(dir).getTransferUsage(START, START + DAY, null), 700, 0, 0, 0);
+    }
+
+    public void onlyRecordedWindowsAreCovered() throws InterruptedException {
+        BinaryTrafficLogWriter writer = new BinaryTrafficLogWriter(dir, 10, Long.MAX_VALUE);
+        long enabled = System.currentTimeMillis();
+        Thread.sleep(5);
+        writer.close();
+        long disabled = System.currentTimeMillis();
+        Thread.sleep(5);
+        writer = new BinaryTrafficLogWriter(dir, 10, Long.MAX_VALUE);
+        long reenabled = System.currentTimeMillis();
+        Thread.sleep(5);
+        long now = System.currentTimeMillis();
+        writer.flush();
+
+        BinaryTrafficLogReader reader = new BinaryTrafficLogReader(dir);
+        assertTrue(reader.isCovered(enabled, enabled + 5));
+        assertTrue(reader.isCovered(reenabled, now));
+        assertFalse(reader.isCovered(enabled, now), "The log was disabled after " + disabled);
+        assertFalse(reader.isCovered(enabled - DAY, enabled + 5), "The log was enabled at " + enabled);
+    }
+
+    public void daysBeforeTheTimeAreDeleted() {
+        BinaryTrafficLogWriter writer = new BinaryTrafficLogWriter(dir, 10, Long.MAX_VALUE);
+        for (int hour = 0; hour < 72; hour++) {
+            writer.append(hour % 2 == 0 ? TrafficAction.DOWNLOAD : TrafficAction.UPLOAD,
+                    START + TimeUnit.HOURS.toMillis(hour), 5, "repo:a/b/" + hour + ".jar", "10.0.0.1", hour);
+        }
+        writer.flush();
+
+        writer.deleteBefore(START + DAY + TimeUnit.HOURS.toMillis(5));
+        assertFalse(BinaryTrafficLogFormat.dataFile(dir, START).exists());
+        assertFalse(BinaryTrafficLogFormat.indexFile(dir, START).exists());
+        assertTrue(BinaryTrafficLogFormat.indexFile(dir, START + DAY).exists());
+        assertUsage(new BinaryTrafficLogReader(dir).getTransferUsage(START, START + 3 * DAY, null),
+                sum(24, 72, 0), sum(24, 72, 1), 0, 0);
+    }
+
+    /**
+     * Aggregates a month of traffic. Disabled by default, it writes a large log.
+     */
+    @Test(enabled = false)
+    public void benchmarkMonthlyUsage() {
+        int entries = 1000000;
+        long interval = 30 * DAY / entries;
+        BinaryTrafficLogWriter writer = new BinaryTrafficLogWriter(dir, 1024, Long.MAX_VALUE);
+        for (int i = 0; i < entries; i++) {
+            writer.append(i % 4 == 0 ? TrafficAction.UPLOAD : TrafficAction.DOWNLOAD, START + i * interval, 10,
+                    "libs-release-local:org/jfrog/artifact/1." + i + "/artifact-1." + i + ".jar", "10.0.0." + (i % 50),
+                    1024 + i % 4096);
+        }
+        writer.close();
+        long start = System.nanoTime();
+        TransferUsage usage = new BinaryTrafficLogReader(dir).getTransferUsage(START, START + 30 * DAY,
+                Arrays.asList("10.0.0.1"));
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("Aggregated {} entries in {} ms ({} entries/sec), download {} bytes", entries, millis,
+                entries * 1000L / Math.max(millis, 1), usage.getDownload());
+    }
+
+    private void assertUsage(TransferUsage usage, long download, long upload, long excludedDownload,
+            long excludedUpload) {
+        assertEquals(usage.getDownload(), download, "Download");
+        assertEquals(usage.getUpload(), upload, "Upload");
+        assertEquals(usage.getExcludedDownload(), excludedDownload, "Excluded download");
+        assertEquals(usage.getExcludedUpload(), excludedUpload, "Excluded upload");
+    }
+
+    /**
+     * Sums the content length (the hour) of the downloads (parity 0) or uploads (parity 1) of the hours window
+     */
+    private long sum(int fromHour, int toHour, int parity) {
+        long sum = 0;
+        for (int hour = fromHour; hour < toHour; hour++) {
+            if (hour % 2 == parity) {
+                sum += hour;
+            }
+        }
+        return sum;
+    }
+
+    private long sumExcluded(int fromHour, int toHour, int parity) {
+        long sum = 0;
+        for (int hour = fromHour; hour < toHour; hour++) {
+            if (hour % 2 == parity && hour % 3 == 0) {
+                sum += hour;
+            }
+        }
+        return sum;
+    }
+}
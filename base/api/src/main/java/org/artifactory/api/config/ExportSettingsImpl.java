@@ -49,6 +49,11 @@ public class ExportSettingsImpl extends ImportExportSettingsImpl implements Expo
 
     private boolean incremental;
 
+    /**
+     * Time in millis since which the changes are exported according to the change journal, -1 to export everything
+     */
+    private long changedSince = -1;
+
     private boolean excludeBuilds;
 
     /**
@@ -83,6 +88,7 @@ public class ExportSettingsImpl extends ImportExportSettingsImpl implements Expo
         this.time = settings.time;
         this.m2Compatible = settings.m2Compatible;
         this.incremental = settings.incremental;
+        this.changedSince = settings.changedSince;
         this.callbacks = settings.callbacks;
         this.excludeBuilds = settings.excludeBuilds;
 
@@ -136,6 +142,26 @@ public class ExportSettingsImpl extends ImportExportSettingsImpl implements Expo
         this.incremental = incremental;
     }
 
+    /**
+     * @return Time in millis since which the changes of an incremental export are read from the change journal, -1 if
+     * the whole tree is exported
+     */
+    @Override
+    public long getChangedSince() {
+        return changedSince;
+    }
+
+    /**
+     * Exports only the paths that changed since the given time according to the change journal. The target must hold
+     * an export of the repositories as they were at that time.
+     *
+     * @param changedSince Time in millis, -1 to export the whole tree
+     */
+    @Override
+    public void setChangedSince(long changedSince) {
+        this.changedSince = changedSince;
+    }
+
     @Override
     public boolean isM2Compatible() {
         return m2Compatible;
@@ -1,6 +1,7 @@
 package org.artifactory.api.maven;
 
 import org.artifactory.api.repo.Async;
+import org.artifactory.api.repo.AsyncPool;
 import org.artifactory.repo.RepoPath;
 
 import java.util.Set;
@@ -19,7 +20,7 @@ public interface MavenMetadataService {
      *                       path.
      * @param recursive      True is should calculate recursively from the base folder path
      */
-    @Async(delayUntilAfterCommit = true, transactional = false)
+    @Async(delayUntilAfterCommit = true, transactional = false, pool = AsyncPool.METADATA)
     void calculateMavenMetadataAsync(RepoPath baseFolderPath, boolean recursive);
 
     /**
@@ -28,7 +29,7 @@ public interface MavenMetadataService {
      * @param baseFolderPaths A set of folders to start calculating metadata from. Must be a local non-cache
      * @param recursive       True is should calculate recursively from each of the base folder path
      */
-    @Async(delayUntilAfterCommit = true, transactional = false)
+    @Async(delayUntilAfterCommit = true, transactional = false, pool = AsyncPool.METADATA)
     void calculateMavenMetadataAsyncNonRecursive(Set<RepoPath> baseFolderPaths);
 
     /**
@@ -40,6 +41,17 @@ public interface MavenMetadataService {
      */
     void calculateMavenMetadata(RepoPath baseFolderPath, boolean recursive);
 
+    /**
+     * Records the version of a newly deployed pom and asynchronously merges it into the maven metadata of the
+     * versions folder (the grandparent of the pom) without listing the folder. Poms deployed to the same versions
+     * folder while a calculation is pending or running are merged by a single calculation. If the folder has no valid
+     * metadata yet, a full non-recursive calculation is performed instead.
+     *
+     * @param pomRepoPath Repo path of the deployed pom. Must be a local non-cache repository path.
+     */
+    @Async(delayUntilAfterCommit = true, transactional = false, pool = AsyncPool.METADATA)
+    void calculateMavenMetadataIncrementalAsync(RepoPath pomRepoPath);
+
     /**
      * Calculate the maven plugins metadata asynchronously after the current transaction is committed. The reason is the
      * metadata calculator uses xpath queries for its job and since the move is not committed yet, the xpath query
@@ -50,7 +62,7 @@ public interface MavenMetadataService {
      *
      * @param localRepoKey Key of the local non-cache repository to calculate maven plugins metadata on.
      */
-    @Async(delayUntilAfterCommit = true)
+    @Async(delayUntilAfterCommit = true, pool = AsyncPool.METADATA)
     void calculateMavenPluginsMetadataAsync(String localRepoKey);
 
 }
@@ -61,4 +61,11 @@ public @interface Async {
      * Invoke the async method with {@link org.artifactory.api.security.SecurityService#authenticateAsSystem()}
      */
     boolean authenticateAsSystem() default false;
+
+    /**
+     * The executor pool of the invocation. Shared invocations ('delayUntilAfterCommit' and 'shared') of the same
+     * transaction are executed together in order, on the pool they all selected or on the default pool if they
+     * selected different pools.
+     */
+    AsyncPool pool() default AsyncPool.DEFAULT;
 }
\ No newline at end of file
@@ -0,0 +1,113 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.artifactory.api.repo;
+
+import org.apache.commons.lang.StringUtils;
+import org.artifactory.common.ArtifactoryHome;
+import org.artifactory.common.ConstantValues;
+
+/**
+ * The named executor pools of the {@link Async} invocations.
+ * <p/>
+ * Every pool other than the default one has its own threads, bounded queue and rejection policy, so a burst of one
+ * workload cannot starve the others or grow the threads count. The settings can be overridden with the
+ * {@code artifactory.async.pool.<name>.threads|queueSize|rejection} system properties.
+ *
+ * @see Async#pool()
+ */
+public enum AsyncPool {
+    /**
+     * The shared pool of the background tasks and the async invocations that do not select a pool, configured by the
+     * {@code async.*} constants
+     */
+    DEFAULT("default", 0, 0, Rejection.ABORT),
+    /**
+     * Repository metadata calculations, which are not retried, so a full queue slows down the submitters
+     */
+    METADATA("metadata", Runtime.getRuntime().availableProcessors() * 4, 10000, Rejection.WAIT),
+    /**
+     * Archives indexing
+     */
+    INDEXING("indexing", 2, 10000, Rejection.ABORT),
+    /**
+     * Best effort updates, such as the users last access, that may be dropped under load
+     */
+    BOOKKEEPING("bookkeeping", 2, 1000, Rejection.DISCARD_OLDEST);
+
+    /**
+     * What a pool does with a task when its queue is full
+     */
+    public enum Rejection {
+        /**
+         * Rejects the new task with an exception
+         */
+        ABORT,
+        /**
+         * Cancels the new task
+         */
+        DISCARD,
+        /**
+         * Cancels the oldest queued task to make room for the new one
+         */
+        DISCARD_OLDEST,
+        /**
+         * Blocks the submitter until the queue has room for the new task
+         */
+        WAIT
+    }
+
+    private final String poolName;
+    private final int threads;
+    private final int queueSize;
+    private final Rejection rejection;
+
+    AsyncPool(String poolName, int threads, int queueSize, Rejection rejection) {
+        this.poolName = poolName;
+        this.threads = threads;
+        this.queueSize = queueSize;
+        this.rejection = rejection;
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public int getThreads() {
+        return this == DEFAULT ? ConstantValues.asyncCorePoolSize.getInt() : getIntProperty("threads", threads);
+    }
+
+    public int getQueueSize() {
+        return this == DEFAULT ? ConstantValues.asyncPoolMaxQueueSize.getInt() :
+                getIntProperty("queueSize", queueSize);
+    }
+
+    public Rejection getRejection() {
+        String value = getProperty("rejection");
+        return StringUtils.isBlank(value) ? rejection : Rejection.valueOf(value.trim().toUpperCase());
+    }
+
+    private int getIntProperty(String setting, int defaultValue) {
+        String value = getProperty(setting);
+        return StringUtils.isBlank(value) ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private String getProperty(String setting) {
+        return ArtifactoryHome.get().getArtifactoryProperties().getProperty(
+                ConstantValues.SYS_PROP_PREFIX + "async.pool." + poolName + "." + setting, null);
+    }
+}
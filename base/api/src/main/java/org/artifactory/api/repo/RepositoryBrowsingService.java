@@ -56,6 +56,19 @@ public interface RepositoryBrowsingService {
     @Nonnull
     List<BaseBrowsableItem> getLocalRepoBrowsableChildren(@Nonnull BrowsableItemCriteria criteria);
 
+    /**
+     * Visits the local or cached repo children items of a folder like
+     * {@link #getLocalRepoBrowsableChildren(BrowsableItemCriteria)}, without holding all of them in memory. The
+     * children are loaded from the storage in pages and visited in name order.
+     *
+     * @param criteria Browsable item conditions
+     * @param pageSize Max number of children to load at once
+     * @param visitor  Visitor of the children items
+     * @return False if the visitor stopped the visit
+     */
+    boolean visitLocalRepoBrowsableChildren(@Nonnull BrowsableItemCriteria criteria, int pageSize,
+            BrowsableItemVisitor visitor);
+
     /**
      * Get external browsable children from a remote repo. Using {@link org.apache.ivy.util.url.ApacheURLLister#listAll}
      * of Ivy in order to get a remote listing.
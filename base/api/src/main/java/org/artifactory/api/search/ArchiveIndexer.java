@@ -19,6 +19,7 @@
 package org.artifactory.api.search;
 
 import org.artifactory.api.repo.Async;
+import org.artifactory.api.repo.AsyncPool;
 import org.artifactory.repo.RepoPath;
 import org.artifactory.sapi.common.Lock;
 
@@ -36,7 +37,7 @@ public interface ArchiveIndexer {
      * <p>Does not guarantee actual indexing, it is the responsibility of {@link ArchiveIndexer} to decide on indexing
      * or even stop indexing in the middle.
      */
-    @Async(delayUntilAfterCommit = true)
+    @Async(delayUntilAfterCommit = true, pool = AsyncPool.INDEXING)
     void asyncIndexMarkedArchives();
 
     /**
@@ -52,7 +53,7 @@ public interface ArchiveIndexer {
      * @param baseRepoPath  repository path to start indexing from
      * @param indexAllRepos If true ignores the base repo path and index all the local/cache repositories
      */
-    @Async(delayUntilAfterCommit = true)
+    @Async(delayUntilAfterCommit = true, pool = AsyncPool.INDEXING)
     void recursiveMarkArchivesForIndexing(@Nullable RepoPath baseRepoPath, boolean indexAllRepos);
 
     /**
@@ -21,6 +21,7 @@ package org.artifactory.api.security;
 import org.artifactory.api.common.BasicStatusHolder;
 import org.artifactory.api.config.ImportableExportable;
 import org.artifactory.api.repo.Async;
+import org.artifactory.api.repo.AsyncPool;
 import org.artifactory.descriptor.security.ldap.LdapSetting;
 import org.artifactory.sapi.common.Lock;
 import org.artifactory.security.SaltedPassword;
@@ -100,7 +101,7 @@ public interface SecurityService extends ImportableExportable {
      * @param clientIp        The IP of the client that was logged in from
      * @param loginTimeMillis The time of login
      */
-    @Async(transactional = true)
+    @Async(transactional = true, pool = AsyncPool.BOOKKEEPING)
     void updateUserLastLogin(String username, String clientIp, long loginTimeMillis);
 
     /**
@@ -119,7 +120,7 @@ public interface SecurityService extends ImportableExportable {
      * @param accessTimeMillis             The time of access
      * @param acessUpdatesResolutionMillis The ferquency in which to update access times
      */
-    @Async(transactional = true)
+    @Async(transactional = true, pool = AsyncPool.BOOKKEEPING)
     void updateUserLastAccess(String username, String clientIp, long accessTimeMillis,
             long acessUpdatesResolutionMillis);
 
@@ -36,4 +36,12 @@ public interface AqlService {
 
     AqlLazyResult executeQueryLazy(AqlBase query);
 
+    /**
+     * Parse and optimize the AQL query without executing it
+     *
+     * @return Human readable description of the query plan: the optimized criterias with their estimated
+     * cardinality and the generated SQL query
+     */
+    String explainQuery(String query);
+
 }
@@ -18,6 +18,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
 import java.util.List;
 import java.util.Map;
 
@@ -173,6 +175,11 @@ public class AqlJsonStreamer extends AqlRestResult implements Cloneable {
 
     private String generateRangeJson() throws IOException {
         Range range = new Range(offset, rowsCount, rowsCount, limit);
+        String truncation = getTruncation();
+        if (truncation != null) {
+            range.truncated = true;
+            range.notice = truncation;
+        }
         ObjectMapper mapper = new ObjectMapper();
         mapper.getSerializationConfig().withSerializationInclusion(JsonSerialize.Inclusion.NON_NULL);
         mapper.setVisibility(JsonMethod.ALL, JsonAutoDetect.Visibility.NONE);
@@ -180,6 +187,22 @@ public class AqlJsonStreamer extends AqlRestResult implements Cloneable {
         return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(range);
     }
 
+    /**
+     * @return The reason the results were truncated, null if all the results were read
+     */
+    private String getTruncation() {
+        try {
+            for (SQLWarning warning = resultSet.getWarnings(); warning != null; warning = warning.getNextWarning()) {
+                if (AqlLazyResult.TRUNCATED_SQL_STATE.equals(warning.getSQLState())) {
+                    return warning.getMessage();
+                }
+            }
+        } catch (SQLException e) {
+            log.debug("Failed to read the warnings of the Aql result", e);
+        }
+        return null;
+    }
+
     public byte[] getNewRowFromDb() {
         boolean isFirstElement = mainId == null;
         Row row = inflateRow();
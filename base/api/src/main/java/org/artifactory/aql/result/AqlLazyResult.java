@@ -15,6 +15,12 @@ import java.util.Map;
  */
 public interface AqlLazyResult <T extends AqlRowResult> {
 
+    /**
+     * SQL state of the {@link java.sql.SQLWarning} of a result set that ended before all the results were read, since
+     * the query exceeded its rows or time budget
+     */
+    String TRUNCATED_SQL_STATE = "01AQL";
+
     AqlPermissionProvider getPermissionProvider();
     List<DomainSensitiveField> getFields();
 
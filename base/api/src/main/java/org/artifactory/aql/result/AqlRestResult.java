@@ -378,6 +378,12 @@ public abstract class AqlRestResult implements Closeable {
         protected Long total;
         @JsonProperty("limit")
         protected Long limited;
+        @JsonProperty("truncated")
+        @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+        protected Boolean truncated;
+        @JsonProperty("notice")
+        @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+        protected String notice;
 
         public Range(long start, long end, long limited) {
             this.start = start;
@@ -44,6 +44,10 @@ public interface ExportSettings extends BaseSettings {
 
     void setIncremental(boolean incremental);
 
+    long getChangedSince();
+
+    void setChangedSince(long changedSince);
+
     boolean isM2Compatible();
 
     void setM2Compatible(boolean m2Compatible);
@@ -22,7 +22,9 @@ import com.google.common.collect.Sets;
 import org.artifactory.api.request.ArtifactoryResponse;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * @author Noam Y. Tenne
@@ -30,6 +32,7 @@ import java.util.Set;
 public abstract class RepoRequests {
 
     private static ThreadLocal<RepoRequestContext> context = new ThreadLocal<>();
+    private static ThreadLocal<List<String>> capturedLog = new ThreadLocal<>();
 
     private RepoRequests() {
     }
@@ -51,6 +54,11 @@ public abstract class RepoRequests {
     }
 
     public static void logToContext(String format, Object... params) {
+        List<String> captured = capturedLog.get();
+        if (captured != null) {
+            captured.add(String.format(format, params));
+            return;
+        }
         RepoRequestContext repoRequestContext = context.get();
         if (repoRequestContext != null) {
             String formattedMessage = String.format(format, params);
@@ -58,6 +66,38 @@ public abstract class RepoRequests {
         }
     }
 
+    /**
+     * Executes the action collecting the messages it logs to the context instead of logging them. Used by actions
+     * that are executed on behalf of the request by another thread, which has no request context.
+     *
+     * @param messages The list to collect the logged messages into
+     * @param action   The action to execute
+     * @return The result of the action
+     * @see #replayToContext(List)
+     */
+    public static <T> T captureLog(List<String> messages, Supplier<T> action) {
+        List<String> previous = capturedLog.get();
+        capturedLog.set(messages);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                capturedLog.set(previous);
+            } else {
+                capturedLog.remove();
+            }
+        }
+    }
+
+    /**
+     * Logs messages captured by {@link #captureLog(List, Supplier)} to the context of the current thread
+     */
+    public static void replayToContext(List<String> messages) {
+        for (String message : messages) {
+            logToContext("%s", message);
+        }
+    }
+
     public static Set<String> getOriginatedHeaders() {
         Set<String> originatedHeaders = Sets.newHashSet();
         RepoRequestContext repoRequestContext = context.get();
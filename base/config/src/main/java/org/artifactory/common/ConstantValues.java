@@ -49,9 +49,22 @@ public enum ConstantValues {
     taskCompletionLockTimeoutRetries("task.completionLockTimeoutRetries", 100),
     substituteRepoKeys("repo.key.subst."),
     repoConcurrentDownloadSyncTimeoutSecs("repo.concurrentDownloadSyncTimeoutSecs", Seconds.MINUTE * 15),
+    repoConcurrentDownloadTeeEnabled("repo.concurrentDownload.tee.enabled", FALSE),
     downloadStatsEnabled("repo.downloadStatsEnabled", TRUE),
+    folderDownloadPrefetchCount("folder.download.prefetchCount", 8),
+    folderDownloadPrefetchMaxBufferKb("folder.download.prefetchMaxBufferKb", 1024),
+    folderDownloadPrefetchMaxMemoryMb("folder.download.prefetchMaxMemoryMb", 64),
+    folderDownloadStoredExtensions("folder.download.storedExtensions",
+            "jar,war,ear,zip,gz,tgz,bz2,xz,7z,nupkg,apk,rpm,deb,gem,whl,egg,png,jpg,jpeg,gif"),
     disableGlobalRepoAccess("repo.global.disabled", FALSE),
     fsItemCacheIdleTimeSecs("fsitem.cache.idleTimeSecs", Seconds.MINUTE * 20),
+    folderListingCacheMaxItems("browsing.folderListing.cacheMaxItems", 100000),
+    folderListingCacheTtlSecs("browsing.folderListing.cacheTtlSecs", 30),
+    folderListingCacheHaEnabled("browsing.folderListing.cache.ha.enabled", FALSE),
+    treeWalkerPageSize("tree.walker.pageSize", 1000),
+    propertiesCacheMaxEntries("properties.cache.maxEntries", 100000),
+    propertiesCacheTtlSecs("properties.cache.ttlSecs", 30),
+    propertiesCacheHaEnabled("properties.cache.ha.enabled", FALSE),
     dockerTokensCacheIdleTimeSecs("docker.tokens.cache.idleTimeSecs", Seconds.MINUTE * 4),
     cacheFSSyncquietPeriodSecs("cacheFS.sync.quietPeriodSecs", Seconds.MINUTE * 15),
     searchMaxResults("search.maxResults", 500),
@@ -69,7 +82,14 @@ public enum ConstantValues {
     gcFileScanSleepIterationMillis("gc.fileScanSleepIterationMillis", 1000),
     gcFileScanSleepMillis("gc.fileScanSleepMillis", 250),
     gcMaxCacheEntries("gc.maxCacheEntries", 10000),
+    gcStreamingEnabled("gc.streaming.enabled", FALSE),
+    gcStreamingPageSize("gc.streaming.pageSize", 10000),
+    gcStreamingDeleteBatchSize("gc.streaming.deleteBatchSize", 200),
+    gcStreamingWorkerThreads("gc.streaming.workerThreads", 4),
     trafficCollectionActive("traffic.collectionActive", FALSE),
+    trafficBinaryLogEnabled("traffic.binaryLog.enabled", FALSE),
+    trafficBinaryLogBlockEntries("traffic.binaryLog.blockEntries", 1024),
+    trafficBinaryLogFlushIntervalSecs("traffic.binaryLog.flushIntervalSecs", 10),
     securityAuthenticationCacheInitSize("security.authentication.cache.initSize", 100),
     securityAuthenticationCacheIdleTimeSecs("security.authentication.cache.idleTimeSecs", Seconds.MINUTE * 5),
     userLastAccessUpdatesResolutionSecs("security.userLastAccessUpdatesResolutionSecs", 5),
@@ -80,17 +100,30 @@ public enum ConstantValues {
     securityDisableRememberMe("security.disableRememberMe", FALSE),
     ldapForceGroupMemberAttFullDN("security.ldap.forceGroupMemberAttFullDN", FALSE),
     enableAqlReadCommitted("enable.aql.read.committed", FALSE),
+    aqlStreamingEnabled("aql.streaming.enabled", FALSE),
+    aqlStreamingPageSize("aql.streaming.pageSize", 1000),
+    aqlStreamingMaxRows("aql.streaming.maxRows", 0),
+    aqlStreamingMaxTimeSecs("aql.streaming.maxTimeSecs", 0),
+    aqlCostBasedOptimizerEnabled("aql.optimizer.costBased.enabled", FALSE),
+    aqlOptimizerStatisticsRefreshSecs("aql.optimizer.statistics.refreshSecs", Seconds.MINUTE * 10),
     mvnCentralHostPattern("mvn.central.hostPattern", ".maven.org"),
     mvnCentralIndexerMaxQueryIntervalSecs("mvn.central.indexerMaxQueryIntervalSecs", Seconds.DAY),
+    mvnIndexerIncrementalEnabled("mvn.indexer.incremental.enabled", FALSE),
+    mvnIndexerMaxIncrementalChunks("mvn.indexer.maxIncrementalChunks", 30),
+    mvnIndexerChangesOverlapSecs("mvn.indexer.changesOverlapSecs", 600),
+    mvnIndexerChangesRetentionHours("mvn.indexer.changesRetentionHours", 168),
     mvnMetadataVersionsComparator("mvn.metadataVersionsComparatorFqn"),
     mvnMetadataSnapshotComparator("mvn.metadataSnapshotComparatorFqn"),
     mvnDynamicMetadataCacheRetentionSecs("mvn.dynamicMetadata.cacheRetentionSecs", 10),
     mvnMetadataVersion3Enabled("mvn.metadata.version3.enabled", TRUE),
+    mvnMetadataIncrementalEnabled("mvn.metadata.incremental.enabled", FALSE),
     mvnCustomTypes("mvn.custom.types", "tar.gz,tar.bz2"),
     requestDisableVersionTokens("request.disableVersionTokens", FALSE),
     requestSearchLatestReleaseByDateCreated("request.searchLatestReleaseByDateCreated", FALSE),
     buildMaxFoldersToScanForDeletionWarnings("build.maxFoldersToScanForDeletionWarnings", 2),
     missingBuildChecksumCacheIdeTimeSecs("build.checksum.cache.idleTimeSecs", Seconds.MINUTE * 5),
+    buildJsonCompressionEnabled("build.json.compression.enabled", FALSE),
+    buildInsertBatchSize("build.insert.batchSize", 5000),
     artifactoryUpdatesRefreshIntervalSecs("updates.refreshIntervalSecs", Seconds.HOUR * 4),
     artifactoryUpdatesUrl("updates.url", "http://service.jfrog.org/artifactory/updates"),
     artifactoryRequestsToGlobalCanRetrieveRemoteArtifacts(
@@ -105,6 +138,10 @@ public enum ConstantValues {
     fileRollerMaxFilesToRetain("file.roller.maxFileToRetain", 10),
     backupFileExportSleepIterationMillis("backup.fileExportSleepIterationMillis", 2000),
     backupFileExportSleepMillis("backup.fileExportSleepMillis", 250),
+    backupChangeJournalEnabled("backup.changeJournal.enabled", FALSE),
+    backupChangeJournalOverlapSecs("backup.changeJournal.overlapSecs", 600),
+    backupChangeJournalRetentionHours("backup.changeJournal.retentionHours", 168),
+    backupChangeJournalConsumersRefreshSecs("backup.changeJournal.consumersRefreshSecs", 30),
     s3backupBucket("backup.s3.bucket"),
     s3backupFolder("backup.s3.folder"),
     s3backupAccountId("backup.s3.accountId"),
@@ -113,6 +150,8 @@ public enum ConstantValues {
     httpUseExpectContinue("http.useExpectContinue", false),
     httpForceForbiddenResponse("http.forceForbiddenResponse", FALSE),
     enableCookieManagement("http.enableCookieManagement", false),
+    webdavPropfindPageSize("webdav.propfind.pageSize", 1000),
+    webdavPropfindMaxResponses("webdav.propfind.maxResponses", 10000),
     filteringResourceSizeKb("filtering.resourceSizeKb", 64),
     searchForExistingResourceOnRemoteRequest("repo.remote.checkForExistingResourceOnRequest", TRUE),
     versionQueryEnabled("version.query.enabled", true),
@@ -148,12 +187,14 @@ public enum ConstantValues {
     statsFlushIntervalSecs("stats.flushIntervalSecs", 30),
     statsRemoteFlushIntervalSecs("stats.remote.flushIntervalSecs", 35),
     statsFlushTimeoutSecs("stats.flushTimeoutSecs", 120),
+    statsFlushBatchSize("stats.flushBatchSize", 100),
     integrationCleanupIntervalSecs("integrationCleanup.intervalSecs", 300),
     integrationCleanupQuietPeriodSecs("integrationCleanup.quietPeriodSecs", 60),
     folderPruningIntervalSecs("folderPruning.intervalSecs", 300),
     folderPruningQuietPeriodSecs("folderPruning.quietPeriodSecs", 60),
     virtualCleanupMaxAgeHours("repo.virtualCacheCleanup.maxAgeHours", 168),
     virtualCleanupNamePattern("repo.virtualCacheCleanup.pattern", "*.pom"),
+    virtualParallelRemoteResolutionEnabled("repo.virtual.parallelRemoteResolution.enabled", FALSE),
     defaultSaltValue("security.authentication.password.salt", "CAFEBABEEBABEFAC"),
     dbIdGeneratorFetchAmount("db.idGenerator.fetch.amount", 2000),
     dbIdGeneratorMaxUpdateRetries("db.idGenerator.max.update.retries", 50),
@@ -165,6 +206,8 @@ public enum ConstantValues {
     securityCrowdMaxGroupResults("security.authentication.crowd.group.maxResults", 9999),
     uiHideChecksums("ui.hideChecksums", FALSE),
     archiveIndexerTaskIntervalSecs("archive.indexer.intervalSecs", 60),
+    archiveIndexerMaxParallelism("archive.indexer.maxParallelism", 4),
+    archiveIndexerQueuePageSize("archive.indexer.queuePageSize", 100),
     inMemoryNuGetRemoteCaches("nuget.inMemoryRemoteCaches", TRUE),
     nuGetRequireAuthentication("nuget.forceAuthentication", FALSE),
     nuGetAllowRootGetWithAnon("nuget.allowRootGetWithAnon", FALSE),
@@ -176,6 +219,7 @@ public enum ConstantValues {
     npmIndexQuietPeriodSecs("npm.index.quietPeriodSecs", 60),
     npmIndexCycleSecs("npm.index.cycleSecs", 60),
     importMaxParallelRepos("import.max.parallelRepos", Runtime.getRuntime().availableProcessors() - 1),
+    importMaxParallelFolders("import.max.parallelFolders", 4),
     debianDistributionPath("debian.distribution.path", "dists"),
     debianIndexQuietPeriodSecs("debian.index.quietPeriodSecs", 60),
     debianIndexCycleSecs("debian.index.cycleSecs", 2),
@@ -184,7 +228,12 @@ public enum ConstantValues {
     pypiIndexSleepSecs("pypi.index.sleepMilliSecs", 60),
     dockerCleanupMaxAgeMillis("docker.cleanup.maxAgeMillis", Seconds.DAY * 1000),
     httpRangeSupport("http.range.support", true),
+    parallelDigestEnabled("binary.parallelDigest.enabled", FALSE),
+    parallelDigestThreads("binary.parallelDigest.threads", 4),
+    parallelDigestChunkKb("binary.parallelDigest.chunkKb", 1024),
+    parallelDigestMaxMemoryMb("binary.parallelDigest.maxMemoryMb", 64),
     aclDirtyReadsTimeout("acl.dirty.read.timeout", 20000),
+    aclPermissionDecisionsCacheSize("acl.permissionDecisions.cacheSize", 10000),
     allowUnauthenticatedPing("ping.allowUnauthenticated", FALSE), // in milliseconds
     idleConnectionMonitorInterval("repo.http.idleConnectionMonitorInterval", 10),
     disableIdleConnectionMonitoring("repo.http.disableIdleConnectionMonitoring", FALSE),
@@ -21,9 +21,12 @@ package org.artifactory.io.checksum;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 
 /*
  * @author Yoav Landman
@@ -32,6 +35,8 @@ public class ChecksumInputStream extends BufferedInputStream {
     private static final Logger log = LoggerFactory.getLogger(ChecksumInputStream.class);
 
     private final Checksum[] checksums;
+    @Nullable
+    private final ParallelDigester digester;
     private boolean closed;
     /**
      * Total bytes read by this stream
@@ -39,8 +44,24 @@ public class ChecksumInputStream extends BufferedInputStream {
     private long totalBytesRead;
 
     public ChecksumInputStream(InputStream is, Checksum... checksums) {
+        this(is, null, 0, null, checksums);
+    }
+
+    /**
+     * @param is              The input stream to calculate the checksums of
+     * @param digestExecutor  Executor for calculating the checksums in parallel, null to calculate them on the reading
+     *                        thread
+     * @param digestChunkSize Number of bytes digested by each parallel task
+     * @param digestMemory    Memory budget of the parallel digest chunks in KB permits, null for no limit
+     * @param checksums       The checksums to calculate
+     * @see ParallelDigester
+     */
+    public ChecksumInputStream(InputStream is, @Nullable Executor digestExecutor, int digestChunkSize,
+            @Nullable Semaphore digestMemory, Checksum... checksums) {
         super(is);
         this.checksums = checksums;
+        this.digester = digestExecutor != null ?
+                new ParallelDigester(checksums, digestExecutor, digestChunkSize, digestMemory) : null;
     }
 
     public Checksum[] getChecksums() {
@@ -71,6 +92,9 @@ public class ChecksumInputStream extends BufferedInputStream {
         log.trace("Resetting {}", in);
         super.reset();
         totalBytesRead = 0L;
+        if (digester != null) {
+            digester.reset();
+        }
         for (Checksum checksum : checksums) {
             checksum.reset();
         }
@@ -93,8 +117,12 @@ public class ChecksumInputStream extends BufferedInputStream {
         log.trace("{} bytes read from {}", bytesRead, in);
         if (bytesRead != -1) {
             totalBytesRead += bytesRead;
-            for (Checksum checksum : checksums) {
-                checksum.update(b, off, bytesRead);
+            if (digester != null) {
+                digester.update(b, off, bytesRead);
+            } else {
+                for (Checksum checksum : checksums) {
+                    checksum.update(b, off, bytesRead);
+                }
             }
         }
         return bytesRead;
@@ -105,6 +133,9 @@ public class ChecksumInputStream extends BufferedInputStream {
         super.close();
         if (!closed) {
             log.trace("Total bytes read: {}", totalBytesRead);
+            if (digester != null) {
+                digester.finish();
+            }
             for (Checksum checksum : checksums) {
                 checksum.calc();
                 log.trace("Calculated checksum: '{}:{}'", checksum.getType(), checksum.getChecksum());
@@ -0,0 +1,246 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.io.checksum;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.artifactory.common.ConstantValues;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Updates several checksums of a stream in parallel, one task per checksum and chunk.
+ * <p/>
+ * The bytes are copied to a chunk buffer and a full chunk is digested by the executor while the caller fills the next
+ * one, so each checksum runs on its own thread and the caller is left with the copy and its own I/O. A chunk is
+ * dispatched only after the previous one was digested, which keeps the updates of each checksum in order and the
+ * memory at two chunks. A task that no pool thread started yet is run by the caller when it waits for the chunk, so a
+ * saturated pool only degrades the calculation to the sequential one.
+ * <p/>
+ * The first chunk of the stream is digested by the caller, small streams don't pay for the dispatch or the buffers.
+ * The two chunks are reserved from a memory budget shared by all the streams (in KB permits) and released when the
+ * digest finishes. If the budget is exhausted the whole stream is digested by the caller.
+ */
+public class ParallelDigester {
+
+    private static ExecutorService binaryDigestExecutor;
+    private static Semaphore binaryDigestMemory;
+
+    private final Checksum[] checksums;
+    private final Executor executor;
+    private final int chunkSize;
+    @Nullable
+    private final Semaphore memory;
+    private int reservedPermits;
+    private boolean sequential;
+    private long inlineBytes;
+    private byte[] chunk;
+    private byte[] spareChunk;
+    private int chunkLength;
+    private FutureTask<?>[] inFlight;
+
+    /**
+     * @param checksums The checksums to update
+     * @param executor  Executor of the digest tasks
+     * @param chunkSize Number of bytes digested by each task
+     * @param memory    Memory budget of the chunks in KB permits, null for no limit
+     */
+    ParallelDigester(Checksum[] checksums, Executor executor, int chunkSize, @Nullable Semaphore memory) {
+        this.checksums = checksums;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.memory = memory;
+    }
+
+    /**
+     * @return The shared executor of the binaries digests, or null if parallel digest is disabled
+     */
+    @Nullable
+    public static synchronized Executor getBinaryDigestExecutor() {
+        if (!ConstantValues.parallelDigestEnabled.getBoolean()) {
+            return null;
+        }
+        if (binaryDigestExecutor == null) {
+            binaryDigestExecutor = Executors.newFixedThreadPool(ConstantValues.parallelDigestThreads.getInt(),
+                    new ThreadFactoryBuilder().setNameFormat("art-digest-%s").setDaemon(true).build());
+        }
+        return binaryDigestExecutor;
+    }
+
+    /**
+     * @return The memory budget of the binaries digest chunks in KB permits
+     */
+    public static synchronized Semaphore getBinaryDigestMemory() {
+        if (binaryDigestMemory == null) {
+            binaryDigestMemory = new Semaphore(ConstantValues.parallelDigestMaxMemoryMb.getInt() * 1024);
+        }
+        return binaryDigestMemory;
+    }
+
+    /**
+     * Shuts down the shared executor of the binaries digests. Tasks that didn't start are run by their callers.
+     */
+    public static synchronized void shutdownBinaryDigestExecutor() {
+        if (binaryDigestExecutor != null) {
+            binaryDigestExecutor.shutdown();
+            binaryDigestExecutor = null;
+        }
+    }
+
+    /**
+     * @return The digest chunk size of the binaries in bytes
+     */
+    public static int getBinaryDigestChunkSize() {
+        return ConstantValues.parallelDigestChunkKb.getInt() * 1024;
+    }
+
+    void update(byte[] bytes, int off, int length) throws IOException {
+        if (chunk == null) {
+            if (sequential || inlineBytes + length <= chunkSize || checksums.length < 2 || !reserveChunks()) {
+                for (Checksum checksum : checksums) {
+                    checksum.update(bytes, off, length);
+                }
+                inlineBytes += length;
+                return;
+            }
+            chunk = new byte[chunkSize];
+        }
+        while (length > 0) {
+            int copied = Math.min(length, chunkSize - chunkLength);
+            System.arraycopy(bytes, off, chunk, chunkLength, copied);
+            chunkLength += copied;
+            off += copied;
+            length -= copied;
+            if (chunkLength == chunkSize) {
+                dispatch();
+            }
+        }
+    }
+
+    /**
+     * Digests the remaining bytes and waits for all the tasks, the checksums are up to date when this method returns
+     */
+    void finish() throws IOException {
+        try {
+            if (chunkLength > 0) {
+                dispatch();
+            }
+            awaitInFlight();
+        } finally {
+            releaseChunks();
+        }
+    }
+
+    /**
+     * Discards the pending bytes, the checksums should be reset by the caller
+     */
+    void reset() throws IOException {
+        awaitInFlight();
+        inlineBytes = 0L;
+        chunkLength = 0;
+    }
+
+    private boolean reserveChunks() {
+        if (memory == null) {
+            return true;
+        }
+        int permits = (int) ((2L * chunkSize + 1023) / 1024);
+        if (!memory.tryAcquire(permits)) {
+            sequential = true;
+            return false;
+        }
+        reservedPermits = permits;
+        return true;
+    }
+
+    private void releaseChunks() {
+        chunk = null;
+        spareChunk = null;
+        chunkLength = 0;
+        if (reservedPermits > 0) {
+            memory.release(reservedPermits);
+            reservedPermits = 0;
+        }
+    }
+
+    private void dispatch() throws IOException {
+        // the spare chunk is free only after the previous tasks are done
+        awaitInFlight();
+        final byte[] data = chunk;
+        final int length = chunkLength;
+        FutureTask<?>[] tasks = new FutureTask<?>[checksums.length];
+        for (int i = 0; i < checksums.length; i++) {
+            final Checksum checksum = checksums[i];
+            tasks[i] = new FutureTask<>(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    checksum.update(data, 0, length);
+                    return null;
+                }
+            });
+            try {
+                executor.execute(tasks[i]);
+            } catch (RejectedExecutionException e) {
+                // the caller runs the task when it waits for it
+            }
+        }
+        inFlight = tasks;
+        chunk = spareChunk != null ? spareChunk : new byte[chunkSize];
+        spareChunk = data;
+        chunkLength = 0;
+    }
+
+    private void awaitInFlight() throws IOException {
+        if (inFlight == null) {
+            return;
+        }
+        FutureTask<?>[] tasks = inFlight;
+        inFlight = null;
+        for (FutureTask<?> task : tasks) {
+            // no-op if a pool thread already started the task
+            task.run();
+        }
+        for (FutureTask<?> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the checksums calculation");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException("Failed to calculate checksum", cause);
+            }
+        }
+    }
+}
@@ -22,7 +22,10 @@ import org.artifactory.checksum.ChecksumType;
 import org.artifactory.storage.binstore.service.SkippableInputStream;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.InputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 
 /**
  * A {@link org.artifactory.io.checksum.ChecksumInputStream} that calculates SHA-1 and MD5 checksums.
@@ -33,8 +36,21 @@ public class Sha1Md5ChecksumInputStream extends ChecksumInputStream implements S
     private final InputStream inputStream;
 
     public Sha1Md5ChecksumInputStream(InputStream is) {
+        this(is, null, 0, null);
+    }
+
+    /**
+     * @param is              The input stream to calculate the checksums of
+     * @param digestExecutor  Executor for calculating the checksums in parallel, null to calculate them on the reading
+     *                        thread
+     * @param digestChunkSize Number of bytes digested by each parallel task
+     * @param digestMemory    Memory budget of the parallel digest chunks in KB permits, null for no limit
+     */
+    public Sha1Md5ChecksumInputStream(InputStream is, @Nullable Executor digestExecutor, int digestChunkSize,
+            @Nullable Semaphore digestMemory) {
         // the order of the checksums does matter
-        super(is, new Checksum(ChecksumType.sha1), new Checksum(ChecksumType.md5));
+        super(is, digestExecutor, digestChunkSize, digestMemory, new Checksum(ChecksumType.sha1),
+                new Checksum(ChecksumType.md5));
         inputStream=is;
     }
 
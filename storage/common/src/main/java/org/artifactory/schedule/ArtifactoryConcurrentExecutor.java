@@ -19,6 +19,7 @@
 package org.artifactory.schedule;
 
 import org.artifactory.api.context.ArtifactoryContextThreadBinder;
+import org.artifactory.api.repo.AsyncPool;
 import org.artifactory.common.ArtifactoryHome;
 import org.artifactory.common.ConstantValues;
 import org.artifactory.storage.spring.ArtifactoryStorageContext;
@@ -33,8 +34,11 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
 
 /**
  * @author Yossi Shaul
@@ -44,19 +48,30 @@ public class ArtifactoryConcurrentExecutor implements Executor {
 
     private static final Logger log = LoggerFactory.getLogger(ArtifactoryConcurrentExecutor.class);
 
+    private final AsyncPool pool;
     private final ArtifactoryStorageContext storageContext;
     private final ThreadPoolExecutor executor;
+    private final AtomicLong startedTasks = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicLong rejectedTasks = new AtomicLong();
 
     ArtifactoryConcurrentExecutor() {
-        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("art-exec-");
-        threadFactory.setThreadPriority(Thread.NORM_PRIORITY);
+        this(AsyncPool.DEFAULT);
+    }
+
+    ArtifactoryConcurrentExecutor(AsyncPool pool) {
+        this.pool = pool;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+                pool == AsyncPool.DEFAULT ? "art-exec-" : "art-" + pool.getPoolName() + "-");
         executor = new ThreadPoolExecutor(
-                ConstantValues.asyncCorePoolSize.getInt(),
-                ConstantValues.asyncCorePoolSize.getInt(),
+                pool.getThreads(),
+                pool.getThreads(),
                 ConstantValues.asyncPoolTtlSecs.getInt(),
                 TimeUnit.SECONDS,
-                new LinkedBlockingQueue<Runnable>(ConstantValues.asyncPoolMaxQueueSize.getInt()),
-                threadFactory);
+                new LinkedBlockingQueue<Runnable>(pool.getQueueSize()),
+                threadFactory,
+                new RejectionHandler(pool.getRejection()));
         executor.allowCoreThreadTimeOut(true);
         storageContext = StorageContextHelper.get();
     }
@@ -86,7 +101,7 @@ public class ArtifactoryConcurrentExecutor implements Executor {
     class RunnableWrapper implements Runnable {
         private final Runnable delegate;
         private final Authentication authentication;
-
+        private final long submitted = System.nanoTime();
 
         RunnableWrapper(Runnable delegate, Authentication authentication) {
             this.delegate = delegate;
@@ -95,6 +110,10 @@ public class ArtifactoryConcurrentExecutor implements Executor {
 
         @Override
         public void run() {
+            long waitNanos = System.nanoTime() - submitted;
+            startedTasks.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            maxWaitNanos.accumulate(waitNanos);
             try {
                 ArtifactoryContextThreadBinder.bind(storageContext);
                 ArtifactoryHome.bind(storageContext.getArtifactoryHome());
@@ -112,6 +131,75 @@ public class ArtifactoryConcurrentExecutor implements Executor {
         }
     }
 
+    /**
+     * Applies the rejection policy of the pool. Discarded tasks are cancelled, so callers waiting on their future
+     * are not blocked forever. Waiting submitters are rejected if the pool is shut down or they are interrupted.
+     */
+    private class RejectionHandler implements RejectedExecutionHandler {
+        private final AsyncPool.Rejection rejection;
+
+        private RejectionHandler(AsyncPool.Rejection rejection) {
+            this.rejection = rejection;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            rejectedTasks.incrementAndGet();
+            if (rejection == AsyncPool.Rejection.ABORT || executor.isShutdown()) {
+                throw new RejectedExecutionException("The " + pool.getPoolName() + " pool rejected the task, " +
+                        (executor.isShutdown() ? "the pool is shut down" : "queue is full"));
+            }
+            if (rejection == AsyncPool.Rejection.WAIT) {
+                waitForRoom(task, executor);
+                return;
+            }
+            if (rejection == AsyncPool.Rejection.DISCARD_OLDEST) {
+                Runnable oldest = executor.getQueue().poll();
+                if (oldest != null) {
+                    log.debug("The {} pool discarded its oldest task {}", pool.getPoolName(), oldest);
+                    cancel(oldest);
+                    executor.execute(task);
+                    return;
+                }
+            }
+            log.debug("The {} pool discarded task {}", pool.getPoolName(), task);
+            cancel(task);
+        }
+
+        private void waitForRoom(Runnable task, ThreadPoolExecutor executor) {
+            log.debug("The {} pool queue is full, waiting for room for task {}", pool.getPoolName(), task);
+            try {
+                while (!executor.getQueue().offer(task, 1, TimeUnit.SECONDS)) {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("The " + pool.getPoolName() +
+                                " pool rejected the task, the pool is shut down");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for room in the " +
+                        pool.getPoolName() + " pool queue", e);
+            }
+            // the pool might have been shut down while the task was queued, it would never run
+            if (executor.isShutdown() && executor.getQueue().remove(task)) {
+                throw new RejectedExecutionException("The " + pool.getPoolName() +
+                        " pool rejected the task, the pool is shut down");
+            }
+        }
+
+        private void cancel(Runnable task) {
+            // executed tasks are queued as wrappers of the caller's future, submitted tasks as futures
+            Runnable queued = task instanceof RunnableWrapper ? ((RunnableWrapper) task).delegate : task;
+            if (queued instanceof Future) {
+                ((Future<?>) queued).cancel(false);
+            }
+        }
+    }
+
+    public String getPoolName() {
+        return pool.getPoolName();
+    }
+
     public int getActiveCount() {
         return executor.getActiveCount();
     }
@@ -136,6 +224,30 @@ public class ArtifactoryConcurrentExecutor implements Executor {
         return executor.getTaskCount();
     }
 
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public int getQueueRemainingCapacity() {
+        return executor.getQueue().remainingCapacity();
+    }
+
+    public long getRejectedTaskCount() {
+        return rejectedTasks.get();
+    }
+
+    /**
+     * @return The average time the started tasks waited in the queue
+     */
+    public long getAverageWaitMillis() {
+        long started = startedTasks.get();
+        return started == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / started);
+    }
+
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
     public void setCorePoolSize(int corePoolSize) {
         executor.setCorePoolSize(corePoolSize);
     }
@@ -0,0 +1,61 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.artifactory.schedule;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.artifactory.api.repo.AsyncPool;
+
+import java.util.Map;
+
+/**
+ * The executors of the {@link AsyncPool}s. The default pool is the shared task executor, every other pool has its own
+ * bounded executor that is used only by the async invocations that select it.
+ */
+public class AsyncExecutorPools {
+
+    private final Map<AsyncPool, CachedThreadPoolTaskExecutor> executors;
+
+    public AsyncExecutorPools(CachedThreadPoolTaskExecutor defaultExecutor) {
+        Map<AsyncPool, CachedThreadPoolTaskExecutor> poolExecutors = Maps.newEnumMap(AsyncPool.class);
+        for (AsyncPool pool : AsyncPool.values()) {
+            poolExecutors.put(pool,
+                    pool == AsyncPool.DEFAULT ? defaultExecutor : new CachedThreadPoolTaskExecutor(pool));
+        }
+        executors = ImmutableMap.copyOf(poolExecutors);
+    }
+
+    public CachedThreadPoolTaskExecutor getExecutor(AsyncPool pool) {
+        return executors.get(pool);
+    }
+
+    public Map<AsyncPool, CachedThreadPoolTaskExecutor> getExecutors() {
+        return executors;
+    }
+
+    /**
+     * Shuts down the named pools, the default executor is shut down by its owner
+     */
+    public void destroy() {
+        for (Map.Entry<AsyncPool, CachedThreadPoolTaskExecutor> entry : executors.entrySet()) {
+            if (entry.getKey() != AsyncPool.DEFAULT) {
+                entry.getValue().destroy();
+            }
+        }
+    }
+}
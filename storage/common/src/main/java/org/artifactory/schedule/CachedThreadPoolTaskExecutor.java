@@ -18,7 +18,7 @@
 
 package org.artifactory.schedule;
 
-
+import org.artifactory.api.repo.AsyncPool;
 import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
 
 import java.util.concurrent.Future;
@@ -32,6 +32,10 @@ public class CachedThreadPoolTaskExecutor extends ConcurrentTaskExecutor {
         super(new ArtifactoryConcurrentExecutor());
     }
 
+    public CachedThreadPoolTaskExecutor(AsyncPool pool) {
+        super(new ArtifactoryConcurrentExecutor(pool));
+    }
+
     private ArtifactoryConcurrentExecutor getArtifactoryExecutor() {
         return (ArtifactoryConcurrentExecutor) getConcurrentExecutor();
     }
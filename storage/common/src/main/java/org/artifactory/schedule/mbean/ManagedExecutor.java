@@ -44,4 +44,34 @@ public class ManagedExecutor implements ManagedExecutorMBean {
     public long getTaskCount() {
         return artifactoryConcurrentExecutor.getTaskCount();
     }
+
+    @Override
+    public String getPoolName() {
+        return artifactoryConcurrentExecutor.getPoolName();
+    }
+
+    @Override
+    public int getQueueSize() {
+        return artifactoryConcurrentExecutor.getQueueSize();
+    }
+
+    @Override
+    public int getQueueRemainingCapacity() {
+        return artifactoryConcurrentExecutor.getQueueRemainingCapacity();
+    }
+
+    @Override
+    public long getRejectedTaskCount() {
+        return artifactoryConcurrentExecutor.getRejectedTaskCount();
+    }
+
+    @Override
+    public long getAverageWaitMillis() {
+        return artifactoryConcurrentExecutor.getAverageWaitMillis();
+    }
+
+    @Override
+    public long getMaxWaitMillis() {
+        return artifactoryConcurrentExecutor.getMaxWaitMillis();
+    }
 }
@@ -18,4 +18,16 @@ public interface ManagedExecutorMBean {
     int getMaximumPoolSize();
 
     long getTaskCount();
+
+    String getPoolName();
+
+    int getQueueSize();
+
+    int getQueueRemainingCapacity();
+
+    long getRejectedTaskCount();
+
+    long getAverageWaitMillis();
+
+    long getMaxWaitMillis();
 }
@@ -46,11 +46,21 @@ public class GarbageCollectorInfo {
     public long totalSizeCleaned;
     public int archivePathsCleaned; // the amount of unique archive paths cleaned
     public int archiveNamesCleaned; // the amount of unique archive names cleaned
+    public int pagesScanned; // the amount of candidate pages read by the streaming garbage collector
 
     public GarbageCollectorInfo() {
         gcStartTime = System.currentTimeMillis();
     }
 
+    /**
+     * @return The amount of binaries cleaned per second since the garbage collection started
+     */
+    public double getBinariesCleanedPerSecond() {
+        long end = gcEndTime > 0 ? gcEndTime : System.currentTimeMillis();
+        long elapsed = Math.max(1, end - gcStartTime);
+        return binariesCleaned * 1000d / elapsed;
+    }
+
     /**
      * Prints a summary of the collected info to the log
      *
@@ -66,6 +76,12 @@ public class GarbageCollectorInfo {
                 "Binaries deleted:        ").append(formatLong(binariesCleaned)).append("\n").append(
                 "Total size freed:        ").append(StorageUnit.toReadableString(totalSizeCleaned));
 
+        if (pagesScanned > 0) {
+            msg.append("\n").append("Pages scanned:           ").append(formatLong(pagesScanned));
+            msg.append("\n").append("Binaries per second:     ").append(
+                    String.format("%.2f", getBinariesCleanedPerSecond()));
+        }
+
         if (log.isDebugEnabled()) {
             msg.append("\n").append("Unique paths deleted:    ").append(formatLong(archivePathsCleaned));
             msg.append("\n").append("Unique names deleted:    ").append(formatLong(archiveNamesCleaned));
@@ -3,6 +3,7 @@ package org.artifactory.storage.binstore.service;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.artifactory.binstore.BinaryInfo;
+import org.artifactory.io.checksum.ParallelDigester;
 import org.artifactory.io.checksum.Sha1Md5ChecksumInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,6 +11,7 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
@@ -20,6 +22,7 @@ import java.util.Random;
  */
 public class BinaryProviderHelper {
     private static final Logger log = LoggerFactory.getLogger(BinaryProviderHelper.class);
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
     private static Random random;
 
     private static synchronized Random initRNG() {
@@ -31,13 +34,9 @@ public class BinaryProviderHelper {
         Sha1Md5ChecksumInputStream checksumStream = null;
         try {
             // First save to a temp file and calculate checksums while saving
-            if (in instanceof Sha1Md5ChecksumInputStream) {
-                checksumStream = (Sha1Md5ChecksumInputStream) in;
-            } else {
-                checksumStream = new Sha1Md5ChecksumInputStream(in);
-            }
+            checksumStream = createChecksumStream(in);
             log.trace("Saving temp file:  '{}'", preFileStoreFile.getAbsolutePath());
-            FileUtils.copyInputStreamToFile(checksumStream, preFileStoreFile);
+            copyToFile(checksumStream, preFileStoreFile);
             log.trace("Saved  temp file:  '{}'", preFileStoreFile.getAbsolutePath());
             long fileLength = preFileStoreFile.length();
             if (fileLength != checksumStream.getTotalBytesRead()) {
@@ -50,6 +49,38 @@ public class BinaryProviderHelper {
         }
     }
 
+    /**
+     * Copies the stream to the file and closes the stream. The large buffer keeps the number of reads, checksums
+     * updates and file writes low.
+     */
+    private static void copyToFile(InputStream in, File file) throws IOException {
+        OutputStream out = FileUtils.openOutputStream(file);
+        try {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                out.write(buffer, 0, bytesRead);
+            }
+            out.close();
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+        // closing the checksum stream completes the checksums
+        in.close();
+    }
+
+    /**
+     * @return The stream itself if it already calculates the checksums, otherwise a stream that calculates the SHA-1
+     * and MD5 checksums of the binary while it is read, in parallel if enabled
+     */
+    public static Sha1Md5ChecksumInputStream createChecksumStream(InputStream in) {
+        if (in instanceof Sha1Md5ChecksumInputStream) {
+            return (Sha1Md5ChecksumInputStream) in;
+        }
+        return new Sha1Md5ChecksumInputStream(in, ParallelDigester.getBinaryDigestExecutor(),
+                ParallelDigester.getBinaryDigestChunkSize(), ParallelDigester.getBinaryDigestMemory());
+    }
+
     public static File persistFile(BinaryInfo binaryInfo, File preFileStoreFile,
             FileProviderStrategy fileProviderStrategy) throws IOException {
         // move the file to its final destination
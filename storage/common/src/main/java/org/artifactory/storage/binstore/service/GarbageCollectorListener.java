@@ -10,5 +10,14 @@ import java.util.Collection;
 public interface GarbageCollectorListener {
     void start();
     void toDelete(Collection<BinaryData> binsToDelete);
+
+    /**
+     * Called by the streaming garbage collector after each page of candidates is processed
+     *
+     * @param progress The accumulated results so far
+     */
+    default void progress(GarbageCollectorInfo progress) {
+    }
+
     void finished(GarbageCollectorInfo result);
 }
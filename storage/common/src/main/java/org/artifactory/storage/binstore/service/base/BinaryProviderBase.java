@@ -41,6 +41,12 @@ public abstract class BinaryProviderBase implements BinaryProvider {
         mutableBinaryProvider.initialize();
     }
 
+    /**
+     * Releases the resources of the provider. Called once when the binary store is destroyed.
+     */
+    public void destroy() {
+    }
+
     public BinaryProviderBase next() {
         return mutableBinaryProvider.next();
     }
@@ -0,0 +1,399 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.storage.binstore.service.providers;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A size aware LRU index of the cache-fs entries packed into primitive arrays.
+ * <p/>
+ * Each entry holds the 20 bytes of the sha1 (as two longs and an int) and the file size. The access order is kept
+ * by an intrusive doubly linked list over the entry slots, so touching and evicting an entry are O(1) and no sorting
+ * is needed. An entry costs about 48 bytes of heap and no object is allocated per entry.
+ * <p/>
+ * The index can be saved to and loaded from a compact snapshot file (eldest entry first) so the access order is kept
+ * after a restart without scanning the cache folder.
+ */
+class CacheLruIndex {
+    private static final int SNAPSHOT_MAGIC = 0x4C525531; // "LRU1"
+    private static final int NONE = -1;
+
+    // entry slots
+    private long[] keyHigh;
+    private long[] keyMid;
+    private int[] keyLow;
+    private long[] sizes;
+    private int[] prev;
+    private int[] next;
+    private int[] chain; // next slot in the same hash bucket, or next free slot for free slots
+
+    private int[] buckets;
+    private int head = NONE; // eldest entry
+    private int tail = NONE; // most recently used entry
+    private int freeSlot = NONE;
+    private int usedSlots;
+    private int count;
+    private long totalSize;
+
+    CacheLruIndex(int initialCapacity) {
+        allocate(Math.max(16, Integer.highestOneBit(Math.max(1, initialCapacity - 1)) << 1));
+    }
+
+    /**
+     * @param sha1 A valid sha1 checksum string
+     * @return True if the string can be used as a key of this index
+     */
+    static boolean isValidKey(String sha1) {
+        if (sha1 == null || sha1.length() != 40) {
+            return false;
+        }
+        for (int i = 0; i < 40; i++) {
+            if (Character.digit(sha1.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marks the entry as the most recently used, adding it if not already in the index.
+     *
+     * @return True if a new entry was added
+     */
+    synchronized boolean touch(String sha1, long size) {
+        long high = parseHex(sha1, 0, 16);
+        long mid = parseHex(sha1, 16, 32);
+        int low = (int) parseHex(sha1, 32, 40);
+        int slot = find(high, mid, low);
+        if (slot != NONE) {
+            unlink(slot);
+            linkLast(slot);
+            return false;
+        }
+        slot = insert(high, mid, low, size);
+        linkLast(slot);
+        return true;
+    }
+
+    /**
+     * Marks the entry as the most recently used if it is in the index.
+     *
+     * @return True if the entry is in the index
+     */
+    synchronized boolean markUsed(String sha1) {
+        int slot = find(parseHex(sha1, 0, 16), parseHex(sha1, 16, 32), (int) parseHex(sha1, 32, 40));
+        if (slot == NONE) {
+            return false;
+        }
+        unlink(slot);
+        linkLast(slot);
+        return true;
+    }
+
+    /**
+     * Adds the entry as the eldest entry of the index if it is not already in the index. Used when indexing existing
+     * files whose last access is unknown.
+     *
+     * @return True if a new entry was added
+     */
+    synchronized boolean addEldestIfAbsent(String sha1, long size) {
+        long high = parseHex(sha1, 0, 16);
+        long mid = parseHex(sha1, 16, 32);
+        int low = (int) parseHex(sha1, 32, 40);
+        if (find(high, mid, low) != NONE) {
+            return false;
+        }
+        int slot = insert(high, mid, low, size);
+        linkFirst(slot);
+        return true;
+    }
+
+    /**
+     * @return The size of the removed entry or -1 if the entry is not in the index
+     */
+    synchronized long remove(String sha1) {
+        long high = parseHex(sha1, 0, 16);
+        long mid = parseHex(sha1, 16, 32);
+        int low = (int) parseHex(sha1, 32, 40);
+        int bucket = bucketOf(high, mid, low);
+        int previous = NONE;
+        for (int slot = buckets[bucket]; slot != NONE; previous = slot, slot = chain[slot]) {
+            if (keyHigh[slot] == high && keyMid[slot] == mid && keyLow[slot] == low) {
+                if (previous == NONE) {
+                    buckets[bucket] = chain[slot];
+                } else {
+                    chain[previous] = chain[slot];
+                }
+                unlink(slot);
+                long size = sizes[slot];
+                chain[slot] = freeSlot;
+                freeSlot = slot;
+                count--;
+                totalSize -= size;
+                return size;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param max Maximum number of entries to return
+     * @return Up to max sha1 keys of the least recently used entries, eldest first
+     */
+    synchronized List<String> eldest(int max) {
+        List<String> result = new ArrayList<>(Math.min(max, count));
+        for (int slot = head; slot != NONE && result.size() < max; slot = next[slot]) {
+            result.add(keyOf(slot));
+        }
+        return result;
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    synchronized long totalSize() {
+        return totalSize;
+    }
+
+    /**
+     * Writes all the entries, eldest first, to the given file. The snapshot is written to a temp file which replaces
+     * the target only once fully written.
+     */
+    void writeSnapshot(File snapshotFile) throws IOException {
+        File tempFile = new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 64 * 1024));
+            synchronized (this) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(count);
+                for (int slot = head; slot != NONE; slot = next[slot]) {
+                    out.writeLong(keyHigh[slot]);
+                    out.writeLong(keyMid[slot]);
+                    out.writeInt(keyLow[slot]);
+                    out.writeLong(sizes[slot]);
+                }
+            }
+            out.close();
+            java.nio.file.Files.move(tempFile.toPath(), snapshotFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            IOUtils.closeQuietly(out);
+            if (tempFile.exists()) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Loads the entries of a snapshot written by {@link #writeSnapshot(java.io.File)}. Loaded entries are considered
+     * less recently used than the entries already in the index.
+     *
+     * @return The number of entries added to the index
+     */
+    int loadSnapshot(File snapshotFile) throws IOException {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile), 64 * 1024));
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Unexpected cache index snapshot format in " + snapshotFile.getAbsolutePath());
+            }
+            int entries = in.readInt();
+            int added = 0;
+            synchronized (this) {
+                int insertAfter = NONE;
+                for (int i = 0; i < entries; i++) {
+                    long high = in.readLong();
+                    long mid = in.readLong();
+                    int low = in.readInt();
+                    long size = in.readLong();
+                    if (find(high, mid, low) != NONE) {
+                        continue;
+                    }
+                    int slot = insert(high, mid, low, size);
+                    // keep the snapshot order ahead of entries touched since startup
+                    linkAfter(slot, insertAfter);
+                    insertAfter = slot;
+                    added++;
+                }
+            }
+            return added;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private int find(long high, long mid, int low) {
+        for (int slot = buckets[bucketOf(high, mid, low)]; slot != NONE; slot = chain[slot]) {
+            if (keyHigh[slot] == high && keyMid[slot] == mid && keyLow[slot] == low) {
+                return slot;
+            }
+        }
+        return NONE;
+    }
+
+    private int insert(long high, long mid, int low, long size) {
+        int slot;
+        if (freeSlot != NONE) {
+            slot = freeSlot;
+            freeSlot = chain[slot];
+        } else {
+            if (usedSlots == keyHigh.length) {
+                grow();
+            }
+            slot = usedSlots++;
+        }
+        keyHigh[slot] = high;
+        keyMid[slot] = mid;
+        keyLow[slot] = low;
+        sizes[slot] = size;
+        int bucket = bucketOf(high, mid, low);
+        chain[slot] = buckets[bucket];
+        buckets[bucket] = slot;
+        count++;
+        totalSize += size;
+        return slot;
+    }
+
+    private void linkLast(int slot) {
+        prev[slot] = tail;
+        next[slot] = NONE;
+        if (tail == NONE) {
+            head = slot;
+        } else {
+            next[tail] = slot;
+        }
+        tail = slot;
+    }
+
+    private void linkFirst(int slot) {
+        prev[slot] = NONE;
+        next[slot] = head;
+        if (head == NONE) {
+            tail = slot;
+        } else {
+            prev[head] = slot;
+        }
+        head = slot;
+    }
+
+    private void linkAfter(int slot, int after) {
+        if (after == NONE) {
+            linkFirst(slot);
+            return;
+        }
+        prev[slot] = after;
+        next[slot] = next[after];
+        if (next[after] == NONE) {
+            tail = slot;
+        } else {
+            prev[next[after]] = slot;
+        }
+        next[after] = slot;
+    }
+
+    private void unlink(int slot) {
+        if (prev[slot] == NONE) {
+            head = next[slot];
+        } else {
+            next[prev[slot]] = next[slot];
+        }
+        if (next[slot] == NONE) {
+            tail = prev[slot];
+        } else {
+            prev[next[slot]] = prev[slot];
+        }
+        prev[slot] = NONE;
+        next[slot] = NONE;
+    }
+
+    private int bucketOf(long high, long mid, int low) {
+        // sha1 bits are uniformly distributed, no need for a strong mix
+        long hash = high ^ (mid >>> 7) ^ low;
+        return (int) (hash ^ (hash >>> 32)) & (buckets.length - 1);
+    }
+
+    private void allocate(int capacity) {
+        keyHigh = new long[capacity];
+        keyMid = new long[capacity];
+        keyLow = new int[capacity];
+        sizes = new long[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+        chain = new int[capacity];
+        buckets = new int[capacity];
+        Arrays.fill(buckets, NONE);
+    }
+
+    private void grow() {
+        int capacity = keyHigh.length << 1;
+        keyHigh = Arrays.copyOf(keyHigh, capacity);
+        keyMid = Arrays.copyOf(keyMid, capacity);
+        keyLow = Arrays.copyOf(keyLow, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        next = Arrays.copyOf(next, capacity);
+        chain = Arrays.copyOf(chain, capacity);
+        // rehash all the used slots (the free list is empty when growing)
+        buckets = new int[capacity];
+        Arrays.fill(buckets, NONE);
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            int bucket = bucketOf(keyHigh[slot], keyMid[slot], keyLow[slot]);
+            chain[slot] = buckets[bucket];
+            buckets[bucket] = slot;
+        }
+    }
+
+    private String keyOf(int slot) {
+        char[] chars = new char[40];
+        writeHex(chars, 0, keyHigh[slot], 16);
+        writeHex(chars, 16, keyMid[slot], 16);
+        writeHex(chars, 32, keyLow[slot] & 0xFFFFFFFFL, 8);
+        return new String(chars);
+    }
+
+    private static long parseHex(String sha1, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            value = (value << 4) | Character.digit(sha1.charAt(i), 16);
+        }
+        return value;
+    }
+
+    private static void writeHex(char[] chars, int offset, long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            chars[offset + i] = Character.forDigit((int) (value & 0xF), 16);
+            value >>>= 4;
+        }
+    }
+}
@@ -18,8 +18,6 @@
 
 package org.artifactory.storage.binstore.service.providers;
 
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.artifactory.api.common.BasicStatusHolder;
@@ -43,11 +41,8 @@ import java.nio.file.FileVisitResult;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Semaphore;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A binary provider that manage low level checksum files on filesystem.
@@ -57,17 +52,26 @@ import java.util.concurrent.atomic.AtomicLong;
 @BinaryProviderClassInfo(nativeName = "cache-fs")
 public class FileCacheBinaryProviderImpl extends FileBinaryProviderBase {
     private static final Logger log = LoggerFactory.getLogger(FileCacheBinaryProviderImpl.class);
+    private static final int CLEAN_BATCH_SIZE = 100;
 
     private long maxTotalSize;  // in bytes
     private Semaphore cacheCleanerSemaphore;
-    private AtomicLong totalSize; // in bytes
-    private ConcurrentMap<String, LruEntry> lruCache;
+    private CacheLruIndex lruIndex;
+    private File lruSnapshotFile;
+    private long lruSnapshotIntervalMillis;
+    private Thread cacheSyncThread;
+    private Thread lruSnapshotShutdownHook;
+    // true once the entries of the cache folder are all in the index
+    private volatile boolean synced;
+    private volatile boolean destroyed;
 
     @Override
     public void initialize() {
         super.initialize();
-        lruCache = Maps.newConcurrentMap();
-        totalSize = new AtomicLong(0);
+        lruIndex = new CacheLruIndex(getIntParam("lruInitialCapacity", 16 * 1024));
+        // Keep the snapshot out of the binaries dir so prune and the cache sync never see it
+        lruSnapshotFile = new File(getBinariesDir().getParentFile(), getBinariesDir().getName() + ".lru");
+        lruSnapshotIntervalMillis = getLongParam("lruSnapshotIntervalSecs", 300) * 1000;
         maxTotalSize = getLongParam("maxSize", getStorageProperties().getBinaryProviderCacheMaxSize());
         cacheCleanerSemaphore = new Semaphore(1);
         syncCacheEntries();
@@ -79,12 +83,50 @@ public class FileCacheBinaryProviderImpl extends FileBinaryProviderBase {
         return ArtifactoryHome.get().getDataDir();
     }
 
-    private void syncCacheEntries() {
-        Thread cacheSyncThread = new Thread(new CacheSyncRunnable(), "cachefs-sync");
+    private synchronized void syncCacheEntries() {
+        if (cacheSyncThread != null) {
+            return;
+        }
+        cacheSyncThread = new Thread(new CacheSyncRunnable(), "cachefs-sync");
         cacheSyncThread.setDaemon(true);
         cacheSyncThread.start();
     }
 
+    @Override
+    public void destroy() {
+        synchronized (this) {
+            if (destroyed) {
+                return;
+            }
+            destroyed = true;
+            if (cacheSyncThread != null) {
+                cacheSyncThread.interrupt();
+            }
+            if (lruSnapshotShutdownHook != null) {
+                try {
+                    Runtime.getRuntime().removeShutdownHook(lruSnapshotShutdownHook);
+                } catch (IllegalStateException e) {
+                    log.debug("JVM shutdown in progress, the snapshot hook will save the cache entries");
+                    return;
+                }
+            }
+        }
+        if (synced && lruSnapshotIntervalMillis > 0) {
+            writeLruSnapshot();
+        }
+    }
+
+    private synchronized boolean registerSnapshotShutdownHook() {
+        if (destroyed) {
+            return false;
+        }
+        if (lruSnapshotShutdownHook == null) {
+            lruSnapshotShutdownHook = new Thread(this::writeLruSnapshot, "cachefs-snapshot");
+            Runtime.getRuntime().addShutdownHook(lruSnapshotShutdownHook);
+        }
+        return true;
+    }
+
     @Override
     public InputStream getStream(String sha1) {
         File cachedFile = getFile(sha1);
@@ -153,10 +195,9 @@ public class FileCacheBinaryProviderImpl extends FileBinaryProviderBase {
     @Override
     protected boolean deleteNoChain(String sha1) {
         if (super.deleteNoChain(sha1)) {
-            LruEntry lruEntry = lruCache.remove(sha1);
-            if (lruEntry != null) {
-                log.debug("Deleted entry {} saved {}", sha1, StorageUnit.toReadableString(lruEntry.fileSize));
-                totalSize.getAndAdd(-lruEntry.fileSize);
+            long fileSize = CacheLruIndex.isValidKey(sha1) ? lruIndex.remove(sha1) : -1;
+            if (fileSize >= 0) {
+                log.debug("Deleted entry {} saved {}", sha1, StorageUnit.toReadableString(fileSize));
             }
             return true;
         }
@@ -178,7 +219,9 @@ public class FileCacheBinaryProviderImpl extends FileBinaryProviderBase {
             if (getBinaryStoreServices().isActivelyUsed(sha1)) {
                 statusHolder.status("Skipping deletion for in-use artifact record: " + sha1, log);
             } else {
-                lruCache.remove(sha1);
+                if (CacheLruIndex.isValidKey(sha1)) {
+                    lruIndex.remove(sha1);
+                }
                 long size = file.length();
                 Files.removeFile(file);
                 if (file.exists()) {
@@ -192,22 +235,27 @@ public class FileCacheBinaryProviderImpl extends FileBinaryProviderBase {
     }
 
     void entryAccessed(File cachedFile) {
-        LruEntry key = new LruEntry(cachedFile);
-        LruEntry oldEntry = lruCache.put(key.sha1, key);
-        if (oldEntry == null) { // a new entry was added
-            long newTotalSize = totalSize.addAndGet(key.fileSize);
-            if (newTotalSize > maxTotalSize) {
+        String sha1 = cachedFile.getName();
+        if (!CacheLruIndex.isValidKey(sha1)) {
+            log.debug("Ignoring cache entry with unexpected name '{}'", cachedFile);
+            return;
+        }
+        if (lruIndex.markUsed(sha1)) {
+            return;
+        }
+        // a file unknown to the index, e.g. cached after the last snapshot
+        if (lruIndex.touch(sha1, cachedFile.length())) { // a new entry was added
+            if (lruIndex.totalSize() > maxTotalSize) {
                 cleanFiles();
             }
         }
     }
 
-    void initEntryAccessed(File cachedFile, long initTime) {
-        log.trace("Adding init entry '{}' with time '{}'", cachedFile, initTime);
-        LruEntry key = new LruEntry(cachedFile, initTime);
-        LruEntry oldEntry = lruCache.putIfAbsent(key.sha1, key);
-        if (oldEntry == null) { // a new entry was added
-            totalSize.addAndGet(key.fileSize);
+    void initEntryAccessed(File cachedFile, long size) {
+        log.trace("Adding init entry '{}'", cachedFile);
+        String sha1 = cachedFile.getName();
+        if (CacheLruIndex.isValidKey(sha1)) {
+            lruIndex.addEldestIfAbsent(sha1, size);
         }
     }
 
@@ -217,79 +265,48 @@ public class FileCacheBinaryProviderImpl extends FileBinaryProviderBase {
         }
         try {
             log.debug("Cleaning files cache entries since {} files have a total size {} which is bigger than {}",
-                    lruCache.size(),
-                    StorageUnit.toReadableString(totalSize.get()),
+                    lruIndex.size(),
+                    StorageUnit.toReadableString(lruIndex.totalSize()),
                     StorageUnit.toReadableString(maxTotalSize));
 
-            List<LruEntry> orderedEntries = Lists.newArrayList(lruCache.values());
-            // Sort ascending, means the first ones have smallest last access
-            // So first are oldest entries ready for deletion
-            Collections.sort(orderedEntries);
+            // The index is ordered by last access, so the eldest entries are the ones ready for deletion. Entries
+            // that can't be deleted (e.g. being read) are marked as used, so the next batch continues after them.
+            // Each entry is tried at most once per cleaning.
             int nbFilesRemoved = 0;
-            for (LruEntry orderedEntry : orderedEntries) {
-                if (log.isTraceEnabled()) {
-                    log.trace("Trying to delete file " + orderedEntry.sha1 +
-                            " of size " + StorageUnit.toReadableString(orderedEntry.fileSize) + " from cache.");
-                }
-                if (deleteNoChain(orderedEntry.sha1)) {
-                    nbFilesRemoved++;
-                }
-                long currentSize = totalSize.get();
-                if (currentSize < maxTotalSize) {
-                    // We are good now
-                    log.debug("Cleaned " + nbFilesRemoved + " from cache." +
-                            " Current size " + StorageUnit.toReadableString(currentSize));
+            int remainingTries = lruIndex.size();
+            while (remainingTries > 0 && lruIndex.totalSize() >= maxTotalSize) {
+                List<String> eldest = lruIndex.eldest(Math.min(CLEAN_BATCH_SIZE, remainingTries));
+                if (eldest.isEmpty()) {
                     break;
                 }
+                for (String sha1 : eldest) {
+                    remainingTries--;
+                    log.trace("Trying to delete file {} from cache.", sha1);
+                    if (deleteNoChain(sha1)) {
+                        nbFilesRemoved++;
+                    } else {
+                        lruIndex.markUsed(sha1);
+                    }
+                    if (lruIndex.totalSize() < maxTotalSize) {
+                        break;
+                    }
+                }
             }
+            // We are good now
+            log.debug("Cleaned " + nbFilesRemoved + " from cache." +
+                    " Current size " + StorageUnit.toReadableString(lruIndex.totalSize()));
         } finally {
             cacheCleanerSemaphore.release();
         }
     }
 
-    static class LruEntry implements Comparable<LruEntry> {
-        final String sha1;
-        final long fileSize;
-        final AtomicLong lastAccess;
-
-        LruEntry(File cachedFile) {
-            this.sha1 = cachedFile.getName();
-            this.fileSize = cachedFile.length();
-            this.lastAccess = new AtomicLong(System.nanoTime());
-        }
-
-        LruEntry(File cachedFile, long initTime) {
-            this.sha1 = cachedFile.getName();
-            this.fileSize = cachedFile.length();
-            this.lastAccess = new AtomicLong(initTime);
-        }
-
-        @Override
-        public int compareTo(LruEntry o) {
-            return Long.compare(lastAccess.get(), o.lastAccess.get());
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) {
-                return true;
-            }
-            if (o == null || getClass() != o.getClass()) {
-                return false;
-            }
-
-            LruEntry lruEntry = (LruEntry) o;
-
-            if (!sha1.equals(lruEntry.sha1)) {
-                return false;
-            }
-
-            return true;
-        }
-
-        @Override
-        public int hashCode() {
-            return sha1.hashCode();
+    private void writeLruSnapshot() {
+        try {
+            lruIndex.writeSnapshot(lruSnapshotFile);
+            log.debug("Saved {} cache entries to '{}'", lruIndex.size(), lruSnapshotFile);
+        } catch (IOException e) {
+            log.warn("Could not save cache entries to '{}': {}", lruSnapshotFile, e.getMessage());
+            log.debug("Could not save cache entries", e);
         }
     }
 
@@ -356,27 +373,79 @@ public class FileCacheBinaryProviderImpl extends FileBinaryProviderBase {
     }
 
     /**
-     * Sync entries from the filesystem (some entries might be unknown in case of Artifactory restart).
+     * Sync entries from the last saved snapshot, which keeps the access order of the known entries, or scans the
+     * filesystem if there is no snapshot to load. Then periodically saves the entries until the provider is destroyed.
+     * <p/>
+     * A loaded snapshot is trusted and reconciled lazily: entries of files deleted since the snapshot are dropped by
+     * the cleaning when they become the eldest (deleting a missing file succeeds), and files cached after the last
+     * snapshot (i.e. before a crash) are added when they are accessed.
      */
     private class CacheSyncRunnable implements Runnable {
 
         @Override
         public void run() {
             log.debug("Cache entries sync started");
-            boolean active = true;
-            while (active) {
+            boolean active = !loadCacheEntries();
+            while (active && !destroyed) {
                 try {
-                    addCacheEntries(System.nanoTime());
+                    addCacheEntries();
                     active = false;
                 } catch (IOException e) {
                     log.warn("Cache entries sync error: '{}'", e.getMessage());
                     log.debug("Cache entries sync error: '" + e.getMessage() + "'", e);
-                    active = sleepQuietPeriod();
+                    if (!sleepQuietPeriod()) {
+                        log.debug("Cache entries sync stopped with {} entries", lruIndex.size());
+                        return;
+                    }
+                }
+            }
+            if (destroyed) {
+                log.debug("Cache entries sync stopped with {} entries", lruIndex.size());
+                return;
+            }
+            synced = true;
+            log.debug("Cache entries sync done with {} entries", lruIndex.size());
+            if (lruIndex.totalSize() > maxTotalSize) {
+                cleanFiles();
+            }
+            if (lruSnapshotIntervalMillis > 0 && registerSnapshotShutdownHook()) {
+                saveCacheEntriesPeriodically();
+            }
+        }
+
+        /**
+         * @return True if the entries were loaded from the snapshot, false if the cache folder should be scanned
+         */
+        private boolean loadCacheEntries() {
+            if (lruSnapshotIntervalMillis <= 0 || !lruSnapshotFile.exists()) {
+                return false;
+            }
+            try {
+                int loaded = lruIndex.loadSnapshot(lruSnapshotFile);
+                log.info("Loaded {} cache entries from '{}'", loaded, lruSnapshotFile);
+                return true;
+            } catch (IOException e) {
+                log.warn("Could not load cache entries from '{}', scanning cache folder: {}",
+                        lruSnapshotFile, e.getMessage());
+                return false;
+            }
+        }
+
+        private void saveCacheEntriesPeriodically() {
+            while (!destroyed) {
+                try {
+                    Thread.sleep(lruSnapshotIntervalMillis);
+                } catch (InterruptedException e) {
+                    log.debug("Cache entries snapshot interrupted");
+                    return;
+                }
+                if (!destroyed) {
+                    writeLruSnapshot();
                 }
             }
         }
 
-        private void addCacheEntries(final long started) throws IOException {
+        private void addCacheEntries() throws IOException {
             final Path binariesDirPath = getBinariesDir().toPath();
             java.nio.file.Files.walkFileTree(binariesDirPath, new SimpleFileVisitor<Path>() {
                 @Override
@@ -390,8 +459,11 @@ public class FileCacheBinaryProviderImpl extends FileBinaryProviderBase {
 
                 @Override
                 public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (destroyed) {
+                        return FileVisitResult.TERMINATE;
+                    }
                     try {
-                        initEntryAccessed(file.toFile(), started);
+                        initEntryAccessed(file.toFile(), attrs.size());
                     } catch (Exception e) {
                         log.error("Unable to add cache entry '{}'", file.toString());
                     }
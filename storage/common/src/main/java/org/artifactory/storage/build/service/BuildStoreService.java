@@ -26,7 +26,9 @@ import org.jfrog.build.api.Build;
 import org.jfrog.build.api.release.PromotionStatus;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -85,6 +87,14 @@ public interface BuildStoreService {
 
     Set<BuildRun> findBuildsForChecksum(BuildSearchCriteria criteria, ChecksumType type, String checksum);
 
+    /**
+     * Batched version of {@link #findBuildsForChecksum(BuildSearchCriteria, ChecksumType, String)}
+     *
+     * @return The builds using each of the checksums. Checksums not used by any build are not mapped.
+     */
+    Map<String, Set<BuildRun>> findBuildsForChecksums(BuildSearchCriteria criteria, ChecksumType type,
+            Collection<String> checksums);
+
     List<PublishedModule> getPublishedModules(String buildName, String date, String orderBy, String direction, String offset, String limit);
 
     int  getPublishedModulesCounts(String buildName, String date);
@@ -48,6 +48,8 @@ public interface ArchiveEntriesService {
      *
      * @param archiveSha1 The checksum of the indexed archive
      * @param entries     The entries to add
+     * @throws ArchiveEntriesConflictException If a concurrent transaction inserted the same values, the transaction
+     *                                         should be rolled back and the archive indexed again
      */
     void addArchiveEntries(String archiveSha1, Set<? extends ZipEntryInfo> entries);
 
@@ -0,0 +1,93 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.storage.fs.service;
+
+import org.artifactory.repo.RepoPath;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * A business service to interact with the change journal, the persistent log of the repository paths that changed.
+ * <p/>
+ * The journal is used by the incremental backup to export only the paths that changed since the previous backup, and
+ * by the incremental maven indexer to re-index only the changed folders.
+ * Each consumer starts and stops its own recording, and the changes are recorded while at least one consumer records.
+ * The consumers are shared by all the cluster nodes.
+ * The journal is complete only since its start time.
+ */
+public interface ChangeJournalService {
+
+    String CONSUMER_BACKUP = "backup";
+    String CONSUMER_MAVEN_INDEXER = "maven-indexer";
+
+    /**
+     * Starts recording the changes for the given consumer. Sets the journal start time to now unless the journal is
+     * already started.
+     */
+    void startRecording(String consumer);
+
+    /**
+     * Stops recording the changes for the given consumer. The journal is cleared when no other consumer records,
+     * otherwise only the changes that all the other consumers already read are removed.
+     */
+    void stopRecording(String consumer);
+
+    /**
+     * @return True if the changes are recorded for the given consumer
+     */
+    boolean isRecording(String consumer);
+
+    /**
+     * Records that the item in the given path was created or modified. Ignored if not recording.
+     */
+    void itemChanged(RepoPath repoPath);
+
+    /**
+     * Records that the item in the given path was deleted. Ignored if not recording.
+     */
+    void itemDeleted(RepoPath repoPath);
+
+    /**
+     * @return The time in millis since which all the changes are journaled, -1 if the journal is not started
+     */
+    long getJournalStart();
+
+    /**
+     * @param repoKey   The repository key
+     * @param since     Minimal change time in millis
+     * @param afterPath Return only the paths that come after this path (i.e. the last path of the previous page), null
+     *                  to get the first page
+     * @param maxPaths  Max number of paths to return
+     * @return A page of the distinct relative paths of the repository that changed since the given time, ordered by
+     * path
+     */
+    @Nonnull
+    List<String> getChangedPaths(String repoKey, long since, @Nullable String afterPath, int maxPaths);
+
+    /**
+     * Marks that the given consumer no longer needs the changes older than the given time. The changes that no
+     * recording consumer needs are removed and the journal start moves forward accordingly.
+     *
+     * @param consumer The consumer that no longer needs the changes
+     * @param before   Time in millis
+     */
+    void prune(String consumer, long before);
+}
@@ -28,6 +28,7 @@ import org.artifactory.storage.fs.VfsException;
 import org.artifactory.storage.fs.VfsItemNotFoundException;
 import org.artifactory.storage.fs.repo.RepoStorageSummary;
 import org.artifactory.storage.fs.repo.StoringRepo;
+import org.artifactory.storage.fs.tree.ChildrenFilter;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -55,6 +56,31 @@ public interface FileService {
 
     List<ItemInfo> loadChildren(RepoPath repoPath) throws VfsException;
 
+    /**
+     * Loads a page of the children of a folder ordered by name.
+     *
+     * @param repoPath    Repo path of the folder
+     * @param afterName   Load only the children that come after this name (i.e. the last name of the previous page),
+     *                    null to load the first page
+     * @param maxChildren Max number of children to load
+     */
+    @Nonnull
+    List<ItemInfo> loadChildren(RepoPath repoPath, @Nullable String afterName, int maxChildren) throws VfsException;
+
+    /**
+     * Loads a page of the children of a folder ordered by name, filtered by the storage.
+     *
+     * @param repoPath    Repo path of the folder
+     * @param afterName   Load only the children that come after this name (i.e. the last name of the previous page),
+     *                    null to load the first page
+     * @param maxChildren Max number of children to load
+     * @param filter      Filter of the children type and name. The storage may return children the filter rejects
+     *                    (e.g. when it can't express a name suffix), callers should check the filter
+     */
+    @Nonnull
+    List<ItemInfo> loadChildren(RepoPath repoPath, @Nullable String afterName, int maxChildren, ChildrenFilter filter)
+            throws VfsException;
+
     VfsItem loadVfsItem(StoringRepo storingRepo, RepoPath repoPath) throws VfsItemNotFoundException, VfsException;
 
     long createFolder(FolderInfo folder) throws VfsException;
@@ -21,6 +21,7 @@ package org.artifactory.storage.fs.service;
 import org.artifactory.repo.RepoPath;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.Set;
 
 /**
@@ -41,6 +42,15 @@ public interface TasksService {
     @Nonnull
     Set<RepoPath> getIndexTasks();
 
+    /**
+     * @param after    Return only the repo paths that come after this repo path (i.e. the last repo path of the
+     *                 previous page), null to get the first page
+     * @param maxTasks Max number of repo paths to return
+     * @return A page of the repo paths currently pending for indexing.
+     */
+    @Nonnull
+    Set<RepoPath> getIndexTasks(@Nullable RepoPath after, int maxTasks);
+
     /**
      * @param repoPath The repo path to check
      * @return True if there is a pending index request for this checksum
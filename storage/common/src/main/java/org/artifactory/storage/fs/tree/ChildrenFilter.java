@@ -0,0 +1,114 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.storage.fs.tree;
+
+import com.google.common.collect.ImmutableList;
+import org.artifactory.fs.ItemInfo;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+/**
+ * A filter of children by their type and name which the storage applies when it loads the children, so the rejected
+ * children are never read.
+ * <p/>
+ * Folders are always accepted unless only files are requested, the name suffixes apply to files only.
+ */
+public class ChildrenFilter implements ItemNodeFilter {
+
+    public static final ChildrenFilter ALL = new ChildrenFilter(true, true, ImmutableList.<String>of());
+
+    private final boolean includeFiles;
+    private final boolean includeFolders;
+    private final List<String> fileNameSuffixes;
+
+    private ChildrenFilter(boolean includeFiles, boolean includeFolders, List<String> fileNameSuffixes) {
+        this.includeFiles = includeFiles;
+        this.includeFolders = includeFolders;
+        this.fileNameSuffixes = fileNameSuffixes;
+    }
+
+    /**
+     * @return A filter of the child folders
+     */
+    public static ChildrenFilter folders() {
+        return new ChildrenFilter(false, true, ImmutableList.<String>of());
+    }
+
+    /**
+     * @return A filter of the child files, optionally only the files with the given name suffixes
+     */
+    public static ChildrenFilter files(String... fileNameSuffixes) {
+        return new ChildrenFilter(true, false, ImmutableList.copyOf(fileNameSuffixes));
+    }
+
+    /**
+     * @return A filter of the child folders and the child files with the given name suffixes
+     */
+    public static ChildrenFilter foldersAndFiles(String... fileNameSuffixes) {
+        return new ChildrenFilter(true, true, ImmutableList.copyOf(fileNameSuffixes));
+    }
+
+    public boolean isIncludeFiles() {
+        return includeFiles;
+    }
+
+    public boolean isIncludeFolders() {
+        return includeFolders;
+    }
+
+    /**
+     * @return The name suffixes of the accepted files, empty to accept all the files
+     */
+    public List<String> getFileNameSuffixes() {
+        return fileNameSuffixes;
+    }
+
+    /**
+     * @return This filter with the folders included
+     */
+    ChildrenFilter withFolders() {
+        return includeFolders ? this : new ChildrenFilter(includeFiles, true, fileNameSuffixes);
+    }
+
+    @Override
+    public boolean accepts(@Nonnull ItemInfo itemInfo) {
+        if (itemInfo.isFolder()) {
+            return includeFolders;
+        }
+        if (!includeFiles) {
+            return false;
+        }
+        if (fileNameSuffixes.isEmpty()) {
+            return true;
+        }
+        for (String suffix : fileNameSuffixes) {
+            if (itemInfo.getName().endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "ChildrenFilter{files=" + includeFiles + ", folders=" + includeFolders + ", suffixes=" +
+                fileNameSuffixes + '}';
+    }
+}
@@ -70,8 +70,24 @@ public class FolderNode extends ItemNode{
             return cachedChildrenNodes;
         }
         List<ItemInfo> children = getFileService().loadChildren(itemInfo.getRepoPath());
+        List<ItemNode> childrenNodes = filterChildren(children, updateRootNodesFilterFlag, rootNodesFilterResult);
+        updateCachedChildrenNodes(childrenNodes);
+        return childrenNodes;
+    }
+
+    /**
+     * Creates the nodes of the children accepted by the filters from an already loaded listing of this folder. The
+     * listing itself is not modified, so it can be shared by concurrent callers.
+     *
+     * @param children                  The unfiltered children of this folder
+     * @param updateRootNodesFilterFlag - if true , filter acceptance flag will be monitored
+     * @param rootNodesFilterResult     - hold canRead flag in case list is empty due to permission issue
+     * @return list of accepted child nodes
+     */
+    public List<ItemNode> filterChildren(List<ItemInfo> children, boolean updateRootNodesFilterFlag,
+            RootNodesFilterResult rootNodesFilterResult) {
         List<ItemNode> childrenNodes = Lists.newArrayListWithCapacity(children.size());
-        sort(children);
+        children = sort(children);
         boolean localAcceptanceFlag = true;
         for (ItemInfo child : children) {
             NodeItemFilterHolder nodeItemFilterHolder = accepts(child);
@@ -83,7 +99,6 @@ public class FolderNode extends ItemNode{
                 localAcceptanceFlag = updateAcceptedLocalFlag(localAcceptanceFlag,nodeItemFilterHolder);
             }
         }
-        updateCachedChildrenNodes(childrenNodes);
 
         updateBrowsableItemAcceptedHolderCanReadFlag(updateRootNodesFilterFlag, rootNodesFilterResult,
                 childrenNodes, localAcceptanceFlag);
@@ -171,11 +186,13 @@ public class FolderNode extends ItemNode{
         return itemNodeFilterAccepted;
     }
 
-    private void sort(List<ItemInfo> children) {
+    private List<ItemInfo> sort(List<ItemInfo> children) {
         if (criteria.getComparator() == null) {
-            return;
+            return children;
         }
-        Collections.sort(children, criteria.getComparator());
+        List<ItemInfo> sorted = Lists.newArrayList(children);
+        Collections.sort(sorted, criteria.getComparator());
+        return sorted;
     }
 
     @Override
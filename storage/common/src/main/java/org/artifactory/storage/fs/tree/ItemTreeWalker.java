@@ -0,0 +1,168 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.storage.fs.tree;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+import org.artifactory.api.context.ContextHelper;
+import org.artifactory.fs.ItemInfo;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.storage.fs.service.FileService;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Walks the descendants of a repo path depth first, in name order, reading the children of each folder from the
+ * storage in pages.
+ * <p/>
+ * Unlike the {@link ItemTree}, the walker never holds the whole listing of a folder: the memory is bounded by the page
+ * size times the depth of the current folder. The {@link ChildrenFilter} is applied by the storage while the
+ * {@link TreeBrowsingCriteria} filters are checked on each loaded child. Folders rejected by the criteria are not
+ * walked into, folders excluded by the children filter are walked into but not returned. The walk reflects the
+ * database while it progresses, items changed during the walk may or may not be visited.
+ */
+public class ItemTreeWalker implements Iterable<ItemInfo> {
+
+    private final RepoPath root;
+    private final TreeBrowsingCriteria criteria;
+    private final ChildrenFilter childrenFilter;
+    private final ChildrenFilter storageFilter;
+    private final int pageSize;
+
+    /**
+     * @param root           Repo path of the folder to walk
+     * @param criteria       Criteria with the filters of the walked items, the comparator and the children caching
+     *                       are ignored
+     * @param childrenFilter Filter of the items applied by the storage
+     * @param pageSize       Max number of children loaded at once from a folder
+     */
+    public ItemTreeWalker(RepoPath root, TreeBrowsingCriteria criteria, ChildrenFilter childrenFilter, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        this.root = root;
+        this.criteria = criteria;
+        this.childrenFilter = childrenFilter;
+        // the folders are loaded to walk into them even if they are not returned
+        this.storageFilter = childrenFilter.withFolders();
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Visits the descendants of the root until the visitor stops the walk.
+     *
+     * @return False if the visitor stopped the walk
+     */
+    public boolean walk(ItemTreeVisitor visitor) {
+        for (ItemInfo item : this) {
+            if (!visitor.visit(item)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return A lazy iterator of the descendants of the root, a folder is returned before its children
+     */
+    @Override
+    @Nonnull
+    public Iterator<ItemInfo> iterator() {
+        return new WalkIterator();
+    }
+
+    private boolean acceptedByCriteria(ItemInfo item) {
+        List<ItemNodeFilter> filters = criteria.getFilters();
+        if (filters != null) {
+            for (ItemNodeFilter filter : filters) {
+                if (!filter.accepts(item)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private FileService getFileService() {
+        return ContextHelper.get().beanForType(FileService.class);
+    }
+
+    /**
+     * The position of the walk in one folder
+     */
+    private class FolderCursor {
+        private final RepoPath folder;
+        private Iterator<ItemInfo> page;
+        private String lastName;
+        private boolean lastPage;
+
+        private FolderCursor(RepoPath folder) {
+            this.folder = folder;
+        }
+
+        @Nullable
+        private ItemInfo next(FileService fileService) {
+            while (page == null || !page.hasNext()) {
+                if (lastPage) {
+                    return null;
+                }
+                List<ItemInfo> children = fileService.loadChildren(folder, lastName, pageSize, storageFilter);
+                lastPage = children.size() < pageSize;
+                if (!children.isEmpty()) {
+                    lastName = children.get(children.size() - 1).getName();
+                }
+                page = children.iterator();
+            }
+            return page.next();
+        }
+    }
+
+    private class WalkIterator extends AbstractIterator<ItemInfo> {
+        private final FileService fileService = getFileService();
+        private final Deque<FolderCursor> cursors = Lists.newLinkedList();
+
+        private WalkIterator() {
+            cursors.push(new FolderCursor(root));
+        }
+
+        @Override
+        protected ItemInfo computeNext() {
+            while (!cursors.isEmpty()) {
+                ItemInfo child = cursors.peek().next(fileService);
+                if (child == null) {
+                    cursors.pop();
+                } else if (child.isFolder()) {
+                    if (acceptedByCriteria(child)) {
+                        cursors.push(new FolderCursor(child.getRepoPath()));
+                        if (childrenFilter.isIncludeFolders()) {
+                            return child;
+                        }
+                    }
+                } else if (childrenFilter.accepts(child) && acceptedByCriteria(child)) {
+                    return child;
+                }
+            }
+            return endOfData();
+        }
+    }
+}
@@ -35,7 +35,8 @@ import java.util.Collection;
 public interface AclStoreService {
 
     /**
-     * @return Returns all the AclInfos
+     * @return Returns all the AclInfos. The same collection instance is returned until the ACLs are reloaded, so
+     * callers may use its identity to cache data derived from the ACLs.
      */
     Collection<AclInfo> getAllAcls();
 
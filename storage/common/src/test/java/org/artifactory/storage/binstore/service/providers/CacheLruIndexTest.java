@@ -0,0 +1,120 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.storage.binstore.service.providers;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.testng.Assert.*;
+
+/**
+ * Unit tests for the {@link CacheLruIndex}.
+ */
+@Test
+public class CacheLruIndexTest {
+    private static final String SHA1_A = "356a192b7913b04c54574d18c28d46e6395428ab";
+    private static final String SHA1_B = "74239116da1def240fe1d366eb535513efc1c40b";
+    private static final String SHA1_C = "da39a3ee5e6b4b0d3255bfef95601890afd80709";
+
+    public void validKeys() {
+        assertTrue(CacheLruIndex.isValidKey(SHA1_A));
+        assertFalse(CacheLruIndex.isValidKey(null));
+        assertFalse(CacheLruIndex.isValidKey("356a192b"));
+        assertFalse(CacheLruIndex.isValidKey("zz6a192b7913b04c54574d18c28d46e6395428ab"));
+    }
+
+    public void touchOrdersByAccess() {
+        CacheLruIndex index = new CacheLruIndex(16);
+        assertTrue(index.touch(SHA1_A, 1));
+        assertTrue(index.touch(SHA1_B, 10));
+        assertTrue(index.touch(SHA1_C, 100));
+        assertFalse(index.touch(SHA1_A, 1));
+        assertEquals(index.size(), 3);
+        assertEquals(index.totalSize(), 111);
+        assertEquals(index.eldest(10), Arrays.asList(SHA1_B, SHA1_C, SHA1_A));
+        assertEquals(index.eldest(1), Arrays.asList(SHA1_B));
+    }
+
+    public void eldestIfAbsentGoesFirst() {
+        CacheLruIndex index = new CacheLruIndex(16);
+        index.touch(SHA1_A, 1);
+        assertTrue(index.addEldestIfAbsent(SHA1_B, 10));
+        assertFalse(index.addEldestIfAbsent(SHA1_A, 1));
+        assertEquals(index.eldest(10), Arrays.asList(SHA1_B, SHA1_A));
+    }
+
+    public void markUsedMovesExistingEntriesOnly() {
+        CacheLruIndex index = new CacheLruIndex(16);
+        index.touch(SHA1_A, 1);
+        index.touch(SHA1_B, 10);
+        assertTrue(index.markUsed(SHA1_A));
+        assertFalse(index.markUsed(SHA1_C));
+        assertEquals(index.eldest(10), Arrays.asList(SHA1_B, SHA1_A));
+        assertEquals(index.size(), 2);
+    }
+
+    public void removeEntries() {
+        CacheLruIndex index = new CacheLruIndex(16);
+        index.touch(SHA1_A, 1);
+        index.touch(SHA1_B, 10);
+        assertEquals(index.remove(SHA1_A), 1);
+        assertEquals(index.remove(SHA1_A), -1);
+        assertEquals(index.size(), 1);
+        assertEquals(index.totalSize(), 10);
+        // freed slots are reused
+        index.touch(SHA1_C, 100);
+        assertEquals(index.eldest(10), Arrays.asList(SHA1_B, SHA1_C));
+    }
+
+    public void growBeyondInitialCapacity() {
+        CacheLruIndex index = new CacheLruIndex(16);
+        for (int i = 0; i < 1000; i++) {
+            index.touch(String.format("%040x", i), i);
+        }
+        assertEquals(index.size(), 1000);
+        assertEquals(index.eldest(1).get(0), String.format("%040x", 0));
+        for (int i = 0; i < 1000; i += 2) {
+            assertEquals(index.remove(String.format("%040x", i)), i);
+        }
+        assertEquals(index.size(), 500);
+        assertEquals(index.eldest(1).get(0), String.format("%040x", 1));
+    }
+
+    public void snapshotRoundTrip() throws IOException {
+        CacheLruIndex index = new CacheLruIndex(16);
+        index.touch(SHA1_A, 1);
+        index.touch(SHA1_B, 10);
+        index.touch(SHA1_C, 100);
+        File snapshot = File.createTempFile("cache-lru", ".lru");
+        try {
+            index.writeSnapshot(snapshot);
+            CacheLruIndex loaded = new CacheLruIndex(16);
+            loaded.touch(SHA1_A, 1);
+            assertEquals(loaded.loadSnapshot(snapshot), 2);
+            assertEquals(loaded.totalSize(), 111);
+            // snapshot entries are older than entries accessed since startup
+            assertEquals(loaded.eldest(10), Arrays.asList(SHA1_B, SHA1_C, SHA1_A));
+        } finally {
+            snapshot.delete();
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package org.artifactory.storage.db.aql.dao;
 
+import com.google.common.collect.Maps;
 import org.artifactory.aql.AqlException;
+import org.artifactory.aql.model.AqlFieldEnum;
 import org.artifactory.aql.model.AqlPermissionProvider;
 import org.artifactory.aql.result.AqlLazyResult;
 import org.artifactory.common.ConstantValues;
 import org.artifactory.storage.db.DbService;
 import org.artifactory.storage.db.DbType;
+import org.artifactory.storage.db.aql.service.optimizer.AqlTableStatistics;
 import org.artifactory.storage.db.aql.sql.builder.query.sql.SqlQuery;
+import org.artifactory.storage.db.aql.sql.model.AqlFieldExtensionEnum;
 import org.artifactory.storage.db.aql.sql.result.AqlEagerResultImpl;
 import org.artifactory.storage.db.aql.sql.result.AqlLazyResultImpl;
+import org.artifactory.storage.db.aql.sql.result.AqlPagedResultSet;
 import org.artifactory.storage.db.util.BaseDao;
 import org.artifactory.storage.db.util.DbUtils;
 import org.artifactory.storage.db.util.JdbcHelper;
@@ -18,6 +23,9 @@ import org.springframework.stereotype.Repository;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
 
 /**
  * @author Gidi Shabat
@@ -79,4 +87,59 @@ public class AqlDao extends BaseDao {
         AqlLazyResult aqlQueryResult = new AqlLazyResultImpl(resultSet, sqlQuery, aqlPermissionProvider);
         return aqlQueryResult;
     }
+
+    /**
+     * Collects the nodes and node properties cardinality statistics used by the cost based AQL optimizer
+     */
+    public AqlTableStatistics collectTableStatistics() throws SQLException {
+        Map<String, Long> repoCounts = Maps.newHashMap();
+        Map<Integer, Long> typeCounts = Maps.newHashMap();
+        ResultSet resultSet = null;
+        try {
+            resultSet = jdbcHelper.executeSelect(
+                    "SELECT repo, node_type, COUNT(*) AS cnt FROM nodes GROUP BY repo, node_type");
+            while (resultSet.next()) {
+                long count = resultSet.getLong("cnt");
+                repoCounts.merge(resultSet.getString("repo"), count, Long::sum);
+                typeCounts.merge(resultSet.getInt("node_type"), count, Long::sum);
+            }
+        } finally {
+            DbUtils.close(resultSet);
+        }
+        Map<String, Long> keyCounts = Maps.newHashMap();
+        Map<String, Long> distinctValues = Maps.newHashMap();
+        try {
+            resultSet = jdbcHelper.executeSelect("SELECT prop_key, COUNT(*) AS cnt, " +
+                    "COUNT(DISTINCT prop_value) AS distinct_cnt FROM node_props GROUP BY prop_key");
+            while (resultSet.next()) {
+                String key = resultSet.getString("prop_key");
+                if (key != null) {
+                    keyCounts.put(key, resultSet.getLong("cnt"));
+                    distinctValues.put(key, resultSet.getLong("distinct_cnt"));
+                }
+            }
+        } finally {
+            DbUtils.close(resultSet);
+        }
+        return new AqlTableStatistics(repoCounts, typeCounts, keyCounts, distinctValues);
+    }
+
+    /**
+     * Execute the AQL query lazily using keyset pagination.
+     * Unlike the lazy mode which keeps a single result set (and its connection) open until the client consumed all
+     * the results, the paged mode fetches the results in pages of bounded size, each page with its own short query.
+     *
+     * @param pageQueryBuilder Builds the paged sql query for a given page size
+     * @param pageKey          The unique numeric field the query is paginated by
+     */
+    public AqlLazyResult executeQueryPaged(IntFunction<SqlQuery> pageQueryBuilder, AqlFieldEnum pageKey,
+            AqlPermissionProvider aqlPermissionProvider) {
+        String pageKeyColumn = AqlFieldExtensionEnum.getExtensionFor(pageKey).tableField.name();
+        int pageSize = Math.max(1, ConstantValues.aqlStreamingPageSize.getInt());
+        long maxTimeMillis = TimeUnit.SECONDS.toMillis(ConstantValues.aqlStreamingMaxTimeSecs.getLong());
+        ResultSet resultSet = AqlPagedResultSet.newInstance(jdbcHelper, pageQueryBuilder, pageKeyColumn,
+                !allowReadCommitted(), pageSize, ConstantValues.aqlStreamingMaxRows.getLong(), maxTimeMillis);
+        SqlQuery sqlQuery = pageQueryBuilder.apply(pageSize);
+        return new AqlLazyResultImpl(resultSet, sqlQuery, aqlPermissionProvider);
+    }
 }
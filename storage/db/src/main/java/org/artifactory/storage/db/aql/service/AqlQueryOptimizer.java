@@ -1,10 +1,14 @@
 package org.artifactory.storage.db.aql.service;
 
 import org.artifactory.storage.db.DbType;
+import org.artifactory.storage.db.aql.service.optimizer.AqlTableStatistics;
+import org.artifactory.storage.db.aql.service.optimizer.CostBasedOptimization;
 import org.artifactory.storage.db.aql.service.optimizer.FileTypeOptimization;
 import org.artifactory.storage.db.aql.service.optimizer.PropertyCriteriaRelatedWithOr;
 import org.artifactory.storage.db.aql.sql.builder.query.aql.AqlQuery;
 
+import java.util.function.Supplier;
+
 /**
  * @author Gidi Shabat
  */
@@ -12,40 +16,53 @@ public class AqlQueryOptimizer {
     private QueryOptimizer optimizer;
 
     public AqlQueryOptimizer(DbType dbType) {
+        this(dbType, () -> null);
+    }
+
+    /**
+     * @param statisticsProvider Provides the table statistics for the cost based optimization, the optimization is
+     *                           skipped if the provider returns null
+     */
+    public AqlQueryOptimizer(DbType dbType, Supplier<AqlTableStatistics> statisticsProvider) {
         // Since the optimisation in each database type is different we need to get the database type and accordingly init it relevant optimizations
-        optimizer = loadOptimizerForDatabase(dbType);
+        optimizer = loadOptimizerForDatabase(dbType, statisticsProvider);
     }
 
-    private QueryOptimizer loadOptimizerForDatabase(DbType dbType) {
+    private QueryOptimizer loadOptimizerForDatabase(DbType dbType, Supplier<AqlTableStatistics> statisticsProvider) {
         switch (dbType) {
             case DERBY: {
                 return new QueryOptimizer(
                         new FileTypeOptimization(),
-                        new PropertyCriteriaRelatedWithOr()
+                        new PropertyCriteriaRelatedWithOr(),
+                        new CostBasedOptimization(statisticsProvider)
                 );
             }
             case MYSQL: {
                 return new QueryOptimizer(
                         new FileTypeOptimization(),
-                        new PropertyCriteriaRelatedWithOr()
+                        new PropertyCriteriaRelatedWithOr(),
+                        new CostBasedOptimization(statisticsProvider)
                 );
             }
             case ORACLE: {
                 return new QueryOptimizer(
                         new FileTypeOptimization(),
-                        new PropertyCriteriaRelatedWithOr()
+                        new PropertyCriteriaRelatedWithOr(),
+                        new CostBasedOptimization(statisticsProvider)
                 );
             }
             case MSSQL: {
                 return new QueryOptimizer(
                         new FileTypeOptimization(),
-                        new PropertyCriteriaRelatedWithOr()
+                        new PropertyCriteriaRelatedWithOr(),
+                        new CostBasedOptimization(statisticsProvider)
                 );
             }
             case POSTGRESQL: {
                 return new QueryOptimizer(
                         new FileTypeOptimization(),
-                        new PropertyCriteriaRelatedWithOr()
+                        new PropertyCriteriaRelatedWithOr(),
+                        new CostBasedOptimization(statisticsProvider)
                 );
             }
         }
@@ -1,18 +1,30 @@
 package org.artifactory.storage.db.aql.service;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.artifactory.aql.AqlService;
 import org.artifactory.aql.api.internal.AqlBase;
+import org.artifactory.aql.model.AqlFieldEnum;
 import org.artifactory.aql.model.AqlPermissionProvider;
+import org.artifactory.aql.model.AqlSortTypeEnum;
+import org.artifactory.aql.model.DomainSensitiveField;
 import org.artifactory.aql.result.AqlEagerResult;
 import org.artifactory.aql.result.AqlLazyResult;
 import org.artifactory.aql.result.rows.AqlRowResult;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.storage.StorageProperties;
 import org.artifactory.storage.db.aql.dao.AqlDao;
 import org.artifactory.storage.db.aql.parser.AqlParser;
 import org.artifactory.storage.db.aql.parser.ParserElementResultContainer;
+import org.artifactory.storage.db.aql.service.optimizer.AqlTableStatistics;
+import org.artifactory.storage.db.aql.service.optimizer.CostBasedOptimization;
 import org.artifactory.storage.db.aql.sql.builder.query.aql.AqlApiToAqlAdapter;
 import org.artifactory.storage.db.aql.sql.builder.query.aql.AqlQuery;
+import org.artifactory.storage.db.aql.sql.builder.query.aql.AqlQueryElement;
+import org.artifactory.storage.db.aql.sql.builder.query.aql.Criteria;
 import org.artifactory.storage.db.aql.sql.builder.query.aql.ParserToAqlAdapter;
+import org.artifactory.storage.db.aql.sql.builder.query.aql.SortDetails;
 import org.artifactory.storage.db.aql.sql.builder.query.sql.SqlQuery;
 import org.artifactory.storage.db.aql.sql.builder.query.sql.SqlQueryBuilder;
 import org.artifactory.storage.db.aql.sql.result.AqlEagerResultImpl;
@@ -22,6 +34,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Execute the Aql queries by processing the three Aql steps one after the other:
@@ -48,6 +68,9 @@ public class AqlServiceImpl implements AqlService {
     private AqlQueryValidator validator;
     private AqlQueryDecorator decorator;
     private AqlPermissionProvider permissionProvider=new AqlPermissionProviderImpl();
+    private final AtomicBoolean collectingStatistics = new AtomicBoolean();
+    private volatile AqlTableStatistics tableStatistics;
+    private ExecutorService statisticsCollector;
 
     @PostConstruct
     private void initDb(){
@@ -58,9 +81,16 @@ public class AqlServiceImpl implements AqlService {
         parserToAqlAdapter = new ParserToAqlAdapter();
         sqlQueryBuilder = new SqlQueryBuilder();
         aqlApiToAqlAdapter = new AqlApiToAqlAdapter();
-        optimizer = new AqlQueryOptimizer(storageProperties.getDbType());
+        optimizer = new AqlQueryOptimizer(storageProperties.getDbType(), this::getTableStatistics);
         validator = new AqlQueryValidator();
         decorator = new AqlQueryDecorator();
+        statisticsCollector = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("art-aql-statistics-%s").setDaemon(true).build());
+    }
+
+    @PreDestroy
+    private void destroy() {
+        statisticsCollector.shutdownNow();
     }
 
     /**
@@ -128,6 +158,85 @@ public class AqlServiceImpl implements AqlService {
         return getAqlQueryStreamResult(aqlQuery);
     }
 
+    @Override
+    public String explainQuery(String query) {
+        log.debug("Explaining textual AqlApi query: {}", query);
+        ParserElementResultContainer parserResult = parser.parse(query);
+        AqlQuery aqlQuery = parserToAqlAdapter.toAqlModel(parserResult);
+        optimizer.optimize(aqlQuery);
+        validator.validate(aqlQuery, permissionProvider);
+        decorator.decorate(aqlQuery);
+        SqlQuery sqlQuery = sqlQueryBuilder.buildQuery(aqlQuery);
+        AqlTableStatistics statistics = getTableStatistics();
+        CostBasedOptimization costBasedOptimization = new CostBasedOptimization(() -> statistics);
+        StringBuilder plan = new StringBuilder();
+        plan.append("Domain: ").append(aqlQuery.getDomain()).append("\n");
+        plan.append("Statistics: ").append(statistics != null ? statistics : "not collected").append("\n");
+        plan.append("Criterias:\n");
+        for (AqlQueryElement element : aqlQuery.getAqlElements()) {
+            if (element instanceof Criteria) {
+                Criteria criteria = (Criteria) element;
+                plan.append("  ").append(criteria.toSql(Lists.newArrayList()).trim());
+                plan.append(" [").append(criteria.isJoinRequired() ? "join" : "exists");
+                if (statistics != null) {
+                    plan.append(", estimated items: ").append(costBasedOptimization.estimate(criteria, statistics));
+                }
+                plan.append("]\n");
+            }
+        }
+        plan.append("SQL: ").append(sqlQuery.getQueryString().trim()).append("\n");
+        plan.append("Params: ").append(Arrays.toString(sqlQuery.getQueryParams())).append("\n");
+        return plan.toString();
+    }
+
+    /**
+     * @return The cached table statistics for the cost based optimization, null if the optimization is disabled or the
+     * statistics were not collected yet. The first query that finds the statistics stale triggers a single background
+     * collection, queries keep using the previous statistics meanwhile.
+     */
+    private AqlTableStatistics getTableStatistics() {
+        if (!ConstantValues.aqlCostBasedOptimizerEnabled.getBoolean()) {
+            return null;
+        }
+        AqlTableStatistics statistics = tableStatistics;
+        long maxAge = TimeUnit.SECONDS.toMillis(ConstantValues.aqlOptimizerStatisticsRefreshSecs.getLong());
+        boolean stale = statistics == null || System.currentTimeMillis() - statistics.getCollectedTime() >= maxAge;
+        if (stale && collectingStatistics.compareAndSet(false, true)) {
+            try {
+                statisticsCollector.execute(() -> {
+                    try {
+                        collectTableStatistics();
+                    } finally {
+                        collectingStatistics.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                collectingStatistics.set(false);
+                log.debug("AQL optimizer statistics collection rejected: {}", e.getMessage());
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Collects the table statistics and replaces the cached statistics
+     *
+     * @return The collected statistics or null if the collection failed
+     */
+    @VisibleForTesting
+    AqlTableStatistics collectTableStatistics() {
+        try {
+            AqlTableStatistics statistics = aqlDao.collectTableStatistics();
+            tableStatistics = statistics;
+            log.debug("Collected AQL optimizer statistics: {}", statistics);
+            return statistics;
+        } catch (Exception e) {
+            log.warn("Failed to collect AQL optimizer statistics: {}", e.getMessage());
+            log.debug("Failed to collect AQL optimizer statistics", e);
+            return null;
+        }
+    }
+
     /**
      * Converts the AqlApi query into SQL query and executes the query eagerly
      */
@@ -142,6 +251,10 @@ public class AqlServiceImpl implements AqlService {
     }
 
     private AqlLazyResult getAqlQueryStreamResult(AqlQuery aqlQuery) {
+        AqlFieldEnum pageKey = resolvePageKey(aqlQuery);
+        if (pageKey != null) {
+            return getAqlQueryPagedResult(aqlQuery, pageKey);
+        }
         log.trace("Converting the AqlApi query into SQL qury: {}", aqlQuery);
         SqlQuery sqlQuery = sqlQueryBuilder.buildQuery(aqlQuery);
         log.trace("Successfully finished to convert the parser result into the following SQL query '{}'", sqlQuery);
@@ -151,4 +264,45 @@ public class AqlServiceImpl implements AqlService {
         return aqlQueryStreamResult;
     }
 
+    /**
+     * Executes the query in the streaming mode: the results are fetched in keyset paginated pages ordered by the main
+     * domain id
+     */
+    private AqlLazyResult getAqlQueryPagedResult(AqlQuery aqlQuery, AqlFieldEnum pageKey) {
+        log.trace("Converting the AqlApi query into paged SQL query: {}", aqlQuery);
+        boolean hasPageKey = aqlQuery.getResultFields().stream().anyMatch(field -> field.getField() == pageKey);
+        if (!hasPageKey) {
+            aqlQuery.getResultFields().add(new DomainSensitiveField(pageKey, Lists.newArrayList(aqlQuery.getDomain())));
+        }
+        AqlLazyResult aqlQueryStreamResult = aqlDao.executeQueryPaged(
+                pageSize -> sqlQueryBuilder.buildPagedQuery(aqlQuery, pageKey, pageSize), pageKey, permissionProvider);
+        log.debug("Successfully finished to process SQL query (paged)");
+        return aqlQueryStreamResult;
+    }
+
+    /**
+     * @return The field to paginate the query results by, or null if the streaming mode is disabled or the query
+     * can't be paginated (the main domain has no single id field or the query is sorted by other fields)
+     */
+    private AqlFieldEnum resolvePageKey(AqlQuery aqlQuery) {
+        if (!ConstantValues.aqlStreamingEnabled.getBoolean()) {
+            return null;
+        }
+        List<AqlFieldEnum> idFields = AqlQueryDecorator.resolveIdFieldFromDomain(aqlQuery);
+        if (idFields == null || idFields.size() != 1) {
+            return null;
+        }
+        AqlFieldEnum idField = idFields.get(0);
+        SortDetails sort = aqlQuery.getSort();
+        if (sort != null && !sort.getFields().isEmpty()) {
+            boolean sortedById = sort.getFields().size() == 1 && sort.getFields().get(0) == idField &&
+                    sort.getSortType() == AqlSortTypeEnum.asc;
+            if (!sortedById) {
+                log.debug("Query is not sorted by {}, streaming mode is not applicable", idField);
+                return null;
+            }
+        }
+        return idField;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package org.artifactory.storage.db.aql.service.optimizer;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+
+/**
+ * Cardinality statistics of the nodes and node properties tables used by the {@link CostBasedOptimization}
+ * to estimate the selectivity of the AQL criterias.
+ */
+public class AqlTableStatistics {
+    private final long nodesCount;
+    private final Map<String, Long> repoCounts;
+    private final Map<Integer, Long> typeCounts;
+    private final Map<String, Long> propertyKeyCounts;
+    private final Map<String, Long> propertyDistinctValues;
+    private final long collectedTime;
+
+    public AqlTableStatistics(Map<String, Long> repoCounts, Map<Integer, Long> typeCounts,
+            Map<String, Long> propertyKeyCounts, Map<String, Long> propertyDistinctValues) {
+        this.repoCounts = ImmutableMap.copyOf(repoCounts);
+        this.typeCounts = ImmutableMap.copyOf(typeCounts);
+        this.propertyKeyCounts = ImmutableMap.copyOf(propertyKeyCounts);
+        this.propertyDistinctValues = ImmutableMap.copyOf(propertyDistinctValues);
+        long count = 0;
+        for (Long repoCount : repoCounts.values()) {
+            count += repoCount;
+        }
+        this.nodesCount = count;
+        this.collectedTime = System.currentTimeMillis();
+    }
+
+    /**
+     * @return Total number of nodes (never less than 1 to simplify ratio calculations)
+     */
+    public long getNodesCount() {
+        return Math.max(1, nodesCount);
+    }
+
+    public long getRepoCount(String repoKey) {
+        Long count = repoCounts.get(repoKey);
+        return count == null ? 0 : count;
+    }
+
+    public Map<String, Long> getRepoCounts() {
+        return repoCounts;
+    }
+
+    public long getTypeCount(int nodeType) {
+        Long count = typeCounts.get(nodeType);
+        return count == null ? 0 : count;
+    }
+
+    public long getPropertyKeyCount(String key) {
+        Long count = propertyKeyCounts.get(key);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * @return Number of distinct values of the property key (never less than 1)
+     */
+    public long getPropertyDistinctValues(String key) {
+        Long count = propertyDistinctValues.get(key);
+        return count == null ? 1 : Math.max(1, count);
+    }
+
+    public long getCollectedTime() {
+        return collectedTime;
+    }
+
+    @Override
+    public String toString() {
+        return "AqlTableStatistics{" +
+                "nodesCount=" + nodesCount +
+                ", repos=" + repoCounts.size() +
+                ", propertyKeys=" + propertyKeyCounts.size() +
+                '}';
+    }
+}
@@ -0,0 +1,211 @@
+package org.artifactory.storage.db.aql.service.optimizer;
+
+import com.google.common.collect.Lists;
+import org.artifactory.aql.model.AqlComparatorEnum;
+import org.artifactory.aql.model.AqlDomainEnum;
+import org.artifactory.aql.model.AqlField;
+import org.artifactory.aql.model.AqlFieldEnum;
+import org.artifactory.aql.model.AqlValue;
+import org.artifactory.aql.model.AqlVariable;
+import org.artifactory.storage.db.aql.sql.builder.query.aql.AqlQuery;
+import org.artifactory.storage.db.aql.sql.builder.query.aql.AqlQueryElement;
+import org.artifactory.storage.db.aql.sql.builder.query.aql.ComplexPropertyCriteria;
+import org.artifactory.storage.db.aql.sql.builder.query.aql.Criteria;
+import org.artifactory.storage.db.aql.sql.builder.query.aql.ExistsPropertyCriteria;
+import org.artifactory.storage.db.aql.sql.builder.query.aql.SimpleCriteria;
+import org.artifactory.storage.db.aql.sql.builder.query.sql.SqlTable;
+import org.artifactory.storage.db.aql.sql.model.SqlTableEnum;
+
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Uses the nodes and properties cardinality statistics to optimize the items queries.
+ * <p/>
+ * For each sequence of criterias connected with "and" the method:
+ * 1. Estimates the number of items that matches each criteria.
+ * 2. Reorders the criterias from the most selective to the least selective. Since the tables are joined in the order
+ * of the criterias, the most selective criteria drives the join and the rest are evaluated as filters.
+ * 3. Converts the item property criterias that are not the most selective criteria in the sequence into "exists"
+ * sub queries. This pushes the property filter down to a lookup of the already matched items, instead of joining
+ * the node_props table (and multiplying the rows) for each property criteria.
+ * <p/>
+ * Reordering criterias inside "and" sequence is always safe: "and" is commutative and has higher precedence than "or".
+ */
+public class CostBasedOptimization extends OptimizationStrategy {
+    private static final Pattern AND_SEQUENCE = Pattern.compile("[cCp](a[cCp])+");
+    private static final Set<AqlComparatorEnum> EXISTS_COMPARATORS = EnumSet.of(AqlComparatorEnum.equals,
+            AqlComparatorEnum.matches, AqlComparatorEnum.less, AqlComparatorEnum.greater,
+            AqlComparatorEnum.lessEquals, AqlComparatorEnum.greaterEquals);
+
+    private final Supplier<AqlTableStatistics> statisticsProvider;
+
+    public CostBasedOptimization(Supplier<AqlTableStatistics> statisticsProvider) {
+        this.statisticsProvider = statisticsProvider;
+    }
+
+    @Override
+    public void optimize(AqlQuery aqlQuery, String transformation) {
+        AqlTableStatistics statistics = statisticsProvider.get();
+        if (statistics == null || AqlDomainEnum.items != aqlQuery.getDomain()) {
+            return;
+        }
+        List<AqlQueryElement> elements = aqlQuery.getAqlElements();
+        Matcher matcher = AND_SEQUENCE.matcher(transformation);
+        while (matcher.find()) {
+            // The sequence is criteria, operator, criteria, operator ... criteria
+            Map<Criteria, Long> estimations = new IdentityHashMap<>();
+            List<Criteria> criterias = Lists.newArrayList();
+            for (int i = matcher.start(); i < matcher.end(); i += 2) {
+                Criteria criteria = (Criteria) elements.get(i);
+                criterias.add(criteria);
+                estimations.put(criteria, estimate(criteria, statistics));
+            }
+            // Stable sort, criterias with the same estimation keep their order
+            criterias.sort(Comparator.comparingLong(estimations::get));
+            for (int j = 0; j < criterias.size(); j++) {
+                Criteria criteria = criterias.get(j);
+                if (j > 0 && canUseExists(aqlQuery, criteria)) {
+                    criteria = new ExistsPropertyCriteria((ComplexPropertyCriteria) criteria);
+                }
+                elements.set(matcher.start() + j * 2, criteria);
+            }
+        }
+    }
+
+    /**
+     * Estimates the number of items that matches the criteria
+     */
+    public long estimate(Criteria criteria, AqlTableStatistics statistics) {
+        long nodes = statistics.getNodesCount();
+        AqlComparatorEnum comparator = AqlComparatorEnum.value(criteria.getComparatorName());
+        if (criteria instanceof ComplexPropertyCriteria) {
+            return estimateProperty((ComplexPropertyCriteria) criteria, comparator, statistics);
+        }
+        if (!(criteria instanceof SimpleCriteria) || !(criteria.getVariable1() instanceof AqlField) ||
+                !(criteria.getVariable2() instanceof AqlValue) || criteria.getTable1() == null ||
+                criteria.getTable1().getTable() != SqlTableEnum.nodes) {
+            return nodes;
+        }
+        Object value = ((AqlValue) criteria.getVariable2()).toObject();
+        if (value == null || comparator == AqlComparatorEnum.notEquals ||
+                comparator == AqlComparatorEnum.notMatches) {
+            return nodes;
+        }
+        AqlFieldEnum field = ((AqlField) criteria.getVariable1()).getFieldEnum();
+        switch (field) {
+            case itemRepo:
+                if (comparator == AqlComparatorEnum.equals) {
+                    return statistics.getRepoCount((String) value);
+                }
+                if (comparator == AqlComparatorEnum.matches) {
+                    return estimateRepoMatches((String) value, statistics);
+                }
+                return nodes;
+            case itemType:
+                return comparator == AqlComparatorEnum.equals ? statistics.getTypeCount((Integer) value) : nodes;
+            case itemName:
+            case itemPath:
+                if (comparator == AqlComparatorEnum.equals) {
+                    return Math.max(1, nodes / 1000);
+                }
+                if (comparator == AqlComparatorEnum.matches) {
+                    return startsWithWildcard((String) value) ? nodes / 2 : Math.max(1, nodes / 20);
+                }
+                return nodes / 3;
+            default:
+                return comparator == AqlComparatorEnum.equals ? Math.max(1, nodes / 100) : nodes / 3;
+        }
+    }
+
+    private long estimateProperty(ComplexPropertyCriteria criteria, AqlComparatorEnum comparator,
+            AqlTableStatistics statistics) {
+        if (criteria.getTable1() == null || criteria.getTable1().getTable() != SqlTableEnum.node_props ||
+                !(criteria.getVariable1() instanceof AqlValue) ||
+                comparator == AqlComparatorEnum.notEquals || comparator == AqlComparatorEnum.notMatches) {
+            return statistics.getNodesCount();
+        }
+        Object key = ((AqlValue) criteria.getVariable1()).toObject();
+        if (!(key instanceof String) || ((String) key).contains("*") || ((String) key).contains("?")) {
+            return statistics.getNodesCount();
+        }
+        long keyCount = statistics.getPropertyKeyCount((String) key);
+        AqlVariable variable2 = criteria.getVariable2();
+        Object value = variable2 instanceof AqlValue ? ((AqlValue) variable2).toObject() : null;
+        switch (comparator) {
+            case equals:
+                return divideRoundUp(keyCount, statistics.getPropertyDistinctValues((String) key));
+            case matches:
+                return value instanceof String && startsWithWildcard((String) value) ? keyCount :
+                        divideRoundUp(keyCount, 2);
+            default:
+                return divideRoundUp(keyCount, 3);
+        }
+    }
+
+    private long estimateRepoMatches(String pattern, AqlTableStatistics statistics) {
+        Pattern regex = Pattern.compile(toRegex(pattern));
+        long count = 0;
+        for (Map.Entry<String, Long> entry : statistics.getRepoCounts().entrySet()) {
+            if (regex.matcher(entry.getKey()).matches()) {
+                count += entry.getValue();
+            }
+        }
+        return count;
+    }
+
+    private boolean canUseExists(AqlQuery aqlQuery, Criteria criteria) {
+        if (criteria.getClass() != ComplexPropertyCriteria.class) {
+            return false;
+        }
+        SqlTable table = criteria.getTable1();
+        if (table == null || table.getTable() != SqlTableEnum.node_props ||
+                table.getId() < SqlTable.MINIMAL_DYNAMIC_TABLE_ID ||
+                !EXISTS_COMPARATORS.contains(AqlComparatorEnum.value(criteria.getComparatorName()))) {
+            return false;
+        }
+        for (AqlDomainEnum domain : criteria.getSubDomains()) {
+            if (domain != AqlDomainEnum.items && domain != AqlDomainEnum.properties) {
+                return false;
+            }
+        }
+        // The table is declared only inside the sub query, it must not be shared with other criterias
+        int usages = 0;
+        for (AqlQueryElement element : aqlQuery.getAqlElements()) {
+            if (element instanceof Criteria &&
+                    (table.equals(((Criteria) element).getTable1()) || table.equals(((Criteria) element).getTable2()))) {
+                usages++;
+            }
+        }
+        return usages == 1;
+    }
+
+    private static boolean startsWithWildcard(String value) {
+        return value.startsWith("*") || value.startsWith("?");
+    }
+
+    private static String toRegex(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : pattern.toCharArray()) {
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return regex.toString();
+    }
+
+    private static long divideRoundUp(long value, long divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+}
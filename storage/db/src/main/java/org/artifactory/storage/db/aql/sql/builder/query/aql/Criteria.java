@@ -66,6 +66,14 @@ public abstract class Criteria implements AqlQueryElement {
 
     public abstract String toSql(List<Object> params) throws AqlException;
 
+    /**
+     * @return True if the criteria table should be joined to the query tables, false if the criteria
+     * is self contained (for example, uses a sub query on its table)
+     */
+    public boolean isJoinRequired() {
+        return true;
+    }
+
     @Override
     public boolean isOperator() {
         return false;
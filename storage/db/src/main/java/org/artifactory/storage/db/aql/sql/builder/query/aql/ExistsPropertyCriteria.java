@@ -0,0 +1,37 @@
+package org.artifactory.storage.db.aql.sql.builder.query.aql;
+
+import org.artifactory.aql.AqlException;
+import org.artifactory.storage.db.aql.sql.builder.query.sql.SqlTable;
+import org.artifactory.storage.db.aql.sql.builder.query.sql.type.AqlTableGraph;
+import org.artifactory.storage.db.aql.sql.model.SqlTableEnum;
+
+import java.util.List;
+
+/**
+ * Item property criteria that is converted into a correlated "exists" sub query instead of a join with the
+ * node_props table. The criteria table is declared only inside the sub query, therefore it must not be used by any
+ * other element of the query.
+ *
+ * @see org.artifactory.storage.db.aql.service.optimizer.CostBasedOptimization
+ */
+public class ExistsPropertyCriteria extends ComplexPropertyCriteria {
+
+    public ExistsPropertyCriteria(ComplexPropertyCriteria criteria) {
+        super(criteria.getSubDomains(), criteria.getVariable1(), criteria.getTable1(), criteria.getComparatorName(),
+                criteria.getVariable2(), criteria.getTable2());
+    }
+
+    @Override
+    public String toSql(List<Object> params) throws AqlException {
+        SqlTable table = getTable1();
+        SqlTable nodes = AqlTableGraph.tablesLinksMap.get(SqlTableEnum.nodes).getTable();
+        return " exists (select 1 from " + table.getTableName() + " " + table.getAliasDeclaration() +
+                " where " + table.getAlias() + "node_id = " + nodes.getAlias() + "node_id and" +
+                super.toSql(params) + ")";
+    }
+
+    @Override
+    public boolean isJoinRequired() {
+        return false;
+    }
+}
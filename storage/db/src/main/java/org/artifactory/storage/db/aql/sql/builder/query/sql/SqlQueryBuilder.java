@@ -3,6 +3,7 @@ package org.artifactory.storage.db.aql.sql.builder.query.sql;
 import com.google.common.collect.Maps;
 import org.artifactory.aql.AqlException;
 import org.artifactory.aql.model.AqlDomainEnum;
+import org.artifactory.aql.model.AqlFieldEnum;
 import org.artifactory.storage.db.aql.sql.builder.query.aql.AqlQuery;
 import org.artifactory.storage.db.aql.sql.builder.query.aql.AqlQueryElement;
 import org.artifactory.storage.db.aql.sql.builder.query.aql.Criteria;
@@ -59,6 +60,42 @@ public class SqlQueryBuilder {
         return sqlQuery;
     }
 
+    /**
+     * Builds a query that fetches a single page of the AQL query results using keyset pagination.
+     * The generated query is ordered by the page key field and expects one extra parameter (the last parameter)
+     * which is the page key value of the last row of the previous page. The query sort, offset and limit are ignored
+     * by the generated query and should be applied by the caller.
+     *
+     * @param aqlQuery The AQL query
+     * @param pageKey  A unique numeric field of the main domain to paginate by
+     * @param pageSize Maximum number of rows to fetch in a page
+     */
+    public SqlQuery buildPagedQuery(AqlQuery aqlQuery, AqlFieldEnum pageKey, int pageSize) throws AqlException {
+        QueryWriter queryWriter = new QueryWriter();
+        SqlQuery sqlQuery = new SqlQuery(aqlQuery.getDomain());
+        BasicSqlGenerator handler = sqlGeneratorMap.get(aqlQuery.getDomain());
+        queryWriter.select(handler.results(aqlQuery));
+        queryWriter.distinct();
+        queryWriter.from(handler.tables(aqlQuery));
+        String pageKeyColumn = handler.column(pageKey);
+        String pageCondition = " " + pageKeyColumn + " > ? ";
+        if (SqlQueryBuilder.isWhereClauseExist(aqlQuery)) {
+            Pair<String, List<Object>> filter = handler.conditions(aqlQuery);
+            queryWriter.where(" (" + filter.getFirst() + ") and" + pageCondition);
+            sqlQuery.setParams(filter.getSecond());
+        } else {
+            queryWriter.where(pageCondition);
+        }
+        queryWriter.orderBy(pageKeyColumn + " asc ");
+        queryWriter.offset(0L);
+        queryWriter.limit((long) pageSize);
+        sqlQuery.setQuery(queryWriter.build());
+        sqlQuery.setResultFields(aqlQuery.getResultFields());
+        sqlQuery.setLimit(aqlQuery.getLimit());
+        sqlQuery.setOffset(aqlQuery.getOffset());
+        return sqlQuery;
+    }
+
     private void generateSqlQuery(AqlQuery aqlQuery, BasicSqlGenerator handler, SqlQuery query, QueryWriter queryWriter)
             throws AqlException {
         // Generate the result part of the query
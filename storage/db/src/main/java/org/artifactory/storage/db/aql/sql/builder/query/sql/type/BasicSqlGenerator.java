@@ -56,7 +56,8 @@ public abstract class BasicSqlGenerator {
         @Nullable
         @Override
         public DomainSensitiveTable apply(@Nullable AqlQueryElement input) {
-            SqlTable table = input != null ? ((Criteria) input).getTable1() : null;
+            SqlTable table = input != null && ((Criteria) input).isJoinRequired() ?
+                    ((Criteria) input).getTable1() : null;
             if (table != null) {
                 List<SqlTableEnum> tables = generateTableListFromSubDomainAndField(((Criteria) input).getSubDomains());
                 return new DomainSensitiveTable(table, tables);
@@ -276,6 +277,15 @@ public abstract class BasicSqlGenerator {
         declaredTables.add(table);
     }
 
+    /**
+     * @return The qualified (table alias prefixed) column name of the field
+     */
+    public String column(AqlFieldEnum field) {
+        AqlFieldExtensionEnum extension = getExtensionFor(field);
+        SqlTable table = tablesLinksMap.get(extension.table).getTable();
+        return table.getAlias() + extension.tableField;
+    }
+
     public String sort(AqlQuery aqlQuery) {
         SortDetails sortDetails = aqlQuery.getSort();
         if (sortDetails == null || sortDetails.getFields().size() == 0) {
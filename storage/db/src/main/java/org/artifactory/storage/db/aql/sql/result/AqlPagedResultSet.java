@@ -0,0 +1,301 @@
+package org.artifactory.storage.db.aql.sql.result;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.artifactory.aql.result.AqlLazyResult;
+import org.artifactory.storage.db.aql.sql.builder.query.sql.SqlQuery;
+import org.artifactory.storage.db.util.DbUtils;
+import org.artifactory.storage.db.util.JdbcHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * A dynamic proxy of a forward only {@link java.sql.ResultSet} that reads the results of a keyset paginated AQL query
+ * (see {@link org.artifactory.storage.db.aql.sql.builder.query.sql.SqlQueryBuilder#buildPagedQuery}) page by page.
+ * <p/>
+ * Each page is read into memory and its result set is closed immediately, so the database connection is held only
+ * while a page is fetched and the memory used is bounded by the page size regardless of the total result size.
+ * Rows that share the same page key (multi domain results) are never split between pages.
+ * <p/>
+ * The query offset and limit are applied while reading. The result ends early if the optional row or time budgets
+ * are exceeded, and the truncation is reported as a warning of the result set (see
+ * {@link AqlLazyResult#TRUNCATED_SQL_STATE}).
+ * <p/>
+ * Only the methods used to stream AQL results are supported: {@code next}, {@code getString}, {@code getLong},
+ * {@code getInt} and {@code getObject} by column label, {@code wasNull}, {@code getWarnings}, {@code isClosed} and
+ * {@code close}.
+ */
+public final class AqlPagedResultSet implements InvocationHandler {
+    private static final Logger log = LoggerFactory.getLogger(AqlPagedResultSet.class);
+
+    private final JdbcHelper jdbcHelper;
+    private final IntFunction<SqlQuery> pageQueryBuilder;
+    private final SqlQuery pageQuery;
+    private final String pageKeyColumn;
+    private final boolean allowDirtyReads;
+    private final int pageSize;
+    private final long maxRows;
+    private final long deadline;
+
+    private Map<String, Integer> columns;
+    private Iterator<Object[]> page;
+    private Object[] currentRow;
+    private Object lastValue;
+    private long lastPageKey = Long.MIN_VALUE;
+    private boolean lastPage;
+    private long rowsToSkip;
+    private long rowsLeft;
+    private long rowsRead;
+    private int pagesRead;
+    private boolean ended;
+    private boolean closed;
+    private String truncation;
+
+    /**
+     * @param jdbcHelper       The JDBC helper to execute the page queries with
+     * @param pageQueryBuilder Builds the paged query (see the SqlQueryBuilder) for a given page size
+     * @param pageKeyColumn    The result column label of the page key field
+     * @param allowDirtyReads  Allow dirty reads when executing the page queries
+     * @param pageSize         Number of rows to fetch in each page
+     * @param maxRows          Maximum number of rows to return or 0 for no limit
+     * @param maxTimeMillis    Maximum time to spend reading the results or 0 for no limit
+     * @return Proxy to the paged result set
+     */
+    public static ResultSet newInstance(JdbcHelper jdbcHelper, IntFunction<SqlQuery> pageQueryBuilder,
+            String pageKeyColumn, boolean allowDirtyReads, int pageSize, long maxRows, long maxTimeMillis) {
+        AqlPagedResultSet handler = new AqlPagedResultSet(jdbcHelper, pageQueryBuilder, pageKeyColumn,
+                allowDirtyReads, pageSize, maxRows, maxTimeMillis);
+        return (ResultSet) Proxy.newProxyInstance(AqlPagedResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, handler);
+    }
+
+    private AqlPagedResultSet(JdbcHelper jdbcHelper, IntFunction<SqlQuery> pageQueryBuilder, String pageKeyColumn,
+            boolean allowDirtyReads, int pageSize, long maxRows, long maxTimeMillis) {
+        this.jdbcHelper = jdbcHelper;
+        this.pageQueryBuilder = pageQueryBuilder;
+        this.pageQuery = pageQueryBuilder.apply(pageSize);
+        this.pageKeyColumn = pageKeyColumn.toLowerCase(Locale.ENGLISH);
+        this.allowDirtyReads = allowDirtyReads;
+        this.pageSize = pageSize;
+        this.maxRows = maxRows;
+        this.deadline = maxTimeMillis > 0 ? System.currentTimeMillis() + maxTimeMillis : Long.MAX_VALUE;
+        this.rowsToSkip = pageQuery.getOffset();
+        this.rowsLeft = pageQuery.getLimit() > 0 ? pageQuery.getLimit() : Long.MAX_VALUE;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        switch (name) {
+            case "next":
+                return next();
+            case "close":
+                close();
+                return null;
+            case "isClosed":
+                return closed;
+            case "wasNull":
+                return lastValue == null;
+            case "getWarnings":
+                return truncation == null ? null : new SQLWarning(truncation, AqlLazyResult.TRUNCATED_SQL_STATE);
+            case "getObject":
+                return getValue(args);
+            case "getString":
+                Object value = getValue(args);
+                return value == null ? null : value.toString();
+            case "getLong":
+                Object longValue = getValue(args);
+                return longValue == null ? 0L : ((Number) longValue).longValue();
+            case "getInt":
+                Object intValue = getValue(args);
+                return intValue == null ? 0 : ((Number) intValue).intValue();
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "AqlPagedResultSet{query='" + pageQuery.getQueryString() + "', pages=" + pagesRead + "}";
+            default:
+                throw new SQLException("Method " + name + " is not supported by the paged AQL result set");
+        }
+    }
+
+    private boolean next() throws SQLException {
+        if (closed) {
+            throw new SQLException("Result set is closed");
+        }
+        while (!ended) {
+            currentRow = null;
+            if (rowsLeft <= 0 || isRowsBudgetExceeded()) {
+                ended = true;
+                break;
+            }
+            if (page == null || !page.hasNext()) {
+                if (lastPage || isTimeBudgetExceeded()) {
+                    ended = true;
+                    break;
+                }
+                page = fetchPage(pageSize).iterator();
+                continue;
+            }
+            currentRow = page.next();
+            if (rowsToSkip > 0) {
+                rowsToSkip--;
+                continue;
+            }
+            rowsLeft--;
+            rowsRead++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isRowsBudgetExceeded() throws SQLException {
+        if (maxRows > 0 && rowsRead >= maxRows) {
+            if (hasMoreRows()) {
+                truncation = "The results were truncated after reaching the maximum of " + maxRows + " rows";
+                log.warn("AQL query stopped after reaching the maximum of {} rows: {}", maxRows, pageQuery);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private boolean hasMoreRows() throws SQLException {
+        if (page != null && page.hasNext()) {
+            return true;
+        }
+        if (lastPage) {
+            return false;
+        }
+        page = fetchPage(pageSize).iterator();
+        return page.hasNext();
+    }
+
+    private boolean isTimeBudgetExceeded() {
+        if (System.currentTimeMillis() > deadline) {
+            truncation = "The results were truncated after reaching the time limit with " + rowsRead + " rows";
+            log.warn("AQL query stopped after reaching the time limit with {} rows: {}", rowsRead, pageQuery);
+            return true;
+        }
+        return false;
+    }
+
+    private List<Object[]> fetchPage(int size) throws SQLException {
+        // a bigger page is requested only when the rows of a single page key didn't fit in a page
+        SqlQuery query = size == pageSize ? pageQuery : pageQueryBuilder.apply(size);
+        Object[] queryParams = query.getQueryParams();
+        Object[] params = Arrays.copyOf(queryParams, queryParams.length + 1);
+        params[queryParams.length] = lastPageKey;
+        List<Object[]> rows = Lists.newArrayListWithCapacity(Math.min(size, pageSize * 2));
+        ResultSet resultSet = null;
+        try {
+            resultSet = jdbcHelper.executeSelect(query.getQueryString(), allowDirtyReads, params);
+            if (columns == null) {
+                columns = readColumns(resultSet.getMetaData());
+            }
+            int[] types = readTypes(resultSet.getMetaData());
+            while (resultSet.next()) {
+                Object[] row = new Object[types.length];
+                for (int i = 0; i < types.length; i++) {
+                    row[i] = readValue(resultSet, i + 1, types[i]);
+                }
+                rows.add(row);
+            }
+        } finally {
+            DbUtils.close(resultSet);
+        }
+        pagesRead++;
+        if (rows.size() < size) {
+            lastPage = true;
+            return rows;
+        }
+        // the page is full, the rows of the last page key might continue in the next page
+        int keyIndex = columns.get(pageKeyColumn);
+        long lastKey = ((Number) rows.get(rows.size() - 1)[keyIndex]).longValue();
+        int end = rows.size();
+        while (end > 0 && ((Number) rows.get(end - 1)[keyIndex]).longValue() == lastKey) {
+            end--;
+        }
+        if (end == 0) {
+            // a single page key with more rows than the page size
+            return fetchPage(size * 2);
+        }
+        lastPageKey = ((Number) rows.get(end - 1)[keyIndex]).longValue();
+        return rows.subList(0, end);
+    }
+
+    private Map<String, Integer> readColumns(ResultSetMetaData metaData) throws SQLException {
+        Map<String, Integer> result = Maps.newHashMap();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            String label = metaData.getColumnLabel(i).toLowerCase(Locale.ENGLISH);
+            if (!result.containsKey(label)) {
+                result.put(label, i - 1);
+            }
+        }
+        if (!result.containsKey(pageKeyColumn)) {
+            throw new SQLException("Paged AQL query result is missing the page key column " + pageKeyColumn);
+        }
+        return result;
+    }
+
+    private int[] readTypes(ResultSetMetaData metaData) throws SQLException {
+        int[] types = new int[metaData.getColumnCount()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = metaData.getColumnType(i + 1);
+        }
+        return types;
+    }
+
+    private Object readValue(ResultSet resultSet, int column, int type) throws SQLException {
+        switch (type) {
+            case Types.BIGINT:
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                long value = resultSet.getLong(column);
+                return resultSet.wasNull() ? null : value;
+            default:
+                // read character large objects as strings, they are not valid after the result set is closed
+                return resultSet.getString(column);
+        }
+    }
+
+    private Object getValue(Object[] args) throws SQLException {
+        if (currentRow == null) {
+            throw new SQLException("No current row in the paged AQL result set");
+        }
+        if (args == null || args.length != 1 || !(args[0] instanceof String)) {
+            throw new SQLException("Only access by column label is supported by the paged AQL result set");
+        }
+        Integer index = columns.get(((String) args[0]).toLowerCase(Locale.ENGLISH));
+        if (index == null) {
+            throw new SQLException("Column '" + args[0] + "' not found");
+        }
+        lastValue = currentRow[index];
+        return lastValue;
+    }
+
+    private void close() {
+        closed = true;
+        page = null;
+        currentRow = null;
+    }
+}
@@ -25,6 +25,7 @@ import org.artifactory.storage.binstore.service.BinaryData;
 import org.artifactory.storage.db.util.BaseDao;
 import org.artifactory.storage.db.util.DbUtils;
 import org.artifactory.storage.db.util.JdbcHelper;
+import org.artifactory.storage.db.util.querybuilder.QueryWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -136,6 +137,34 @@ public class BinariesDao extends BaseDao {
         return results;
     }
 
+    /**
+     * Returns one page of binaries that are not referenced by any node. Pages are ordered by sha1 so the next page
+     * can be fetched with the last sha1 of the previous one, regardless of rows deleted in between.
+     *
+     * @param afterSha1 Only binaries with sha1 greater than this value are returned. Empty string for the first page
+     * @param maxResults The maximum number of binaries to return
+     * @return Page of binaries which are candidates for deletion, ordered by sha1
+     */
+    public List<BinaryData> findPotentialDeletion(String afterSha1, int maxResults) throws SQLException {
+        List<BinaryData> results = Lists.newArrayListWithCapacity(Math.min(maxResults, 1000));
+        ResultSet resultSet = null;
+        try {
+            String query = new QueryWriter().select(" b.sha1, b.md5, b.bin_length ").from(" binaries b ")
+                    .where(" b.sha1 > ? AND b.sha1 NOT LIKE '" + TEMP_SHA1_PREFIX + "%'" +
+                            " AND NOT EXISTS (SELECT n.node_id FROM nodes n WHERE n.sha1_actual = b.sha1) ")
+                    .orderBy(" b.sha1 ").limit((long) maxResults).build();
+            resultSet = jdbcHelper.executeSelect(query, afterSha1);
+            // some dialects wrap the paged query with extra columns, so read the values by name
+            while (resultSet.next() && results.size() < maxResults) {
+                results.add(new BinaryData(resultSet.getString("sha1"), resultSet.getString("md5"),
+                        resultSet.getLong("bin_length")));
+            }
+        } finally {
+            DbUtils.close(resultSet);
+        }
+        return results;
+    }
+
     public int deleteEntry(String sha1ToDelete) throws SQLException {
         return jdbcHelper.executeUpdate("DELETE FROM binaries WHERE binaries.sha1 = ?" +
                 " AND NOT EXISTS (SELECT n.node_id FROM nodes n WHERE n.sha1_actual = ?)"
@@ -20,9 +20,11 @@ package org.artifactory.storage.db.binstore.service;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.artifactory.api.common.BasicStatusHolder;
 import org.artifactory.api.context.ContextHelper;
 import org.artifactory.api.storage.BinariesInfo;
@@ -30,6 +32,8 @@ import org.artifactory.api.storage.StorageUnit;
 import org.artifactory.binstore.BinaryInfo;
 import org.artifactory.checksum.ChecksumType;
 import org.artifactory.common.ArtifactoryHome;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.io.checksum.ParallelDigester;
 import org.artifactory.storage.BinaryInsertRetryException;
 import org.artifactory.storage.StorageException;
 import org.artifactory.storage.StorageProperties;
@@ -64,18 +68,25 @@ import org.springframework.stereotype.Service;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.SQLException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -149,6 +160,31 @@ public class BinaryStoreImpl implements InternalBinaryStore {
         }
     }
 
+    @PreDestroy
+    public void destroy() {
+        Set<BinaryProviderBase> destroyed = Sets.newIdentityHashSet();
+        destroyProviders(getFirstBinaryProvider(), destroyed);
+        ParallelDigester.shutdownBinaryDigestExecutor();
+    }
+
+    private void destroyProviders(BinaryProviderBase provider, Set<BinaryProviderBase> destroyed) {
+        for (BinaryProviderBase current = provider; current != null && !(current instanceof EmptyBinaryProvider);
+             current = current.next()) {
+            if (!destroyed.add(current)) {
+                return;
+            }
+            for (BinaryProviderBase subProvider : current.getSubBinaryProviders()) {
+                destroyProviders(subProvider, destroyed);
+            }
+            try {
+                current.destroy();
+            } catch (Exception e) {
+                log.warn("Failed to destroy binary provider {}: {}", current, e.getMessage());
+                log.debug("Failed to destroy binary provider", e);
+            }
+        }
+    }
+
     @Override
     public Map<String, Class> getBinaryProvidersMap() {
         return binaryProvidersMap;
@@ -473,6 +509,9 @@ public class BinaryStoreImpl implements InternalBinaryStore {
 
     @Override
     public GarbageCollectorInfo garbageCollect() {
+        if (ConstantValues.gcStreamingEnabled.getBoolean()) {
+            return streamingGarbageCollect();
+        }
         notifyGCListenersOnStart();
         final GarbageCollectorInfo result = new GarbageCollectorInfo();
         Collection<BinaryData> binsToDelete;
@@ -512,6 +551,156 @@ public class BinaryStoreImpl implements InternalBinaryStore {
         return result;
     }
 
+    /**
+     * Garbage collection that pages through the candidates instead of loading all of them to memory. The binaries
+     * rows of each page are deleted in batched transactions and the binaries themselves are deleted by a bounded pool
+     * of workers.
+     */
+    private GarbageCollectorInfo streamingGarbageCollect() {
+        notifyGCListenersOnStart();
+        final GarbageCollectorInfo result = new GarbageCollectorInfo();
+        int pageSize = Math.max(1, ConstantValues.gcStreamingPageSize.getInt());
+        int batchSize = Math.max(1, ConstantValues.gcStreamingDeleteBatchSize.getInt());
+        int workers = Math.max(1, ConstantValues.gcStreamingWorkerThreads.getInt());
+        ExecutorService binaryCleaners = Executors.newFixedThreadPool(workers,
+                new ThreadFactoryBuilder().setNameFormat("art-gc-cleaner-%s").setDaemon(true).build());
+        Deque<Future<List<BinaryData>>> pendingCleaners = new ArrayDeque<>();
+        try {
+            BinariesInfo countAndSize = binariesDao.getCountAndTotalSize();
+            result.initialCount = countAndSize.getBinariesCount();
+            result.initialSize = countAndSize.getBinariesSize();
+            String lastSha1 = "";
+            List<BinaryData> page;
+            while (!(page = binariesDao.findPotentialDeletion(lastSha1, pageSize)).isEmpty()) {
+                lastSha1 = page.get(page.size() - 1).getSha1();
+                result.pagesScanned++;
+                result.candidatesForDeletion += page.size();
+                notifyGCListenersOnDelete(page);
+                for (List<BinaryData> batch : Lists.partition(page, batchSize)) {
+                    List<BinaryData> deletedRows = deleteEntriesBatch(batch, result);
+                    if (!deletedRows.isEmpty()) {
+                        pendingCleaners.add(binaryCleaners.submit(new BinariesBatchCleaner(deletedRows)));
+                    }
+                    // keep a bounded amount of work in flight
+                    while (pendingCleaners.size() > workers * 2) {
+                        collectCleanerResult(pendingCleaners.poll(), result);
+                    }
+                }
+                notifyGCListenersOnProgress(result);
+            }
+        } catch (SQLException e) {
+            throw new StorageException("Could not find potential Binaries to delete!", e);
+        } finally {
+            while (!pendingCleaners.isEmpty()) {
+                collectCleanerResult(pendingCleaners.poll(), result);
+            }
+            binaryCleaners.shutdown();
+        }
+        result.stopScanTimestamp = System.currentTimeMillis();
+        if (result.candidatesForDeletion > 0) {
+            log.info("Processed {} candidates for deletion in {} pages", result.candidatesForDeletion,
+                    result.pagesScanned);
+        }
+
+        if (result.checksumsCleaned > 0) {
+            result.archivePathsCleaned = getTransactionalMe().deleteUnusedArchivePaths();
+            result.archiveNamesCleaned = getTransactionalMe().deleteUnusedArchiveNames();
+        }
+
+        result.gcEndTime = System.currentTimeMillis();
+
+        try {
+            BinariesInfo countAndSize = binariesDao.getCountAndTotalSize();
+            result.printCollectionInfo(countAndSize.getBinariesSize());
+        } catch (SQLException e) {
+            log.error("Could not list files due to " + e.getMessage());
+        }
+        notifyGCListenersOnFinished(result);
+        return result;
+    }
+
+    /**
+     * Deletes the binaries rows of the given batch in a single transaction. Binaries that are being read are skipped.
+     * If the batch transaction fails, the rows are deleted again one per transaction, so a single failing row doesn't
+     * fail the whole batch. The rows that were deleted stay delete protected until their binary is removed by a
+     * {@link BinariesBatchCleaner}.
+     *
+     * @return The binaries whose rows were deleted
+     */
+    private List<BinaryData> deleteEntriesBatch(List<BinaryData> batch, GarbageCollectorInfo result) {
+        List<BinaryData> protectedBinaries = Lists.newArrayListWithCapacity(batch.size());
+        for (BinaryData bd : batch) {
+            log.trace("Candidate for deletion: {}", bd);
+            String sha1 = bd.getSha1();
+            deleteProtectedBinaries.putIfAbsent(sha1, new AtomicInteger(0));
+            AtomicInteger usageCounter = deleteProtectedBinaries.get(sha1);
+            if (usageCounter.compareAndSet(0, -30)) {
+                protectedBinaries.add(bd);
+            } else {
+                log.info("Binary {} is being read! Not deleting.", sha1);
+            }
+        }
+        List<BinaryData> deletedRows = Lists.newArrayListWithCapacity(protectedBinaries.size());
+        if (protectedBinaries.isEmpty()) {
+            return deletedRows;
+        }
+        try {
+            try {
+                dbService.invokeInTransaction("BinaryCleaner#batch-" + protectedBinaries.get(0).getSha1(), () -> {
+                    for (BinaryData bd : protectedBinaries) {
+                        // a failure must roll back the whole transaction, some databases abort it on any error
+                        if (deleteEntryOrFail(bd.getSha1())) {
+                            log.trace("Deleted {} record from binaries table", bd.getSha1());
+                            deletedRows.add(bd);
+                        }
+                    }
+                    return null;
+                });
+            } catch (Exception e) {
+                log.warn("Failed to delete batch of {} binaries records, deleting them one by one: {}",
+                        protectedBinaries.size(), e.getMessage());
+                log.debug("Failed to delete batch of binaries records", e);
+                deletedRows.clear();
+                for (BinaryData bd : protectedBinaries) {
+                    try {
+                        if (dbService.invokeInTransaction("BinaryCleaner#" + bd.getSha1(),
+                                () -> deleteEntryOrFail(bd.getSha1()))) {
+                            deletedRows.add(bd);
+                        }
+                    } catch (Exception entryFailure) {
+                        log.error("Could not delete binary record " + bd.getSha1(), entryFailure);
+                    }
+                }
+            }
+            result.checksumsCleaned += deletedRows.size();
+        } finally {
+            // remove delete protection of the rows that were not deleted
+            protectedBinaries.stream().filter(bd -> !deletedRows.contains(bd))
+                    .forEach(bd -> deleteProtectedBinaries.remove(bd.getSha1()));
+        }
+        return deletedRows;
+    }
+
+    private void collectCleanerResult(Future<List<BinaryData>> cleaner, GarbageCollectorInfo result) {
+        try {
+            for (BinaryData bd : cleaner.get()) {
+                result.binariesCleaned++;
+                result.totalSizeCleaned += bd.getLength();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for binaries cleaner");
+        } catch (ExecutionException e) {
+            log.error("Binaries cleaner failed", e.getCause());
+        }
+    }
+
+    private void notifyGCListenersOnProgress(GarbageCollectorInfo progress) {
+        for (GarbageCollectorListener garbageCollectorListener : garbageCollectorListeners) {
+            garbageCollectorListener.progress(progress);
+        }
+    }
+
     private void notifyGCListenersOnStart() {
         garbageCollectorListeners.forEach(org.artifactory.storage.binstore.service.GarbageCollectorListener::start);
     }
@@ -547,6 +736,22 @@ public class BinaryStoreImpl implements InternalBinaryStore {
     }
 
 
+    /**
+     * Deletes binary row and all dependent rows from the database, failures are thrown to the caller
+     *
+     * @param sha1ToDelete Checksum to delete
+     * @return True if deleted. False if not found
+     */
+    private boolean deleteEntryOrFail(String sha1ToDelete) throws SQLException {
+        boolean hadArchiveEntries = archiveEntriesService.deleteArchiveEntries(sha1ToDelete);
+        boolean entryDeleted = binariesDao.deleteEntry(sha1ToDelete) == 1;
+        if (!entryDeleted && hadArchiveEntries) {
+            log.error("Binary entry " + sha1ToDelete + " had archive entries that are deleted," +
+                    " but the binary line was not deleted! Re indexing of archive needed.");
+        }
+        return entryDeleted;
+    }
+
     /**
      * Deletes binary row and all dependent rows from the database
      *
@@ -726,6 +931,39 @@ public class BinaryStoreImpl implements InternalBinaryStore {
         return usageCounter != null && usageCounter.get() > 0;
     }
 
+    /**
+     * Deletes the binaries of already deleted binaries rows and removes their delete protection.
+     */
+    private class BinariesBatchCleaner implements Callable<List<BinaryData>> {
+        private final List<BinaryData> binaries;
+
+        public BinariesBatchCleaner(List<BinaryData> binaries) {
+            this.binaries = binaries;
+        }
+
+        @Override
+        public List<BinaryData> call() throws Exception {
+            List<BinaryData> cleaned = Lists.newArrayListWithCapacity(binaries.size());
+            for (BinaryData bd : binaries) {
+                String sha1 = bd.getSha1();
+                try {
+                    if (getFirstBinaryProvider().delete(sha1)) {
+                        log.trace("Deleted {} binary", sha1);
+                        cleaned.add(bd);
+                    } else {
+                        log.error("Could not delete binary '{}'", sha1);
+                    }
+                } catch (Exception e) {
+                    log.error("Could not delete binary '" + sha1 + "'", e);
+                } finally {
+                    // remove delete protection (even if delete was not successful)
+                    deleteProtectedBinaries.remove(sha1);
+                }
+            }
+            return cleaned;
+        }
+    }
+
     /**
      * Deletes a single binary from the database and filesystem if not in use.
      */
@@ -27,6 +27,7 @@ import org.artifactory.io.checksum.Sha1Md5ChecksumInputStream;
 import org.artifactory.storage.StorageException;
 import org.artifactory.storage.binstore.service.BinaryInfoImpl;
 import org.artifactory.storage.binstore.service.BinaryNotFoundException;
+import org.artifactory.storage.binstore.service.BinaryProviderHelper;
 import org.artifactory.storage.binstore.service.base.BinaryProviderBase;
 import org.artifactory.storage.binstore.service.annotation.BinaryProviderClassInfo;
 import org.artifactory.storage.db.DbService;
@@ -117,11 +118,7 @@ public class BlobBinaryProviderImpl extends BinaryProviderBase {
         Sha1Md5ChecksumInputStream checksumStream = null;
         try {
             // first save to a temp file and calculate checksums while saving
-            if (is instanceof Sha1Md5ChecksumInputStream) {
-                checksumStream = (Sha1Md5ChecksumInputStream) is;
-            } else {
-                checksumStream = new Sha1Md5ChecksumInputStream(is);
-            }
+            checksumStream = BinaryProviderHelper.createChecksumStream(is);
             // Create a dummy ID
             String randomId = TEMP_SHA1_PREFIX + RandomStringUtils.randomAlphanumeric(40 - TEMP_SHA1_PREFIX.length());
             int inserted = jdbcHelper.executeUpdate("INSERT INTO binary_blobs VALUES (?,?)", randomId,
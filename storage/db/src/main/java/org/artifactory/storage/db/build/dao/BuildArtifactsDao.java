@@ -45,13 +45,17 @@ public class BuildArtifactsDao extends BaseDao {
         super(jdbcHelper);
     }
 
+    /**
+     * Inserts the build artifacts using multi row batch inserts.
+     *
+     * @return Number of inserted artifacts
+     */
     public int createBuildArtifacts(List<BuildArtifact> bas) throws SQLException {
-        int res = 0;
+        List<Object[]> rows = new ArrayList<>(bas.size());
         for (BuildArtifact ba : bas) {
-            // TODO: Make it big single SQL
-            res += createBuildArtifact(ba);
+            rows.add(buildArtifactToRow(ba));
         }
-        return res;
+        return jdbcHelper.executeBatchInsert("build_artifacts", rows);
     }
 
     public int createBuildArtifact(BuildArtifact ba) throws SQLException {
@@ -59,9 +63,13 @@ public class BuildArtifactsDao extends BaseDao {
                 "?, ?," +
                 "?, ?," +
                 "?, ?)",
-                ba.getArtifactId(), ba.getModuleId(),
+                buildArtifactToRow(ba));
+    }
+
+    private Object[] buildArtifactToRow(BuildArtifact ba) {
+        return new Object[]{ba.getArtifactId(), ba.getModuleId(),
                 ba.getArtifactName(), ba.getArtifactType(),
-                ba.getSha1(), ba.getMd5());
+                ba.getSha1(), ba.getMd5()};
     }
 
     public int deleteBuildArtifacts(List<Long> moduleIds) throws SQLException {
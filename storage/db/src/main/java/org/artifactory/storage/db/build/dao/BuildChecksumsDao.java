@@ -0,0 +1,138 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.artifactory.storage.db.build.dao;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.SetMultimap;
+import org.artifactory.checksum.ChecksumType;
+import org.artifactory.storage.db.util.BaseDao;
+import org.artifactory.storage.db.util.DbUtils;
+import org.artifactory.storage.db.util.JdbcHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A reverse index of the checksums of the build artifacts and dependencies to the builds that use them.
+ * <p/>
+ * The build_checksums table holds one row per distinct checksum, checksum type, build and usage (artifact or
+ * dependency), so a lookup is a single index range scan instead of a join of the build tables. The rows of a build
+ * are created from its artifacts and dependencies rows once they are inserted, and deleted with the build.
+ */
+@Repository
+public class BuildChecksumsDao extends BaseDao {
+
+    public static final int USED_AS_ARTIFACT = 1;
+    public static final int USED_AS_DEPENDENCY = 2;
+
+    /**
+     * Max checksums in a single IN clause, Oracle allows up to 1000 expressions
+     */
+    private static final int MAX_CHECKSUMS_PER_QUERY = 500;
+
+    private static final int SHA1_TYPE = 1;
+    private static final int MD5_TYPE = 2;
+
+    @Autowired
+    public BuildChecksumsDao(JdbcHelper jdbcHelper) {
+        super(jdbcHelper);
+    }
+
+    /**
+     * Indexes the checksums of the artifacts and dependencies of a build. Should be called after the artifacts and
+     * dependencies of the build are inserted.
+     *
+     * @return Number of inserted index rows
+     */
+    public int indexBuild(long buildId) throws SQLException {
+        int res = indexChecksums(buildId, "build_artifacts", "sha1", SHA1_TYPE, USED_AS_ARTIFACT);
+        res += indexChecksums(buildId, "build_artifacts", "md5", MD5_TYPE, USED_AS_ARTIFACT);
+        res += indexChecksums(buildId, "build_dependencies", "sha1", SHA1_TYPE, USED_AS_DEPENDENCY);
+        res += indexChecksums(buildId, "build_dependencies", "md5", MD5_TYPE, USED_AS_DEPENDENCY);
+        return res;
+    }
+
+    private int indexChecksums(long buildId, String table, String column, int checksumType, int usedAs)
+            throws SQLException {
+        // the checksum columns are fixed length and may be padded
+        return jdbcHelper.executeUpdate("INSERT INTO build_checksums" +
+                " SELECT DISTINCT RTRIM(t." + column + "), " + checksumType + ", bm.build_id, " + usedAs +
+                " FROM " + table + " t, build_modules bm" +
+                " WHERE t.module_id = bm.module_id" +
+                " AND bm.build_id = ?" +
+                " AND t." + column + " IS NOT NULL", buildId);
+    }
+
+    public int deleteBuildChecksums(long buildId) throws SQLException {
+        return jdbcHelper.executeUpdate("DELETE FROM build_checksums WHERE build_id = ?", buildId);
+    }
+
+    public int deleteAllBuildChecksums() throws SQLException {
+        return jdbcHelper.executeUpdate("DELETE FROM build_checksums");
+    }
+
+    /**
+     * @param type         The checksums type
+     * @param checksums    The checksums to look for
+     * @param artifacts    True to find the builds that produced an artifact with the checksum
+     * @param dependencies True to find the builds that depended on an artifact with the checksum
+     * @return The ids of the builds using each of the checksums. Checksums not used by any build are not mapped.
+     */
+    public SetMultimap<String, Long> findBuildIds(ChecksumType type, Collection<String> checksums,
+            boolean artifacts, boolean dependencies) throws SQLException {
+        SetMultimap<String, Long> buildIds = HashMultimap.create();
+        Integer checksumType = toChecksumType(type);
+        if (checksumType == null || checksums.isEmpty() || (!artifacts && !dependencies)) {
+            return buildIds;
+        }
+        StringBuilder query = new StringBuilder("SELECT DISTINCT checksum, build_id FROM build_checksums" +
+                " WHERE checksum IN (#) AND checksum_type = ?");
+        if (!artifacts || !dependencies) {
+            query.append(" AND used_as = ").append(artifacts ? USED_AS_ARTIFACT : USED_AS_DEPENDENCY);
+        }
+        for (List<String> chunk : Iterables.partition(checksums, MAX_CHECKSUMS_PER_QUERY)) {
+            ResultSet rs = null;
+            try {
+                rs = jdbcHelper.executeSelect(query.toString(), chunk, checksumType);
+                while (rs.next()) {
+                    buildIds.put(rs.getString(1), rs.getLong(2));
+                }
+            } finally {
+                DbUtils.close(rs);
+            }
+        }
+        return buildIds;
+    }
+
+    private Integer toChecksumType(ChecksumType type) {
+        switch (type) {
+            case sha1:
+                return SHA1_TYPE;
+            case md5:
+                return MD5_TYPE;
+            default:
+                // the builds tables don't store other checksums
+                return null;
+        }
+    }
+}
@@ -45,13 +45,17 @@ public class BuildDependenciesDao extends BaseDao {
         super(jdbcHelper);
     }
 
+    /**
+     * Inserts the build dependencies using multi row batch inserts.
+     *
+     * @return Number of inserted dependencies
+     */
     public int createBuildDependencies(List<BuildDependency> bds) throws SQLException {
-        int res = 0;
+        List<Object[]> rows = new ArrayList<>(bds.size());
         for (BuildDependency bd : bds) {
-            // TODO: Make it big single SQL
-            res += createBuildDependency(bd);
+            rows.add(buildDependencyToRow(bd));
         }
-        return res;
+        return jdbcHelper.executeBatchInsert("build_dependencies", rows);
     }
 
     public int createBuildDependency(BuildDependency bd) throws SQLException {
@@ -59,9 +63,13 @@ public class BuildDependenciesDao extends BaseDao {
                 "?, ?," +
                 "?, ?, ?," +
                 "?, ?)",
-                bd.getDependencyId(), bd.getModuleId(),
+                buildDependencyToRow(bd));
+    }
+
+    private Object[] buildDependencyToRow(BuildDependency bd) {
+        return new Object[]{bd.getDependencyId(), bd.getModuleId(),
                 bd.getDependencyNameId(), bd.getDependencyScopes(), bd.getDependencyType(),
-                bd.getSha1(), bd.getMd5());
+                bd.getSha1(), bd.getMd5()};
     }
 
     public int deleteBuildDependencies(List<Long> moduleIds) throws SQLException {
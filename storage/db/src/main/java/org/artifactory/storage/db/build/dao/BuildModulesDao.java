@@ -48,27 +48,46 @@ public class BuildModulesDao extends BaseDao {
         super(jdbcHelper);
     }
 
+    /**
+     * Inserts the build modules and their properties using multi row batch inserts.
+     *
+     * @return Number of inserted rows (modules and properties)
+     */
     public int createBuildModules(List<BuildModule> bms) throws SQLException {
-        int res = 0;
+        List<Object[]> moduleRows = new ArrayList<>(bms.size());
+        List<Object[]> propRows = new ArrayList<>();
         for (BuildModule bm : bms) {
-            res += createBuildModule(bm);
+            moduleRows.add(buildModuleToRow(bm));
+            for (ModuleProperty bmp : bm.getProperties()) {
+                propRows.add(modulePropertyToRow(bmp));
+            }
         }
+        int res = jdbcHelper.executeBatchInsert("build_modules", moduleRows);
+        res += jdbcHelper.executeBatchInsert("module_props", propRows);
         return res;
     }
 
     public int createBuildModule(BuildModule bm) throws SQLException {
         int res = jdbcHelper.executeUpdate("INSERT INTO build_modules VALUES(" +
                 "?, ?, ?)",
-                bm.getModuleId(), bm.getBuildId(), bm.getModuleNameId());
+                buildModuleToRow(bm));
         for (ModuleProperty bmp : bm.getProperties()) {
             res += jdbcHelper.executeUpdate("INSERT INTO module_props VALUES(" +
                     "?, ?, ?, ?)",
-                    bmp.getPropId(), bmp.getModuleId(), bmp.getPropKey(),
-                    StringUtils.substring(bmp.getPropValue(), 0, 2048));
+                    modulePropertyToRow(bmp));
         }
         return res;
     }
 
+    private Object[] buildModuleToRow(BuildModule bm) {
+        return new Object[]{bm.getModuleId(), bm.getBuildId(), bm.getModuleNameId()};
+    }
+
+    private Object[] modulePropertyToRow(ModuleProperty bmp) {
+        return new Object[]{bmp.getPropId(), bmp.getModuleId(), bmp.getPropKey(),
+                StringUtils.substring(bmp.getPropValue(), 0, 2048)};
+    }
+
     public int deleteBuildModules(long buildId) throws SQLException {
         List<Long> moduleIdsForBuild = findModuleIdsForBuild(buildId);
         int res = 0;
@@ -18,7 +18,10 @@
 
 package org.artifactory.storage.db.build.dao;
 
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.SetMultimap;
 import org.apache.commons.compress.utils.Charsets;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
@@ -37,6 +40,7 @@ import org.artifactory.storage.db.util.BaseDao;
 import org.artifactory.storage.db.util.DbUtils;
 import org.artifactory.storage.db.util.JdbcHelper;
 import org.artifactory.storage.db.util.blob.BlobWrapper;
+import org.artifactory.storage.db.util.blob.CompressedBlobs;
 import org.artifactory.storage.db.util.querybuilder.QueryWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -67,6 +71,11 @@ import java.util.TreeSet;
 public class BuildsDao extends BaseDao {
     private static final Logger log = LoggerFactory.getLogger(BuildsDao.class);
 
+    /**
+     * Max ids in a single IN clause, Oracle allows up to 1000 expressions
+     */
+    private static final int MAX_IDS_PER_QUERY = 500;
+
     @Autowired
     public BuildsDao(JdbcHelper jdbcHelper) {
         super(jdbcHelper);
@@ -160,7 +169,8 @@ public class BuildsDao extends BaseDao {
                     " build_id = ?",
                     buildId);
             if (rs.next()) {
-                jsonStream = rs.getBinaryStream(1);
+                // builds stored before the JSON compression are not compressed
+                jsonStream = CompressedBlobs.uncompressed(rs.getBinaryStream(1));
                 if (CharSequence.class.isAssignableFrom(clazz)) {
                     //noinspection unchecked
                     return (T) IOUtils.toString(jsonStream, Charsets.UTF_8.name());
@@ -1266,6 +1276,45 @@ public class BuildsDao extends BaseDao {
         return results;
     }
 
+    /**
+     * Loads the builds with their properties and promotions using a fixed number of queries per chunk of ids
+     *
+     * @param buildIds The ids of the builds to load
+     * @return The found builds, in no particular order
+     */
+    public List<BuildEntity> getBuilds(Collection<Long> buildIds) throws SQLException {
+        List<BuildEntity> builds = Lists.newArrayListWithCapacity(buildIds.size());
+        for (List<Long> chunk : Iterables.partition(buildIds, MAX_IDS_PER_QUERY)) {
+            SetMultimap<Long, BuildProperty> properties = HashMultimap.create();
+            SetMultimap<Long, BuildPromotionStatus> promotions = HashMultimap.create();
+            ResultSet rs = null;
+            try {
+                rs = jdbcHelper.executeSelect("SELECT * FROM build_props WHERE build_id IN (#)", chunk);
+                while (rs.next()) {
+                    BuildProperty property = resultSetToBuildProperty(rs);
+                    properties.put(property.getBuildId(), property);
+                }
+                DbUtils.close(rs);
+                rs = jdbcHelper.executeSelect("SELECT * FROM build_promotions WHERE build_id IN (#)", chunk);
+                while (rs.next()) {
+                    BuildPromotionStatus promotion = resultSetToBuildPromotion(rs);
+                    promotions.put(promotion.getBuildId(), promotion);
+                }
+                DbUtils.close(rs);
+                rs = jdbcHelper.executeSelect("SELECT * FROM builds WHERE build_id IN (#)", chunk);
+                while (rs.next()) {
+                    BuildEntity build = resultSetToBuild(rs);
+                    build.setProperties(properties.get(build.getBuildId()));
+                    build.setPromotions(promotions.get(build.getBuildId()));
+                    builds.add(build);
+                }
+            } finally {
+                DbUtils.close(rs);
+            }
+        }
+        return builds;
+    }
+
     private Set<BuildProperty> findBuildProperties(long buildId) throws SQLException {
         ResultSet rs = null;
         Set<BuildProperty> buildProperties = new HashSet<>();
@@ -0,0 +1,101 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.artifactory.storage.db.build.service;
+
+import com.google.common.collect.Lists;
+import org.artifactory.storage.db.build.dao.BuildArtifactsDao;
+import org.artifactory.storage.db.build.dao.BuildDependenciesDao;
+import org.artifactory.storage.db.build.dao.BuildModulesDao;
+import org.artifactory.storage.db.build.entity.BuildArtifact;
+import org.artifactory.storage.db.build.entity.BuildDependency;
+import org.artifactory.storage.db.build.entity.BuildModule;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Collects the module, artifact and dependency rows of a build and inserts them in batches.
+ * <p/>
+ * The rows are flushed once the number of pending rows reaches the batch size. Modules are always inserted before the
+ * artifacts and dependencies that reference them, so a module with many artifacts may be split between flushes.
+ */
+class BuildModulesBatch {
+
+    private final BuildModulesDao buildModulesDao;
+    private final BuildArtifactsDao buildArtifactsDao;
+    private final BuildDependenciesDao buildDependenciesDao;
+    private final int batchSize;
+
+    private final List<BuildModule> modules = Lists.newArrayList();
+    private final List<BuildArtifact> artifacts = Lists.newArrayList();
+    private final List<BuildDependency> dependencies = Lists.newArrayList();
+    private int pendingRows;
+    private int insertedRows;
+
+    BuildModulesBatch(BuildModulesDao buildModulesDao, BuildArtifactsDao buildArtifactsDao,
+            BuildDependenciesDao buildDependenciesDao, int batchSize) {
+        this.buildModulesDao = buildModulesDao;
+        this.buildArtifactsDao = buildArtifactsDao;
+        this.buildDependenciesDao = buildDependenciesDao;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    void addModule(BuildModule module) throws SQLException {
+        modules.add(module);
+        rowsAdded(1 + module.getProperties().size());
+    }
+
+    void addArtifact(BuildArtifact artifact) throws SQLException {
+        artifacts.add(artifact);
+        rowsAdded(1);
+    }
+
+    void addDependency(BuildDependency dependency) throws SQLException {
+        dependencies.add(dependency);
+        rowsAdded(1);
+    }
+
+    /**
+     * Inserts all the pending rows
+     *
+     * @return Total number of rows inserted by this batch
+     */
+    int flush() throws SQLException {
+        if (!modules.isEmpty()) {
+            insertedRows += buildModulesDao.createBuildModules(modules);
+            modules.clear();
+        }
+        if (!artifacts.isEmpty()) {
+            insertedRows += buildArtifactsDao.createBuildArtifacts(artifacts);
+            artifacts.clear();
+        }
+        if (!dependencies.isEmpty()) {
+            insertedRows += buildDependenciesDao.createBuildDependencies(dependencies);
+            dependencies.clear();
+        }
+        pendingRows = 0;
+        return insertedRows;
+    }
+
+    private void rowsAdded(int rows) throws SQLException {
+        pendingRows += rows;
+        if (pendingRows >= batchSize) {
+            flush();
+        }
+    }
+}
@@ -18,26 +18,35 @@
 
 package org.artifactory.storage.db.build.service;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.*;
 import org.apache.commons.lang.StringUtils;
 import org.artifactory.api.build.*;
 import org.artifactory.api.build.diff.BuildParams;
-import org.artifactory.api.jackson.JacksonReader;
+import org.artifactory.api.jackson.JacksonFactory;
 import org.artifactory.binstore.BinaryInfo;
 import org.artifactory.build.BuildInfoUtils;
 import org.artifactory.build.BuildRun;
 import org.artifactory.checksum.ChecksumType;
+import org.artifactory.common.ConstantValues;
 import org.artifactory.storage.StorageException;
 import org.artifactory.storage.binstore.service.BinaryStore;
 import org.artifactory.storage.build.service.BuildSearchCriteria;
 import org.artifactory.storage.build.service.BuildStoreService;
 import org.artifactory.storage.db.DbService;
 import org.artifactory.storage.db.build.dao.BuildArtifactsDao;
+import org.artifactory.storage.db.build.dao.BuildChecksumsDao;
 import org.artifactory.storage.db.build.dao.BuildDependenciesDao;
 import org.artifactory.storage.db.build.dao.BuildModulesDao;
 import org.artifactory.storage.db.build.dao.BuildsDao;
 import org.artifactory.storage.db.build.entity.*;
+import org.artifactory.storage.db.util.blob.BlobWrapper;
 import org.artifactory.storage.db.util.blob.BlobWrapperFactory;
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.ObjectCodec;
+import org.codehaus.jackson.node.ObjectNode;
 import org.jfrog.build.api.*;
 import org.jfrog.build.api.release.PromotionStatus;
 import org.slf4j.Logger;
@@ -45,8 +54,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.nio.charset.Charset;
 import java.sql.SQLException;
 import java.util.*;
 
@@ -61,6 +70,7 @@ public class BuildStoreServiceImpl implements BuildStoreService {
     private static final Logger log = LoggerFactory.getLogger(BuildStoreServiceImpl.class);
 
     private static final String EXPORTABLE_BUILD_VERSION = "v2";
+    private static final String MODULES_FIELD = "modules";
 
     @Autowired
     private DbService dbService;
@@ -80,6 +90,9 @@ public class BuildStoreServiceImpl implements BuildStoreService {
     @Autowired
     private BuildDependenciesDao buildDependenciesDao;
 
+    @Autowired
+    private BuildChecksumsDao buildChecksumsDao;
+
     @Autowired
     private BlobWrapperFactory blobsFactory;
 
@@ -91,37 +104,131 @@ public class BuildStoreServiceImpl implements BuildStoreService {
         return BuildInfoUtils.formatBuildTime(buildStarted);
     }
 
+    /**
+     * Inserts the build without materializing its modules: the JSON is read twice by a streaming parser, first for
+     * the build details (skipping the modules) and then for the modules, one module at a time.
+     */
     @Override
     public void addBuild(String buildJson) {
+        byte[] jsonBytes = buildJson.getBytes(Charsets.UTF_8);
+        Build buildDetails;
         try {
-            addBuild(JacksonReader.bytesAsClass(buildJson.getBytes(Charset.forName("UTF-8")), Build.class));
+            buildDetails = readBuildDetails(jsonBytes);
         } catch (IOException e) {
-            throw new StorageException("Could not parse JSON build " + buildJson, e);
+            throw new StorageException("Could not parse JSON build " + StringUtils.abbreviate(buildJson, 1024), e);
+        }
+        try {
+            long buildId = insertBuild(buildDetails, createJsonBlob(jsonBytes));
+            insertModules(buildId, jsonBytes);
+            buildChecksumsDao.indexBuild(buildId);
+        } catch (IOException e) {
+            throw new StorageException("Could not parse JSON of build " + buildDetails, e);
+        } catch (SQLException e) {
+            throw new StorageException("Could not insert build " + buildDetails, e);
         }
     }
 
     @Override
     public void addBuild(Build build) {
         try {
-            String buildStarted = build.getStarted();
-            Date parsedDate = parseStringToDate(buildStarted);
-
-            // TODO: [by fsi] we are loosing the timezone information written in the JSON
-            // Generates a big inconsistency between DB entry and JSON data
-
-            BuildEntity dbBuild = new BuildEntity(dbService.nextId(), build.getName(), build.getNumber(),
-                    parsedDate.getTime(),
-                    build.getUrl(), System.currentTimeMillis(), build.getArtifactoryPrincipal(),
-                    0L, null);
-            long buildId = dbBuild.getBuildId();
-            dbBuild.setProperties(createProperties(buildId, build));
-            dbBuild.setPromotions(createPromotions(buildId, build));
-            buildsDao.createBuild(dbBuild, blobsFactory.createJsonObjectWrapper(build));
+            long buildId = insertBuild(build, createJsonBlob(build));
             insertModules(buildId, build);
+            buildChecksumsDao.indexBuild(buildId);
+        } catch (IOException e) {
+            throw new StorageException("Could not serialize JSON of build " + build, e);
         } catch (SQLException e) {
             throw new StorageException("Could not insert build " + build, e);
         }
+    }
+
+    private long insertBuild(Build build, BlobWrapper jsonBlob) throws SQLException {
+        String buildStarted = build.getStarted();
+        Date parsedDate = parseStringToDate(buildStarted);
+
+        // TODO: [by fsi] we are loosing the timezone information written in the JSON
+        // Generates a big inconsistency between DB entry and JSON data
+
+        BuildEntity dbBuild = new BuildEntity(dbService.nextId(), build.getName(), build.getNumber(),
+                parsedDate.getTime(),
+                build.getUrl(), System.currentTimeMillis(), build.getArtifactoryPrincipal(),
+                0L, null);
+        long buildId = dbBuild.getBuildId();
+        dbBuild.setProperties(createProperties(buildId, build));
+        dbBuild.setPromotions(createPromotions(buildId, build));
+        buildsDao.createBuild(dbBuild, jsonBlob);
+        return buildId;
+    }
+
+    /**
+     * @return The build details of the JSON, all the top level fields except the modules
+     */
+    private Build readBuildDetails(byte[] jsonBytes) throws IOException {
+        JsonParser parser = JacksonFactory.createJsonParser(jsonBytes);
+        try {
+            ObjectCodec codec = parser.getCodec();
+            ObjectNode details = codec.createObjectNode();
+            expectToken(parser.nextToken(), JsonToken.START_OBJECT, parser);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+                if (MODULES_FIELD.equals(fieldName)) {
+                    parser.skipChildren();
+                } else {
+                    details.put(fieldName, parser.readValueAsTree());
+                }
+            }
+            return codec.readValue(codec.treeAsTokens(details), Build.class);
+        } finally {
+            parser.close();
+        }
+    }
+
+    private void insertModules(long buildId, byte[] jsonBytes) throws IOException, SQLException {
+        BuildModulesBatch batch = createModulesBatch();
+        JsonParser parser = JacksonFactory.createJsonParser(jsonBytes);
+        try {
+            expectToken(parser.nextToken(), JsonToken.START_OBJECT, parser);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+                if (MODULES_FIELD.equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        addModule(batch, buildId, parser.readValueAs(Module.class));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } finally {
+            parser.close();
+        }
+        batch.flush();
+    }
+
+    private void expectToken(JsonToken actual, JsonToken expected, JsonParser parser) throws JsonParseException {
+        if (actual != expected) {
+            throw new JsonParseException("Expected " + expected + " but found " + actual,
+                    parser.getCurrentLocation());
+        }
+    }
 
+    private BlobWrapper createJsonBlob(byte[] jsonBytes) throws IOException {
+        if (ConstantValues.buildJsonCompressionEnabled.getBoolean()) {
+            return blobsFactory.createCompressed(jsonBytes);
+        }
+        return blobsFactory.create(new ByteArrayInputStream(jsonBytes), jsonBytes.length);
+    }
+
+    private BlobWrapper createJsonBlob(Build build) throws IOException {
+        if (ConstantValues.buildJsonCompressionEnabled.getBoolean()) {
+            return blobsFactory.createCompressedJsonObjectWrapper(build);
+        }
+        return blobsFactory.createJsonObjectWrapper(build);
+    }
+
+    private BuildModulesBatch createModulesBatch() {
+        return new BuildModulesBatch(buildModulesDao, buildArtifactsDao, buildDependenciesDao,
+                ConstantValues.buildInsertBatchSize.getInt());
     }
 
     private ArrayList<BuildPromotionStatus> createPromotions(long buildId, Build build) {
@@ -171,53 +278,49 @@ public class BuildStoreServiceImpl implements BuildStoreService {
             // Nothing to do here
             return;
         }
+        BuildModulesBatch batch = createModulesBatch();
         for (Module module : modules) {
-            BuildModule dbModule = new BuildModule(dbService.nextId(), buildId, module.getId());
-            Properties properties = module.getProperties();
-            Set<ModuleProperty> moduleProperties;
-            if (properties != null && !properties.isEmpty()) {
-                moduleProperties = Sets.newHashSetWithExpectedSize(properties.size());
-                for (Map.Entry<Object, Object> entry : properties.entrySet()) {
-                    moduleProperties.add(
-                            new ModuleProperty(dbService.nextId(), dbModule.getModuleId(),
-                                    entry.getKey().toString(),
-                                    entry.getValue().toString())
-                    );
-                }
-            } else {
-                moduleProperties = Sets.newHashSetWithExpectedSize(1);
+            addModule(batch, buildId, module);
+        }
+        batch.flush();
+    }
+
+    private void addModule(BuildModulesBatch batch, long buildId, Module module) throws SQLException {
+        BuildModule dbModule = new BuildModule(dbService.nextId(), buildId, module.getId());
+        Properties properties = module.getProperties();
+        Set<ModuleProperty> moduleProperties;
+        if (properties != null && !properties.isEmpty()) {
+            moduleProperties = Sets.newHashSetWithExpectedSize(properties.size());
+            for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+                moduleProperties.add(
+                        new ModuleProperty(dbService.nextId(), dbModule.getModuleId(),
+                                entry.getKey().toString(),
+                                entry.getValue().toString())
+                );
             }
-            dbModule.setProperties(moduleProperties);
-            buildModulesDao.createBuildModule(dbModule);
-
-            List<Artifact> artifacts = module.getArtifacts();
-            List<BuildArtifact> dbArtifacts;
-            if (artifacts != null && !artifacts.isEmpty()) {
-                dbArtifacts = Lists.newArrayListWithExpectedSize(artifacts.size());
-                for (Artifact artifact : artifacts) {
-                    // Artifact properties are not inserted in DB
-                    dbArtifacts.add(new BuildArtifact(dbService.nextId(), dbModule.getModuleId(),
-                            artifact.getName(), artifact.getType(), artifact.getSha1(), artifact.getMd5()));
-                }
-            } else {
-                dbArtifacts = Lists.newArrayListWithExpectedSize(1);
+        } else {
+            moduleProperties = Sets.newHashSetWithExpectedSize(1);
+        }
+        dbModule.setProperties(moduleProperties);
+        batch.addModule(dbModule);
+
+        List<Artifact> artifacts = module.getArtifacts();
+        if (artifacts != null) {
+            for (Artifact artifact : artifacts) {
+                // Artifact properties are not inserted in DB
+                batch.addArtifact(new BuildArtifact(dbService.nextId(), dbModule.getModuleId(),
+                        artifact.getName(), artifact.getType(), artifact.getSha1(), artifact.getMd5()));
             }
-            buildArtifactsDao.createBuildArtifacts(dbArtifacts);
-
-            List<Dependency> dependencies = module.getDependencies();
-            List<BuildDependency> dbDependencies;
-            if (dependencies != null && !dependencies.isEmpty()) {
-                dbDependencies = Lists.newArrayListWithExpectedSize(dependencies.size());
-                for (Dependency dependency : dependencies) {
-                    // Dependency properties are not inserted in DB
-                    dbDependencies.add(new BuildDependency(dbService.nextId(), dbModule.getModuleId(),
-                            dependency.getId(), dependency.getScopes(), dependency.getType(),
-                            dependency.getSha1(), dependency.getMd5()));
-                }
-            } else {
-                dbDependencies = Lists.newArrayListWithExpectedSize(1);
+        }
+
+        List<Dependency> dependencies = module.getDependencies();
+        if (dependencies != null) {
+            for (Dependency dependency : dependencies) {
+                // Dependency properties are not inserted in DB
+                batch.addDependency(new BuildDependency(dbService.nextId(), dbModule.getModuleId(),
+                        dependency.getId(), dependency.getScopes(), dependency.getType(),
+                        dependency.getSha1(), dependency.getMd5()));
             }
-            buildDependenciesDao.createBuildDependencies(dbDependencies);
         }
     }
 
@@ -265,12 +368,12 @@ public class BuildStoreServiceImpl implements BuildStoreService {
         try {
             long buildId = findIdFromBuildRun(originalBuildRun);
             if (buildId > 0L) {
-                buildsDao.rename(buildId, renamedBuild.getName(), blobsFactory.createJsonObjectWrapper(renamedBuild),
+                buildsDao.rename(buildId, renamedBuild.getName(), createJsonBlob(renamedBuild),
                         currentUser, System.currentTimeMillis());
             } else {
                 throw new StorageException("Could not find build to rename " + originalBuildRun);
             }
-        } catch (SQLException e) {
+        } catch (IOException | SQLException e) {
             throw new StorageException("Could not rename build " + originalBuildRun, e);
         }
     }
@@ -285,8 +388,8 @@ public class BuildStoreServiceImpl implements BuildStoreService {
             long buildId = findIdFromBuildRun(buildRun);
             build.addStatus(promotion);
             buildsDao.addPromotionStatus(buildId, convertPromotionStatus(buildId, promotion),
-                    blobsFactory.createJsonObjectWrapper(build), currentUser, System.currentTimeMillis());
-        } catch (SQLException e) {
+                    createJsonBlob(build), currentUser, System.currentTimeMillis());
+        } catch (IOException | SQLException e) {
             throw new StorageException("Could not add promotion " + promotion + " for build " + buildRun, e);
         }
     }
@@ -365,6 +468,7 @@ public class BuildStoreServiceImpl implements BuildStoreService {
 
     private void deleteBuilds(Collection<Long> buildIds) throws SQLException {
         for (Long buildId : buildIds) {
+            buildChecksumsDao.deleteBuildChecksums(buildId);
             List<Long> moduleIds = buildModulesDao.findModuleIdsForBuild(buildId);
             if (!moduleIds.isEmpty()) {
                 buildArtifactsDao.deleteBuildArtifacts(moduleIds);
@@ -398,6 +502,7 @@ public class BuildStoreServiceImpl implements BuildStoreService {
     @Override
     public void deleteAllBuilds() {
         try {
+            buildChecksumsDao.deleteAllBuildChecksums();
             buildArtifactsDao.deleteAllBuildArtifacts();
             buildDependenciesDao.deleteAllBuildDependencies();
             buildModulesDao.deleteAllBuildModules();
@@ -412,25 +517,36 @@ public class BuildStoreServiceImpl implements BuildStoreService {
         if (!type.isValid(checksum)) {
             log.info("Looking for invalid checksum " + type.name() + " '" + checksum + "'");
         }
+        Set<BuildRun> results = findBuildsForChecksums(criteria, type, ImmutableList.of(checksum)).get(checksum);
+        return results != null ? results : Sets.<BuildRun>newHashSet();
+    }
+
+    @Override
+    public Map<String, Set<BuildRun>> findBuildsForChecksums(BuildSearchCriteria criteria, ChecksumType type,
+            Collection<String> checksums) {
         try {
-            Set<BuildRun> results = Sets.newHashSet();
-            if (criteria.searchInDependencies()) {
-                Collection<BuildEntity> buildEntities = buildsDao.findBuildsForDependencyChecksum(type, checksum);
-                for (BuildEntity buildEntity : buildEntities) {
-                    results.add(getBuildRun(buildEntity));
-                }
+            SetMultimap<String, Long> buildIds = buildChecksumsDao.findBuildIds(type, checksums,
+                    criteria.searchInArtifacts(), criteria.searchInDependencies());
+            Map<Long, BuildRun> buildRuns = Maps.newHashMap();
+            for (BuildEntity buildEntity : buildsDao.getBuilds(Sets.newHashSet(buildIds.values()))) {
+                buildRuns.put(buildEntity.getBuildId(), getBuildRun(buildEntity));
             }
-
-            if (criteria.searchInArtifacts()) {
-                Collection<BuildEntity> buildEntities = buildsDao.findBuildsForArtifactChecksum(type, checksum);
-                for (BuildEntity buildEntity : buildEntities) {
-                    results.add(getBuildRun(buildEntity));
+            Map<String, Set<BuildRun>> results = Maps.newHashMap();
+            for (Map.Entry<String, Collection<Long>> entry : buildIds.asMap().entrySet()) {
+                Set<BuildRun> checksumBuilds = Sets.newHashSet();
+                for (Long buildId : entry.getValue()) {
+                    BuildRun buildRun = buildRuns.get(buildId);
+                    // the build may be deleted between the queries
+                    if (buildRun != null) {
+                        checksumBuilds.add(buildRun);
+                    }
                 }
+                results.put(entry.getKey(), checksumBuilds);
             }
-
             return results;
         } catch (SQLException e) {
-            throw new StorageException("Could not find builds for " + type.name() + " '" + checksum + "'", e);
+            throw new StorageException("Could not find builds for " + checksums.size() + " " + type.name() +
+                    " checksums", e);
         }
     }
 
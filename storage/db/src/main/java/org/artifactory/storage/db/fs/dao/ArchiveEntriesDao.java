@@ -18,6 +18,7 @@
 
 package org.artifactory.storage.db.fs.dao;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.artifactory.storage.StorageProperties;
 import org.artifactory.storage.db.DbService;
@@ -31,6 +32,9 @@ import org.springframework.stereotype.Repository;
 import javax.annotation.Nonnull;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -120,6 +124,16 @@ public class ArchiveEntriesDao extends BaseDao {
         return updateCount > 0;
     }
 
+    /**
+     * Batch inserts new archive paths.
+     *
+     * @param archivePaths Map of the new archive path unique ids to the entry paths
+     * @return Number of inserted paths
+     */
+    public int createArchivePaths(Map<Long, String> archivePaths) throws SQLException {
+        return jdbcHelper.executeBatchInsert("archive_paths", idsToValuesRows(archivePaths));
+    }
+
     /**
      * @param entryPath The entry path
      * @return Unique id of the entry path if such exists, {@link org.artifactory.storage.db.DbService#NO_DB_ID} otherwise
@@ -135,6 +149,16 @@ public class ArchiveEntriesDao extends BaseDao {
         return updateCount > 0;
     }
 
+    /**
+     * Batch inserts new archive names.
+     *
+     * @param archiveNames Map of the new archive name unique ids to the entry names
+     * @return Number of inserted names
+     */
+    public int createArchiveNames(Map<Long, String> archiveNames) throws SQLException {
+        return jdbcHelper.executeBatchInsert("archive_names", idsToValuesRows(archiveNames));
+    }
+
     /**
      * @param entryName The entry name
      * @return Unique id of the entry name if such exists, {@link org.artifactory.storage.db.DbService#NO_DB_ID} otherwise
@@ -159,6 +183,22 @@ public class ArchiveEntriesDao extends BaseDao {
         return updateCount > 0;
     }
 
+    /**
+     * Batch inserts the records of the archive entries to the many-to-many table of archive to entries.
+     *
+     * @param indexedArchiveId The indexed archive unique id
+     * @param entriesIds       Pairs of the archive entry path unique id and the archive entry name unique id
+     * @return Number of inserted entries
+     */
+    public int createIndexedArchivesEntries(long indexedArchiveId, Collection<long[]> entriesIds)
+            throws SQLException {
+        List<Object[]> rows = Lists.newArrayListWithCapacity(entriesIds.size());
+        for (long[] entryIds : entriesIds) {
+            rows.add(new Object[]{indexedArchiveId, entryIds[0], entryIds[1]});
+        }
+        return jdbcHelper.executeBatchInsert("indexed_archives_entries", rows);
+    }
+
     /**
      * @return True if there's already an entry with the given ids
      */
@@ -195,4 +235,12 @@ public class ArchiveEntriesDao extends BaseDao {
     private ArchiveEntry entryFromResultSet(ResultSet rs) throws SQLException {
         return new ArchiveEntry(rs.getString(1), emptyIfNullOrDot(rs.getString(2)), emptyIfNullOrDot(rs.getString(3)));
     }
+
+    private List<Object[]> idsToValuesRows(Map<Long, String> values) {
+        List<Object[]> rows = Lists.newArrayListWithCapacity(values.size());
+        for (Map.Entry<Long, String> entry : values.entrySet()) {
+            rows.add(new Object[]{entry.getKey(), dotIfNullOrEmpty(entry.getValue())});
+        }
+        return rows;
+    }
 }
@@ -0,0 +1,169 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.storage.db.fs.dao;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.artifactory.storage.db.util.BaseDao;
+import org.artifactory.storage.db.util.DbUtils;
+import org.artifactory.storage.db.util.JdbcHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A data access object for the change_journal and change_journal_consumers tables.
+ * <p/>
+ * The journal holds the paths of the nodes that changed with the time of the change. A start entry marks the time
+ * the journal started recording, changes before this time are not in the journal. The consumers are the recording
+ * consumers of the journal with the time before which each of them already read the changes.
+ */
+@Repository
+public class ChangeJournalDao extends BaseDao {
+
+    public static final int TYPE_START = 0;
+    public static final int TYPE_CHANGED = 1;
+    public static final int TYPE_DELETED = 2;
+
+    /**
+     * Repo and path of the start entries (Oracle doesn't allow empty strings in not null columns)
+     */
+    private static final String START_ENTRY_PATH = ".";
+
+    @Autowired
+    public ChangeJournalDao(JdbcHelper jdbcHelper) {
+        super(jdbcHelper);
+    }
+
+    public int create(long entryId, long changeTime, int changeType, String repo, String path) throws SQLException {
+        return jdbcHelper.executeUpdate("INSERT INTO change_journal VALUES(?, ?, ?, ?, ?)",
+                entryId, changeTime, changeType, repo, path);
+    }
+
+    public int createStart(long entryId, long startTime) throws SQLException {
+        return create(entryId, startTime, TYPE_START, START_ENTRY_PATH, START_ENTRY_PATH);
+    }
+
+    /**
+     * @return The time of the latest start entry, -1 if the journal is not started
+     */
+    public long getStartTime() throws SQLException {
+        ResultSet resultSet = null;
+        try {
+            resultSet = jdbcHelper.executeSelect("SELECT MAX(change_time) FROM change_journal WHERE change_type = ?",
+                    TYPE_START);
+            if (resultSet.next()) {
+                long startTime = resultSet.getLong(1);
+                if (!resultSet.wasNull()) {
+                    return startTime;
+                }
+            }
+            return -1;
+        } finally {
+            DbUtils.close(resultSet);
+        }
+    }
+
+    /**
+     * Loads a page of the distinct paths of the given repository that changed since the given time ordered by path.
+     *
+     * @param repo       The repository key
+     * @param since      Minimal change time
+     * @param afterPath  Load only paths greater than this (i.e. the last path of the previous page), null to load the
+     *                   first page
+     * @param maxResults Max number of paths to load
+     */
+    @Nonnull
+    public List<String> findChangedPaths(String repo, long since, @Nullable String afterPath, int maxResults)
+            throws SQLException {
+        ResultSet resultSet = null;
+        List<String> paths = Lists.newArrayList();
+        try {
+            if (afterPath == null) {
+                resultSet = jdbcHelper.executeSelect("SELECT DISTINCT node_path FROM change_journal " +
+                        "WHERE repo = ? AND change_time >= ? AND change_type > ? ORDER BY node_path",
+                        repo, since, TYPE_START);
+            } else {
+                resultSet = jdbcHelper.executeSelect("SELECT DISTINCT node_path FROM change_journal " +
+                        "WHERE repo = ? AND change_time >= ? AND change_type > ? AND node_path > ? " +
+                        "ORDER BY node_path", repo, since, TYPE_START, afterPath);
+            }
+            while (paths.size() < maxResults && resultSet.next()) {
+                paths.add(resultSet.getString(1));
+            }
+            return paths;
+        } finally {
+            DbUtils.close(resultSet);
+        }
+    }
+
+    /**
+     * Deletes all the entries (including start entries) older than the given time
+     */
+    public int deleteBefore(long time) throws SQLException {
+        return jdbcHelper.executeUpdate("DELETE FROM change_journal WHERE change_time < ?", time);
+    }
+
+    public int deleteAll() throws SQLException {
+        return jdbcHelper.executeUpdate("DELETE FROM change_journal");
+    }
+
+    /**
+     * Creates a consumer that didn't read any change yet
+     */
+    public int createConsumer(String consumer) throws SQLException {
+        return jdbcHelper.executeUpdate("INSERT INTO change_journal_consumers VALUES(?, ?)", consumer, -1L);
+    }
+
+    /**
+     * @return The consumers and the time before which each of them already read the changes (-1 if it didn't read)
+     */
+    @Nonnull
+    public Map<String, Long> findConsumers() throws SQLException {
+        ResultSet resultSet = null;
+        Map<String, Long> consumers = Maps.newHashMap();
+        try {
+            resultSet = jdbcHelper.executeSelect("SELECT consumer, read_before FROM change_journal_consumers");
+            while (resultSet.next()) {
+                consumers.put(resultSet.getString(1), resultSet.getLong(2));
+            }
+            return consumers;
+        } finally {
+            DbUtils.close(resultSet);
+        }
+    }
+
+    /**
+     * Moves the time before which the consumer already read the changes forward, never backward
+     */
+    public int updateConsumerReadBefore(String consumer, long readBefore) throws SQLException {
+        return jdbcHelper.executeUpdate("UPDATE change_journal_consumers SET read_before = ? " +
+                "WHERE consumer = ? AND read_before < ?", readBefore, consumer, readBefore);
+    }
+
+    public int deleteConsumer(String consumer) throws SQLException {
+        return jdbcHelper.executeUpdate("DELETE FROM change_journal_consumers WHERE consumer = ?", consumer);
+    }
+}
@@ -31,6 +31,7 @@ import org.artifactory.storage.db.fs.util.NodeUtils;
 import org.artifactory.storage.db.util.BaseDao;
 import org.artifactory.storage.db.util.DbUtils;
 import org.artifactory.storage.db.util.JdbcHelper;
+import org.artifactory.storage.db.util.querybuilder.QueryWriter;
 import org.artifactory.storage.fs.repo.RepoStorageSummary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +42,8 @@ import javax.annotation.Nullable;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -213,6 +216,90 @@ public class NodesDao extends BaseDao {
         }
     }
 
+    /**
+     * Loads a page of the children of the given path ordered by name.
+     *
+     * @param path       The parent path
+     * @param afterName  Load only the children that come after this name (i.e. the last name of the previous page),
+     *                   null to load the first page
+     * @param maxResults Max number of children to load
+     */
+    public List<Node> getChildren(NodePath path, @Nullable String afterName, int maxResults) throws SQLException {
+        return getChildren(path, afterName, maxResults, true, true, Collections.<String>emptyList());
+    }
+
+    /**
+     * Loads a page of the children of the given path ordered by name, filtered by their type and name.
+     *
+     * @param path             The parent path
+     * @param afterName        Load only the children that come after this name (i.e. the last name of the previous
+     *                         page), null to load the first page
+     * @param maxResults       Max number of children to load
+     * @param includeFiles     False to skip the child files
+     * @param includeFolders   False to skip the child folders
+     * @param fileNameSuffixes Load only the child files with one of these name suffixes, empty to load all the files.
+     *                         Suffixes with SQL wildcards are not filtered and should be checked by the caller.
+     */
+    public List<Node> getChildren(NodePath path, @Nullable String afterName, int maxResults, boolean includeFiles,
+            boolean includeFolders, Collection<String> fileNameSuffixes) throws SQLException {
+        ResultSet resultSet = null;
+        List<Node> results = Lists.newArrayList();
+        try {
+            // the child path must be the path+name of the parent
+            String childPath = path.getPathName();
+            StringBuilder conditions = new StringBuilder(" n.repo = ? AND n.node_path = ? AND n.depth = ?");
+            List<Object> params = Lists.<Object>newArrayList(path.getRepo(), dotIfNullOrEmpty(childPath),
+                    path.getDepth() + 1);
+            if (afterName != null) {
+                conditions.append(" AND n.node_name > ?");
+                params.add(afterName);
+            }
+            if (!includeFiles) {
+                conditions.append(" AND n.node_type = 0");
+            } else {
+                appendFilesFilter(conditions, params, includeFolders, fileNameSuffixes);
+            }
+            String query = new QueryWriter().select(" n.* ").from(" nodes n ")
+                    .where(conditions.append(" ").toString())
+                    .orderBy(" n.node_name ").limit((long) maxResults).build();
+            resultSet = jdbcHelper.executeSelect(query, params.toArray());
+            while (results.size() < maxResults && resultSet.next()) {
+                results.add(nodeFromResultSet(resultSet));
+            }
+            return results;
+        } finally {
+            DbUtils.close(resultSet);
+        }
+    }
+
+    private void appendFilesFilter(StringBuilder conditions, List<Object> params, boolean includeFolders,
+            Collection<String> fileNameSuffixes) {
+        if (!includeFolders) {
+            conditions.append(" AND n.node_type = 1");
+        }
+        if (fileNameSuffixes.isEmpty()) {
+            return;
+        }
+        for (String suffix : fileNameSuffixes) {
+            if (suffix.contains("%") || suffix.contains("_")) {
+                // no portable escaping of the wildcards, load the files of all the suffixes
+                return;
+            }
+        }
+        conditions.append(" AND (");
+        String separator = "";
+        if (includeFolders) {
+            conditions.append("n.node_type = 0");
+            separator = " OR ";
+        }
+        for (String suffix : fileNameSuffixes) {
+            conditions.append(separator).append("n.node_name LIKE ?");
+            params.add("%" + suffix);
+            separator = " OR ";
+        }
+        conditions.append(")");
+    }
+
     public boolean hasChildren(NodePath path) throws SQLException {
         ResultSet resultSet = null;
         try {
@@ -446,22 +533,23 @@ public class NodesDao extends BaseDao {
     }
 
     private Node nodeFromResultSet(ResultSet resultSet) throws SQLException {
-        long nodeId = resultSet.getLong(1);
-        boolean isFile = resultSet.getBoolean(2);
-        String repoName = resultSet.getString(3);
-        String path = emptyIfNullOrDot(resultSet.getString(4));
-        String fileName = emptyIfNullOrDot(resultSet.getString(5));
-        short depth = resultSet.getShort(6);
-        long created = resultSet.getLong(7);
-        String createdBy = resultSet.getString(8);
-        long modified = resultSet.getLong(9);
-        String modifiedBy = resultSet.getString(10);
-        long updated = resultSet.getLong(11);
-        long length = resultSet.getLong(12);
-        String sha1Actual = resultSet.getString(13);
-        String sha1Original = resultSet.getString(14);
-        String md5Actual = resultSet.getString(15);
-        String md5Original = resultSet.getString(16);
+        // some dialects wrap the paged queries with extra columns, so read the values by name
+        long nodeId = resultSet.getLong("node_id");
+        boolean isFile = resultSet.getBoolean("node_type");
+        String repoName = resultSet.getString("repo");
+        String path = emptyIfNullOrDot(resultSet.getString("node_path"));
+        String fileName = emptyIfNullOrDot(resultSet.getString("node_name"));
+        short depth = resultSet.getShort("depth");
+        long created = resultSet.getLong("created");
+        String createdBy = resultSet.getString("created_by");
+        long modified = resultSet.getLong("modified");
+        String modifiedBy = resultSet.getString("modified_by");
+        long updated = resultSet.getLong("updated");
+        long length = resultSet.getLong("bin_length");
+        String sha1Actual = resultSet.getString("sha1_actual");
+        String sha1Original = resultSet.getString("sha1_original");
+        String md5Actual = resultSet.getString("md5_actual");
+        String md5Original = resultSet.getString("md5_original");
         Node node = new Node(nodeId, isFile, repoName, path, fileName, depth, created, createdBy,
                 modified, modifiedBy, updated, length, sha1Actual, sha1Original, md5Actual, md5Original);
         return node;
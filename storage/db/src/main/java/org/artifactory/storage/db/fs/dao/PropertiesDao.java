@@ -18,6 +18,7 @@
 
 package org.artifactory.storage.db.fs.dao;
 
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import org.apache.commons.lang.StringUtils;
 import org.artifactory.storage.db.fs.entity.NodeProperty;
@@ -29,6 +30,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.Nullable;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
@@ -42,6 +44,7 @@ import java.util.List;
 public class PropertiesDao extends BaseDao {
     private static final Logger log = LoggerFactory.getLogger(PropertiesDao.class);
     private static final int PROP_VALUE_MAX_SIZE = 4000;
+    private static final int MAX_IDS_PER_QUERY = 500;
 
     @Autowired
     public PropertiesDao(JdbcHelper jdbcHelper) {
@@ -81,16 +84,52 @@ public class PropertiesDao extends BaseDao {
         return jdbcHelper.executeUpdate("DELETE FROM node_props WHERE node_id = ?", nodeId);
     }
 
+    /**
+     * Deletes the properties with the given property ids.
+     *
+     * @return Number of deleted properties
+     */
+    public int deleteProperties(List<Long> propIds) throws SQLException {
+        int deleted = 0;
+        for (List<Long> chunk : Iterables.partition(propIds, MAX_IDS_PER_QUERY)) {
+            deleted += jdbcHelper.executeUpdate("DELETE FROM node_props WHERE prop_id IN (#)", chunk);
+        }
+        return deleted;
+    }
+
     public int create(NodeProperty property) throws SQLException {
+        return jdbcHelper.executeUpdate("INSERT INTO node_props VALUES(?, ?, ?, ?)", propertyToRow(property));
+    }
+
+    /**
+     * Inserts the properties using multi row batch inserts.
+     *
+     * @return Number of inserted properties
+     */
+    public int create(List<NodeProperty> properties) throws SQLException {
+        List<Object[]> rows = Lists.newArrayListWithCapacity(properties.size());
+        for (NodeProperty property : properties) {
+            rows.add(propertyToRow(property));
+        }
+        return jdbcHelper.executeBatchInsert("node_props", rows);
+    }
+
+    /**
+     * @return The value as it is read back after it is stored: trimmed to the max value size and never null
+     */
+    public static String toStoredValue(@Nullable String propValue) {
+        return emptyIfNull(StringUtils.substring(propValue, 0, PROP_VALUE_MAX_SIZE));
+    }
+
+    private Object[] propertyToRow(NodeProperty property) {
         String propValue = nullIfEmpty(property.getPropValue());
         if (propValue != null && propValue.length() > PROP_VALUE_MAX_SIZE) {
             log.info("Trimming property value to 4000 characters '{}'", property.getPropKey());
             log.debug("Trimming property value to 4000 characters {}: {}", property.getPropKey(),
                     property.getPropValue());
-            propValue = StringUtils.substring(propValue, 0, PROP_VALUE_MAX_SIZE);
+            propValue = toStoredValue(propValue);
         }
-        return jdbcHelper.executeUpdate("INSERT INTO node_props VALUES(?, ?, ?, ?)",
-                property.getPropId(), property.getNodeId(), property.getPropKey(), propValue);
+        return new Object[]{property.getPropId(), property.getNodeId(), property.getPropKey(), propValue};
     }
 
     private NodeProperty propertyFromResultSet(ResultSet resultSet) throws SQLException {
@@ -19,6 +19,8 @@
 package org.artifactory.storage.db.fs.dao;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.artifactory.storage.db.fs.entity.Stat;
 import org.artifactory.storage.db.util.BaseDao;
 import org.artifactory.storage.db.util.DbUtils;
@@ -31,6 +33,10 @@ import org.springframework.stereotype.Repository;
 import javax.annotation.Nullable;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
  * A data access object for the stats table.
@@ -334,6 +340,81 @@ public class StatsDao extends BaseDao {
         return 0; // no change
     }
 
+    /**
+     * Fetches local stats of many nodes
+     *
+     * @param nodeIds - nodes identifiers
+     *
+     * @return Map of node id to its local {@link Stat}, nodes without stats are not included
+     *
+     * @throws SQLException
+     */
+    public Map<Long, Stat> getLocalStats(Collection<Long> nodeIds) throws SQLException {
+        Map<Long, Stat> results = Maps.newHashMap();
+        if (nodeIds.isEmpty()) {
+            return results;
+        }
+        // Oracle limits the max elements in the IN clause to 1000
+        List<Long> ids = Lists.newArrayList(nodeIds);
+        for (List<Long> chunk : Lists.partition(ids, 500)) {
+            ResultSet resultSet = null;
+            try {
+                resultSet = jdbcHelper.executeSelect("SELECT * FROM stats WHERE node_id IN (#)", chunk);
+                while (resultSet.next()) {
+                    Stat stat = statFromLocalResultSet(resultSet);
+                    results.put(stat.getNodeId(), stat);
+                }
+            } finally {
+                DbUtils.close(resultSet);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Updates local stats of many nodes in a single batch
+     *
+     * @param stats local stats to write to DB
+     *
+     * @return The number of updated rows
+     * @throws SQLException
+     */
+    public int updateLocalStats(List<Stat> stats) throws SQLException {
+        List<Object[]> rows = Lists.newArrayListWithCapacity(stats.size());
+        for (Stat stat : stats) {
+            rows.add(new Object[]{stat.getLocalDownloadCount(), stat.getLocalLastDownloaded(),
+                    stat.getLocalLastDownloadedBy(), stat.getNodeId()});
+        }
+        return sumUpdates(jdbcHelper.executeBatchUpdate("UPDATE stats SET " +
+                "download_count = ?, last_downloaded = ?, last_downloaded_by = ? WHERE node_id = ?", rows));
+    }
+
+    /**
+     * Inserts local stats of many nodes in a single batch
+     *
+     * @param stats local stats to insert
+     *
+     * @return The number of inserted rows
+     * @throws SQLException
+     */
+    public int createLocalStats(List<Stat> stats) throws SQLException {
+        List<Object[]> rows = Lists.newArrayListWithCapacity(stats.size());
+        for (Stat stat : stats) {
+            rows.add(new Object[]{stat.getNodeId(), stat.getLocalDownloadCount(), stat.getLocalLastDownloaded(),
+                    stat.getLocalLastDownloadedBy()});
+        }
+        return sumUpdates(jdbcHelper.executeBatchUpdate("INSERT INTO stats VALUES (?, ?, ?, ?)", rows));
+    }
+
+    private int sumUpdates(int[] updateCounts) {
+        int total = 0;
+        for (int updateCount : updateCounts) {
+            // some drivers only report success without the count
+            total += updateCount == Statement.SUCCESS_NO_INFO ? 1 : Math.max(updateCount, 0);
+        }
+        return total;
+    }
+
     public int deleteStats(long nodeId, boolean supportRemoteStats) throws SQLException {
         log.debug("Deleting stats of node {}", nodeId);
         int remoteStatsDeleted = 0;
@@ -23,10 +23,12 @@ import org.artifactory.storage.db.fs.entity.TaskRecord;
 import org.artifactory.storage.db.util.BaseDao;
 import org.artifactory.storage.db.util.DbUtils;
 import org.artifactory.storage.db.util.JdbcHelper;
+import org.artifactory.storage.db.util.querybuilder.QueryWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Set;
@@ -59,6 +61,37 @@ public class TasksDao extends BaseDao {
         }
     }
 
+    /**
+     * Loads a page of the tasks of the given type ordered by the task context.
+     *
+     * @param taskType     The task type
+     * @param afterContext Load only tasks with task context greater than this (i.e. the last context of the previous
+     *                     page), null to load the first page
+     * @param maxResults   Max number of tasks to load
+     */
+    @Nonnull
+    public Set<TaskRecord> load(String taskType, @Nullable String afterContext, int maxResults) throws SQLException {
+        ResultSet resultSet = null;
+        Set<TaskRecord> entries = Sets.newLinkedHashSet();
+        try {
+            QueryWriter query = new QueryWriter().select(" t.task_type, t.task_context ").from(" tasks t ")
+                    .orderBy(" t.task_context ").limit((long) maxResults);
+            if (afterContext == null) {
+                resultSet = jdbcHelper.executeSelect(query.where(" t.task_type = ? ").build(), taskType);
+            } else {
+                resultSet = jdbcHelper.executeSelect(
+                        query.where(" t.task_type = ? AND t.task_context > ? ").build(), taskType, afterContext);
+            }
+            // some dialects wrap the paged query with extra columns, so read the values by name
+            while (entries.size() < maxResults && resultSet.next()) {
+                entries.add(new TaskRecord(resultSet.getString("task_type"), resultSet.getString("task_context")));
+            }
+            return entries;
+        } finally {
+            DbUtils.close(resultSet);
+        }
+    }
+
     public boolean exist(String taskType, String taskContext) throws SQLException {
         ResultSet resultSet = null;
         try {
@@ -19,6 +19,7 @@
 package org.artifactory.storage.db.fs.service;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.artifactory.addon.AddonsManager;
 import org.artifactory.addon.ha.semaphore.SemaphoreWrapper;
@@ -46,11 +47,15 @@ import org.springframework.transaction.support.AbstractPlatformTransactionManage
 import org.springframework.transaction.support.DefaultTransactionDefinition;
 
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Provides basic statistic services
@@ -62,6 +67,7 @@ public abstract class AbstractStatsService {
     private static final Logger log = LoggerFactory.getLogger(AbstractStatsService.class);
     public static final int DEFAULT_NB_STATS_SAVED_PER_TX = 30;
     private ConcurrentMap<RepoPath, StatsEvent> statsEvents = Maps.newConcurrentMap();
+    private final EventsStripe[] stripes = createStripes();
 
     @Autowired
     private StatsDao statsDao;
@@ -84,12 +90,89 @@ public abstract class AbstractStatsService {
         return dbService;
     }
 
+    /**
+     * @return The events drained from the queueing stripes and not flushed yet
+     */
     public ConcurrentMap<RepoPath, StatsEvent> getStatsEvents() {
         return statsEvents;
     }
 
+    /**
+     * Applies the update to the event of the repo path in the stripe of the calling thread, creating the event if
+     * needed. Writers only contend with the threads sharing their stripe, even when all of them download the same
+     * path, and the stripes are drained into {@link #getStatsEvents()} by the flush.
+     *
+     * @param repoPath The repo path of the event
+     * @param origin   The origin used when a new event is created
+     * @param update   The update to apply on the event
+     */
+    protected void queueEvent(RepoPath repoPath, String origin, Consumer<StatsEvent> update) {
+        stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)].queue(repoPath, origin, update);
+    }
+
+    /**
+     * @return True if there are events not flushed yet, either drained or still in the stripes
+     */
+    protected boolean hasQueuedEvents() {
+        if (!statsEvents.isEmpty()) {
+            return true;
+        }
+        for (EventsStripe stripe : stripes) {
+            if (!stripe.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return A snapshot of all the events not flushed yet, the events of the same repo path merged into one
+     */
+    protected Map<RepoPath, StatsEvent> getQueuedEvents() {
+        Map<RepoPath, StatsEvent> events = Maps.newHashMap();
+        statsEvents.values().forEach(event -> mergeCopy(events, event));
+        for (EventsStripe stripe : stripes) {
+            stripe.copyTo(events);
+        }
+        return events;
+    }
+
+    /**
+     * Moves the events of the stripes to {@link #getStatsEvents()}. Called only by the flush, which holds the
+     * flushing semaphore, so the drained events are not modified by anyone else.
+     */
+    private void drainStripes() {
+        for (EventsStripe stripe : stripes) {
+            for (StatsEvent event : stripe.drain()) {
+                StatsEvent drained = statsEvents.putIfAbsent(event.getRepoPath(), event);
+                if (drained != null) {
+                    drained.merge(event);
+                }
+            }
+        }
+    }
+
+    private static void mergeCopy(Map<RepoPath, StatsEvent> events, StatsEvent event) {
+        events.computeIfAbsent(event.getRepoPath(), path -> new StatsEvent(path, event.getOrigin())).merge(event);
+    }
+
+    /**
+     * @return A power of two number of stripes, at least twice the number of processors
+     */
+    private static EventsStripe[] createStripes() {
+        int count = 1;
+        while (count < Runtime.getRuntime().availableProcessors() * 2) {
+            count <<= 1;
+        }
+        EventsStripe[] stripes = new EventsStripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new EventsStripe();
+        }
+        return stripes;
+    }
+
     public void flushStats() {
-        if (getStatsEvents().isEmpty()) {
+        if (!hasQueuedEvents()) {
             return;
         }
         try {
@@ -103,7 +186,12 @@ public abstract class AbstractStatsService {
         }
 
         try {
-            doFlushStats();
+            drainStripes();
+            if (isBatchFlushSupported()) {
+                doBatchFlushStats();
+            } else {
+                doFlushStats();
+            }
         } finally {
             getFlushingSemaphore().release();
         }
@@ -132,7 +220,7 @@ public abstract class AbstractStatsService {
                     log.debug("Attempting to update stats of write locked node at: {}", event.getRepoPath());
                     continue;
                 }
-                iterator.remove(); //remove the object prior to sampling its value to avoid atomicity problems
+                iterator.remove();
                 processed++;
                 StatsSaveResult saveResult = createOrUpdateStats(event);
                 switch (saveResult) {
@@ -167,6 +255,160 @@ public abstract class AbstractStatsService {
         log.debug("Successfully flushed {} statistics from total of {}", processed, sizeOnEntry);
     }
 
+    /**
+     * Flushes events of local downloads in batches: the existing stats of a batch are loaded with one query and
+     * written back with one batched update and one batched insert. Events with remote content are flushed one by one.
+     */
+    private void doBatchFlushStats() {
+        int sizeOnEntry = getStatsEvents().size();
+        log.debug("Flushing {} statistics to storage in batches", sizeOnEntry);
+        int batchSize = Math.max(1, ConstantValues.statsFlushBatchSize.getInt());
+        List<StatsEvent> batch = Lists.newArrayListWithCapacity(batchSize);
+        Iterator<Map.Entry<RepoPath, StatsEvent>> iterator = getStatsEvents().entrySet().iterator();
+        int processed = 0;
+        try {
+            onTraversingStart();
+            while (iterator.hasNext()) {
+                final StatsEvent event = iterator.next().getValue();
+                log.trace("Flushing statistics : {}", event);
+                if (isWriteLocked(event)) {
+                    log.debug("Attempting to update stats of write locked node at: {}", event.getRepoPath());
+                    continue;
+                }
+                iterator.remove();
+                processed++;
+                if (event.hasRemoteContent()) {
+                    flushSingleEvent(event);
+                    continue;
+                }
+                batch.add(event);
+                if (batch.size() >= batchSize) {
+                    flushLocalEventsBatch(batch);
+                    batch.clear();
+                }
+            }
+            flushLocalEventsBatch(batch);
+        } finally {
+            onTraversingEnd();
+        }
+        log.debug("Successfully flushed {} statistics from total of {}", processed, sizeOnEntry);
+    }
+
+    private void flushLocalEventsBatch(List<StatsEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        TransactionStatus txStatus = startTransaction();
+        try {
+            Map<Long, StatsEvent> eventsByNodeId = Maps.newLinkedHashMap();
+            for (StatsEvent event : events) {
+                long nodeId = getFileService().getFileNodeId(event.getRepoPath());
+                if (nodeId == DbService.NO_DB_ID) {
+                    log.debug("Attempting to update stats of non-existing or folder node at: {}",
+                            event.getRepoPath());
+                } else {
+                    eventsByNodeId.put(nodeId, event);
+                }
+            }
+            Map<Long, Stat> existingStats = getStatsDao().getLocalStats(eventsByNodeId.keySet());
+            List<Stat> toUpdate = Lists.newArrayList();
+            List<Stat> toCreate = Lists.newArrayList();
+            for (Map.Entry<Long, StatsEvent> entry : eventsByNodeId.entrySet()) {
+                StatsEvent event = entry.getValue();
+                Stat stats = existingStats.get(entry.getKey());
+                if (stats != null) {
+                    toUpdate.add(new Stat(entry.getKey(),
+                            stats.getLocalDownloadCount() + event.getLocalEventCount().get(),
+                            event.getLocalDownloadedTime() != 0 ?
+                                    event.getLocalDownloadedTime() : stats.getLocalLastDownloaded(),
+                            !Strings.isNullOrEmpty(event.getLocalDownloadedBy()) ?
+                                    event.getLocalDownloadedBy() : stats.getLocalLastDownloadedBy()));
+                } else {
+                    toCreate.add(new Stat(entry.getKey(), event.getLocalEventCount().get(),
+                            event.getLocalDownloadedTime(), event.getLocalDownloadedBy()));
+                }
+            }
+            getStatsDao().updateLocalStats(toUpdate);
+            getStatsDao().createLocalStats(toCreate);
+            commitOrRollback(txStatus);
+            txStatus = null;
+            log.debug("Flushed batch of {} statistics ({} updated, {} created)", events.size(), toUpdate.size(),
+                    toCreate.size());
+        } catch (SQLException e) {
+            log.warn("Failed to flush batch of {} statistics, flushing one by one: {}", events.size(),
+                    e.getMessage());
+            log.debug("Failed to flush batch of statistics", e);
+            rollbackTransaction(txStatus);
+            txStatus = null;
+            events.forEach(this::flushSingleEvent);
+        } finally {
+            if (txStatus != null) {
+                rollbackTransaction(txStatus);
+            }
+        }
+    }
+
+    private void flushSingleEvent(StatsEvent event) {
+        TransactionStatus txStatus = startTransaction();
+        try {
+            if (createOrUpdateStats(event) == StatsSaveResult.Ignored) {
+                log.debug("Attempting to update stats of non-existing or folder node at: {}", event.getRepoPath());
+            }
+        } finally {
+            commitOrRollback(txStatus);
+        }
+    }
+
+    /**
+     * @return True if local download events can be flushed with {@link StatsDao} batch operations
+     */
+    protected boolean isBatchFlushSupported() {
+        return false;
+    }
+
+    /**
+     * Events queued by the threads mapped to one stripe, guarded by the stripe monitor
+     */
+    private static class EventsStripe {
+        private Map<RepoPath, StatsEvent> events = Maps.newHashMap();
+
+        synchronized void queue(RepoPath repoPath, String origin, Consumer<StatsEvent> update) {
+            StatsEvent event = events.get(repoPath);
+            if (event == null) {
+                event = new StatsEvent(repoPath, origin);
+                events.put(repoPath, event);
+            }
+            update.accept(event);
+        }
+
+        synchronized boolean isEmpty() {
+            return events.isEmpty();
+        }
+
+        synchronized Collection<StatsEvent> drain() {
+            if (events.isEmpty()) {
+                return Collections.emptyList();
+            }
+            Collection<StatsEvent> drained = events.values();
+            events = Maps.newHashMap();
+            return drained;
+        }
+
+        synchronized void copyTo(Map<RepoPath, StatsEvent> copies) {
+            events.values().forEach(event -> mergeCopy(copies, event));
+        }
+
+        synchronized StatsEvent copyOf(RepoPath repoPath) {
+            StatsEvent event = events.get(repoPath);
+            if (event == null) {
+                return null;
+            }
+            StatsEvent copy = new StatsEvent(repoPath, event.getOrigin());
+            copy.merge(event);
+            return copy;
+        }
+    }
+
     protected enum StatsSaveResult {
         Updated, Ignored, Failed;
     }
@@ -176,13 +418,13 @@ public abstract class AbstractStatsService {
         private final RepoPath repoPath;
 
         private final AtomicLong localEventCount;
-        private String localDownloadedBy;
-        private long localDownloadedTime;
+        private volatile String localDownloadedBy;
+        private volatile long localDownloadedTime;
 
         private final AtomicLong remoteEventCount;
-        private String remoteDownloadedBy;
-        private long remoteDownloadedTime;
-        private String origin;
+        private volatile String remoteDownloadedBy;
+        private volatile long remoteDownloadedTime;
+        private volatile String origin;
         private StringBuilder path; // a path from the download triggering host (an origin)
                                     // to the actual node containing the artifact
 
@@ -233,6 +475,28 @@ public abstract class AbstractStatsService {
             updatePath(origin, path);
         }
 
+        /**
+         * Adds the counters of another event of the same repo path, keeping the latest download details
+         *
+         * @param other The event to merge into this one
+         */
+        void merge(StatsEvent other) {
+            localEventCount.addAndGet(other.localEventCount.get());
+            if (other.localDownloadedTime != 0 && other.localDownloadedTime >= localDownloadedTime) {
+                this.localDownloadedBy = other.localDownloadedBy;
+                this.localDownloadedTime = other.localDownloadedTime;
+            }
+            remoteEventCount.addAndGet(other.remoteEventCount.get());
+            if (other.remoteDownloadedTime != 0 && other.remoteDownloadedTime >= remoteDownloadedTime) {
+                this.remoteDownloadedBy = other.remoteDownloadedBy;
+                this.remoteDownloadedTime = other.remoteDownloadedTime;
+            }
+            if (!Strings.isNullOrEmpty(other.origin)) {
+                this.origin = other.origin;
+            }
+            this.path.append(other.path);
+        }
+
         /**
          * Appends intermediateOrigin to the path
          *
@@ -454,7 +718,24 @@ public abstract class AbstractStatsService {
      * @return {@link StatsEvent}
      */
     protected StatsEvent getStatsFromEvents(RepoPath repoPath) {
-        return getStatsEvents().get(repoPath);
+        StatsEvent merged = null;
+        StatsEvent drained = statsEvents.get(repoPath);
+        if (drained != null) {
+            merged = new StatsEvent(repoPath, drained.getOrigin());
+            merged.merge(drained);
+        }
+        for (EventsStripe stripe : stripes) {
+            StatsEvent queued = stripe.copyOf(repoPath);
+            if (queued == null) {
+                continue;
+            }
+            if (merged == null) {
+                merged = queued;
+            } else {
+                merged.merge(queued);
+            }
+        }
+        return merged;
     }
 
     /**
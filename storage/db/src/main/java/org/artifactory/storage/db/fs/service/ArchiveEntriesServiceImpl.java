@@ -18,14 +18,19 @@
 
 package org.artifactory.storage.db.fs.service;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import org.apache.commons.lang.StringUtils;
 import org.artifactory.fs.ZipEntryInfo;
 import org.artifactory.model.xstream.fs.ZipEntryImpl;
 import org.artifactory.storage.StorageException;
 import org.artifactory.storage.db.DbService;
 import org.artifactory.storage.db.fs.dao.ArchiveEntriesDao;
 import org.artifactory.storage.db.fs.entity.ArchiveEntry;
+import org.artifactory.storage.db.util.DbUtils;
 import org.artifactory.storage.fs.VfsException;
+import org.artifactory.storage.fs.service.ArchiveEntriesConflictException;
 import org.artifactory.storage.fs.service.ArchiveEntriesService;
 import org.artifactory.util.PathUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -33,6 +38,10 @@ import org.springframework.stereotype.Service;
 
 import javax.annotation.Nonnull;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -83,36 +92,53 @@ public class ArchiveEntriesServiceImpl implements ArchiveEntriesService {
                 throw new StorageException("Failed to insert indexed archive entry for " + archiveSha1);
             }
 
-            for (ZipEntryInfo zipEntry : entries) {
-                // for each entry add one new row to the many to many and to the entries path
-                ArchiveEntry archiveEntry = zipEntryInfoToArchiveEntry(archiveSha1, zipEntry);
-
-                // select or create id from archive path
-                long archivePathId = archiveEntriesDao.findArchivePathId(archiveEntry.getEntryPath());
-                if (archivePathId == DbService.NO_DB_ID) {
-                    archivePathId = dbService.nextId();
-                    if (!archiveEntriesDao.createArchivePath(archivePathId, archiveEntry.getEntryPath())) {
-                        throw new StorageException("Failed to insert archive path: " + archiveEntry.getEntryPath());
-                    }
+            ArchiveValueIds pathIds = new ArchiveValueIds() {
+                @Override
+                long find(String entryPath) throws SQLException {
+                    return archiveEntriesDao.findArchivePathId(entryPath);
                 }
 
-                // select or create id from archive name
-                long archiveNameId = archiveEntriesDao.findArchiveNameId(archiveEntry.getEntryName());
-                if (archiveNameId == DbService.NO_DB_ID) {
-                    archiveNameId = dbService.nextId();
-                    if (!archiveEntriesDao.createArchiveName(archiveNameId, archiveEntry.getEntryName())) {
-                        throw new StorageException("Failed to insert archive name: " + archiveEntry.getEntryName());
-                    }
+                @Override
+                int create(Map<Long, String> newPaths) throws SQLException {
+                    return archiveEntriesDao.createArchivePaths(newPaths);
+                }
+            };
+            ArchiveValueIds nameIds = new ArchiveValueIds() {
+                @Override
+                long find(String entryName) throws SQLException {
+                    return archiveEntriesDao.findArchiveNameId(entryName);
                 }
 
-                // before inserting to the many to many relation check that such entry doesn't entry doesn't exist
-                // this might happen for example in case insensitive databases if the archive contains two entries
-                // with difference only is character casing
-                if (!archiveEntriesDao.hasIndexedArchivesEntries(indexedArchiveId, archivePathId, archiveNameId)) {
-                    archiveEntriesDao.createIndexedArchivesEntries(indexedArchiveId, archivePathId, archiveNameId);
+                @Override
+                int create(Map<Long, String> newNames) throws SQLException {
+                    return archiveEntriesDao.createArchiveNames(newNames);
                 }
+            };
+
+            // the set drops duplicate entries of the many to many relation. this might happen for example in case
+            // insensitive databases if the archive contains two entries with difference only is character casing
+            Set<List<Long>> entriesIds = Sets.newLinkedHashSet();
+            for (ZipEntryInfo zipEntry : entries) {
+                // for each entry add one new row to the many to many and to the entries path
+                ArchiveEntry archiveEntry = zipEntryInfoToArchiveEntry(archiveSha1, zipEntry);
+                long archivePathId = pathIds.getOrCreate(archiveEntry.getEntryPath());
+                long archiveNameId = nameIds.getOrCreate(archiveEntry.getEntryName());
+                entriesIds.add(Arrays.asList(archivePathId, archiveNameId));
+            }
+
+            pathIds.flush();
+            nameIds.flush();
+            List<long[]> entriesRows = Lists.newArrayListWithCapacity(entriesIds.size());
+            for (List<Long> entryIds : entriesIds) {
+                entriesRows.add(new long[]{entryIds.get(0), entryIds.get(1)});
             }
+            archiveEntriesDao.createIndexedArchivesEntries(indexedArchiveId, entriesRows);
         } catch (SQLException e) {
+            if (DbUtils.isConstraintViolation(e)) {
+                // values not found by this transaction were created by a concurrent one before this one inserted them
+                throw new ArchiveEntriesConflictException("Archive entries of " + archiveSha1 +
+                        " were concurrently inserted: " + e.getMessage(), e);
+            }
             throw new StorageException("Failed to insert archive entries: " + e.getMessage(), e);
         }
     }
@@ -122,6 +148,54 @@ public class ArchiveEntriesServiceImpl implements ArchiveEntriesService {
         return new ArchiveEntry(archiveSha1, path, entry.getName());
     }
 
+    /**
+     * Selects or creates the unique ids of archive paths or names. New values are collected and inserted in a single
+     * batch by {@link #flush()}.
+     */
+    private abstract class ArchiveValueIds {
+        private final Map<String, Long> ids = Maps.newHashMap();
+        private final Map<Long, String> newValues = Maps.newLinkedHashMap();
+        private final Set<String> newValuesLowerCase = Sets.newHashSet();
+
+        abstract long find(String value) throws SQLException;
+
+        abstract int create(Map<Long, String> newValues) throws SQLException;
+
+        long getOrCreate(String value) throws SQLException {
+            // empty values are stored as dot
+            String key = StringUtils.isEmpty(value) ? "." : value;
+            Long id = ids.get(key);
+            if (id != null) {
+                return id;
+            }
+            if (newValuesLowerCase.contains(key.toLowerCase(Locale.ENGLISH))) {
+                // equals to a new value in case insensitive databases, let the database decide
+                flush();
+            }
+            long valueId = find(key);
+            if (valueId == DbService.NO_DB_ID) {
+                valueId = dbService.nextId();
+                newValues.put(valueId, key);
+                newValuesLowerCase.add(key.toLowerCase(Locale.ENGLISH));
+            }
+            ids.put(key, valueId);
+            return valueId;
+        }
+
+        void flush() throws SQLException {
+            if (newValues.isEmpty()) {
+                return;
+            }
+            int created = create(newValues);
+            if (created != newValues.size()) {
+                throw new StorageException("Failed to insert archive entries values, inserted " + created + " out of "
+                        + newValues.size() + ": " + newValues.values());
+            }
+            newValues.clear();
+            newValuesLowerCase.clear();
+        }
+    }
+
     @Override
     public boolean deleteArchiveEntries(String archiveSha1) {
         try {
@@ -0,0 +1,218 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.storage.db.fs.service;
+
+import org.artifactory.common.ArtifactoryHome;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.repo.RepoPath;
+import org.artifactory.storage.StorageException;
+import org.artifactory.storage.db.DbService;
+import org.artifactory.storage.db.fs.dao.ChangeJournalDao;
+import org.artifactory.storage.fs.service.ChangeJournalService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A business service to interact with the change journal table.
+ * <p/>
+ * The recording consumers are kept in the database, so all the cluster nodes record the changes while any consumer
+ * records, and the journal is pruned only of the changes that every consumer already read. Each node refreshes the
+ * consumers every {@link ConstantValues#backupChangeJournalConsumersRefreshSecs}, and in HA the journal starts only
+ * after that period so it is complete once every node records.
+ */
+@Service
+public class ChangeJournalServiceImpl implements ChangeJournalService {
+    private static final Logger log = LoggerFactory.getLogger(ChangeJournalServiceImpl.class);
+
+    @Autowired
+    private DbService dbService;
+
+    @Autowired
+    private ChangeJournalDao changeJournalDao;
+
+    /**
+     * The recording consumers and the time before which each of them already read the changes (-1 if it didn't read)
+     */
+    private volatile Map<String, Long> consumers = Collections.emptyMap();
+
+    private volatile long consumersLoadTime;
+
+    @Override
+    public synchronized void startRecording(String consumer) {
+        try {
+            if (loadConsumers().containsKey(consumer)) {
+                return;
+            }
+            if (changeJournalDao.getStartTime() < 0) {
+                long startTime = System.currentTimeMillis();
+                if (ArtifactoryHome.get().isHaConfigured()) {
+                    startTime += getConsumersRefreshMillis();
+                }
+                changeJournalDao.createStart(dbService.nextId(), startTime);
+                log.info("Change journal started");
+            }
+            createConsumer(consumer);
+            loadConsumers();
+            log.debug("Change journal recording started for '{}'", consumer);
+        } catch (SQLException e) {
+            throw new StorageException("Failed to start the change journal: " + e.getMessage(), e);
+        }
+    }
+
+    private void createConsumer(String consumer) throws SQLException {
+        try {
+            changeJournalDao.createConsumer(consumer);
+        } catch (SQLException e) {
+            // another cluster node may have started the same consumer
+            if (!loadConsumers().containsKey(consumer)) {
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void stopRecording(String consumer) {
+        try {
+            if (changeJournalDao.deleteConsumer(consumer) > 0) {
+                log.debug("Change journal recording stopped for '{}'", consumer);
+            }
+            Map<String, Long> remaining = loadConsumers();
+            if (!remaining.isEmpty()) {
+                pruneRead(remaining);
+                return;
+            }
+            int deleted = changeJournalDao.deleteAll();
+            if (deleted > 0) {
+                log.info("Change journal stopped, {} entries removed", deleted);
+            }
+        } catch (SQLException e) {
+            throw new StorageException("Failed to stop the change journal: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean isRecording(String consumer) {
+        return getConsumers().containsKey(consumer);
+    }
+
+    @Override
+    public void itemChanged(RepoPath repoPath) {
+        record(repoPath, ChangeJournalDao.TYPE_CHANGED);
+    }
+
+    @Override
+    public void itemDeleted(RepoPath repoPath) {
+        record(repoPath, ChangeJournalDao.TYPE_DELETED);
+    }
+
+    private void record(RepoPath repoPath, int changeType) {
+        if (repoPath.isRoot() || getConsumers().isEmpty()) {
+            // the repository root is always exported
+            return;
+        }
+        try {
+            changeJournalDao.create(dbService.nextId(), System.currentTimeMillis(), changeType,
+                    repoPath.getRepoKey(), repoPath.getPath());
+        } catch (SQLException e) {
+            throw new StorageException("Failed to journal the change of " + repoPath + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long getJournalStart() {
+        try {
+            return changeJournalDao.getStartTime();
+        } catch (SQLException e) {
+            throw new StorageException("Failed to load the change journal start: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    @Nonnull
+    public List<String> getChangedPaths(String repoKey, long since, @Nullable String afterPath, int maxPaths) {
+        try {
+            return changeJournalDao.findChangedPaths(repoKey, since, afterPath, maxPaths);
+        } catch (SQLException e) {
+            throw new StorageException("Failed to load the changed paths of '" + repoKey + "': " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void prune(String consumer, long before) {
+        try {
+            if (changeJournalDao.updateConsumerReadBefore(consumer, before) == 0
+                    && !loadConsumers().containsKey(consumer)) {
+                return;
+            }
+            pruneRead(loadConsumers());
+        } catch (SQLException e) {
+            throw new StorageException("Failed to prune the change journal: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Removes the changes that all the given consumers already read
+     */
+    private void pruneRead(Map<String, Long> recordingConsumers) throws SQLException {
+        long prunedBefore = Collections.min(recordingConsumers.values());
+        if (prunedBefore < 0) {
+            return;
+        }
+        int deleted = changeJournalDao.deleteBefore(prunedBefore);
+        if (changeJournalDao.getStartTime() < 0) {
+            changeJournalDao.createStart(dbService.nextId(), prunedBefore);
+        }
+        log.debug("Removed {} change journal entries older than {}", deleted, prunedBefore);
+    }
+
+    /**
+     * @return The recording consumers, reloaded from the database once the refresh period passed
+     */
+    private Map<String, Long> getConsumers() {
+        if (System.currentTimeMillis() - consumersLoadTime >= getConsumersRefreshMillis()) {
+            try {
+                return loadConsumers();
+            } catch (SQLException e) {
+                throw new StorageException("Failed to load the change journal consumers: " + e.getMessage(), e);
+            }
+        }
+        return consumers;
+    }
+
+    private Map<String, Long> loadConsumers() throws SQLException {
+        Map<String, Long> loaded = Collections.unmodifiableMap(changeJournalDao.findConsumers());
+        consumers = loaded;
+        consumersLoadTime = System.currentTimeMillis();
+        return loaded;
+    }
+
+    private long getConsumersRefreshMillis() {
+        return TimeUnit.SECONDS.toMillis(ConstantValues.backupChangeJournalConsumersRefreshSecs.getLong());
+    }
+}
@@ -46,6 +46,7 @@ import org.artifactory.storage.fs.VfsItemNotFoundException;
 import org.artifactory.storage.fs.repo.RepoStorageSummary;
 import org.artifactory.storage.fs.repo.StoringRepo;
 import org.artifactory.storage.fs.service.FileService;
+import org.artifactory.storage.fs.tree.ChildrenFilter;
 import org.artifactory.util.PathValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,6 +54,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Set;
@@ -270,6 +272,30 @@ public class FileServiceImpl implements FileService {
         }
     }
 
+    @Override
+    @Nonnull
+    public List<ItemInfo> loadChildren(RepoPath repoPath, @Nullable String afterName, int maxChildren)
+            throws VfsException {
+        return loadChildren(repoPath, afterName, maxChildren, ChildrenFilter.ALL);
+    }
+
+    @Override
+    @Nonnull
+    public List<ItemInfo> loadChildren(RepoPath repoPath, @Nullable String afterName, int maxChildren,
+            ChildrenFilter filter) throws VfsException {
+        try {
+            List<Node> childrenNode = nodesDao.getChildren(NodePath.fromRepoPath(repoPath), afterName, maxChildren,
+                    filter.isIncludeFiles(), filter.isIncludeFolders(), filter.getFileNameSuffixes());
+            List<ItemInfo> children = Lists.newArrayListWithCapacity(childrenNode.size());
+            for (Node child : childrenNode) {
+                children.add(itemInfoFromNode(child));
+            }
+            return children;
+        } catch (SQLException e) {
+            throw new VfsException("Failed to load children for node '" + repoPath + "'", e);
+        }
+    }
+
     @Override
     public int getFilesCount() throws VfsException {
         try {
@@ -0,0 +1,197 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.artifactory.storage.db.fs.service;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Sets;
+import org.artifactory.common.ArtifactoryHome;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.md.Properties;
+import org.artifactory.model.xstream.fs.PropertiesImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongFunction;
+
+/**
+ * A bounded read-through cache of the properties of nodes, keyed by the node id.
+ * <p/>
+ * Node ids are never reused, so only property writes need to invalidate the cache: deleted or moved nodes simply
+ * leave unreachable entries behind until they are evicted. Every node maps to a version stripe which is incremented
+ * on invalidation, and properties loaded while their stripe changed are not kept. Nodes written by the current
+ * transaction bypass the cache until it completes, and are invalidated again after it completes.
+ * <p/>
+ * Changes made by other cluster nodes are not propagated to the cache, so it is disabled in HA unless explicitly
+ * enabled, in which case their staleness is bounded by the cache TTL.
+ */
+@Component
+public class NodePropertiesCache {
+    private static final Logger log = LoggerFactory.getLogger(NodePropertiesCache.class);
+
+    private static final int VERSION_STRIPES = 64;
+
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    @Nullable
+    private Cache<Long, ImmutableSetMultimap<String, String>> properties;
+
+    public NodePropertiesCache() {
+    }
+
+    @VisibleForTesting
+    NodePropertiesCache(long maxEntries, long ttlSecs) {
+        this.properties = createCache(maxEntries, ttlSecs);
+    }
+
+    @PostConstruct
+    void init() {
+        if (ArtifactoryHome.get().isHaConfigured() && !ConstantValues.propertiesCacheHaEnabled.getBoolean()) {
+            log.debug("Node properties cache is disabled in HA");
+            return;
+        }
+        properties = createCache(ConstantValues.propertiesCacheMaxEntries.getLong(),
+                ConstantValues.propertiesCacheTtlSecs.getLong());
+    }
+
+    @Nullable
+    private static Cache<Long, ImmutableSetMultimap<String, String>> createCache(long maxEntries, long ttlSecs) {
+        if (maxEntries <= 0 || ttlSecs <= 0) {
+            log.debug("Node properties cache is disabled");
+            return null;
+        }
+        return CacheBuilder.newBuilder()
+                .maximumWeight(maxEntries)
+                .weigher(new Weigher<Long, ImmutableSetMultimap<String, String>>() {
+                    @Override
+                    public int weigh(Long nodeId, ImmutableSetMultimap<String, String> nodeProperties) {
+                        return nodeProperties.size() + 1;
+                    }
+                })
+                .expireAfterWrite(ttlSecs, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * @param nodeId The node id
+     * @param loader Loads the properties of the node from the storage
+     * @return A mutable copy of the cached properties of the node, loaded if not cached
+     */
+    public Properties get(long nodeId, LongFunction<Properties> loader) {
+        if (properties == null || isWrittenByCurrentTransaction(nodeId)) {
+            return loader.apply(nodeId);
+        }
+        ImmutableSetMultimap<String, String> cached = properties.getIfPresent(nodeId);
+        if (cached == null) {
+            int stripe = stripe(nodeId);
+            long version = versions.get(stripe);
+            Properties loaded = loader.apply(nodeId);
+            cached = copyOf(loaded);
+            properties.put(nodeId, cached);
+            // check after the put, an invalidation that raced with the load might have missed the new entry
+            if (versions.get(stripe) != version) {
+                properties.asMap().remove(nodeId, cached);
+            }
+            return loaded;
+        }
+        PropertiesImpl copy = new PropertiesImpl();
+        copy.putAll(cached);
+        return copy;
+    }
+
+    /**
+     * Invalidates the cached properties of a node whose properties are written. Inside a transaction the node
+     * bypasses the cache until the transaction completes.
+     */
+    public void invalidate(long nodeId) {
+        if (properties == null) {
+            return;
+        }
+        invalidateNow(nodeId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            PendingInvalidations pending = (PendingInvalidations) TransactionSynchronizationManager.getResource(this);
+            if (pending == null) {
+                pending = new PendingInvalidations();
+                TransactionSynchronizationManager.bindResource(this, pending);
+                TransactionSynchronizationManager.registerSynchronization(pending);
+            }
+            pending.nodeIds.add(nodeId);
+        }
+    }
+
+    public void invalidateAll() {
+        if (properties == null) {
+            return;
+        }
+        for (int i = 0; i < VERSION_STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+        properties.invalidateAll();
+    }
+
+    private void invalidateNow(long nodeId) {
+        versions.incrementAndGet(stripe(nodeId));
+        properties.invalidate(nodeId);
+    }
+
+    private boolean isWrittenByCurrentTransaction(long nodeId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        PendingInvalidations pending = (PendingInvalidations) TransactionSynchronizationManager.getResource(this);
+        return pending != null && pending.nodeIds.contains(nodeId);
+    }
+
+    private static ImmutableSetMultimap<String, String> copyOf(Properties properties) {
+        ImmutableSetMultimap.Builder<String, String> builder = ImmutableSetMultimap.builder();
+        for (Map.Entry<String, String> entry : properties.entries()) {
+            builder.put(entry);
+        }
+        return builder.build();
+    }
+
+    private static int stripe(long nodeId) {
+        return (int) ((nodeId & Long.MAX_VALUE) % VERSION_STRIPES);
+    }
+
+    private class PendingInvalidations extends TransactionSynchronizationAdapter {
+        private final Set<Long> nodeIds = Sets.newHashSet();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(NodePropertiesCache.this);
+            if (properties != null) {
+                for (Long nodeId : nodeIds) {
+                    invalidateNow(nodeId);
+                }
+            }
+        }
+    }
+}
@@ -18,6 +18,9 @@
 
 package org.artifactory.storage.db.fs.service;
 
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.SetMultimap;
 import org.artifactory.md.Properties;
 import org.artifactory.model.xstream.fs.PropertiesImpl;
 import org.artifactory.repo.RepoPath;
@@ -50,6 +53,9 @@ public class PropertiesServiceImpl implements PropertiesService {
     @Autowired
     private FileService fileService;
 
+    @Autowired
+    private NodePropertiesCache propertiesCache;
+
     //TODO: [by YS] check how to pass an id instead of finding the id for each repo path passed
 
     @Override
@@ -65,6 +71,10 @@ public class PropertiesServiceImpl implements PropertiesService {
     @Override
     @Nonnull
     public Properties loadProperties(long nodeId) {
+        return propertiesCache.get(nodeId, this::loadFromDb);
+    }
+
+    private Properties loadFromDb(long nodeId) {
         try {
             List<NodeProperty> nodeProperties = propertiesDao.getNodeProperties(nodeId);
             PropertiesImpl properties = new PropertiesImpl();
@@ -92,22 +102,40 @@ public class PropertiesServiceImpl implements PropertiesService {
     }
 
     /**
-     * Sets properties
+     * Sets properties. Only the difference from the stored properties is written: rows of removed values are deleted
+     * and only new values are inserted.
      *
      * @param nodeId     Id of the node to set properties on
      * @param properties The properties to set
      */
     @Override
     public void setProperties(long nodeId, Properties properties) {
+        propertiesCache.invalidate(nodeId);
         try {
-            // first delete existing properties is exist
-            deleteProperties(nodeId);
-
-            // create record for each node property. one record for each key/value combination
+            // the values as they will be read back, so unchanged values are not rewritten
+            SetMultimap<String, String> added = LinkedHashMultimap.create();
             for (Map.Entry<String, String> propEntry : properties.entries()) {
-                NodeProperty property = new NodeProperty(dbService.nextId(), nodeId, propEntry.getKey(),
-                        propEntry.getValue());
-                propertiesDao.create(property);
+                added.put(propEntry.getKey(), PropertiesDao.toStoredValue(propEntry.getValue()));
+            }
+            List<Long> removedIds = Lists.newArrayList();
+            for (NodeProperty existing : propertiesDao.getNodeProperties(nodeId)) {
+                // a failed remove is either a removed value or a duplicate row of the same value
+                if (!added.remove(existing.getPropKey(), existing.getPropValue())) {
+                    removedIds.add(existing.getPropId());
+                }
+            }
+            if (!removedIds.isEmpty()) {
+                propertiesDao.deleteProperties(removedIds);
+            }
+
+            // create record for each new key/value combination
+            List<NodeProperty> nodeProperties = Lists.newArrayListWithCapacity(added.size());
+            for (Map.Entry<String, String> propEntry : added.entries()) {
+                nodeProperties.add(new NodeProperty(dbService.nextId(), nodeId, propEntry.getKey(),
+                        propEntry.getValue()));
+            }
+            if (!nodeProperties.isEmpty()) {
+                propertiesDao.create(nodeProperties);
             }
         } catch (SQLException e) {
             throw new StorageException("Failed to set properties on node: " + nodeId, e);
@@ -130,6 +158,7 @@ public class PropertiesServiceImpl implements PropertiesService {
 
     @Override
     public int deleteProperties(long nodeId) {
+        propertiesCache.invalidate(nodeId);
         try {
             return propertiesDao.deleteNodeProperties(nodeId);
         } catch (SQLException e) {
@@ -106,7 +106,7 @@ public class StatsPersistingServiceImpl extends AbstractStatsService implements
      * @return mergedStats
      */
     private StatsInfo injectRemoteEvents(RepoPath repoPath, StatsImpl mergedStats) {
-        for(Map.Entry<RepoPath, StatsEvent> entry : getStatsEvents().entrySet()) {
+        for(Map.Entry<RepoPath, StatsEvent> entry : getQueuedEvents().entrySet()) {
             if(!entry.getValue().hasRemoteContent()) continue;
             if(entry.getKey() instanceof RemoteRepoPath) {
             // TODO: do we need this ^ ? previous line makes sure we have RemoteContent
@@ -154,15 +154,11 @@ public class StatsPersistingServiceImpl extends AbstractStatsService implements
      * @param fromAnotherArtifactory specifying whether request comes fromAnotherArtifactory
      */
     @Override
-    public synchronized void fileDownloaded(RepoPath repoPath, String downloadedBy, long downloadedTime, boolean fromAnotherArtifactory) {
+    public void fileDownloaded(RepoPath repoPath, String downloadedBy, long downloadedTime, boolean fromAnotherArtifactory) {
         log.debug("Queuing downloaded resource '{}' by '{}' at '{}', fromAnotherArtifactory: '{}'",
                 repoPath, downloadedBy, downloadedTime, fromAnotherArtifactory);
 
-        StatsEvent statsEvent = getStatsEvents().get(repoPath);
-        if (statsEvent == null) {
-            getStatsEvents().put(repoPath, statsEvent = new StatsEvent(repoPath));
-        }
-        statsEvent.update(downloadedBy, downloadedTime);
+        queueEvent(repoPath, null, statsEvent -> statsEvent.update(downloadedBy, downloadedTime));
     }
 
     /**
@@ -176,17 +172,14 @@ public class StatsPersistingServiceImpl extends AbstractStatsService implements
      * @param count              Amount of performed downloads
      */
     @Override
-    public synchronized void fileDownloadedRemotely(String origin, String path, RepoPath repoPath,
+    public void fileDownloadedRemotely(String origin, String path, RepoPath repoPath,
             String downloadedBy, long downloadedTime, long count) {
 
         log.debug("Queuing resource '{}' downloaded remotely by '{}', at '{}', from {}, count: '{}'",
                 repoPath, downloadedBy, downloadedTime, origin, count);
 
-        StatsEvent statsEvent = getStatsEvents().get(repoPath);
-        if (statsEvent == null) {
-            getStatsEvents().put(repoPath, statsEvent = new StatsEvent(repoPath, origin));
-        }
-        statsEvent.update(downloadedBy, origin, path, downloadedTime, count);
+        queueEvent(repoPath, origin,
+                statsEvent -> statsEvent.update(downloadedBy, origin, path, downloadedTime, count));
     }
 
     @Override
@@ -220,7 +213,7 @@ public class StatsPersistingServiceImpl extends AbstractStatsService implements
 
     @Override
     public boolean hasStats(RepoPath repoPath) {
-        if (getStatsEvents().containsKey(repoPath)) {
+        if (getStatsFromEvents(repoPath) != null) {
             return true;
         }
         try {
@@ -275,6 +268,11 @@ public class StatsPersistingServiceImpl extends AbstractStatsService implements
         }
     }
 
+    @Override
+    protected boolean isBatchFlushSupported() {
+        return true;
+    }
+
     @Override
     protected SemaphoreWrapper getFlushingSemaphore() {
         if (flushingSemaphore == null) {
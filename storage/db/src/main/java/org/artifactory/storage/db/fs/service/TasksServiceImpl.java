@@ -29,6 +29,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.sql.SQLException;
 import java.util.Set;
 
@@ -49,6 +50,22 @@ public class TasksServiceImpl implements TasksService {
         return getRepoPathTasks(TASK_TYPE_INDEX);
     }
 
+    @Override
+    @Nonnull
+    public Set<RepoPath> getIndexTasks(@Nullable RepoPath after, int maxTasks) {
+        Set<RepoPath> repoPaths = Sets.newLinkedHashSet();
+        try {
+            Set<TaskRecord> tasks = tasksDao.load(TASK_TYPE_INDEX, after != null ? after.getId() : null, maxTasks);
+            for (TaskRecord task : tasks) {
+                repoPaths.add(InternalRepoPathFactory.createRepoPath(task.getTaskContext()));
+            }
+        } catch (SQLException e) {
+            throw new StorageException("Failed to load tasks of type '" + TASK_TYPE_INDEX + "' : " + e.getMessage(),
+                    e);
+        }
+        return repoPaths;
+    }
+
     @Nonnull
     private Set<RepoPath> getRepoPathTasks(String type) {
         // this method expects repo path id as the task value
@@ -368,6 +368,9 @@ public class AclServiceImpl implements AclStoreService {
                             // The map will be valid for version the current aclsDbVersion.
                             int startingVersion = aclsDbVersion.get();
                             tempMap = cacheLoader.call();
+                            // create the values view before publishing the map, getAllAcls() returns the same
+                            // collection until the next reload
+                            tempMap.values();
                             aclsMap = tempMap;
                             aclsMapVersion = startingVersion;
                         }
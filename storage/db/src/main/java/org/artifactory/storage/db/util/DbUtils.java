@@ -240,4 +240,19 @@ public abstract class DbUtils {
         }
         return schemaExists;
     }
+
+    /**
+     * @param e The exception to check
+     * @return True if the exception, or one of the exceptions chained to it, is an integrity constraint violation
+     * (SQL state class 23), for example a duplicate value of a unique index
+     */
+    public static boolean isConstraintViolation(SQLException e) {
+        for (SQLException current = e; current != null; current = current.getNextException()) {
+            String sqlState = current.getSQLState();
+            if (sqlState != null && sqlState.startsWith("23")) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
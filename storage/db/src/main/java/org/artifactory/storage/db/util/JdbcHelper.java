@@ -19,8 +19,10 @@
 package org.artifactory.storage.db.util;
 
 import org.apache.commons.lang.StringUtils;
+import org.artifactory.api.context.ContextHelper;
 import org.artifactory.storage.db.DbService;
 import org.artifactory.storage.db.util.blob.BlobWrapper;
+import org.artifactory.storage.db.util.querybuilder.IQueryBuilder;
 import org.artifactory.util.PerfTimer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,10 +47,12 @@ import java.util.concurrent.atomic.AtomicLong;
 @Service
 public class JdbcHelper {
     private static final Logger log = LoggerFactory.getLogger(JdbcHelper.class);
+    private static final int MAX_STATEMENTS_PER_BATCH = 100;
 
     private final DataSource dataSource;
     private final AtomicLong selectQueriesCounter = new AtomicLong();
     private final AtomicLong updateQueriesCounter = new AtomicLong();
+    private IQueryBuilder queryBuilder;
 
     @Autowired
     public JdbcHelper(@Qualifier("dataSource") DataSource dataSource) {
@@ -169,6 +173,134 @@ public class JdbcHelper {
         }
     }
 
+    /**
+     * Executes the same update statement once per parameters row using a single JDBC batch.
+     *
+     * @param query      The update query to execute. Collection parameters are not supported.
+     * @param paramsRows The parameters of each execution
+     * @return The update count of each execution
+     */
+    public int[] executeBatchUpdate(String query, List<Object[]> paramsRows) throws SQLException {
+        if (paramsRows.isEmpty()) {
+            return new int[0];
+        }
+        updateQueriesCounter.incrementAndGet();
+        if (log.isDebugEnabled()) {
+            log.debug("Executing SQL batch of {} rows: '{}'.", paramsRows.size(), query);
+        }
+
+        PerfTimer timer = null;
+        if (log.isDebugEnabled()) {
+            timer = new PerfTimer();
+        }
+        Connection con = null;
+        PreparedStatement pstmt = null;
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(query);
+            for (Object[] params : paramsRows) {
+                setParamsToStmt(pstmt, params);
+                pstmt.addBatch();
+            }
+            int[] results = pstmt.executeBatch();
+            if (timer != null && log.isDebugEnabled()) {
+                timer.stop();
+                log.debug("Batch of {} rows returned in {} : '{}'", paramsRows.size(), timer, query);
+            }
+            return results;
+        } finally {
+            DbUtils.close(con, pstmt, null, dataSource);
+        }
+    }
+
+    /**
+     * Inserts the rows using multi row insert statements of the database dialect (see
+     * {@link IQueryBuilder#multiRowInsert(String, int, int)}), executed as JDBC batches.
+     *
+     * @param table The table to insert to
+     * @param rows  The values of each row, in the order of the table columns. Collection parameters are not supported.
+     * @return Number of inserted rows
+     */
+    public int executeBatchInsert(String table, List<Object[]> rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        updateQueriesCounter.incrementAndGet();
+        int columnsCount = rows.get(0).length;
+        IQueryBuilder builder = getQueryBuilder();
+        int rowsPerInsert = builder.maxRowsPerInsert(columnsCount);
+        int fullInserts = rows.size() / rowsPerInsert;
+        int remainingRows = rows.size() % rowsPerInsert;
+        if (log.isDebugEnabled()) {
+            log.debug("Executing SQL batch insert of {} rows to {} ({} rows per statement).", rows.size(), table,
+                    rowsPerInsert);
+        }
+
+        PerfTimer timer = null;
+        if (log.isDebugEnabled()) {
+            timer = new PerfTimer();
+        }
+        Connection con = null;
+        PreparedStatement pstmt = null;
+        int inserted = 0;
+        try {
+            con = getConnection();
+            if (fullInserts > 0) {
+                pstmt = con.prepareStatement(builder.multiRowInsert(table, columnsCount, rowsPerInsert));
+                for (int i = 0; i < fullInserts; i++) {
+                    setRowsToStmt(pstmt, rows.subList(i * rowsPerInsert, (i + 1) * rowsPerInsert));
+                    pstmt.addBatch();
+                    if ((i + 1) % MAX_STATEMENTS_PER_BATCH == 0 || i == fullInserts - 1) {
+                        inserted += sumUpdateCounts(pstmt.executeBatch(), rowsPerInsert);
+                    }
+                }
+                DbUtils.close(pstmt);
+                pstmt = null;
+            }
+            if (remainingRows > 0) {
+                pstmt = con.prepareStatement(builder.multiRowInsert(table, columnsCount, remainingRows));
+                setRowsToStmt(pstmt, rows.subList(rows.size() - remainingRows, rows.size()));
+                inserted += pstmt.executeUpdate();
+            }
+            if (timer != null && log.isDebugEnabled()) {
+                timer.stop();
+                log.debug("Batch insert of {} rows to {} returned in {}", rows.size(), table, timer);
+            }
+            return inserted;
+        } finally {
+            DbUtils.close(con, pstmt, null, dataSource);
+        }
+    }
+
+    private IQueryBuilder getQueryBuilder() {
+        // lazy since the query builder bean is created using this helper
+        if (queryBuilder == null) {
+            queryBuilder = ContextHelper.get().beanForType(IQueryBuilder.class);
+        }
+        return queryBuilder;
+    }
+
+    private void setRowsToStmt(PreparedStatement pstmt, List<Object[]> rows) throws SQLException {
+        Object[] params = new Object[rows.size() * rows.get(0).length];
+        int i = 0;
+        for (Object[] row : rows) {
+            System.arraycopy(row, 0, params, i, row.length);
+            i += row.length;
+        }
+        setParamsToStmt(pstmt, params);
+    }
+
+    /**
+     * @param rowsPerStatement Rows of each statement, used when the driver doesn't report the update count
+     */
+    private static int sumUpdateCounts(int[] updateCounts, int rowsPerStatement) {
+        int sum = 0;
+        for (int updateCount : updateCounts) {
+            sum += updateCount >= 0 ? updateCount : rowsPerStatement;
+        }
+        return sum;
+    }
+
     public int executeSelectCount(String query, Object... params) throws SQLException {
         try (ResultSet resultSet = executeSelect(query, params)) {
             int count = 0;
@@ -22,6 +22,8 @@ import org.artifactory.storage.StorageProperties;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 
 /**
@@ -80,4 +82,22 @@ public class BlobWrapperFactory {
         }
     }
 
+    /**
+     * @param jsonObject The object to serialize
+     * @return A blob wrapper around the GZIP compressed JSON of the object, see {@link CompressedBlobs}
+     */
+    public BlobWrapper createCompressedJsonObjectWrapper(Object jsonObject) throws IOException {
+        byte[] compressed = CompressedBlobs.compressJson(jsonObject);
+        return new BlobWrapper(new ByteArrayInputStream(compressed), compressed.length);
+    }
+
+    /**
+     * @param data The uncompressed data
+     * @return A blob wrapper around the GZIP compressed data, see {@link CompressedBlobs}
+     */
+    public BlobWrapper createCompressed(byte[] data) throws IOException {
+        byte[] compressed = CompressedBlobs.compress(data);
+        return new BlobWrapper(new ByteArrayInputStream(compressed), compressed.length);
+    }
+
 }
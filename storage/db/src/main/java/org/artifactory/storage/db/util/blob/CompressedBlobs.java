@@ -0,0 +1,82 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.artifactory.storage.db.util.blob;
+
+import org.artifactory.api.jackson.JacksonFactory;
+import org.codehaus.jackson.JsonGenerator;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * GZIP compression of blob contents.
+ * <p/>
+ * Compressed blobs are identified by the GZIP header magic bytes, so readers can transparently handle blobs that were
+ * stored before the compression was enabled. The magic never starts a JSON or XML text.
+ */
+public abstract class CompressedBlobs {
+
+    private static final int GZIP_MAGIC_FIRST = 0x1f;
+    private static final int GZIP_MAGIC_SECOND = 0x8b;
+
+    /**
+     * @param data The data to compress
+     * @return The GZIP compressed data
+     */
+    public static byte[] compress(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, data.length / 8));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param jsonObject The object to serialize
+     * @return The GZIP compressed JSON serialization of the object
+     */
+    public static byte[] compressJson(Object jsonObject) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            JsonGenerator jsonGenerator = JacksonFactory.createJsonGenerator(gzip);
+            jsonGenerator.writeObject(jsonObject);
+            jsonGenerator.flush();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param in A blob input stream, compressed or not
+     * @return The uncompressed content of the blob
+     */
+    public static InputStream uncompressed(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        if (first == GZIP_MAGIC_FIRST && second == GZIP_MAGIC_SECOND) {
+            return new GZIPInputStream(buffered);
+        }
+        return buffered;
+    }
+}
@@ -6,6 +6,10 @@ import static org.apache.commons.lang.StringUtils.isBlank;
  * @author Chen Keinan
  */
 public abstract class BaseQueryBuilder implements IQueryBuilder {
+    // keeps the statements small enough for every database parser and parameters limit (SQL Server allows 2100)
+    private static final int MAX_ROWS_PER_INSERT = 100;
+    private static final int MAX_PARAMS_PER_INSERT = 1000;
+
     public abstract String uniqueBuild(String baseQuery, String sortBy, long offSet, long limit);
 
     public String build(String distinct, String fields, String tables, String conditions, String orderBy, String groupBy, Long offSet, Long limit) {
@@ -63,6 +67,34 @@ public abstract class BaseQueryBuilder implements IQueryBuilder {
 
     public abstract boolean shouldAddOrderBy(Long offSet, Long limit);
 
+    @Override
+    public String multiRowInsert(String table, int columnsCount, int rowsCount) {
+        StringBuilder builder = new StringBuilder("insert into ").append(table).append(" values ");
+        for (int i = 0; i < rowsCount; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            appendRowPlaceHolders(builder, columnsCount);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public int maxRowsPerInsert(int columnsCount) {
+        return Math.max(1, Math.min(MAX_ROWS_PER_INSERT, MAX_PARAMS_PER_INSERT / columnsCount));
+    }
+
+    protected void appendRowPlaceHolders(StringBuilder builder, int columnsCount) {
+        builder.append('(');
+        for (int i = 0; i < columnsCount; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append('?');
+        }
+        builder.append(')');
+    }
+
     public boolean isPagination(Long offSet, Long limit) {
         return offSet != null && offSet > 0 || limit != null && limit < Long.MAX_VALUE;
     }
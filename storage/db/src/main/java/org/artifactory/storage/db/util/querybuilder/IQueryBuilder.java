@@ -8,4 +8,19 @@ public interface IQueryBuilder {
 
     public abstract boolean shouldAddOrderBy(Long offSet, Long limit);
 
+    /**
+     * Builds a single insert statement of multiple rows with place holders for all the values. The values of each row
+     * must match the order of the table columns.
+     *
+     * @param table        The table to insert to
+     * @param columnsCount Number of values in each row
+     * @param rowsCount    Number of rows to insert, must not exceed {@link #maxRowsPerInsert(int)}
+     */
+    public abstract String multiRowInsert(String table, int columnsCount, int rowsCount);
+
+    /**
+     * @return Max number of rows of a multi row insert statement with the given number of columns
+     */
+    public abstract int maxRowsPerInsert(int columnsCount);
+
 }
@@ -21,4 +21,17 @@ public class OracleQueryBuilder extends BaseQueryBuilder {
     public boolean shouldAddOrderBy(Long offSet, Long limit) {
         return true;
     }
+
+    /**
+     * Oracle doesn't support multiple rows in the values clause, uses the multi table insert instead
+     */
+    @Override
+    public String multiRowInsert(String table, int columnsCount, int rowsCount) {
+        StringBuilder builder = new StringBuilder("insert all");
+        for (int i = 0; i < rowsCount; i++) {
+            builder.append(" into ").append(table).append(" values ");
+            appendRowPlaceHolders(builder, columnsCount);
+        }
+        return builder.append(" select * from dual").toString();
+    }
 }
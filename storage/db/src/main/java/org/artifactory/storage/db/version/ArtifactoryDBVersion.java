@@ -20,7 +20,8 @@ public enum ArtifactoryDBVersion {
     v101(ArtifactoryVersion.v310, ArtifactoryVersion.v310, new DBSqlConverter("v310")),
     v102(ArtifactoryVersion.v311, ArtifactoryVersion.v402, new DBSqlConverter("v311")),
     v103(ArtifactoryVersion.v410, ArtifactoryVersion.v412, new DBSqlConverter("v410")),
-    v104(ArtifactoryVersion.v420, ArtifactoryVersion.getCurrent(), new DBSqlConverter("v420"));
+    v104(ArtifactoryVersion.v420, ArtifactoryVersion.v431, new DBSqlConverter("v420")),
+    v105(ArtifactoryVersion.v432, ArtifactoryVersion.getCurrent(), new DBSqlConverter("v432"));
     private static final Logger log = LoggerFactory.getLogger(ArtifactoryDBVersion.class);
 
 
@@ -0,0 +1,40 @@
+CREATE TABLE change_journal (
+  entry_id    BIGINT NOT NULL,
+  change_time BIGINT NOT NULL,
+  change_type SMALLINT NOT NULL,
+  repo        VARCHAR(64)   NOT NULL,
+  node_path   VARCHAR(1024) NOT NULL,
+  CONSTRAINT change_journal_pk PRIMARY KEY (entry_id)
+);
+CREATE INDEX change_journal_time_idx ON change_journal (change_time);
+CREATE INDEX change_journal_repo_path_idx ON change_journal (repo, node_path);
+CREATE TABLE change_journal_consumers (
+  consumer    VARCHAR(64) NOT NULL,
+  read_before BIGINT NOT NULL,
+  CONSTRAINT change_journal_consumers_pk PRIMARY KEY (consumer)
+);
+CREATE TABLE build_checksums (
+  checksum      VARCHAR(64) NOT NULL,
+  checksum_type SMALLINT NOT NULL,
+  build_id      BIGINT NOT NULL,
+  used_as       SMALLINT NOT NULL,
+  CONSTRAINT build_checksums_pk PRIMARY KEY (checksum, checksum_type, build_id, used_as),
+  CONSTRAINT build_checksums_builds_fk FOREIGN KEY (build_id) REFERENCES builds (build_id)
+);
+CREATE INDEX build_checksums_build_id_idx ON build_checksums (build_id);
+INSERT INTO build_checksums
+  SELECT DISTINCT RTRIM(ba.sha1), 1, bm.build_id, 1
+  FROM build_artifacts ba, build_modules bm
+  WHERE ba.module_id = bm.module_id AND ba.sha1 IS NOT NULL;
+INSERT INTO build_checksums
+  SELECT DISTINCT RTRIM(ba.md5), 2, bm.build_id, 1
+  FROM build_artifacts ba, build_modules bm
+  WHERE ba.module_id = bm.module_id AND ba.md5 IS NOT NULL;
+INSERT INTO build_checksums
+  SELECT DISTINCT RTRIM(bd.sha1), 1, bm.build_id, 2
+  FROM build_dependencies bd, build_modules bm
+  WHERE bd.module_id = bm.module_id AND bd.sha1 IS NOT NULL;
+INSERT INTO build_checksums
+  SELECT DISTINCT RTRIM(bd.md5), 2, bm.build_id, 2
+  FROM build_dependencies bd, build_modules bm
+  WHERE bd.module_id = bm.module_id AND bd.md5 IS NOT NULL;
@@ -135,6 +135,23 @@ CREATE TABLE tasks (
 );
 CREATE INDEX tasks_type_context_idx ON tasks (task_type, task_context(255));
 
+CREATE TABLE change_journal (
+  entry_id    BIGINT NOT NULL,
+  change_time BIGINT NOT NULL,
+  change_type SMALLINT NOT NULL,
+  repo        VARCHAR(64)   NOT NULL,
+  node_path   VARCHAR(1024) NOT NULL,
+  CONSTRAINT change_journal_pk PRIMARY KEY (entry_id)
+);
+CREATE INDEX change_journal_time_idx ON change_journal (change_time);
+CREATE INDEX change_journal_repo_path_idx ON change_journal (repo, node_path(255));
+
+CREATE TABLE change_journal_consumers (
+  consumer    VARCHAR(64) NOT NULL,
+  read_before BIGINT NOT NULL,
+  CONSTRAINT change_journal_consumers_pk PRIMARY KEY (consumer)
+);
+
 CREATE TABLE configs (
   config_name VARCHAR(255) NOT NULL,
   data        LONGBLOB     NOT NULL,
@@ -324,6 +341,16 @@ CREATE INDEX module_props_module_id_idx ON module_props (module_id);
 CREATE INDEX module_props_prop_key_idx ON module_props (prop_key);
 CREATE INDEX module_props_prop_value_idx ON module_props (prop_value(255));
 
+CREATE TABLE build_checksums (
+  checksum      VARCHAR(64) NOT NULL,
+  checksum_type SMALLINT NOT NULL,
+  build_id      BIGINT NOT NULL,
+  used_as       SMALLINT NOT NULL,
+  CONSTRAINT build_checksums_pk PRIMARY KEY (checksum, checksum_type, build_id, used_as),
+  CONSTRAINT build_checksums_builds_fk FOREIGN KEY (build_id) REFERENCES builds (build_id)
+);
+CREATE INDEX build_checksums_build_id_idx ON build_checksums (build_id);
+
 CREATE TABLE db_properties (
   installation_date    BIGINT      NOT NULL,
   artifactory_version  VARCHAR(30) NOT NULL,
@@ -135,6 +135,23 @@ CREATE TABLE tasks (
 );
 CREATE INDEX tasks_type_context_idx ON tasks (task_type, task_context);
 
+CREATE TABLE change_journal (
+  entry_id    NUMBER(19, 0) NOT NULL,
+  change_time NUMBER(19, 0) NOT NULL,
+  change_type NUMBER(5, 0) NOT NULL,
+  repo        VARCHAR2(64)   NOT NULL,
+  node_path   VARCHAR2(1024) NOT NULL,
+  CONSTRAINT change_journal_pk PRIMARY KEY (entry_id)
+);
+CREATE INDEX change_journal_time_idx ON change_journal (change_time);
+CREATE INDEX change_journal_repo_path_idx ON change_journal (repo, node_path);
+
+CREATE TABLE change_journal_consumers (
+  consumer    VARCHAR2(64) NOT NULL,
+  read_before NUMBER(19, 0) NOT NULL,
+  CONSTRAINT change_journal_consumers_pk PRIMARY KEY (consumer)
+);
+
 CREATE TABLE configs (
   config_name VARCHAR2(255) NOT NULL,
   data        BLOB          NOT NULL,
@@ -324,6 +341,16 @@ CREATE INDEX module_props_module_id_idx ON module_props (module_id);
 CREATE INDEX module_props_prop_key_idx ON module_props (prop_key);
 CREATE INDEX module_props_prop_value_idx ON module_props (prop_value);
 
+CREATE TABLE build_checksums (
+  checksum      VARCHAR2(64) NOT NULL,
+  checksum_type NUMBER(5, 0) NOT NULL,
+  build_id      NUMBER(19, 0) NOT NULL,
+  used_as       NUMBER(5, 0) NOT NULL,
+  CONSTRAINT build_checksums_pk PRIMARY KEY (checksum, checksum_type, build_id, used_as),
+  CONSTRAINT build_checksums_builds_fk FOREIGN KEY (build_id) REFERENCES builds (build_id)
+);
+CREATE INDEX build_checksums_build_id_idx ON build_checksums (build_id);
+
 CREATE TABLE db_properties (
   installation_date    NUMBER      NOT NULL,
   artifactory_version  VARCHAR(30) NOT NULL,
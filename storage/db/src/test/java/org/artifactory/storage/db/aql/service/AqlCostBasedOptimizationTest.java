@@ -0,0 +1,102 @@
+package org.artifactory.storage.db.aql.service;
+
+import com.google.common.collect.Sets;
+import org.artifactory.aql.result.AqlEagerResult;
+import org.artifactory.aql.result.rows.AqlBaseItem;
+import org.artifactory.common.ArtifactoryHome;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.test.ArtifactoryHomeStub;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests the cost based optimization of the AQL items queries using the statistics of the test database.
+ */
+@Test
+public class AqlCostBasedOptimizationTest extends AqlAbstractServiceTest {
+
+    @BeforeMethod
+    public void enableCostBasedOptimization() {
+        setProperty(ConstantValues.aqlCostBasedOptimizerEnabled, "true");
+        setProperty(ConstantValues.aqlOptimizerStatisticsRefreshSecs, "3600");
+        assertNotNull(aqlService.collectTableStatistics());
+    }
+
+    public void statisticsCollectedInTheBackground() throws InterruptedException {
+        ReflectionTestUtils.setField(aqlService, "tableStatistics", null);
+        // the query doesn't wait for the statistics, it is executed without the cost based optimization
+        String plan = aqlService.explainQuery("items.find({\"@build.name\":\"ant\"})");
+        assertTrue(plan.contains("Statistics: not collected"), plan);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (ReflectionTestUtils.getField(aqlService, "tableStatistics") == null
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNotNull(ReflectionTestUtils.getField(aqlService, "tableStatistics"));
+    }
+
+    public void twoPropertiesSameResults() {
+        assertSameResults("items.find({\"@build.name\":\"ant\",\"@build.number\":\"67\"})", 1);
+    }
+
+    public void repoAndPropertySameResults() {
+        assertSameResults("items.find({\"repo\":\"repo1\",\"@build.name\":\"ant\"})", -1);
+    }
+
+    public void orAndPropertiesSameResults() {
+        assertSameResults("items.find({\"$or\":[{\"repo\":\"repo1\"},{\"repo\":\"repo2\"}]," +
+                "\"@yossis\":{\"$match\":\"*\"},\"type\":\"file\"})", -1);
+    }
+
+    public void notEqualsPropertySameResults() {
+        assertSameResults("items.find({\"repo\":\"repo1\",\"@build.name\":{\"$ne\":\"ant\"}})", -1);
+    }
+
+    public void explainMostSelectivePropertyDrivesTheJoin() {
+        String plan = aqlService.explainQuery("items.find({\"@build.name\":\"ant\",\"@build.number\":\"67\"})");
+        // build.number has a single node while build.name has two
+        assertTrue(plan.contains("[join, estimated items: 1]"), plan);
+        assertTrue(plan.contains("[exists, estimated items: 2]"), plan);
+        assertTrue(plan.contains("exists (select 1 from node_props"), plan);
+    }
+
+    public void explainWithoutStatistics() {
+        setProperty(ConstantValues.aqlCostBasedOptimizerEnabled, "false");
+        String plan = aqlService.explainQuery("items.find({\"@build.name\":\"ant\",\"@build.number\":\"67\"})");
+        assertTrue(plan.contains("Statistics: not collected"), plan);
+        assertFalse(plan.contains("[exists"), plan);
+    }
+
+    private void assertSameResults(String query, int expectedSize) {
+        Set<String> optimized = execute(query);
+        setProperty(ConstantValues.aqlCostBasedOptimizerEnabled, "false");
+        Set<String> expected = execute(query);
+        assertEquals(optimized, expected);
+        if (expectedSize >= 0) {
+            assertEquals(optimized.size(), expectedSize);
+        }
+    }
+
+    private Set<String> execute(String query) {
+        AqlEagerResult<AqlBaseItem> result = aqlService.executeQueryEager(query);
+        List<AqlBaseItem> items = result.getResults();
+        Set<String> paths = Sets.newHashSet();
+        for (AqlBaseItem item : items) {
+            paths.add(item.getRepo() + ":" + item.getPath() + "/" + item.getName());
+        }
+        return paths;
+    }
+
+    private void setProperty(ConstantValues constant, String value) {
+        ((ArtifactoryHomeStub) ArtifactoryHome.get()).setProperty(constant, value);
+    }
+}
@@ -0,0 +1,104 @@
+package org.artifactory.storage.db.aql.service;
+
+import org.artifactory.aql.result.AqlJsonStreamer;
+import org.artifactory.aql.result.AqlLazyResult;
+import org.artifactory.common.ArtifactoryHome;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.test.ArtifactoryHomeStub;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests the streaming (keyset paginated) execution mode of the lazy AQL queries.
+ * A tiny page size is used to force multiple pages and rows of the same item split between pages.
+ */
+@Test
+public class AqlStreamingTest extends AqlAbstractServiceTest {
+
+    @BeforeMethod
+    public void enableStreaming() {
+        setProperty(ConstantValues.aqlStreamingEnabled, "true");
+        setProperty(ConstantValues.aqlStreamingPageSize, "2");
+        setProperty(ConstantValues.aqlStreamingMaxRows, "0");
+        setProperty(ConstantValues.aqlStreamingMaxTimeSecs, "0");
+    }
+
+    public void itemsSameAsNonStreaming() throws IOException {
+        assertSameResults("items.find()");
+    }
+
+    public void itemsWithCriteriaSameAsNonStreaming() throws IOException {
+        assertSameResults("items.find({\"type\" : \"file\"})");
+    }
+
+    public void itemsWithPropertiesSameAsNonStreaming() throws IOException {
+        assertSameResults("items.find().include(\"property.*\")");
+    }
+
+    public void buildsWithModulesSameAsNonStreaming() throws IOException {
+        assertSameResults("builds.find().include(\"module.*\")");
+    }
+
+    public void itemsWithOffsetAndLimit() throws IOException {
+        List<Map> all = executeStreaming("items.find()");
+        List<Map> page = executeStreaming("items.find().offset(3).limit(4)");
+        assertEquals(page, all.subList(3, 7));
+    }
+
+    public void maxRowsBudget() throws IOException {
+        setProperty(ConstantValues.aqlStreamingMaxRows, "5");
+        Map result = executeStreamingResult("items.find()");
+        assertEquals(((List) result.get("results")).size(), 5);
+        Map range = (Map) result.get("range");
+        assertEquals(range.get("truncated"), true);
+        assertTrue(((String) range.get("notice")).contains("maximum of 5 rows"), "Unexpected notice " + range);
+    }
+
+    public void resultsWithinBudgetAreNotTruncated() throws IOException {
+        int itemsCount = executeStreaming("items.find()").size();
+        setProperty(ConstantValues.aqlStreamingMaxRows, "" + itemsCount);
+        Map range = (Map) executeStreamingResult("items.find()").get("range");
+        assertFalse(range.containsKey("truncated"), "Unexpected truncation " + range);
+        assertFalse(range.containsKey("notice"), "Unexpected notice " + range);
+    }
+
+    private void assertSameResults(String query) throws IOException {
+        List<Map> streamed = executeStreaming(query);
+        setProperty(ConstantValues.aqlStreamingEnabled, "false");
+        List<Map> expected = executeStreaming(query);
+        assertEquals(streamed.size(), expected.size());
+        assertEquals(streamed.containsAll(expected), true);
+    }
+
+    private List<Map> executeStreaming(String query) throws IOException {
+        return (List<Map>) executeStreamingResult(query).get("results");
+    }
+
+    private Map executeStreamingResult(String query) throws IOException {
+        AqlLazyResult aqlLazyResult = aqlService.executeQueryLazy(query);
+        AqlJsonStreamer aqlStreamer = new AqlJsonStreamer(aqlLazyResult);
+        try {
+            StringBuilder builder = new StringBuilder();
+            byte[] tempResult;
+            while ((tempResult = aqlStreamer.read()) != null) {
+                builder.append(new String(tempResult));
+            }
+            return new ObjectMapper().readValue(builder.toString(), Map.class);
+        } finally {
+            aqlStreamer.close();
+        }
+    }
+
+    private void setProperty(ConstantValues constant, String value) {
+        ((ArtifactoryHomeStub) ArtifactoryHome.get()).setProperty(constant, value);
+    }
+}
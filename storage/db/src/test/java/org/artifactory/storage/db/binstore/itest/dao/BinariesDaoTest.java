@@ -115,6 +115,17 @@ public class BinariesDaoTest extends DbBaseTest {
         assertTrue(nodes.contains("da39a3ee5e6b4b0d3255bfef95601890afd80709"));
     }
 
+    public void findPotentialDeletionPaged() throws SQLException {
+        List<BinaryData> firstPage = binariesDao.findPotentialDeletion("", 2);
+        assertEquals(firstPage.size(), 2);
+        assertEquals(firstPage.get(0).getSha1(), "356a192b7913b04c54574d18c28d46e6395428ab");
+        assertEquals(firstPage.get(1).getSha1(), "74239116da1def240fe1d366eb535513efc1c40b");
+        List<BinaryData> secondPage = binariesDao.findPotentialDeletion(firstPage.get(1).getSha1(), 2);
+        assertEquals(secondPage.size(), 1);
+        assertEquals(secondPage.get(0).getSha1(), "da39a3ee5e6b4b0d3255bfef95601890afd80709");
+        assertTrue(binariesDao.findPotentialDeletion(secondPage.get(0).getSha1(), 2).isEmpty());
+    }
+
     public void AssertPotentialDeletionOrder() throws SQLException {
         Collection<BinaryData> potentialDeletion = binariesDao.findPotentialDeletion();
         assertEquals(potentialDeletion.size(), 3);
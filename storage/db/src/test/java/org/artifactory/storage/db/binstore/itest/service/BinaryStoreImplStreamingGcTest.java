@@ -0,0 +1,103 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.storage.db.binstore.itest.service;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.io.IOUtils;
+import org.artifactory.binstore.BinaryInfo;
+import org.artifactory.common.ArtifactoryHome;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.storage.binstore.GarbageCollectorInfo;
+import org.artifactory.test.ArtifactoryHomeStub;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+/**
+ * Runs the binary store tests with the streaming garbage collection, using small pages and delete batches.
+ */
+@Test
+public class BinaryStoreImplStreamingGcTest extends BinaryStoreImplFileProviderTest {
+
+    @BeforeMethod
+    public void enableStreamingGc() {
+        ArtifactoryHomeStub artifactoryHome = (ArtifactoryHomeStub) ArtifactoryHome.get();
+        artifactoryHome.setProperty(ConstantValues.gcStreamingEnabled, "true");
+        artifactoryHome.setProperty(ConstantValues.gcStreamingPageSize, "3");
+        artifactoryHome.setProperty(ConstantValues.gcStreamingDeleteBatchSize, "2");
+        artifactoryHome.setProperty(ConstantValues.gcStreamingWorkerThreads, "2");
+    }
+
+    @Override
+    protected String getBinaryStoreDirName() {
+        return "filestore_streaming_gc_test";
+    }
+
+    @Test(dependsOnMethods = "testGarbageOneByOne")
+    public void testGarbageSeveralPages() throws Exception {
+        List<BinaryInfo> binaries = Lists.newArrayList();
+        Random random = new Random(7);
+        long totalSize = 0L;
+        for (int i = 0; i < 7; i++) {
+            byte[] content = new byte[100 + i];
+            random.nextBytes(content);
+            BinaryInfo binary = dbService.invokeInTransaction("testGarbageSeveralPages",
+                    () -> binaryStore.addBinary(new ByteArrayInputStream(content)));
+            binaries.add(binary);
+            totalSize += binary.getLength();
+        }
+        BinaryInfo readBinary = binaries.get(3);
+
+        // Read the stream to lock reader
+        InputStream bis = binaryStore.getBinary(readBinary.getSha1());
+        try {
+            // 7 candidates in pages of 3, each page deleted in batches of 2
+            GarbageCollectorInfo collectorInfo = binaryStore.garbageCollect();
+            assertEquals(collectorInfo.pagesScanned, 3);
+            assertEquals(collectorInfo.candidatesForDeletion, 7);
+            assertEquals(collectorInfo.checksumsCleaned, 6);
+            assertEquals(collectorInfo.binariesCleaned, 6);
+            assertEquals(collectorInfo.totalSizeCleaned, totalSize - readBinary.getLength());
+            for (BinaryInfo binary : binaries) {
+                boolean read = binary == readBinary;
+                assertEquals(binaryStore.findBinary(binary.getSha1()) != null, read, binary.getSha1());
+                assertEquals(binaryStore.getFileBinaryProvider().getFile(binary.getSha1()).exists(), read,
+                        binary.getSha1());
+            }
+        } finally {
+            IOUtils.closeQuietly(bis);
+        }
+
+        // Now GC works
+        GarbageCollectorInfo collectorInfo = binaryStore.garbageCollect();
+        assertEquals(collectorInfo.pagesScanned, 1);
+        assertEquals(collectorInfo.candidatesForDeletion, 1);
+        assertEquals(collectorInfo.checksumsCleaned, 1);
+        assertEquals(collectorInfo.binariesCleaned, 1);
+        assertEquals(collectorInfo.totalSizeCleaned, readBinary.getLength());
+        assertNull(binaryStore.findBinary(readBinary.getSha1()));
+        assertFalse(binaryStore.getFileBinaryProvider().getFile(readBinary.getSha1()).exists());
+    }
+}
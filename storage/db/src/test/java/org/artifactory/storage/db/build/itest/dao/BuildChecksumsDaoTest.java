@@ -0,0 +1,93 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.artifactory.storage.db.build.itest.dao;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.SetMultimap;
+import org.artifactory.checksum.ChecksumType;
+import org.artifactory.storage.db.build.dao.BuildChecksumsDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.sql.SQLException;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the {@link BuildChecksumsDao} reverse index.
+ */
+@Test
+public class BuildChecksumsDaoTest extends BuildsDaoBaseTest {
+
+    private static final String ARTIFACT_SHA1 = "acab88fc2a043c2479a6de676a2f8179e9ea2167";
+    private static final String DEPENDENCY_SHA1 = "ccab88fc2a043c2479a6de676a2f8179e9ea2167";
+
+    @Autowired
+    private BuildChecksumsDao buildChecksumsDao;
+
+    @BeforeClass
+    public void setup() throws SQLException {
+        importSql("/sql/builds.sql");
+        int indexed = 0;
+        for (long buildId = 1L; buildId <= 5L; buildId++) {
+            indexed += buildChecksumsDao.indexBuild(buildId);
+        }
+        // the distinct checksums of each build artifacts and dependencies
+        assertEquals(indexed, 18);
+    }
+
+    public void findArtifactChecksum() throws SQLException {
+        SetMultimap<String, Long> buildIds = buildChecksumsDao.findBuildIds(ChecksumType.sha1,
+                Lists.newArrayList(ARTIFACT_SHA1), true, false);
+        assertEquals(buildIds.get(ARTIFACT_SHA1), ImmutableSet.of(1L, 2L, 3L));
+    }
+
+    public void findManyChecksums() throws SQLException {
+        SetMultimap<String, Long> buildIds = buildChecksumsDao.findBuildIds(ChecksumType.md5,
+                Lists.newArrayList("a02a360ecad98a34b59863c1e65bcf71", "b02a360ecad98a34b59863c1e65bcf71",
+                        "002a360ecad98a34b59863c1e65bcf71"), true, false);
+        assertEquals(buildIds.keySet().size(), 2);
+        assertEquals(buildIds.get("a02a360ecad98a34b59863c1e65bcf71"), ImmutableSet.of(1L, 2L, 3L));
+        assertEquals(buildIds.get("b02a360ecad98a34b59863c1e65bcf71"), ImmutableSet.of(1L, 3L));
+    }
+
+    public void findByUsage() throws SQLException {
+        assertTrue(buildChecksumsDao.findBuildIds(ChecksumType.sha1, Lists.newArrayList(ARTIFACT_SHA1), false,
+                true).isEmpty());
+        assertEquals(buildChecksumsDao.findBuildIds(ChecksumType.sha1, Lists.newArrayList(DEPENDENCY_SHA1), false,
+                true).get(DEPENDENCY_SHA1), ImmutableSet.of(1L, 2L));
+        SetMultimap<String, Long> both = buildChecksumsDao.findBuildIds(ChecksumType.md5,
+                Lists.newArrayList("d02a360ecad98a34b59863c1e65bcf71"), true, true);
+        assertEquals(both.get("d02a360ecad98a34b59863c1e65bcf71"), ImmutableSet.of(2L, 3L));
+    }
+
+    public void unsupportedChecksumType() throws SQLException {
+        assertTrue(buildChecksumsDao.findBuildIds(ChecksumType.sha256, Lists.newArrayList(ARTIFACT_SHA1), true,
+                true).isEmpty());
+    }
+
+    @Test(dependsOnMethods = {"findArtifactChecksum", "findManyChecksums", "findByUsage"})
+    public void deleteBuildChecksums() throws SQLException {
+        assertEquals(buildChecksumsDao.deleteBuildChecksums(2L), 6);
+        SetMultimap<String, Long> buildIds = buildChecksumsDao.findBuildIds(ChecksumType.sha1,
+                Lists.newArrayList(ARTIFACT_SHA1), true, false);
+        assertEquals(buildIds.get(ARTIFACT_SHA1), ImmutableSet.of(1L, 3L));
+    }
+}
@@ -20,6 +20,7 @@ package org.artifactory.storage.db.build.itest.dao;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.UnmodifiableIterator;
 import org.artifactory.checksum.ChecksumType;
 import org.artifactory.storage.db.build.entity.BuildEntity;
@@ -59,6 +60,18 @@ public class BuildsDaoTest extends BuildsDaoBaseTest {
         }
     }
 
+    public void testReadBuildsByIds() throws SQLException {
+        List<BuildEntity> builds = buildsDao.getBuilds(Lists.newArrayList(4L, 1L, 999L));
+        assertEquals(builds.size(), 2);
+        for (BuildEntity build : builds) {
+            if (build.getBuildId() == 1L) {
+                assertBuild1(build);
+            } else {
+                assertBuild4(build);
+            }
+        }
+    }
+
     @Test(dependsOnMethods = "testDeleteBuilds")
     public void testReadBuildsByName() throws SQLException {
         List<Long> buildIds = buildsDao.findBuildIds("ba");
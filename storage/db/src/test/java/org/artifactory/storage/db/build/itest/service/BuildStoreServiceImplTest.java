@@ -20,10 +20,23 @@ package org.artifactory.storage.db.build.itest.service;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import org.apache.commons.lang.StringUtils;
+import org.artifactory.api.jackson.JacksonFactory;
 import org.artifactory.build.BuildRun;
+import org.artifactory.checksum.ChecksumType;
+import org.artifactory.common.ArtifactoryHome;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.storage.build.service.BuildSearchCriteria;
 import org.artifactory.storage.build.service.BuildStoreService;
+import org.artifactory.storage.db.build.dao.BuildArtifactsDao;
+import org.artifactory.storage.db.build.dao.BuildDependenciesDao;
+import org.artifactory.storage.db.build.dao.BuildModulesDao;
+import org.artifactory.storage.db.build.dao.BuildsDao;
+import org.artifactory.storage.db.build.entity.BuildEntity;
+import org.artifactory.storage.db.build.entity.BuildModule;
 import org.artifactory.storage.db.build.service.BuildStoreServiceImpl;
 import org.artifactory.storage.db.itest.DbBaseTest;
+import org.artifactory.test.ArtifactoryHomeStub;
 import org.jfrog.build.api.Agent;
 import org.jfrog.build.api.Artifact;
 import org.jfrog.build.api.Build;
@@ -34,13 +47,20 @@ import org.jfrog.build.api.builder.ArtifactBuilder;
 import org.jfrog.build.api.builder.BuildInfoBuilder;
 import org.jfrog.build.api.builder.DependencyBuilder;
 import org.jfrog.build.api.builder.ModuleBuilder;
+import org.codehaus.jackson.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 import static org.jfrog.build.api.BuildType.GRADLE;
 import static org.testng.Assert.*;
@@ -53,9 +73,23 @@ import static org.testng.Assert.*;
  */
 @Test
 public class BuildStoreServiceImplTest extends DbBaseTest {
+    private static final Logger log = LoggerFactory.getLogger(BuildStoreServiceImplTest.class);
+
     @Autowired
     private BuildStoreService buildStoreService;
 
+    @Autowired
+    private BuildsDao buildsDao;
+
+    @Autowired
+    private BuildModulesDao buildModulesDao;
+
+    @Autowired
+    private BuildArtifactsDao buildArtifactsDao;
+
+    @Autowired
+    private BuildDependenciesDao buildDependenciesDao;
+
     @BeforeClass
     public void setup() {
         importSql("/sql/builds.sql");
@@ -72,6 +106,90 @@ public class BuildStoreServiceImplTest extends DbBaseTest {
                 BuildStoreServiceImpl.formatDateToString(System.currentTimeMillis())));
     }
 
+    @Test(dependsOnMethods = "testAddBuild")
+    public void addBuildJson() throws Exception {
+        String started = BuildStoreServiceImpl.formatDateToString(1349004000000L);
+        Build build = getBuildObject("test", "24", started);
+        Module second = new ModuleBuilder().id("second").artifacts(createArtifacts("second", 3)).build();
+        second.setProperties(new Properties());
+        second.getProperties().put("mod", "prop");
+        build.getModules().add(second);
+        setProperty(ConstantValues.buildJsonCompressionEnabled, "true");
+        try {
+            buildStoreService.addBuild(toJson(build));
+        } finally {
+            setProperty(ConstantValues.buildJsonCompressionEnabled, "false");
+        }
+
+        BuildEntity entity = buildsDao.findBuild("test", "24", 1349004000000L);
+        assertNotNull(entity);
+        assertEquals(entity.getCreatedBy(), "too");
+        assertEquals(entity.getProperties().size(), 1);
+        List<BuildModule> modules = buildModulesDao.findModulesForBuild(entity.getBuildId());
+        assertEquals(modules.size(), 2);
+        List<Long> moduleIds = Lists.newArrayList();
+        for (BuildModule module : modules) {
+            moduleIds.add(module.getModuleId());
+            if ("second".equals(module.getModuleNameId())) {
+                assertEquals(module.getProperties().size(), 1);
+            }
+        }
+        assertEquals(buildArtifactsDao.findArtifactsForModules(moduleIds).size(), 4);
+        assertEquals(buildDependenciesDao.findDependenciesForModules(moduleIds).size(), 1);
+
+        // the stored JSON is compressed and read back
+        Build stored = buildStoreService.getBuildJson(buildStoreService.getBuildRun("test", "24", started));
+        assertNotNull(stored);
+        assertEquals(stored.getModules().size(), 2);
+        assertEquals(stored.getModules().get(1).getId(), "second");
+        assertEquals(stored.getModules().get(1).getArtifacts().size(), 3);
+
+        // the artifacts checksums are indexed
+        String sha1 = second.getArtifacts().get(2).getSha1();
+        Map<String, Set<BuildRun>> builds = buildStoreService.findBuildsForChecksums(BuildSearchCriteria.IN_ARTIFACTS,
+                ChecksumType.sha1, Lists.newArrayList(sha1, "shlob"));
+        assertEquals(builds.get(sha1).size(), 1);
+        assertEquals(builds.get(sha1).iterator().next().getNumber(), "24");
+        assertEquals(builds.get("shlob").size(), 2);
+        assertTrue(buildStoreService.findBuildsForChecksum(BuildSearchCriteria.IN_DEPENDENCIES, ChecksumType.sha1,
+                sha1).isEmpty());
+    }
+
+    @Test(dependsOnMethods = "addBuildJson")
+    public void addUncompressedBuildJson() throws Exception {
+        // the JSON is stored uncompressed by default, and read back like the compressed one
+        String started = BuildStoreServiceImpl.formatDateToString(1349004100000L);
+        buildStoreService.addBuild(toJson(getBuildObject("uncompressed", "1", started)));
+        Build stored = buildStoreService.getBuildJson(buildStoreService.getBuildRun("uncompressed", "1", started));
+        assertNotNull(stored);
+        assertEquals(stored.getName(), "uncompressed");
+        assertEquals(stored.getModules().size(), 1);
+    }
+
+    /**
+     * Measures the insert throughput of a build with 50k artifacts. Disabled by default, it takes a while on Derby.
+     */
+    @Test(enabled = false)
+    public void benchmarkAddLargeBuildJson() throws Exception {
+        int modulesCount = 50;
+        int artifactsPerModule = 1000;
+        Build build = getBuildObject("bench", "1", BuildStoreServiceImpl.formatDateToString(1349005000000L));
+        for (int i = 0; i < modulesCount; i++) {
+            build.getModules().add(new ModuleBuilder().id("module-" + i)
+                    .artifacts(createArtifacts("module-" + i, artifactsPerModule)).build());
+        }
+        String json = toJson(build);
+        build = null;
+
+        long start = System.nanoTime();
+        buildStoreService.addBuild(json);
+        long nanos = System.nanoTime() - start;
+
+        int artifacts = modulesCount * artifactsPerModule;
+        log.info("Inserted a build of {} artifacts ({} JSON chars) on {} in {} ms, {} artifacts/sec", artifacts,
+                json.length(), storageProperties.getDbType(), nanos / 1000000, artifacts * 1000000000L / nanos);
+    }
+
     public void testSearchByChecksum() {
         // TODO:
     }
@@ -102,6 +220,24 @@ public class BuildStoreServiceImplTest extends DbBaseTest {
         assertEquals(buildStoreService.findBuildsByName("ba").size(), 2);
     }
 
+    private List<Artifact> createArtifacts(String prefix, int count) {
+        List<Artifact> artifacts = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            String sha1 = StringUtils.leftPad(Integer.toHexString(prefix.hashCode()) + i, 40, '0');
+            artifacts.add(new ArtifactBuilder(prefix + "-" + i + ".jar").type("jar").sha1(sha1)
+                    .md5(sha1.substring(8)).build());
+        }
+        return artifacts;
+    }
+
+    private String toJson(Build build) throws IOException {
+        StringWriter writer = new StringWriter();
+        JsonGenerator jsonGenerator = JacksonFactory.createJsonGenerator(writer);
+        jsonGenerator.writeObject(build);
+        jsonGenerator.flush();
+        return writer.toString();
+    }
+
     /**
      * Returns a generic build object
      *
@@ -110,6 +246,10 @@ public class BuildStoreServiceImplTest extends DbBaseTest {
      * @param startedBuild
      * @return Build object
      */
+    private void setProperty(ConstantValues constant, String value) {
+        ((ArtifactoryHomeStub) ArtifactoryHome.get()).setProperty(constant, value);
+    }
+
     private Build getBuildObject(String buildName, String buildNumber, String startedBuild) {
         Dependency dependency = new DependencyBuilder().id("moo").type("bob").scopes(Sets.newHashSet("mitzi")).sha1(
                 "pop").md5("shmop").requiredBy(Lists.newArrayList("pitzi")).build();
@@ -0,0 +1,148 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.storage.db.fs.itest.dao;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.lang.StringUtils;
+import org.artifactory.storage.db.fs.dao.NodesDao;
+import org.artifactory.storage.db.fs.dao.PropertiesDao;
+import org.artifactory.storage.db.fs.entity.Node;
+import org.artifactory.storage.db.fs.entity.NodeBuilder;
+import org.artifactory.storage.db.fs.entity.NodePath;
+import org.artifactory.storage.db.fs.entity.NodeProperty;
+import org.artifactory.storage.db.itest.DbBaseTest;
+import org.artifactory.storage.db.util.JdbcHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the multi row batch inserts of the {@link JdbcHelper} and the {@link PropertiesDao}.
+ */
+@Test
+public class BatchInsertDaoTest extends DbBaseTest {
+    private static final Logger log = LoggerFactory.getLogger(BatchInsertDaoTest.class);
+
+    @Autowired
+    private NodesDao nodesDao;
+
+    @Autowired
+    private PropertiesDao propertiesDao;
+
+    @BeforeClass
+    public void setup() {
+        importSql("/sql/nodes.sql");
+    }
+
+    public void createNodes() throws SQLException {
+        // not a multiple of the rows per statement to exercise the remainder statement
+        List<Node> nodes = createFolders("batch-repo", 50000, 257);
+        assertEquals(createBatch(nodes), 257);
+        assertEquals(countRepoNodes("batch-repo"), 257);
+
+        Node node = nodesDao.get(new NodePath("batch-repo", "a/b", "folder-256", false));
+        assertNotNull(node);
+        assertEquals(node.getNodeId(), 50256);
+        assertFalse(node.isFile());
+        assertEquals(node.getCreatedBy(), "batch");
+    }
+
+    public void createEmptyNodes() throws SQLException {
+        assertEquals(createBatch(Lists.<Node>newArrayList()), 0);
+    }
+
+    @Test(dependsOnMethods = "createNodes")
+    public void createProperties() throws SQLException {
+        List<NodeProperty> properties = Lists.newArrayList();
+        for (int i = 0; i < 301; i++) {
+            properties.add(new NodeProperty(60000 + i, 50000 + (i % 3), "key" + i, "value" + i));
+        }
+        String longValue = StringUtils.repeat("v", 4500);
+        properties.add(new NodeProperty(61000, 50001, "long", longValue));
+        properties.add(new NodeProperty(61001, 50001, "empty", ""));
+        assertEquals(propertiesDao.create(properties), 303);
+
+        List<NodeProperty> loaded = propertiesDao.getNodeProperties(50001);
+        assertEquals(loaded.size(), 102);
+        for (NodeProperty property : loaded) {
+            if ("long".equals(property.getPropKey())) {
+                assertEquals(property.getPropValue().length(), 4000);
+            } else if ("empty".equals(property.getPropKey())) {
+                assertEquals(property.getPropValue(), "");
+            } else {
+                assertEquals(property.getPropValue(), "value" + property.getPropKey().substring(3));
+            }
+        }
+    }
+
+    /**
+     * Compares single row inserts to batch inserts. Disabled by default, it takes a while on Derby.
+     */
+    @Test(enabled = false)
+    public void benchmarkNodesInsert() throws SQLException {
+        int count = 100000;
+        List<Node> singleNodes = createFolders("bench-single", 1000000, count);
+        long start = System.nanoTime();
+        for (Node node : singleNodes) {
+            nodesDao.create(node);
+        }
+        long singleNanos = System.nanoTime() - start;
+
+        List<Node> batchNodes = createFolders("bench-batch", 2000000, count);
+        start = System.nanoTime();
+        createBatch(batchNodes);
+        long batchNanos = System.nanoTime() - start;
+
+        assertEquals(countRepoNodes("bench-single"), count);
+        assertEquals(countRepoNodes("bench-batch"), count);
+        log.info("Inserted {} nodes on {}: single row {} rows/sec, batch {} rows/sec", count,
+                storageProperties.getDbType(), count * 1000000000L / singleNanos, count * 1000000000L / batchNanos);
+    }
+
+    private List<Node> createFolders(String repo, long firstId, int count) {
+        List<Node> nodes = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            nodes.add(new NodeBuilder().nodeId(firstId + i).file(false).repo(repo).path("a/b")
+                    .name("folder-" + i).createdBy("batch").modifiedBy("batch").build());
+        }
+        return nodes;
+    }
+
+    private int createBatch(List<Node> nodes) throws SQLException {
+        List<Object[]> rows = Lists.newArrayListWithCapacity(nodes.size());
+        for (Node node : nodes) {
+            rows.add(new Object[]{node.getNodeId(), (byte) (node.isFile() ? 1 : 0), node.getRepo(), node.getPath(),
+                    node.getName(), node.getDepth(), node.getCreated(), node.getCreatedBy(), node.getModified(),
+                    node.getModifiedBy(), node.getUpdated(), node.getLength(), node.getSha1Actual(),
+                    node.getSha1Original(), node.getMd5Actual(), node.getMd5Original()});
+        }
+        return jdbcHelper.executeBatchInsert(NodesDao.TABLE_NAME, rows);
+    }
+
+    private int countRepoNodes(String repo) throws SQLException {
+        return jdbcHelper.executeSelectCount("SELECT COUNT(*) FROM nodes WHERE repo = ?", repo);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.storage.db.fs.itest.dao;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.artifactory.storage.db.fs.dao.ChangeJournalDao;
+import org.artifactory.storage.db.itest.DbBaseTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.SQLException;
+
+import static org.artifactory.storage.db.fs.dao.ChangeJournalDao.TYPE_CHANGED;
+import static org.artifactory.storage.db.fs.dao.ChangeJournalDao.TYPE_DELETED;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests the {@link ChangeJournalDao}.
+ */
+@Test
+public class ChangeJournalDaoTest extends DbBaseTest {
+
+    @Autowired
+    private ChangeJournalDao changeJournalDao;
+
+    @BeforeMethod
+    public void clearJournal() throws SQLException {
+        changeJournalDao.deleteAll();
+        for (String consumer : changeJournalDao.findConsumers().keySet()) {
+            changeJournalDao.deleteConsumer(consumer);
+        }
+    }
+
+    public void startTime() throws SQLException {
+        assertEquals(changeJournalDao.getStartTime(), -1);
+        changeJournalDao.createStart(1, 1000);
+        changeJournalDao.create(2, 3000, TYPE_CHANGED, "repo1", "a/b");
+        changeJournalDao.createStart(3, 2000);
+        assertEquals(changeJournalDao.getStartTime(), 2000);
+    }
+
+    public void changedPathsAreDistinctAndOrdered() throws SQLException {
+        changeJournalDao.createStart(1, 1000);
+        changeJournalDao.create(2, 1500, TYPE_CHANGED, "repo1", "old");
+        changeJournalDao.create(3, 2000, TYPE_CHANGED, "repo1", "a/b/c.jar");
+        changeJournalDao.create(4, 2100, TYPE_DELETED, "repo1", "a/b/c.jar");
+        changeJournalDao.create(5, 2200, TYPE_CHANGED, "repo1", "a");
+        changeJournalDao.create(6, 2300, TYPE_CHANGED, "repo2", "a/other.jar");
+        changeJournalDao.create(7, 2400, TYPE_DELETED, "repo1", "a/b-1");
+
+        assertEquals(changeJournalDao.findChangedPaths("repo1", 2000, null, 10),
+                Lists.newArrayList("a", "a/b-1", "a/b/c.jar"));
+        assertEquals(changeJournalDao.findChangedPaths("repo1", 0, null, 2), Lists.newArrayList("a", "a/b-1"));
+        assertEquals(changeJournalDao.findChangedPaths("repo1", 0, "a/b-1", 2), Lists.newArrayList("a/b/c.jar", "old"));
+        assertTrue(changeJournalDao.findChangedPaths("repo1", 0, "old", 2).isEmpty());
+        assertTrue(changeJournalDao.findChangedPaths("repo3", 0, null, 2).isEmpty());
+    }
+
+    public void deleteBefore() throws SQLException {
+        changeJournalDao.createStart(1, 1000);
+        changeJournalDao.create(2, 1500, TYPE_CHANGED, "repo1", "a");
+        changeJournalDao.create(3, 2500, TYPE_CHANGED, "repo1", "b");
+        assertEquals(changeJournalDao.deleteBefore(2000), 2);
+        assertEquals(changeJournalDao.getStartTime(), -1);
+        assertEquals(changeJournalDao.findChangedPaths("repo1", 0, null, 10), Lists.newArrayList("b"));
+        assertEquals(changeJournalDao.deleteAll(), 1);
+    }
+
+    public void consumers() throws SQLException {
+        changeJournalDao.createConsumer("backup");
+        changeJournalDao.createConsumer("indexer");
+        assertEquals(changeJournalDao.findConsumers(), ImmutableMap.of("backup", -1L, "indexer", -1L));
+
+        assertEquals(changeJournalDao.updateConsumerReadBefore("backup", 2000), 1);
+        assertEquals(changeJournalDao.updateConsumerReadBefore("backup", 1000), 0, "Read time moves forward only");
+        assertEquals(changeJournalDao.deleteConsumer("indexer"), 1);
+        assertEquals(changeJournalDao.findConsumers(), ImmutableMap.of("backup", 2000L));
+    }
+}
@@ -32,6 +32,8 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.testng.Assert.*;
@@ -115,6 +117,61 @@ public class NodesDaoTest extends DbBaseTest {
         assertTrue(nodesDao.hasChildren(path));
     }
 
+    public void getChildrenPagesOfRoot() throws SQLException {
+        NodePath path = new NodePath("repo1", "", "", false);
+        List<Node> firstPage = nodesDao.getChildren(path, null, 2);
+        assertEquals(firstPage.size(), 2);
+        assertEquals(firstPage.get(0).getName(), "a_1.2");
+        assertEquals(firstPage.get(1).getName(), "ab1.2");
+
+        List<Node> secondPage = nodesDao.getChildren(path, "ab1.2", 2);
+        assertEquals(secondPage.size(), 2);
+        assertEquals(secondPage.get(0).getName(), "ant");
+        assertEquals(secondPage.get(1).getName(), "ant-launcher");
+
+        List<Node> lastPage = nodesDao.getChildren(path, "ant-launcher", 2);
+        assertEquals(lastPage.size(), 1);
+        assertEquals(lastPage.get(0).getName(), "org");
+        assertTrue(nodesDao.getChildren(path, "org", 2).isEmpty());
+    }
+
+    public void getChildrenPageReadsTheWholeNodes() throws SQLException {
+        NodePath path = new NodePath("repo1", "org/yossis", "tools", false);
+        List<Node> page = nodesDao.getChildren(path, "file2.bin", 1);
+        assertEquals(page.size(), 1);
+        Node child = page.get(0);
+        Node expected = nodesDao.get(child.getNodePath());
+        assertNotNull(expected);
+        assertEquals(child.getName(), "file3.bin");
+        assertEquals(child.getNodeId(), expected.getNodeId());
+        assertEquals(child.getDepth(), expected.getDepth());
+        assertEquals(child.getCreatedBy(), expected.getCreatedBy());
+        assertEquals(child.getLength(), expected.getLength());
+        assertEquals(child.getSha1Actual(), expected.getSha1Actual());
+        assertEquals(child.getMd5Original(), expected.getMd5Original());
+    }
+
+    public void getChildrenFilteredByType() throws SQLException {
+        NodePath path = new NodePath("repo1", "", "", false);
+        List<String> noSuffixes = Collections.emptyList();
+        assertEquals(nodesDao.getChildren(path, null, 10, false, true, noSuffixes).size(), 5);
+        assertTrue(nodesDao.getChildren(path, null, 10, true, false, noSuffixes).isEmpty());
+    }
+
+    public void getChildrenFilteredByFileNameSuffix() throws SQLException {
+        NodePath path = new NodePath("repo1", "org/yossis", "tools", false);
+        List<Node> children = nodesDao.getChildren(path, null, 10, true, true, Arrays.asList("2.bin", "3.bin"));
+        assertEquals(children.size(), 2);
+        assertEquals(children.get(0).getName(), "file2.bin");
+        assertEquals(children.get(1).getName(), "file3.bin");
+
+        // wildcards are not filtered by the query
+        children = nodesDao.getChildren(path, "file2.bin", 10, true, false, Arrays.asList("_.bin"));
+        assertEquals(children.size(), 2);
+        assertEquals(children.get(0).getName(), "file3.bin");
+        assertEquals(children.get(1).getName(), "test.bin");
+    }
+
     public void getChildrenOfNodeDirectlyUnderRoot() throws SQLException {
         // nodes directly under root has name but no path - hence special test case
         NodePath path = new NodePath("repo1", "", "org", false);
@@ -18,6 +18,7 @@
 
 package org.artifactory.storage.db.fs.itest.dao;
 
+import com.google.common.collect.Lists;
 import org.artifactory.storage.db.fs.dao.TasksDao;
 import org.artifactory.storage.db.fs.entity.TaskRecord;
 import org.artifactory.storage.db.itest.DbBaseTest;
@@ -26,6 +27,7 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Set;
 
 import static org.testng.Assert.*;
@@ -54,6 +56,19 @@ public class TasksDaoTest extends DbBaseTest {
         }
     }
 
+    public void loadPages() throws SQLException {
+        for (int i = 0; i < 5; i++) {
+            tasksDao.create("PAGED", "repo:path/" + i);
+        }
+        Set<TaskRecord> firstPage = tasksDao.load("PAGED", null, 2);
+        assertEquals(contexts(firstPage), Lists.newArrayList("repo:path/0", "repo:path/1"));
+        Set<TaskRecord> secondPage = tasksDao.load("PAGED", "repo:path/1", 2);
+        assertEquals(contexts(secondPage), Lists.newArrayList("repo:path/2", "repo:path/3"));
+        Set<TaskRecord> lastPage = tasksDao.load("PAGED", "repo:path/3", 2);
+        assertEquals(contexts(lastPage), Lists.newArrayList("repo:path/4"));
+        assertTrue(tasksDao.load("PAGED", "repo:path/4", 2).isEmpty());
+    }
+
     public void exist() throws SQLException {
         assertTrue(tasksDao.exist("INDEX", "repo1:ant/ant/1.5/ant-1.5.jar"));
         assertFalse(tasksDao.exist("INDEX", "repo1:ant/ant/1.9/ant-1.9.jar"));
@@ -81,4 +96,12 @@ public class TasksDaoTest extends DbBaseTest {
         assertFalse(tasksDao.exist("MMC", "this/is/a/test"));
     }
 
+    private List<String> contexts(Set<TaskRecord> tasks) {
+        List<String> contexts = Lists.newArrayList();
+        for (TaskRecord task : tasks) {
+            contexts.add(task.getTaskContext());
+        }
+        return contexts;
+    }
+
 }
@@ -18,6 +18,8 @@
 
 package org.artifactory.storage.db.fs.itest.service;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.artifactory.fs.ZipEntryInfo;
 import org.artifactory.model.xstream.fs.ZipEntryImpl;
@@ -27,13 +29,21 @@ import org.artifactory.storage.binstore.service.BinaryData;
 import org.artifactory.storage.db.fs.dao.ArchiveEntriesDao;
 import org.artifactory.storage.db.itest.DbBaseTest;
 import org.artifactory.storage.db.util.JdbcHelper;
+import org.artifactory.storage.fs.service.ArchiveEntriesConflictException;
 import org.artifactory.storage.fs.service.ArchiveEntriesService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.testng.Assert.assertFalse;
@@ -160,4 +170,60 @@ public class ArchiveEntriesServiceImplTest extends DbBaseTest {
         assertThat(archiveEntriesDao.findArchiveNameId("uniquename")).isNotEqualTo(DbService.NO_DB_ID);
     }
 
+    public void insertOverlappingEntriesInParallel() throws Exception {
+        int archives = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(archives);
+        try {
+            for (int round = 0; round < 10; round++) {
+                // values shared by all the archives of the round, each archive also has its own entries
+                String sharedPrefix = "shared" + randomMd5().substring(0, 8);
+                CyclicBarrier start = new CyclicBarrier(archives);
+                List<Future<?>> futures = Lists.newArrayList();
+                Map<String, Set<ZipEntryImpl>> archivesEntries = Maps.newHashMap();
+                for (int archive = 0; archive < archives; archive++) {
+                    String sha1 = randomSha1();
+                    binariesDao.create(new BinaryData(sha1, randomMd5(), 100));
+                    Set<ZipEntryImpl> entries = Sets.newHashSet();
+                    for (int i = 0; i < 50; i++) {
+                        entries.add(new ZipEntryImpl(sharedPrefix + "/dir" + i + "/file" + i, false));
+                        entries.add(new ZipEntryImpl(sharedPrefix + "/dir" + i + "/" + sha1 + i, false));
+                    }
+                    archivesEntries.put(sha1, entries);
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        addArchiveEntriesWithRetries(sha1, entries);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get(1, TimeUnit.MINUTES);
+                }
+                for (Map.Entry<String, Set<ZipEntryImpl>> archive : archivesEntries.entrySet()) {
+                    assertTrue(archiveEntriesService.isIndexed(archive.getKey()));
+                    assertThat(archiveEntriesService.getArchiveEntries(archive.getKey()))
+                            .isEqualTo(archive.getValue());
+                }
+                assertThat(archiveEntriesDao.findArchivePathId(sharedPrefix + "/dir0")).isNotEqualTo(
+                        DbService.NO_DB_ID);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void addArchiveEntriesWithRetries(String sha1, Set<ZipEntryImpl> entries) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                archiveEntriesService.addArchiveEntries(sha1, entries);
+                return;
+            } catch (ArchiveEntriesConflictException e) {
+                if (attempt == 5) {
+                    throw e;
+                }
+                // the db tests run in auto commit, remove the partial indexing as a transaction rollback would
+                archiveEntriesService.deleteArchiveEntries(sha1);
+            }
+        }
+    }
+
 }
@@ -0,0 +1,132 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.artifactory.storage.db.fs.itest.service;
+
+import com.google.common.collect.Lists;
+import org.artifactory.common.ArtifactoryHome;
+import org.artifactory.common.ConstantValues;
+import org.artifactory.repo.InternalRepoPathFactory;
+import org.artifactory.storage.db.fs.dao.ChangeJournalDao;
+import org.artifactory.storage.db.itest.DbBaseTest;
+import org.artifactory.storage.fs.service.ChangeJournalService;
+import org.artifactory.test.ArtifactoryHomeStub;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.SQLException;
+
+import static org.artifactory.storage.fs.service.ChangeJournalService.CONSUMER_BACKUP;
+import static org.artifactory.storage.fs.service.ChangeJournalService.CONSUMER_MAVEN_INDEXER;
+import static org.testng.Assert.*;
+
+/**
+ * Tests the recording consumers of the {@link ChangeJournalService}.
+ */
+@Test
+public class ChangeJournalServiceImplTest extends DbBaseTest {
+
+    @Autowired
+    private ChangeJournalService changeJournal;
+
+    @Autowired
+    private ChangeJournalDao changeJournalDao;
+
+    @BeforeMethod
+    public void refreshConsumers() {
+        // the consumers started by other nodes are seen right away
+        ((ArtifactoryHomeStub) ArtifactoryHome.get()).setProperty(
+                ConstantValues.backupChangeJournalConsumersRefreshSecs, "0");
+    }
+
+    @AfterMethod
+    public void stopRecording() {
+        changeJournal.stopRecording(CONSUMER_BACKUP);
+        changeJournal.stopRecording(CONSUMER_MAVEN_INDEXER);
+    }
+
+    public void recordingStopsWithTheLastConsumer() {
+        changeJournal.itemChanged(InternalRepoPathFactory.create("repo1", "ignored"));
+        assertEquals(changeJournal.getJournalStart(), -1);
+
+        changeJournal.startRecording(CONSUMER_BACKUP);
+        changeJournal.startRecording(CONSUMER_MAVEN_INDEXER);
+        changeJournal.itemChanged(InternalRepoPathFactory.create("repo1", "a"));
+
+        changeJournal.stopRecording(CONSUMER_MAVEN_INDEXER);
+        assertFalse(changeJournal.isRecording(CONSUMER_MAVEN_INDEXER));
+        assertTrue(changeJournal.isRecording(CONSUMER_BACKUP));
+        assertEquals(changeJournal.getChangedPaths("repo1", 0, null, 10), Lists.newArrayList("a"));
+
+        changeJournal.stopRecording(CONSUMER_BACKUP);
+        assertFalse(changeJournal.isRecording(CONSUMER_BACKUP));
+        assertEquals(changeJournal.getJournalStart(), -1);
+        assertTrue(changeJournal.getChangedPaths("repo1", 0, null, 10).isEmpty());
+    }
+
+    public void pruneKeepsTheChangesThatAnyConsumerNeeds() throws InterruptedException {
+        changeJournal.startRecording(CONSUMER_BACKUP);
+        changeJournal.startRecording(CONSUMER_MAVEN_INDEXER);
+        changeJournal.itemChanged(InternalRepoPathFactory.create("repo1", "a"));
+        Thread.sleep(5);
+        long before = System.currentTimeMillis();
+
+        changeJournal.prune(CONSUMER_BACKUP, before);
+        assertEquals(changeJournal.getChangedPaths("repo1", 0, null, 10), Lists.newArrayList("a"),
+                "The indexer didn't prune yet");
+
+        changeJournal.prune(CONSUMER_MAVEN_INDEXER, before);
+        assertTrue(changeJournal.getChangedPaths("repo1", 0, null, 10).isEmpty());
+        assertEquals(changeJournal.getJournalStart(), before);
+    }
+
+    public void pruneOfNotRecordingConsumerIsIgnored() throws InterruptedException {
+        changeJournal.startRecording(CONSUMER_BACKUP);
+        changeJournal.itemChanged(InternalRepoPathFactory.create("repo1", "a"));
+        Thread.sleep(5);
+        changeJournal.prune(CONSUMER_MAVEN_INDEXER, System.currentTimeMillis());
+        assertEquals(changeJournal.getChangedPaths("repo1", 0, null, 10), Lists.newArrayList("a"));
+    }
+
+    public void stopKeepsTheChangesThatTheOtherConsumersDidNotRead() throws InterruptedException {
+        changeJournal.startRecording(CONSUMER_BACKUP);
+        changeJournal.startRecording(CONSUMER_MAVEN_INDEXER);
+        changeJournal.itemChanged(InternalRepoPathFactory.create("repo1", "a"));
+        Thread.sleep(5);
+        long before = System.currentTimeMillis();
+        changeJournal.prune(CONSUMER_BACKUP, before);
+        changeJournal.itemChanged(InternalRepoPathFactory.create("repo1", "b"));
+
+        changeJournal.stopRecording(CONSUMER_MAVEN_INDEXER);
+        assertEquals(changeJournal.getChangedPaths("repo1", 0, null, 10), Lists.newArrayList("b"));
+        assertEquals(changeJournal.getJournalStart(), before);
+    }
+
+    public void consumerStartedByAnotherNodeIsRecorded() throws SQLException {
+        changeJournalDao.createConsumer(CONSUMER_BACKUP);
+
+        assertTrue(changeJournal.isRecording(CONSUMER_BACKUP));
+        changeJournal.itemChanged(InternalRepoPathFactory.create("repo1", "a"));
+        assertEquals(changeJournal.getChangedPaths("repo1", 0, null, 10), Lists.newArrayList("a"));
+
+        changeJournal.startRecording(CONSUMER_BACKUP);
+        assertEquals(changeJournalDao.findConsumers().size(), 1);
+    }
+}
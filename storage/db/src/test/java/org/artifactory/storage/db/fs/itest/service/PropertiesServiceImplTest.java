@@ -18,15 +18,21 @@
 
 package org.artifactory.storage.db.fs.itest.service;
 
+import com.google.common.collect.Maps;
+import org.apache.commons.lang.StringUtils;
 import org.artifactory.md.Properties;
 import org.artifactory.model.common.RepoPathImpl;
 import org.artifactory.model.xstream.fs.PropertiesImpl;
 import org.artifactory.storage.db.itest.DbBaseTest;
+import org.artifactory.storage.db.util.DbUtils;
 import org.artifactory.storage.fs.service.PropertiesService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
 import java.util.Set;
 
 import static org.testng.Assert.*;
@@ -91,6 +97,34 @@ public class PropertiesServiceImplTest extends DbBaseTest {
         assertEquals(propertiesService.loadProperties(6).size(), 0);
     }
 
+    public void setPropertiesWritesOnlyTheDifference() throws SQLException {
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.put("key1", "1");
+        properties.put("key1", "2");
+        properties.put("key2", "x");
+        propertiesService.setProperties(503, properties);
+        Map<String, Long> propIds = getPropIds(503);
+
+        PropertiesImpl updated = new PropertiesImpl();
+        updated.put("key1", "1");
+        updated.put("key2", "y");
+        updated.put("key3", "");
+        propertiesService.setProperties(503, updated);
+
+        assertEquals(propertiesService.loadProperties(503), updated);
+        Map<String, Long> updatedIds = getPropIds(503);
+        assertEquals(updatedIds.size(), 3);
+        assertEquals(updatedIds.get("key1=1"), propIds.get("key1=1"), "Unchanged value should not be rewritten");
+        assertFalse(propIds.containsValue(updatedIds.get("key2=y")));
+        assertFalse(propIds.containsValue(updatedIds.get("key3=")));
+    }
+
+    public void loadedPropertiesAreCopies() {
+        Properties props = propertiesService.loadProperties(5);
+        props.put("build.name", "changed");
+        assertEquals(propertiesService.loadProperties(5).get("build.name").size(), 1);
+    }
+
     public void hasPropertiesPathWithProperties() {
         assertTrue(propertiesService.hasProperties(new RepoPathImpl("repo1", "ant/ant/1.5/ant-1.5.jar")));
     }
@@ -98,4 +132,18 @@ public class PropertiesServiceImplTest extends DbBaseTest {
     public void hasPropertiesPathWithNoProperties() {
         assertFalse(propertiesService.hasProperties(new RepoPathImpl("repo2", "org")));
     }
+
+    private Map<String, Long> getPropIds(long nodeId) throws SQLException {
+        Map<String, Long> propIds = Maps.newHashMap();
+        ResultSet rs = null;
+        try {
+            rs = jdbcHelper.executeSelect("SELECT * FROM node_props WHERE node_id = ?", nodeId);
+            while (rs.next()) {
+                propIds.put(rs.getString(3) + "=" + StringUtils.defaultString(rs.getString(4)), rs.getLong(1));
+            }
+        } finally {
+            DbUtils.close(rs);
+        }
+        return propIds;
+    }
 }
@@ -18,12 +18,15 @@
 
 package org.artifactory.storage.db.fs.itest.service;
 
+import com.google.common.collect.Lists;
 import org.artifactory.factory.InfoFactoryHolder;
 import org.artifactory.fs.MutableStatsInfo;
 import org.artifactory.fs.StatsInfo;
 import org.artifactory.model.common.RepoPathImpl;
 import org.artifactory.storage.db.itest.DbBaseTest;
 import org.artifactory.storage.fs.service.StatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -31,6 +34,10 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.testng.Assert.*;
 
@@ -41,6 +48,7 @@ import static org.testng.Assert.*;
  */
 @Test
 public class StatsServiceImplTest extends DbBaseTest {
+    private static final Logger log = LoggerFactory.getLogger(StatsServiceImplTest.class);
 
     @Autowired
     private StatsService statsService;
@@ -155,6 +163,67 @@ public class StatsServiceImplTest extends DbBaseTest {
         assertFalse(statsService.hasStats(filePath));
     }
 
+    public void concurrentFileDownloadedEvents() throws Exception {
+        final RepoPathImpl filePath = new RepoPathImpl("repo2", "no/such/concurrent.jar");
+        final int threads = 8;
+        final int downloadsPerThread = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < downloadsPerThread; j++) {
+                        statsService.fileDownloaded(filePath, "concurrent", System.currentTimeMillis(), false);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        StatsInfo stats = statsService.getStats(filePath);
+        assertNotNull(stats);
+        assertEquals(stats.getDownloadCount(), threads * downloadsPerThread);
+        assertEquals(stats.getLastDownloadedBy(), "concurrent");
+    }
+
+    /**
+     * Measures the download events throughput when all the threads download the same path. Disabled by default.
+     */
+    @Test(enabled = false)
+    public void benchmarkContendedFileDownloadedEvents() throws Exception {
+        final RepoPathImpl filePath = new RepoPathImpl("repo2", "no/such/contended.jar");
+        final int threads = Runtime.getRuntime().availableProcessors() * 4;
+        final int downloadsPerThread = 200000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < downloadsPerThread; j++) {
+                        statsService.fileDownloaded(filePath, "contended", System.currentTimeMillis(), false);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        long nanos = System.nanoTime() - start;
+
+        long events = (long) threads * downloadsPerThread;
+        assertEquals(statsService.getStats(filePath).getDownloadCount(), events);
+        log.info("Queued {} download events of one path from {} threads: {} events/sec", events, threads,
+                events * 1000000000L / nanos);
+        ReflectionTestUtils.invokeMethod(statsService, "flushStats");
+    }
+
     public void setStatsOnFileWithoutStats() {
         RepoPathImpl filePath = new RepoPathImpl("repo2", "org/jfrog/test/test2.jar");
         assertNull(statsService.getStats(filePath));
@@ -0,0 +1,128 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.artifactory.storage.db.fs.service;
+
+import org.artifactory.md.Properties;
+import org.artifactory.model.xstream.fs.PropertiesImpl;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests the {@link NodePropertiesCache}.
+ */
+@Test
+public class NodePropertiesCacheTest {
+
+    private AtomicInteger loads;
+    private LongFunction<Properties> loader;
+
+    @BeforeMethod
+    public void setUp() {
+        loads = new AtomicInteger();
+        loader = nodeId -> {
+            loads.incrementAndGet();
+            PropertiesImpl properties = new PropertiesImpl();
+            properties.put("node", String.valueOf(nodeId));
+            properties.put("load", String.valueOf(loads.get()));
+            return properties;
+        };
+    }
+
+    public void loadsOnce() {
+        NodePropertiesCache cache = new NodePropertiesCache(100, 60);
+        Properties first = cache.get(1, loader);
+        assertEquals(cache.get(1, loader), first);
+        assertEquals(loads.get(), 1);
+        cache.get(2, loader);
+        assertEquals(loads.get(), 2);
+    }
+
+    public void returnsCopies() {
+        NodePropertiesCache cache = new NodePropertiesCache(100, 60);
+        cache.get(1, loader).put("node", "changed");
+        Properties cached = cache.get(1, loader);
+        assertEquals(cached.get("node").size(), 1);
+        assertEquals(cached.getFirst("node"), "1");
+    }
+
+    public void invalidateReloads() {
+        NodePropertiesCache cache = new NodePropertiesCache(100, 60);
+        cache.get(1, loader);
+        cache.get(2, loader);
+        cache.invalidate(1);
+        assertEquals(cache.get(1, loader).getFirst("load"), "3");
+        cache.get(2, loader);
+        assertEquals(loads.get(), 3);
+
+        cache.invalidateAll();
+        cache.get(2, loader);
+        assertEquals(loads.get(), 4);
+    }
+
+    public void disabledCacheAlwaysLoads() {
+        NodePropertiesCache cache = new NodePropertiesCache(0, 60);
+        cache.get(1, loader);
+        cache.get(1, loader);
+        cache.invalidate(1);
+        assertEquals(loads.get(), 2);
+    }
+
+    public void invalidationRacingWithTheLoadIsNotCached() {
+        NodePropertiesCache cache = new NodePropertiesCache(100, 60);
+        cache.get(1, nodeId -> {
+            // a concurrent write of the node properties
+            cache.invalidate(nodeId);
+            return loader.apply(nodeId);
+        });
+        cache.get(1, loader);
+        assertEquals(loads.get(), 2);
+    }
+
+    public void nodesWrittenByTheTransactionBypassTheCache() {
+        NodePropertiesCache cache = new NodePropertiesCache(100, 60);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.get(1, loader);
+            cache.get(2, loader);
+            cache.invalidate(1);
+            cache.get(1, loader);
+            cache.get(1, loader);
+            cache.get(2, loader);
+            assertEquals(loads.get(), 4, "Written node should not be cached until the transaction completes");
+
+            for (TransactionSynchronization synchronization :
+                    TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+        cache.get(1, loader);
+        cache.get(1, loader);
+        assertEquals(loads.get(), 5);
+    }
+}
@@ -23,6 +23,7 @@ import org.apache.commons.lang.RandomStringUtils;
 import org.artifactory.api.context.ArtifactoryContextThreadBinder;
 import org.artifactory.storage.StorageProperties;
 import org.artifactory.storage.db.DbServiceImpl;
+import org.artifactory.storage.db.fs.service.NodePropertiesCache;
 import org.artifactory.storage.db.spring.ArtifactoryTomcatDataSource;
 import org.artifactory.storage.db.util.DbUtils;
 import org.artifactory.storage.db.util.JdbcHelper;
@@ -69,6 +70,9 @@ public abstract class DbBaseTest extends AbstractTestNGSpringContextTests {
     @Qualifier("storageProperties")
     protected StorageProperties storageProperties;
 
+    @Autowired
+    private NodePropertiesCache propertiesCache;
+
     private ArtifactoryHomeBoundTest artifactoryHomeBoundTest;
 
     private DummyArtifactoryContext dummyArtifactoryContext;
@@ -96,6 +100,8 @@ public abstract class DbBaseTest extends AbstractTestNGSpringContextTests {
             DbTestUtils.refreshOrRecreateSchema(connection, storageProperties.getDbType());
         }
         TestUtils.invokeMethodNoArgs(dbService, "initializeIdGenerator");
+        // node ids are reused by the test data of the recreated schema
+        propertiesCache.invalidateAll();
     }
 
     @AfterClass
@@ -149,6 +155,8 @@ public abstract class DbBaseTest extends AbstractTestNGSpringContextTests {
             DbUtils.executeSqlStream(con, resource);
             // update the id generator
             TestUtils.invokeMethodNoArgs(dbService, "initializeIdGenerator");
+            // node ids are reused by the test data of the recreated schema
+            propertiesCache.invalidateAll();
         } catch (Exception e) {
             throw new RuntimeException(e);
         } finally {
@@ -51,8 +51,8 @@ public class DbTestUtils {
             "binary_blobs", "binaries",
             "aces", "acls", "users_groups", "groups", "user_props", "users",
             "permission_target_repos", "permission_targets",
-            "configs", "tasks",
-            "module_props", "build_props", "build_jsons", "build_promotions",
+            "configs", "tasks", "change_journal", "change_journal_consumers",
+            "build_checksums", "module_props", "build_props", "build_jsons", "build_promotions",
             "build_dependencies", "build_artifacts", "build_modules", "builds",
             "unique_ids"
     };
@@ -0,0 +1,63 @@
+/*
+ * Artifactory is a binaries repository manager.
+ * Copyright (C) 2012 JFrog Ltd.
+ *
+ * Artifactory is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Artifactory is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Artifactory.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.artifactory.storage.db.util;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.io.IOUtils;
+import org.artifactory.storage.db.util.blob.CompressedBlobs;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests {@link CompressedBlobs}.
+ */
+@Test
+public class CompressedBlobsTest {
+
+    public void compressAndUncompress() throws IOException {
+        String json = "{\"name\":\"compressible-build\",\"modules\":[]}";
+        byte[] compressed = CompressedBlobs.compress(json.getBytes(Charsets.UTF_8));
+        assertEquals(compressed[0], (byte) 0x1f);
+        assertEquals(read(compressed), json);
+    }
+
+    public void uncompressedBlobIsReadAsIs() throws IOException {
+        String json = "{\"name\":\"plain\"}";
+        assertEquals(read(json.getBytes(Charsets.UTF_8)), json);
+    }
+
+    public void emptyBlob() throws IOException {
+        assertEquals(read(new byte[0]), "");
+    }
+
+    public void compressJsonObject() throws IOException {
+        byte[] compressed = CompressedBlobs.compressJson(ImmutableMap.of("name", "moo"));
+        String json = read(compressed);
+        assertTrue(json.contains("\"name\"") && json.contains("\"moo\""), json);
+    }
+
+    private String read(byte[] blob) throws IOException {
+        return IOUtils.toString(CompressedBlobs.uncompressed(new ByteArrayInputStream(blob)), Charsets.UTF_8.name());
+    }
+}
@@ -91,6 +91,30 @@ public class AqlResource {
         }
     }
 
+    /**
+     * Returns the plan of the query (optimized criterias, estimations and the SQL query) without executing it
+     */
+    @POST
+    @Path("explain")
+    @Produces({MediaType.TEXT_PLAIN})
+    public Response explain(String contentQuery) {
+        // The plan exposes the SQL query and the database statistics
+        if (!authorizationService.isAdmin()) {
+            throw new AuthorizationRestException("Only administrators are allowed to explain AQL queries\n");
+        }
+        String query = getQuery(contentQuery);
+        if (StringUtils.isBlank(query)) {
+            log.error("Couldn't find the query neither in the request URL and the attached file");
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        try {
+            return Response.ok(aqlService.explainQuery(query)).build();
+        } catch (AqlException e) {
+            log.debug("Fail to parse query: {}: ", query, e);
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+    }
+
     private AqlRestResult executeAqlQuery(String query) {
         AqlLazyResult result = aqlService.executeQueryLazy(query);
         final AqlRestResult restResult;